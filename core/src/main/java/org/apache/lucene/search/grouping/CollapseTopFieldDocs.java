@@ -26,7 +26,6 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.util.PriorityQueue;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -53,17 +52,34 @@ public class CollapseTopFieldDocs extends TopFieldDocs {
         // Which shard (index into shardHits[]):
         final int shardIndex;
 
+        // True if we should use the incoming ScoreDoc.shardIndex for sort order
+        final boolean useScoreDocIndex;
+
         // Which hit within the shard:
         int hitIndex;
 
-        ShardRef(int shardIndex) {
+        ShardRef(int shardIndex, boolean useScoreDocIndex) {
             this.shardIndex = shardIndex;
+            this.useScoreDocIndex = useScoreDocIndex;
         }
 
         @Override
         public String toString() {
             return "ShardRef(shardIndex=" + shardIndex + " hitIndex=" + hitIndex + ")";
         }
+
+        int getShardIndex(ScoreDoc scoreDoc) {
+            if (useScoreDocIndex) {
+                if (scoreDoc.shardIndex == -1) {
+                    throw new IllegalArgumentException("setShardIndex is false but TopDocs["
+                        + shardIndex + "].scoreDocs[" + hitIndex + "] is not set");
+                }
+                return scoreDoc.shardIndex;
+            } else {
+                // NOTE: we don't assert that shardIndex is -1 here, because the caller could have set it but asked us to ignore it
+                return shardIndex;
+            }
+        }
     };
 
     private static class MergeSortQueue extends PriorityQueue<ShardRef> {
@@ -72,7 +88,7 @@ public class CollapseTopFieldDocs extends TopFieldDocs {
         final FieldComparator<?>[] comparators;
         final int[] reverseMul;
 
-        MergeSortQueue(Sort sort, CollapseTopFieldDocs[] shardHits) throws IOException {
+        MergeSortQueue(Sort sort, CollapseTopFieldDocs[] shardHits) {
             super(shardHits.length);
             this.shardHits = new ScoreDoc[shardHits.length][];
             for (int shardIDX = 0; shardIDX < shardHits.length; shardIDX++) {
@@ -117,9 +133,11 @@ public class CollapseTopFieldDocs extends TopFieldDocs {
             }
 
             // Tie break: earlier shard wins
-            if (first.shardIndex < second.shardIndex) {
+            final int firstShardIndex = first.getShardIndex(firstFD);
+            final int secondShardIndex = second.getShardIndex(secondFD);
+            if (firstShardIndex < secondShardIndex) {
                 return true;
-            } else if (first.shardIndex > second.shardIndex) {
+            } else if (firstShardIndex > secondShardIndex) {
                 return false;
             } else {
                 // Tie break in same shard: resolve however the
@@ -133,9 +151,24 @@ public class CollapseTopFieldDocs extends TopFieldDocs {
     /**
      * Returns a new CollapseTopDocs, containing topN collapsed results across
      * the provided CollapseTopDocs, sorting by score. Each {@link CollapseTopFieldDocs} instance must be sorted.
+     *
+     * @see #merge(Sort, int, int, CollapseTopFieldDocs[], boolean)
+     **/
+    public static CollapseTopFieldDocs merge(Sort sort, int start, int size,
+                                             CollapseTopFieldDocs[] shardHits) {
+        return merge(sort, start, size, shardHits, true);
+    }
+
+    /**
+     * Returns a new CollapseTopDocs, containing topN collapsed results across
+     * the provided CollapseTopDocs, sorting by score. Each {@link CollapseTopFieldDocs} instance must be sorted.
+     *
+     * @param setShardIndex if <code>true</code> the {@link ScoreDoc#shardIndex} of each hit is set to the index of its
+     *                      top docs in <code>shardHits</code>. Otherwise the incoming shard index is used to break ties
+     *                      and must be set on every hit.
      **/
     public static CollapseTopFieldDocs merge(Sort sort, int start, int size,
-                                             CollapseTopFieldDocs[] shardHits) throws IOException {
+                                             CollapseTopFieldDocs[] shardHits, boolean setShardIndex) {
         String collapseField = shardHits[0].field;
         for (int i = 1; i < shardHits.length; i++) {
             if (collapseField.equals(shardHits[i].field) == false) {
@@ -155,7 +188,7 @@ public class CollapseTopFieldDocs extends TopFieldDocs {
             totalHitCount += shard.totalHits;
             if (shard.scoreDocs != null && shard.scoreDocs.length > 0) {
                 availHitCount += shard.scoreDocs.length;
-                queue.add(new ShardRef(shardIDX));
+                queue.add(new ShardRef(shardIDX, setShardIndex == false));
                 maxScore = Math.max(maxScore, shard.getMaxScore());
             }
         }
@@ -192,7 +225,9 @@ public class CollapseTopFieldDocs extends TopFieldDocs {
                     continue;
                 }
                 seen.add(collapseValue);
-                hit.shardIndex = ref.shardIndex;
+                if (setShardIndex) {
+                    hit.shardIndex = ref.shardIndex;
+                }
                 if (hitUpto >= start) {
                     hitList.add(hit);
                     collapseList.add(collapseValue);
@@ -277,9 +277,24 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
     public BulkRequest add(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String
         defaultRouting, @Nullable String[] defaultFields, @Nullable FetchSourceContext defaultFetchSourceContext, @Nullable String
         defaultPipeline, @Nullable Object payload, boolean allowExplicitIndex, XContentType xContentType) throws IOException {
+        addCompleteItems(data, defaultIndex, defaultType, defaultRouting, defaultFields, defaultFetchSourceContext, defaultPipeline,
+            payload, allowExplicitIndex, xContentType);
+        return this;
+    }
+
+    /**
+     * Adds the complete items of the framed data and returns the number of bytes they take up. Trailing bytes that do not form a
+     * complete item yet, like an action line without its source line, are not consumed. This allows to parse a bulk body
+     * incrementally as it arrives by passing the unconsumed bytes again together with the data that follows them.
+     */
+    public int addCompleteItems(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType,
+                                @Nullable String defaultRouting, @Nullable String[] defaultFields,
+                                @Nullable FetchSourceContext defaultFetchSourceContext, @Nullable String defaultPipeline,
+                                @Nullable Object payload, boolean allowExplicitIndex, XContentType xContentType) throws IOException {
         XContent xContent = xContentType.xContent();
         int line = 0;
         int from = 0;
+        int consumed = 0;
         int length = data.length();
         byte marker = xContent.streamSeparator();
         while (true) {
@@ -298,6 +313,7 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
                 // Move to START_OBJECT
                 XContentParser.Token token = parser.nextToken();
                 if (token == null) {
+                    consumed = from;
                     continue;
                 }
                 assert token == XContentParser.Token.START_OBJECT;
@@ -380,6 +396,7 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
 
                 if ("delete".equals(action)) {
                     add(new DeleteRequest(index, type, id).routing(routing).parent(parent).version(version).versionType(versionType), payload);
+                    consumed = from;
                 } else {
                     nextMarker = findNextMarker(marker, from, data, length);
                     if (nextMarker == -1) {
@@ -435,10 +452,11 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
                     }
                     // move pointers
                     from = nextMarker + 1;
+                    consumed = from;
                 }
             }
         }
-        return this;
+        return consumed;
     }
 
     /**
@@ -67,6 +67,9 @@ import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.LongSupplier;
@@ -113,9 +116,21 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         final IndexMetaData metaData = primary.indexSettings().getIndexMetaData();
         Translog.Location location = null;
         final MappingUpdatePerformer mappingUpdater = new ConcreteMappingUpdatePerformer();
-        for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
-            location = executeBulkItemRequest(metaData, primary, request, location, requestIndex,
-                    updateHelper, threadPool::absoluteTimeInMillis, mappingUpdater);
+        int requestIndex = 0;
+        while (requestIndex < request.items().length) {
+            // runs of index and delete items are applied as one batch, updates need to see the result of the previous items
+            int batchEnd = requestIndex;
+            while (batchEnd < request.items().length && isBatchable(request.items()[batchEnd].request())) {
+                batchEnd++;
+            }
+            if (batchEnd > requestIndex) {
+                location = executeBulkItemRequestBatch(primary, request, location, requestIndex, batchEnd, mappingUpdater);
+                requestIndex = batchEnd;
+            } else {
+                location = executeBulkItemRequest(metaData, primary, request, location, requestIndex,
+                        updateHelper, threadPool::absoluteTimeInMillis, mappingUpdater);
+                requestIndex++;
+            }
         }
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         BulkItemRequest[] items = request.items();
@@ -127,11 +142,71 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
     }
 
 
+    private static boolean isBatchable(DocWriteRequest request) {
+        switch (request.opType()) {
+            case CREATE:
+            case INDEX:
+            case DELETE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Executes the index and delete item requests in <code>[from, to)</code>. All items are parsed and their mappings are
+     * updated first, then the resulting operations are applied by the engine as a single batch whose translog records are
+     * written at once.
+     */
+    static Translog.Location executeBulkItemRequestBatch(IndexShard primary, BulkShardRequest request, Translog.Location location,
+                                                         int from, int to, MappingUpdatePerformer mappingUpdater) throws Exception {
+        final BulkItemRequest[] items = request.items();
+        final Engine.Result[] failedResults = new Engine.Result[to - from];
+        final List<Engine.Operation> operations = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            final DocWriteRequest itemRequest = items[i].request();
+            if (itemRequest.opType() == DocWriteRequest.OpType.DELETE) {
+                operations.add(prepareDeleteOperationOnPrimary((DeleteRequest) itemRequest, primary));
+            } else {
+                final IndexRequest indexRequest = (IndexRequest) itemRequest;
+                final MappingUpdatePerformer.MappingUpdateResult result = mappingUpdater.updateMappingsIfNeeded(primary, indexRequest);
+                if (result.isFailed()) {
+                    failedResults[i - from] = new Engine.IndexResult(result.failure, indexRequest.version());
+                } else {
+                    operations.add(result.operation);
+                }
+            }
+        }
+        final Iterator<Engine.Result> results = primary.applyBatch(operations).iterator();
+        for (int i = from; i < to; i++) {
+            final DocWriteRequest itemRequest = items[i].request();
+            final Engine.Result result = failedResults[i - from] != null ? failedResults[i - from] : results.next();
+            final BulkItemResultHolder responseHolder;
+            if (itemRequest.opType() == DocWriteRequest.OpType.DELETE) {
+                responseHolder = deleteResultHolder((DeleteRequest) itemRequest, items[i], primary, (Engine.DeleteResult) result);
+            } else {
+                responseHolder = indexResultHolder((IndexRequest) itemRequest, items[i], primary, (Engine.IndexResult) result);
+            }
+            items[i] = responseHolder.replicaRequest;
+            location = updateReplicaRequest(responseHolder, itemRequest.opType(), location, request);
+            assert items[i].getPrimaryResponse() != null : "replica request must have a primary response";
+        }
+        assert results.hasNext() == false : "more results than operations";
+        return location;
+    }
+
     private static BulkItemResultHolder executeIndexRequest(final IndexRequest indexRequest,
                                                             final BulkItemRequest bulkItemRequest,
                                                             final IndexShard primary,
                                                             final MappingUpdatePerformer mappingUpdater) throws Exception {
         Engine.IndexResult indexResult = executeIndexRequestOnPrimary(indexRequest, primary, mappingUpdater);
+        return indexResultHolder(indexRequest, bulkItemRequest, primary, indexResult);
+    }
+
+    private static BulkItemResultHolder indexResultHolder(final IndexRequest indexRequest,
+                                                          final BulkItemRequest bulkItemRequest,
+                                                          final IndexShard primary,
+                                                          final Engine.IndexResult indexResult) {
         if (indexResult.hasFailure()) {
             return new BulkItemResultHolder(null, indexResult, bulkItemRequest);
         } else {
@@ -147,6 +222,13 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                                                              final BulkItemRequest bulkItemRequest,
                                                              final IndexShard primary) throws IOException {
         Engine.DeleteResult deleteResult = executeDeleteRequestOnPrimary(deleteRequest, primary);
+        return deleteResultHolder(deleteRequest, bulkItemRequest, primary, deleteResult);
+    }
+
+    private static BulkItemResultHolder deleteResultHolder(final DeleteRequest deleteRequest,
+                                                           final BulkItemRequest bulkItemRequest,
+                                                           final IndexShard primary,
+                                                           final Engine.DeleteResult deleteResult) {
         if (deleteResult.hasFailure()) {
             return new BulkItemResultHolder(null, deleteResult, bulkItemRequest);
         } else {
@@ -354,46 +436,49 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
     @Override
     public WriteReplicaResult<BulkShardRequest> shardOperationOnReplica(BulkShardRequest request, IndexShard replica) throws Exception {
         Translog.Location location = null;
-        for (int i = 0; i < request.items().length; i++) {
-            BulkItemRequest item = request.items()[i];
-            if (shouldExecuteReplicaItem(item, i)) {
-                DocWriteRequest docWriteRequest = item.request();
-                DocWriteResponse primaryResponse = item.getPrimaryResponse().getResponse();
-                final Engine.Result operationResult;
-                try {
+        try {
+            // all items are parsed up-front and applied as a single batch whose translog records are written at once
+            final List<Engine.Operation> operations = new ArrayList<>(request.items().length);
+            for (int i = 0; i < request.items().length; i++) {
+                BulkItemRequest item = request.items()[i];
+                if (shouldExecuteReplicaItem(item, i)) {
+                    DocWriteRequest docWriteRequest = item.request();
+                    DocWriteResponse primaryResponse = item.getPrimaryResponse().getResponse();
                     switch (docWriteRequest.opType()) {
                         case CREATE:
                         case INDEX:
-                            operationResult = executeIndexRequestOnReplica(primaryResponse, (IndexRequest) docWriteRequest, replica);
+                            operations.add(prepareIndexOperationOnReplica(primaryResponse, (IndexRequest) docWriteRequest, replica));
                             break;
                         case DELETE:
-                            operationResult = executeDeleteRequestOnReplica(primaryResponse, (DeleteRequest) docWriteRequest, replica);
+                            operations.add(prepareDeleteOperationOnReplica(primaryResponse, (DeleteRequest) docWriteRequest, replica));
                             break;
                         default:
                             throw new IllegalStateException("Unexpected request operation type on replica: "
                                 + docWriteRequest.opType().getLowercase());
                     }
-                    if (operationResult.hasFailure()) {
-                        // check if any transient write operation failures should be bubbled up
-                        Exception failure = operationResult.getFailure();
-                        assert failure instanceof VersionConflictEngineException
-                            || failure instanceof MapperParsingException
-                            : "expected any one of [version conflict, mapper parsing, engine closed, index shard closed]" +
-                            " failures. got " + failure;
-                        if (!TransportActions.isShardNotAvailableException(failure)) {
-                            throw failure;
-                        }
-                    } else {
-                        location = locationToSync(location, operationResult.getTranslogLocation());
-                    }
-                } catch (Exception e) {
-                    // if its not an ignore replica failure, we need to make sure to bubble up the failure
-                    // so we will fail the shard
-                    if (!TransportActions.isShardNotAvailableException(e)) {
-                        throw e;
+                }
+            }
+            for (Engine.Result operationResult : replica.applyBatch(operations)) {
+                if (operationResult.hasFailure()) {
+                    // check if any transient write operation failures should be bubbled up
+                    Exception failure = operationResult.getFailure();
+                    assert failure instanceof VersionConflictEngineException
+                        || failure instanceof MapperParsingException
+                        : "expected any one of [version conflict, mapper parsing, engine closed, index shard closed]" +
+                        " failures. got " + failure;
+                    if (!TransportActions.isShardNotAvailableException(failure)) {
+                        throw failure;
                     }
+                } else {
+                    location = locationToSync(location, operationResult.getTranslogLocation());
                 }
             }
+        } catch (Exception e) {
+            // if its not an ignore replica failure, we need to make sure to bubble up the failure
+            // so we will fail the shard
+            if (!TransportActions.isShardNotAvailableException(e)) {
+                throw e;
+            }
         }
         return new WriteReplicaResult<>(request, location, null, replica, logger);
     }
@@ -414,26 +499,36 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
      * {@link RetryOnReplicaException} if the operation needs to be re-tried.
      */
     public static Engine.IndexResult executeIndexRequestOnReplica(DocWriteResponse primaryResponse, IndexRequest request, IndexShard replica) throws IOException {
+        final Engine.Index operation;
+        try {
+            operation = prepareIndexOperationOnReplica(primaryResponse, request, replica);
+        } catch (MapperParsingException e) {
+            return new Engine.IndexResult(e, primaryResponse.getVersion(), primaryResponse.getSeqNo());
+        }
+        return replica.index(operation);
+    }
+
+    /**
+     * Prepares the given {@link IndexRequest} for execution on a replica shard, throwing a
+     * {@link RetryOnReplicaException} if the mappings of the document are not available on the replica yet.
+     */
+    static Engine.Index prepareIndexOperationOnReplica(DocWriteResponse primaryResponse, IndexRequest request, IndexShard replica) {
         final ShardId shardId = replica.shardId();
         SourceToParse sourceToParse =
             SourceToParse.source(SourceToParse.Origin.REPLICA, shardId.getIndexName(), request.type(), request.id(), request.source(),
                 request.getContentType()).routing(request.routing()).parent(request.parent());
 
-        final Engine.Index operation;
         final long version = primaryResponse.getVersion();
         final VersionType versionType = request.versionType().versionTypeForReplicationAndRecovery();
         assert versionType.validateVersionForWrites(version);
         final long seqNo = primaryResponse.getSeqNo();
-        try {
-            operation = replica.prepareIndexOnReplica(sourceToParse, seqNo, version, versionType, request.getAutoGeneratedTimestamp(), request.isRetry());
-        } catch (MapperParsingException e) {
-            return new Engine.IndexResult(e, version, seqNo);
-        }
+        final Engine.Index operation = replica.prepareIndexOnReplica(sourceToParse, seqNo, version, versionType,
+            request.getAutoGeneratedTimestamp(), request.isRetry());
         Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
         if (update != null) {
             throw new RetryOnReplicaException(shardId, "Mappings are not available on the replica yet, triggered update: " + update);
         }
-        return replica.index(operation);
+        return operation;
     }
 
     /** Utility method to prepare an index operation on primary shards */
@@ -455,17 +550,20 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
     }
 
     private static Engine.DeleteResult executeDeleteRequestOnPrimary(DeleteRequest request, IndexShard primary) throws IOException {
-        final Engine.Delete delete = primary.prepareDeleteOnPrimary(request.type(), request.id(), request.version(), request.versionType());
-        return primary.delete(delete);
+        return primary.delete(prepareDeleteOperationOnPrimary(request, primary));
+    }
+
+    private static Engine.Delete prepareDeleteOperationOnPrimary(DeleteRequest request, IndexShard primary) {
+        return primary.prepareDeleteOnPrimary(request.type(), request.id(), request.version(), request.versionType());
     }
 
-    private static Engine.DeleteResult executeDeleteRequestOnReplica(DocWriteResponse primaryResponse, DeleteRequest request, IndexShard replica) throws IOException {
+    private static Engine.Delete prepareDeleteOperationOnReplica(DocWriteResponse primaryResponse, DeleteRequest request,
+                                                                 IndexShard replica) {
         final VersionType versionType = request.versionType().versionTypeForReplicationAndRecovery();
         final long version = primaryResponse.getVersion();
         assert versionType.validateVersionForWrites(version);
-        final Engine.Delete delete = replica.prepareDeleteOnReplica(request.type(), request.id(),
+        return replica.prepareDeleteOnReplica(request.type(), request.id(),
                 primaryResponse.getSeqNo(), request.primaryTerm(), version, versionType);
-        return replica.delete(delete);
     }
 
     class ConcreteMappingUpdatePerformer implements MappingUpdatePerformer {
@@ -24,12 +24,15 @@ import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentObject;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 public class MultiGetResponse extends ActionResponse implements Iterable<MultiGetItemResponse>, ToXContentObject {
 
@@ -128,24 +131,43 @@ public class MultiGetResponse extends ActionResponse implements Iterable<MultiGe
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
-        builder.startObject();
-        builder.startArray(Fields.DOCS);
+        Iterator<ToXContent> fragments = toXContentFragments();
+        while (fragments.hasNext()) {
+            fragments.next().toXContent(builder, params);
+        }
+        return builder;
+    }
+
+    /**
+     * Splits the XContent of this response into the opening of the docs array, one fragment per item and the closing of the array,
+     * so that a response with many items can be serialized and sent in chunks, see
+     * {@link org.elasticsearch.rest.ChunkedRestResponse}. Rendering all fragments in order produces the same output as
+     * {@link #toXContent(XContentBuilder, Params)}.
+     */
+    public Iterator<ToXContent> toXContentFragments() {
+        List<ToXContent> fragments = new ArrayList<>(responses.length + 2);
+        fragments.add((builder, params) -> builder.startObject().startArray(Fields.DOCS));
         for (MultiGetItemResponse response : responses) {
-            if (response.isFailed()) {
-                builder.startObject();
-                Failure failure = response.getFailure();
-                builder.field(Fields._INDEX, failure.getIndex());
-                builder.field(Fields._TYPE, failure.getType());
-                builder.field(Fields._ID, failure.getId());
-                ElasticsearchException.generateFailureXContent(builder, params, failure.getFailure(), true);
-                builder.endObject();
-            } else {
-                GetResponse getResponse = response.getResponse();
-                getResponse.toXContent(builder, params);
-            }
+            fragments.add((builder, params) -> itemToXContent(response, builder, params));
+        }
+        fragments.add((builder, params) -> builder.endArray().endObject());
+        return fragments.iterator();
+    }
+
+    private static XContentBuilder itemToXContent(MultiGetItemResponse response, XContentBuilder builder, Params params)
+            throws IOException {
+        if (response.isFailed()) {
+            builder.startObject();
+            Failure failure = response.getFailure();
+            builder.field(Fields._INDEX, failure.getIndex());
+            builder.field(Fields._TYPE, failure.getType());
+            builder.field(Fields._ID, failure.getId());
+            ElasticsearchException.generateFailureXContent(builder, params, failure.getFailure(), true);
+            builder.endObject();
+        } else {
+            GetResponse getResponse = response.getResponse();
+            getResponse.toXContent(builder, params);
         }
-        builder.endArray();
-        builder.endObject();
         return builder;
     }
 
@@ -32,6 +32,9 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
@@ -42,7 +45,9 @@ import org.elasticsearch.transport.Transport;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -61,12 +66,15 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     private final Function<String, Transport.Connection> nodeIdToConnection;
     private final SearchTask task;
     private final SearchPhaseResults<Result> results;
+    private final List<Releasable> releasables = new CopyOnWriteArrayList<>();
     private final long clusterStateVersion;
     private final Map<String, AliasFilter> aliasFilter;
     private final Map<String, Float> concreteIndexBoosts;
     private final SetOnce<AtomicArray<ShardSearchFailure>> shardFailures = new SetOnce<>();
     private final Object shardFailuresMutex = new Object();
     private final AtomicInteger successfulOps = new AtomicInteger();
+    private final AtomicBoolean requestFailed = new AtomicBoolean();
+    private final int skippedShards;
     private final long startTime;
 
 
@@ -74,9 +82,11 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                                         Function<String, Transport.Connection> nodeIdToConnection,
                                         Map<String, AliasFilter> aliasFilter, Map<String, Float> concreteIndexBoosts,
                                         Executor executor, SearchRequest request,
-                                        ActionListener<SearchResponse> listener, GroupShardsIterator shardsIts, long startTime,
-                                        long clusterStateVersion, SearchTask task, SearchPhaseResults<Result> resultConsumer) {
-        super(name, request, shardsIts, logger);
+                                        ActionListener<SearchResponse> listener, GroupShardsIterator shardsIts, int skippedShards,
+                                        long startTime, long clusterStateVersion, SearchTask task,
+                                        SearchPhaseResults<Result> resultConsumer) {
+        super(name, request, shardsIts, logger, executor);
+        this.skippedShards = skippedShards;
         this.startTime = startTime;
         this.logger = logger;
         this.searchTransportService = searchTransportService;
@@ -89,6 +99,7 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         this.concreteIndexBoosts = concreteIndexBoosts;
         this.aliasFilter = aliasFilter;
         this.results = resultConsumer;
+        addReleasable(resultConsumer);
     }
 
     /**
@@ -119,6 +130,10 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         /* This is the main search phase transition where we move to the next phase. At this point we check if there is
          * at least one successful operation left and if so we move to the next phase. If not we immediately fail the
          * search phase as "all shards failed"*/
+        if (requestFailed.get()) {
+            // the search failed already, for instance because the results tripped the circuit breaker before all shards responded
+            return;
+        }
         if (successfulOps.get() == 0) { // we have 0 successful results that means we shortcut stuff and return a failure
             if (logger.isDebugEnabled()) {
                 final ShardOperationFailedException[] shardSearchFailures = ExceptionsHelper.groupBy(buildShardFailures());
@@ -167,6 +182,7 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     }
 
     public final void onShardFailure(final int shardIndex, @Nullable SearchShardTarget shardTarget, Exception e) {
+        results.consumeShardFailure(shardIndex);
         // we don't aggregate shard failures on non active shards (but do keep the header counts right)
         if (TransportActions.isShardNotAvailableException(e)) {
             return;
@@ -206,22 +222,44 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
      * @param exception the exception explaining or causing the phase failure
      */
     private void raisePhaseFailure(SearchPhaseExecutionException exception) {
-        results.getSuccessfulResults().forEach((entry) -> {
-            try {
-                Transport.Connection connection = nodeIdToConnection.apply(entry.shardTarget().getNodeId());
-                sendReleaseSearchContext(entry.id(), connection);
-            } catch (Exception inner) {
-                inner.addSuppressed(exception);
-                logger.trace("failed to release context", inner);
-            }
-        });
+        if (requestFailed.compareAndSet(false, true) == false) {
+            logger.trace("search failed already, ignoring phase failure", exception);
+            return;
+        }
+        results.getSuccessfulResults().forEach((entry) -> releaseSearchContext(entry, exception));
+        releaseResources();
         listener.onFailure(exception);
     }
 
+    private void releaseSearchContext(Result result, @Nullable Exception cause) {
+        try {
+            Transport.Connection connection = nodeIdToConnection.apply(result.shardTarget().getNodeId());
+            sendReleaseSearchContext(result.id(), connection);
+        } catch (Exception inner) {
+            if (cause != null) {
+                inner.addSuppressed(cause);
+            }
+            logger.trace("failed to release context", inner);
+        }
+    }
+
     @Override
     public final void onShardSuccess(int shardIndex, Result result) {
         successfulOps.incrementAndGet();
-        results.consumeResult(shardIndex, result);
+        try {
+            results.consumeResult(shardIndex, result);
+        } catch (CircuitBreakingException e) {
+            // fail the search right away instead of waiting for the remaining shards
+            onPhaseFailure(this, "", e);
+            return;
+        }
+        if (requestFailed.get()) {
+            // the search failed while this shard was executing, its context was not released with the others
+            if (result != null) {
+                releaseSearchContext(result, null);
+            }
+            return;
+        }
         if (logger.isTraceEnabled()) {
             logger.trace("got first-phase result from {}", result != null ? result.shardTarget() : null);
         }
@@ -261,8 +299,10 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
 
     @Override
     public final SearchResponse buildSearchResponse(InternalSearchResponse internalSearchResponse, String scrollId) {
-        return new SearchResponse(internalSearchResponse, scrollId, getNumShards(), successfulOps.get(),
-            buildTookInMillis(), buildShardFailures());
+        // skipped shards were pre-filtered and are not part of the shards this action executed on, yet they are
+        // reported as successful shards since we know they can't contribute any results.
+        return new SearchResponse(internalSearchResponse, scrollId, getNumShards() + skippedShards, successfulOps.get() + skippedShards,
+            skippedShards, buildTookInMillis(), buildShardFailures());
     }
 
     @Override
@@ -287,14 +327,25 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
 
     @Override
     public final void onResponse(SearchResponse response) {
+        releaseResources();
         listener.onResponse(response);
     }
 
     @Override
     public final void onFailure(Exception e) {
+        releaseResources();
         listener.onFailure(e);
     }
 
+    @Override
+    public final void addReleasable(Releasable releasable) {
+        releasables.add(releasable);
+    }
+
+    private void releaseResources() {
+        Releasables.close(releasables);
+    }
+
     public final ShardSearchTransportRequest buildShardSearchRequest(ShardIterator shardIt, ShardRouting shard) {
         AliasFilter filter = aliasFilter.get(shard.index().getUUID());
         assert filter != null;
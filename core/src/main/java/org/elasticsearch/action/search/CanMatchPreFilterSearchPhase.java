@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.transport.Transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * This search phase can be used as an initial search phase to pre-filter search shards based on query rewriting.
+ * The queries are rewritten against the shards and based on the rewrite result shards might be able to be excluded
+ * from the search. The extra round trip to the search shards is very cheap compared to the query phase and allows to
+ * skip shards that can't match, for instance if a time based index doesn't overlap with a mandatory range filter.
+ */
+final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<SearchTransportService.CanMatchResponse> {
+
+    private final Function<GroupShardsIterator, SearchPhase> phaseFactory;
+    private final GroupShardsIterator shardsIts;
+
+    CanMatchPreFilterSearchPhase(Logger logger, SearchTransportService searchTransportService,
+                                 Function<String, Transport.Connection> nodeIdToConnection,
+                                 Map<String, AliasFilter> aliasFilter, Map<String, Float> concreteIndexBoosts,
+                                 Executor executor, SearchRequest request,
+                                 ActionListener<SearchResponse> listener, GroupShardsIterator shardsIts, long startTime,
+                                 long clusterStateVersion, SearchTask task, Function<GroupShardsIterator, SearchPhase> phaseFactory) {
+        super("can_match", logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts, executor, request,
+            listener, shardsIts, 0, startTime, clusterStateVersion, task, new BitSetSearchPhaseResults(shardsIts.size()));
+        this.phaseFactory = phaseFactory;
+        this.shardsIts = shardsIts;
+    }
+
+    @Override
+    protected void executePhaseOnShard(ShardIterator shardIt, ShardRouting shard,
+                                       ActionListener<SearchTransportService.CanMatchResponse> listener) {
+        getSearchTransport().sendCanMatch(getConnection(shard.currentNodeId()), buildShardSearchRequest(shardIt, shard), getTask(),
+            listener);
+    }
+
+    @Override
+    protected SearchPhase getNextPhase(SearchPhaseResults<SearchTransportService.CanMatchResponse> results,
+                                       SearchPhaseContext context) {
+        return phaseFactory.apply(getIterator((BitSetSearchPhaseResults) results, shardsIts));
+    }
+
+    /**
+     * Returns a new {@link GroupShardsIterator} that only contains the shards that might match the request. The returned
+     * iterators are reset such that the next phase can iterate all copies of the shard again.
+     */
+    static GroupShardsIterator getIterator(BitSetSearchPhaseResults results, GroupShardsIterator shardsIts) {
+        int cardinality = results.getNumPossibleMatches();
+        FixedBitSet possibleMatches = results.getPossibleMatches();
+        if (cardinality == 0) {
+            // this is a special case where we have no hit but we need to get at least one search response in order
+            // to produce a valid search result with all the aggs etc.
+            possibleMatches.set(0);
+        }
+        List<ShardIterator> shards = new ArrayList<>();
+        int i = 0;
+        for (ShardIterator iter : shardsIts) {
+            if (possibleMatches.get(i++)) {
+                iter.reset();
+                shards.add(iter);
+            }
+        }
+        return new GroupShardsIterator(shards);
+    }
+
+    /**
+     * Collects the can match responses into a bit set. We don't keep the responses around since they don't hold on to any
+     * resources on the shard. Failed shards are marked as possible matches so that the next phase can retry and report them.
+     */
+    static final class BitSetSearchPhaseResults extends SearchPhaseResults<SearchTransportService.CanMatchResponse> {
+
+        private final FixedBitSet possibleMatches;
+        private int numPossibleMatches;
+
+        BitSetSearchPhaseResults(int size) {
+            super(size);
+            possibleMatches = new FixedBitSet(size);
+        }
+
+        @Override
+        void consumeResult(int shardIndex, SearchTransportService.CanMatchResponse result) {
+            if (result.canMatch()) {
+                markPossibleMatch(shardIndex);
+            }
+        }
+
+        @Override
+        boolean hasResult(int shardIndex) {
+            return false; // unneeded
+        }
+
+        @Override
+        void consumeShardFailure(int shardIndex) {
+            // we have to carry over shard failures in order to account for them in the response.
+            markPossibleMatch(shardIndex);
+        }
+
+        private void markPossibleMatch(int shardIndex) {
+            synchronized (possibleMatches) {
+                if (possibleMatches.getAndSet(shardIndex) == false) {
+                    numPossibleMatches++;
+                }
+            }
+        }
+
+        int getNumPossibleMatches() {
+            synchronized (possibleMatches) {
+                return numPossibleMatches;
+            }
+        }
+
+        FixedBitSet getPossibleMatches() {
+            synchronized (possibleMatches) {
+                return possibleMatches;
+            }
+        }
+
+        @Override
+        Stream<SearchTransportService.CanMatchResponse> getSuccessfulResults() {
+            return Stream.empty();
+        }
+    }
+}
@@ -28,12 +28,18 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.transport.ConnectTransportException;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
@@ -43,7 +49,9 @@ import java.util.stream.Stream;
  * the shards replica iterator is exhausted. Each shard is referenced by position in the {@link GroupShardsIterator} which is later
  * referred to as the <tt>shardIndex</tt>.
  * The fan out and collect algorithm is traditionally used as the initial phase which can either be a query execution or collection
- * distributed frequencies
+ * distributed frequencies.
+ * The number of shard level requests that are in flight per node is bounded by {@link SearchRequest#getMaxConcurrentShardRequests()}.
+ * Requests for further shards on the same node are queued and only sent once a previous request to that node has completed.
  */
 abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends SearchPhase {
     private final SearchRequest request;
@@ -51,12 +59,20 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
     private final Logger logger;
     private final int expectedTotalOps;
     private final AtomicInteger totalOps = new AtomicInteger();
+    private final Executor executor;
+    private final int maxConcurrentShardRequests;
+    private final boolean throttleConcurrentRequests;
+    private final Map<String, PendingExecutions> pendingExecutionsPerNode = new ConcurrentHashMap<>();
 
-    InitialSearchPhase(String name, SearchRequest request, GroupShardsIterator shardsIts, Logger logger) {
+    InitialSearchPhase(String name, SearchRequest request, GroupShardsIterator shardsIts, Logger logger, Executor executor) {
         super(name);
         this.request = request;
         this.shardsIts = shardsIts;
         this.logger = logger;
+        this.executor = executor;
+        this.maxConcurrentShardRequests = request.getMaxConcurrentShardRequests();
+        // if we can't hit more than the limit on a single node we don't need to track the in-flight requests at all
+        this.throttleConcurrentRequests = maxConcurrentShardRequests < shardsIts.size();
         // we need to add 1 for non active partition, since we count it in the total. This means for each shard in the iterator we sum up
         // it's number of active shards but use 1 as the default if no replica of a shard is active at this point.
         // on a per shards level we use shardIt.remaining() to increment the totalOps pointer but add 1 for the current shard result
@@ -143,27 +159,92 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
             // no more active shards... (we should not really get here, but just for safety)
             onShardFailure(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
         } else {
-            try {
-                executePhaseOnShard(shardIt, shard, new ActionListener<FirstResult>() {
-                    @Override
-                    public void onResponse(FirstResult result) {
-                        onShardResult(shardIndex, shard.currentNodeId(), result, shardIt);
-                    }
+            final PendingExecutions pendingExecutions = throttleConcurrentRequests ?
+                pendingExecutionsPerNode.computeIfAbsent(shard.currentNodeId(), n -> new PendingExecutions(maxConcurrentShardRequests))
+                : null;
+            final Runnable r = () -> {
+                /*
+                 * We capture the thread that sends the shard request. If the response is handled on the same thread (because the
+                 * request never went async) we must not execute the next queued request inline, otherwise a node with many queued
+                 * shards could make us recurse deeply and overflow the stack.
+                 */
+                final Thread thread = Thread.currentThread();
+                try {
+                    executePhaseOnShard(shardIt, shard, new ActionListener<FirstResult>() {
+                        @Override
+                        public void onResponse(FirstResult result) {
+                            try {
+                                onShardResult(shardIndex, shard.currentNodeId(), result, shardIt);
+                            } finally {
+                                executeNext(pendingExecutions, thread);
+                            }
+                        }
 
-                    @Override
-                    public void onFailure(Exception t) {
-                        onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, t);
+                        @Override
+                        public void onFailure(Exception t) {
+                            try {
+                                onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, t);
+                            } finally {
+                                executeNext(pendingExecutions, thread);
+                            }
+                        }
+                    });
+                } catch (ConnectTransportException | IllegalArgumentException ex) {
+                    // we are getting the connection early here so we might run into nodes that are not connected. in that case we move
+                    // on to the next shard. previously when using discovery nodes here we had a special case for null when a node was
+                    // not connected at all which is not not needed anymore.
+                    try {
+                        onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, ex);
+                    } finally {
+                        executeNext(pendingExecutions, thread);
                     }
-                });
-            } catch (ConnectTransportException | IllegalArgumentException ex) {
-                // we are getting the connection early here so we might run into nodes that are not connected. in that case we move on to
-                // the next shard. previously when using discovery nodes here we had a special case for null when a node was not connected
-                // at all which is not not needed anymore.
-                onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, ex);
+                }
+            };
+            if (pendingExecutions == null) {
+                r.run();
+            } else {
+                pendingExecutions.tryRun(r);
+            }
+        }
+    }
+
+    /**
+     * Releases the slot held by a completed shard request and sends the next queued request to the same node, if any.
+     */
+    private void executeNext(@Nullable PendingExecutions pendingExecutions, Thread originalThread) {
+        if (pendingExecutions != null) {
+            final Runnable next = pendingExecutions.finishAndPollNext();
+            if (next != null) {
+                if (originalThread == Thread.currentThread()) {
+                    fork(next);
+                } else {
+                    next.run();
+                }
             }
         }
     }
 
+    private void fork(final Runnable runnable) {
+        executor.execute(new AbstractRunnable() {
+            @Override
+            public void onFailure(Exception e) {
+                // the runnable handles its own failures, this is only reached if it throws unexpectedly
+                logger.warn("unexpected failure executing queued shard request", e);
+            }
+
+            @Override
+            protected void doRun() throws Exception {
+                runnable.run();
+            }
+
+            @Override
+            public boolean isForceExecution() {
+                // we can not allow a stuffed queue to reject execution here, the search would never complete
+                return true;
+            }
+        });
+    }
+
     private void onShardResult(int shardIndex, String nodeId, FirstResult result, ShardIterator shardIt) {
         result.shardTarget(new SearchShardTarget(nodeId, shardIt.shardId()));
         onShardSuccess(shardIndex, result);
@@ -216,10 +297,55 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
      */
     protected abstract void executePhaseOnShard(ShardIterator shardIt, ShardRouting shard, ActionListener<FirstResult> listener);
 
+    /**
+     * Tracks the shard level requests that are in flight for a single node and queues the ones that exceed the limit.
+     */
+    private static final class PendingExecutions {
+        private final int permits;
+        private int permitsTaken = 0;
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+        PendingExecutions(int permits) {
+            assert permits > 0 : "not enough permits: " + permits;
+            this.permits = permits;
+        }
+
+        /**
+         * Runs the given request if a permit is available, otherwise queues it until a running request finishes.
+         */
+        void tryRun(Runnable runnable) {
+            final boolean run;
+            synchronized (this) {
+                if (permitsTaken < permits) {
+                    permitsTaken++;
+                    run = true;
+                } else {
+                    queue.add(runnable);
+                    run = false;
+                }
+            }
+            if (run) {
+                runnable.run();
+            }
+        }
+
+        /**
+         * Marks a running request as done and returns the next queued request, if any. The returned request inherits the permit.
+         */
+        synchronized Runnable finishAndPollNext() {
+            final Runnable next = queue.poll();
+            if (next == null) {
+                permitsTaken--;
+                assert permitsTaken >= 0 : "illegal taken permits: " + permitsTaken;
+            }
+            return next;
+        }
+    }
+
     /**
      * This class acts as a basic result collection that can be extended to do on-the-fly reduction or result processing
      */
-    static class SearchPhaseResults<Result extends SearchPhaseResult> {
+    static class SearchPhaseResults<Result extends SearchPhaseResult> implements Releasable {
         final AtomicArray<Result> results;
 
         SearchPhaseResults(int size) {
@@ -236,12 +362,14 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         /**
          * A stream of all non-null (successful) shard results
          */
-        final Stream<Result> getSuccessfulResults() {
+        Stream<Result> getSuccessfulResults() {
             return results.asList().stream().map(e -> e.value);
         }
 
         /**
-         * Consumes a single shard result
+         * Consumes a single shard result. Implementations that account the results on a circuit breaker throw the
+         * {@link org.elasticsearch.common.breaker.CircuitBreakingException} when it trips, once, so that the search can be failed
+         * without waiting for the remaining shards.
          * @param shardIndex the shards index, this is a 0-based id that is used to establish a 1 to 1 mapping to the searched shards
          * @param result the shards result
          */
@@ -253,15 +381,29 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         /**
          * Returns <code>true</code> iff a result if present for the given shard ID.
          */
-        final boolean hasResult(int shardIndex) {
+        boolean hasResult(int shardIndex) {
             return results.get(shardIndex) != null;
         }
 
+        /**
+         * Notifies this collection that the request for the given shard failed. This is invoked for every failed shard level
+         * request, before the next replica of the shard is tried.
+         * @param shardIndex the shards index, this is a 0-based id that is used to establish a 1 to 1 mapping to the searched shards
+         */
+        void consumeShardFailure(int shardIndex) {}
+
         /**
          * Reduces the collected results
          */
         SearchPhaseController.ReducedQueryPhase reduce() {
             throw new UnsupportedOperationException("reduce is not supported");
         }
+
+        /**
+         * Releases the resources that are held for the collected results. This is invoked once the search response or failure
+         * was sent, whether or not the results were reduced, and may be invoked more than once.
+         */
+        @Override
+        public void close() {}
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.query.QuerySearchResultProvider;
+
+/**
+ * A wrapping listener that records the response time of a query shard request as well as the queue size and service time the
+ * executing node reported with the result. These statistics are used to rank the copies of a shard for adaptive replica selection.
+ */
+final class SearchExecutionStatsCollector<T extends QuerySearchResultProvider> implements ActionListener<T> {
+
+    private final ActionListener<T> listener;
+    private final ResponseCollectorService collector;
+    private final String nodeId;
+    private final Runnable onCompletion;
+    private final long startNanos;
+
+    SearchExecutionStatsCollector(ActionListener<T> listener, ResponseCollectorService collector, String nodeId,
+                                  Runnable onCompletion) {
+        this.listener = listener;
+        this.collector = collector;
+        this.nodeId = nodeId;
+        this.onCompletion = onCompletion;
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onResponse(T response) {
+        onCompletion.run();
+        final QuerySearchResult queryResult = response.queryResult();
+        if (queryResult != null) {
+            final long serviceTimeEWMA = queryResult.serviceTimeEWMA();
+            final int queueSize = queryResult.nodeQueueSize();
+            final long responseDuration = System.nanoTime() - startNanos;
+            // EWMA and queue size are -1 if the executing node doesn't support capturing them
+            if (serviceTimeEWMA > 0 && queueSize >= 0) {
+                collector.addNodeStatistics(nodeId, queueSize, responseDuration, serviceTimeEWMA);
+            }
+        }
+        listener.onResponse(response);
+    }
+
+    @Override
+    public void onFailure(Exception e) {
+        onCompletion.run();
+        listener.onFailure(e);
+    }
+}
@@ -31,18 +31,24 @@ import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
-import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.dfs.AggregatedDfs;
@@ -58,9 +64,9 @@ import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.Suggest.Suggestion.Entry;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -72,6 +78,12 @@ public class SearchPhaseController extends AbstractComponent {
 
     private static final ScoreDoc[] EMPTY_DOCS = new ScoreDoc[0];
 
+    private static final CircuitBreaker NO_OP_BREAKER = new NoopCircuitBreaker(CircuitBreaker.REQUEST);
+    static final String REDUCE_AGGS_BREAKER_LABEL = "<reduce_aggs>";
+    // rough per-object estimates of the aggregation results that are held on the coordinating node
+    private static final long AGGREGATION_RAM_BYTES_ESTIMATE = 256;
+    private static final long BUCKET_RAM_BYTES_ESTIMATE = 128;
+
     private final BigArrays bigArrays;
     private final ScriptService scriptService;
 
@@ -148,16 +160,30 @@ public class SearchPhaseController extends AbstractComponent {
      *                   Enabled only for scroll search, because that only retrieves hits of length 'size' in the query phase.
      * @param resultsArr Shard result holder
      */
-    public ScoreDoc[] sortDocs(boolean ignoreFrom, AtomicArray<? extends QuerySearchResultProvider> resultsArr) throws IOException {
-        List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> results = resultsArr.asList();
+    public ScoreDoc[] sortDocs(boolean ignoreFrom, AtomicArray<? extends QuerySearchResultProvider> resultsArr) {
+        return sortDocs(ignoreFrom, resultsArr.asList(), null).scoreDocs;
+    }
+
+    /**
+     * Returns the top N search docs across all shards, followed by top suggest docs for each named completion suggestion.
+     *
+     * @param bufferedTopDocs a list of pre-collected / buffered and partially merged top docs. if this list is non-null the top docs
+     *                        have been consumed from all non-null query results and the score docs carry their shard index.
+     * @see #sortDocs(boolean, AtomicArray)
+     */
+    private SortedTopDocs sortDocs(boolean ignoreFrom, List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> results,
+                                   List<TopDocs> bufferedTopDocs) {
         if (results.isEmpty()) {
-            return EMPTY_DOCS;
+            return SortedTopDocs.EMPTY;
         }
 
         final QuerySearchResult result;
         boolean canOptimize = false;
         int shardIndex = -1;
-        if (results.size() == 1) {
+        if (bufferedTopDocs != null) {
+            // the top docs have already been consumed and can't be used to optimize the single shard case
+            result = results.get(0).value.queryResult();
+        } else if (results.size() == 1) {
             canOptimize = true;
             result = results.get(0).value.queryResult();
             shardIndex = results.get(0).index;
@@ -221,34 +247,28 @@ public class SearchPhaseController extends AbstractComponent {
                     docs[docsOffset++] = doc;
                 }
             }
-            return docs;
+            return new SortedTopDocs(docs, getSortFields(result.topDocs()));
         }
 
         final int topN = result.queryResult().size();
         final int from =  ignoreFrom ? 0 : result.queryResult().from();
 
-        final TopDocs mergedTopDocs;
-        final int numShards = resultsArr.length();
-        if (result.queryResult().topDocs() instanceof CollapseTopFieldDocs) {
-            CollapseTopFieldDocs firstTopDocs = (CollapseTopFieldDocs) result.queryResult().topDocs();
-            final Sort sort = new Sort(firstTopDocs.fields);
-            final CollapseTopFieldDocs[] shardTopDocs = new CollapseTopFieldDocs[numShards];
-            fillTopDocs(shardTopDocs, results, new CollapseTopFieldDocs(firstTopDocs.field, 0, new FieldDoc[0],
-                sort.getSort(), new Object[0], Float.NaN));
-            mergedTopDocs = CollapseTopFieldDocs.merge(sort, from, topN, shardTopDocs);
-        } else if (result.queryResult().topDocs() instanceof TopFieldDocs) {
-            TopFieldDocs firstTopDocs = (TopFieldDocs) result.queryResult().topDocs();
-            final Sort sort = new Sort(firstTopDocs.fields);
-            final TopFieldDocs[] shardTopDocs = new TopFieldDocs[resultsArr.length()];
-            fillTopDocs(shardTopDocs, results, new TopFieldDocs(0, new FieldDoc[0], sort.getSort(), Float.NaN));
-            mergedTopDocs = TopDocs.merge(sort, from, topN, shardTopDocs, true);
+        final List<TopDocs> topDocs;
+        if (bufferedTopDocs != null) {
+            topDocs = bufferedTopDocs;
         } else {
-            final TopDocs[] shardTopDocs = new TopDocs[resultsArr.length()];
-            fillTopDocs(shardTopDocs, results, Lucene.EMPTY_TOP_DOCS);
-            mergedTopDocs = TopDocs.merge(from, topN, shardTopDocs, true);
+            topDocs = new ArrayList<>(results.size());
+            for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : results) {
+                final TopDocs shardTopDocs = entry.value.queryResult().topDocs();
+                assert shardTopDocs != null : "top docs must not be null in a valid result";
+                // the 'index' field is the position in the results atomic array
+                setShardIndex(shardTopDocs, entry.index);
+                topDocs.add(shardTopDocs);
+            }
         }
+        final TopDocs mergedTopDocs = mergeTopDocs(topDocs, topN, from);
 
-        ScoreDoc[] scoreDocs = mergedTopDocs.scoreDocs;
+        ScoreDoc[] scoreDocs = mergedTopDocs == null ? EMPTY_DOCS : mergedTopDocs.scoreDocs;
         final Map<String, List<Suggestion<CompletionSuggestion.Entry>>> groupedCompletionSuggestions = new HashMap<>();
         // group suggestions and assign shard index
         for (AtomicArray.Entry<? extends QuerySearchResultProvider> sortedResult : results) {
@@ -272,9 +292,10 @@ public class SearchPhaseController extends AbstractComponent {
                 numSuggestDocs += completionSuggestion.getOptions().size();
                 completionSuggestions.add(completionSuggestion);
             }
-            scoreDocs = new ScoreDoc[mergedTopDocs.scoreDocs.length + numSuggestDocs];
-            System.arraycopy(mergedTopDocs.scoreDocs, 0, scoreDocs, 0, mergedTopDocs.scoreDocs.length);
-            int offset = mergedTopDocs.scoreDocs.length;
+            final ScoreDoc[] mergedScoreDocs = scoreDocs;
+            scoreDocs = new ScoreDoc[mergedScoreDocs.length + numSuggestDocs];
+            System.arraycopy(mergedScoreDocs, 0, scoreDocs, 0, mergedScoreDocs.length);
+            int offset = mergedScoreDocs.length;
             Suggest suggestions = new Suggest(completionSuggestions);
             for (CompletionSuggestion completionSuggestion : suggestions.filter(CompletionSuggestion.class)) {
                 for (CompletionSuggestion.Entry.Option option : completionSuggestion.getOptions()) {
@@ -282,23 +303,57 @@ public class SearchPhaseController extends AbstractComponent {
                 }
             }
         }
-        return scoreDocs;
+        return new SortedTopDocs(scoreDocs, getSortFields(mergedTopDocs));
+    }
+
+    /**
+     * Merges the given top docs into a single top docs instance holding the top <code>topN</code> hits starting at <code>from</code>.
+     * The score docs of all given top docs must have their shard index set since it is used to break ties between equal hits.
+     * Returns <code>null</code> if the given collection is empty.
+     */
+    static TopDocs mergeTopDocs(Collection<TopDocs> results, int topN, int from) {
+        if (results.isEmpty()) {
+            return null;
+        }
+        final TopDocs topDocs = results.iterator().next();
+        final int numShards = results.size();
+        if (topDocs instanceof CollapseTopFieldDocs) {
+            CollapseTopFieldDocs firstTopDocs = (CollapseTopFieldDocs) topDocs;
+            final Sort sort = new Sort(firstTopDocs.fields);
+            final CollapseTopFieldDocs[] shardTopDocs = results.toArray(new CollapseTopFieldDocs[numShards]);
+            return CollapseTopFieldDocs.merge(sort, from, topN, shardTopDocs, false);
+        } else if (topDocs instanceof TopFieldDocs) {
+            TopFieldDocs firstTopDocs = (TopFieldDocs) topDocs;
+            final Sort sort = new Sort(firstTopDocs.fields);
+            final TopFieldDocs[] shardTopDocs = results.toArray(new TopFieldDocs[numShards]);
+            return TopDocs.merge(sort, from, topN, shardTopDocs, false);
+        } else {
+            final TopDocs[] shardTopDocs = results.toArray(new TopDocs[numShards]);
+            return TopDocs.merge(from, topN, shardTopDocs, false);
+        }
     }
 
-    static <T extends TopDocs> void fillTopDocs(T[] shardTopDocs,
-                                                        List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> results,
-                                                        T empytTopDocs) {
-        if (results.size() != shardTopDocs.length) {
-            // TopDocs#merge can't deal with null shard TopDocs
-            Arrays.fill(shardTopDocs, empytTopDocs);
+    private static void setShardIndex(TopDocs topDocs, int shardIndex) {
+        for (ScoreDoc doc : topDocs.scoreDocs) {
+            doc.shardIndex = shardIndex;
         }
-        for (AtomicArray.Entry<? extends QuerySearchResultProvider> resultProvider : results) {
-            final T topDocs = (T) resultProvider.value.queryResult().topDocs();
-            assert topDocs != null : "top docs must not be null in a valid result";
-            // the 'index' field is the position in the resultsArr atomic array
-            shardTopDocs[resultProvider.index] = topDocs;
+    }
+
+    /**
+     * Returns the sort fields of the given top docs or <code>null</code> if the hits are not sorted by field.
+     */
+    private static SortField[] getSortFields(TopDocs topDocs) {
+        if (topDocs instanceof TopFieldDocs) {
+            TopFieldDocs fieldDocs = (TopFieldDocs) topDocs;
+            if (fieldDocs instanceof CollapseTopFieldDocs &&
+                fieldDocs.fields.length == 1 && fieldDocs.fields[0].getType() == SortField.Type.SCORE) {
+                return null;
+            }
+            return fieldDocs.fields;
         }
+        return null;
     }
+
     public ScoreDoc[] getLastEmittedDocPerShard(ReducedQueryPhase reducedQueryPhase,
                                                 ScoreDoc[] sortedScoreDocs, int numShards) {
         ScoreDoc[] lastEmittedDocPerShard = new ScoreDoc[numShards];
@@ -379,19 +434,12 @@ public class SearchPhaseController extends AbstractComponent {
     private SearchHits getHits(ReducedQueryPhase reducedQueryPhase, boolean ignoreFrom, ScoreDoc[] sortedDocs,
                                AtomicArray<? extends QuerySearchResultProvider> fetchResultsArr) {
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> fetchResults = fetchResultsArr.asList();
-        boolean sorted = false;
+        final boolean sorted = reducedQueryPhase.sortFields != null;
         int sortScoreIndex = -1;
-        if (reducedQueryPhase.oneResult.topDocs() instanceof TopFieldDocs) {
-            TopFieldDocs fieldDocs = (TopFieldDocs) reducedQueryPhase.oneResult.queryResult().topDocs();
-            if (fieldDocs instanceof CollapseTopFieldDocs &&
-                fieldDocs.fields.length == 1 && fieldDocs.fields[0].getType() == SortField.Type.SCORE) {
-                sorted = false;
-            } else {
-                sorted = true;
-                for (int i = 0; i < fieldDocs.fields.length; i++) {
-                    if (fieldDocs.fields[i].getType() == SortField.Type.SCORE) {
-                        sortScoreIndex = i;
-                    }
+        if (sorted) {
+            for (int i = 0; i < reducedQueryPhase.sortFields.length; i++) {
+                if (reducedQueryPhase.sortFields[i].getType() == SortField.Type.SCORE) {
+                    sortScoreIndex = i;
                 }
             }
         }
@@ -436,9 +484,11 @@ public class SearchPhaseController extends AbstractComponent {
     /**
      * Reduces the given query results and consumes all aggregations and profile results.
      * @param queryResults a list of non-null query shard results
+     * @param isScrollRequest whether the results belong to a scroll request. The from parameter is ignored for scroll requests.
      */
-    public final ReducedQueryPhase reducedQueryPhase(List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults) {
-        return reducedQueryPhase(queryResults, null, 0);
+    public final ReducedQueryPhase reducedQueryPhase(List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults,
+                                                     boolean isScrollRequest) {
+        return reducedQueryPhase(queryResults, null, null, new TopDocsStats(), 0, isScrollRequest);
     }
 
     /**
@@ -446,24 +496,29 @@ public class SearchPhaseController extends AbstractComponent {
      * @param queryResults a list of non-null query shard results
      * @param bufferdAggs a list of pre-collected / buffered aggregations. if this list is non-null all aggregations have been consumed
      *                    from all non-null query results.
+     * @param bufferedTopDocs a list of pre-collected / buffered top docs. if this list is non-null all top docs have been consumed
+     *                        from all non-null query results and <code>topDocsStats</code> holds their statistics.
+     * @param topDocsStats the statistics of all consumed top docs
      * @param numReducePhases the number of non-final reduce phases applied to the query results.
+     * @param isScrollRequest whether the results belong to a scroll request. The from parameter is ignored for scroll requests.
      * @see QuerySearchResult#consumeAggs()
+     * @see QuerySearchResult#consumeTopDocs()
      * @see QuerySearchResult#consumeProfileResult()
      */
     private ReducedQueryPhase reducedQueryPhase(List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults,
-                                                     List<InternalAggregations> bufferdAggs, int numReducePhases) {
+                                                List<InternalAggregations> bufferdAggs, List<TopDocs> bufferedTopDocs,
+                                                TopDocsStats topDocsStats, int numReducePhases, boolean isScrollRequest) {
         assert numReducePhases >= 0 : "num reduce phases must be >= 0 but was: " + numReducePhases;
         numReducePhases++; // increment for this phase
-        long totalHits = 0;
-        long fetchHits = 0;
-        float maxScore = Float.NEGATIVE_INFINITY;
         boolean timedOut = false;
         Boolean terminatedEarly = null;
         if (queryResults.isEmpty()) { // early terminate we have nothing to reduce
-            return new ReducedQueryPhase(totalHits, fetchHits, maxScore, timedOut, terminatedEarly, null, null, null, null,
-                numReducePhases);
+            return new ReducedQueryPhase(topDocsStats.totalHits, topDocsStats.fetchHits, topDocsStats.maxScore,
+                timedOut, terminatedEarly, null, null, null, null, SortedTopDocs.EMPTY, numReducePhases);
         }
         final QuerySearchResult firstResult = queryResults.get(0).value.queryResult();
+        // sort the docs before we reduce the suggestions, the completion suggestions are sorted and merged with the top docs
+        final SortedTopDocs sortedTopDocs = sortDocs(isScrollRequest, queryResults, bufferedTopDocs);
         final boolean hasSuggest = firstResult.suggest() != null;
         final boolean hasProfileResults = firstResult.hasProfileResults();
         final boolean consumeAggs;
@@ -499,10 +554,8 @@ public class SearchPhaseController extends AbstractComponent {
                     terminatedEarly = true;
                 }
             }
-            totalHits += result.topDocs().totalHits;
-            fetchHits += result.topDocs().scoreDocs.length;
-            if (!Float.isNaN(result.topDocs().getMaxScore())) {
-                maxScore = Math.max(maxScore, result.topDocs().getMaxScore());
+            if (bufferedTopDocs == null) {
+                topDocsStats.add(result.topDocs());
             }
             if (hasSuggest) {
                 assert result.suggest() != null;
@@ -520,12 +573,26 @@ public class SearchPhaseController extends AbstractComponent {
             }
         }
         final Suggest suggest = groupedSuggestions.isEmpty() ? null : new Suggest(Suggest.reduce(groupedSuggestions));
-        ReduceContext reduceContext = new ReduceContext(bigArrays, scriptService, true);
-        final InternalAggregations aggregations = aggregationsList.isEmpty() ? null : reduceAggs(aggregationsList,
-            firstResult.pipelineAggregators(), reduceContext);
+        final InternalAggregations aggregations;
+        if (aggregationsList.isEmpty()) {
+            aggregations = null;
+        } else {
+            // buffered aggregations are already accounted for by the result consumer, we only need to account for the
+            // shard results that we consumed here and for the final reduce itself
+            final long inputBytes = estimateRamBytesUsed(aggregationsList);
+            final long reduceBytes = consumeAggs ? 2 * inputBytes : inputBytes;
+            final CircuitBreaker breaker = getRequestBreaker();
+            breaker.addEstimateBytesAndMaybeBreak(reduceBytes, REDUCE_AGGS_BREAKER_LABEL);
+            try {
+                ReduceContext reduceContext = new ReduceContext(bigArrays, scriptService, true);
+                aggregations = reduceAggs(aggregationsList, firstResult.pipelineAggregators(), reduceContext);
+            } finally {
+                breaker.addWithoutBreaking(-reduceBytes);
+            }
+        }
         final SearchProfileShardResults shardResults = profileResults.isEmpty() ? null : new SearchProfileShardResults(profileResults);
-        return new ReducedQueryPhase(totalHits, fetchHits, maxScore, timedOut, terminatedEarly, firstResult, suggest, aggregations,
-            shardResults, numReducePhases);
+        return new ReducedQueryPhase(topDocsStats.totalHits, topDocsStats.fetchHits, topDocsStats.maxScore, timedOut,
+            terminatedEarly, firstResult, suggest, aggregations, shardResults, sortedTopDocs, numReducePhases);
     }
 
 
@@ -555,6 +622,45 @@ public class SearchPhaseController extends AbstractComponent {
         return aggregations;
     }
 
+    /**
+     * Returns the circuit breaker that accounts for the aggregation results that are held and reduced on the coordinating node.
+     */
+    CircuitBreaker getRequestBreaker() {
+        final CircuitBreakerService breakerService = bigArrays.breakerService();
+        return breakerService == null ? NO_OP_BREAKER : breakerService.getBreaker(CircuitBreaker.REQUEST);
+    }
+
+    /**
+     * Estimates the memory that is needed to hold the given aggregations on the coordinating node. The estimate only walks
+     * the aggregation tree and charges a fixed amount per aggregation and per bucket, so that it stays cheap compared to the
+     * reduction it accounts for. The reduced results are bounded by the size of their inputs.
+     */
+    static long estimateRamBytesUsed(InternalAggregations aggregations) {
+        if (aggregations == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Aggregation aggregation : aggregations) {
+            bytes += AGGREGATION_RAM_BYTES_ESTIMATE;
+            if (aggregation instanceof MultiBucketsAggregation) {
+                for (MultiBucketsAggregation.Bucket bucket : ((MultiBucketsAggregation) aggregation).getBuckets()) {
+                    bytes += BUCKET_RAM_BYTES_ESTIMATE + estimateRamBytesUsed((InternalAggregations) bucket.getAggregations());
+                }
+            } else if (aggregation instanceof InternalSingleBucketAggregation) {
+                bytes += estimateRamBytesUsed(((InternalSingleBucketAggregation) aggregation).getAggregations());
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateRamBytesUsed(List<InternalAggregations> aggregationsList) {
+        long bytes = 0;
+        for (InternalAggregations aggregations : aggregationsList) {
+            bytes += estimateRamBytesUsed(aggregations);
+        }
+        return bytes;
+    }
+
     public static final class ReducedQueryPhase {
         // the sum of all hits across all reduces shards
         final long totalHits;
@@ -576,10 +682,14 @@ public class SearchPhaseController extends AbstractComponent {
         final SearchProfileShardResults shardResults;
         // the number of reduces phases
         final int numReducePhases;
+        // the top docs across all shards, followed by the top suggest docs for each named completion suggestion
+        final ScoreDoc[] scoreDocs;
+        // the sort fields of the top docs or null if the top docs are not sorted by field
+        final SortField[] sortFields;
 
         ReducedQueryPhase(long totalHits, long fetchHits, float maxScore, boolean timedOut, Boolean terminatedEarly,
                                  QuerySearchResult oneResult, Suggest suggest, InternalAggregations aggregations,
-                                 SearchProfileShardResults shardResults, int numReducePhases) {
+                                 SearchProfileShardResults shardResults, SortedTopDocs sortedTopDocs, int numReducePhases) {
             if (numReducePhases <= 0) {
                 throw new IllegalArgumentException("at least one reduce phase must have been applied but was: " + numReducePhases);
             }
@@ -597,6 +707,8 @@ public class SearchPhaseController extends AbstractComponent {
             this.aggregations = aggregations;
             this.shardResults = shardResults;
             this.numReducePhases = numReducePhases;
+            this.scoreDocs = sortedTopDocs.scoreDocs;
+            this.sortFields = sortedTopDocs.sortFields;
         }
 
         /**
@@ -615,18 +727,73 @@ public class SearchPhaseController extends AbstractComponent {
         }
     }
 
+    /**
+     * The sorted top docs of a reduce phase and the sort fields they are sorted by.
+     */
+    static final class SortedTopDocs {
+        static final SortedTopDocs EMPTY = new SortedTopDocs(EMPTY_DOCS, null);
+        // the top docs across all shards, followed by the top suggest docs for each named completion suggestion
+        final ScoreDoc[] scoreDocs;
+        // the sort fields of the top docs or null if the top docs are not sorted by field
+        final SortField[] sortFields;
+
+        SortedTopDocs(ScoreDoc[] scoreDocs, SortField[] sortFields) {
+            this.scoreDocs = scoreDocs;
+            this.sortFields = sortFields;
+        }
+    }
+
+    /**
+     * Accumulates the hit statistics of shard level top docs. The statistics must be collected before the top docs are
+     * merged since merging drops all hits that don't make it into the top N.
+     */
+    static final class TopDocsStats {
+        // the sum of all hits across all consumed top docs
+        long totalHits;
+        // the number of returned hits (doc IDs) across all consumed top docs
+        long fetchHits;
+        // the max score across all consumed top docs
+        float maxScore = Float.NEGATIVE_INFINITY;
+
+        void add(TopDocs topDocs) {
+            totalHits += topDocs.totalHits;
+            fetchHits += topDocs.scoreDocs.length;
+            if (!Float.isNaN(topDocs.getMaxScore())) {
+                maxScore = Math.max(maxScore, topDocs.getMaxScore());
+            }
+        }
+    }
+
     /**
      * A {@link org.elasticsearch.action.search.InitialSearchPhase.SearchPhaseResults} implementation
-     * that incrementally reduces aggregation results as shard results are consumed.
+     * that incrementally reduces aggregation results and merges top docs as shard results are consumed.
      * This implementation can be configured to batch up a certain amount of results and only reduce them
-     * iff the buffer is exhausted.
+     * iff the buffer is exhausted. Top docs are merged down to the top <code>from + size</code> hits on every
+     * partial reduce such that the coordinating node never holds on to more hits than the buffer can hold.
+     * The estimated size of the buffered aggregations and of their partial reduces is accounted on the request circuit breaker.
+     * If the breaker trips, the buffered results are released and the failure is thrown to the caller that consumed the result,
+     * so that the search can fail right away. The aggregations of the results that are consumed after that are dropped, and the
+     * failure is thrown again if the results are reduced anyway.
+     * The accounted bytes are also released when the consumer is closed, so a search that fails before its results are
+     * reduced doesn't leak them.
      */
     static final class QueryPhaseResultConsumer
         extends InitialSearchPhase.SearchPhaseResults<QuerySearchResultProvider> {
-        private final InternalAggregations[] buffer;
+        private final InternalAggregations[] aggsBuffer;
+        private final long[] aggsBytesBuffer;
+        private final TopDocs[] topDocsBuffer;
+        private final boolean hasAggs;
+        private final boolean hasTopDocs;
+        private final int bufferSize;
         private int index;
         private final SearchPhaseController controller;
         private int numReducePhases = 0;
+        private final TopDocsStats topDocsStats = new TopDocsStats();
+        private final boolean isScrollRequest;
+        private final CircuitBreaker breaker;
+        private long breakerBytes;
+        private CircuitBreakingException failure;
+        private boolean closed;
 
         /**
          * Creates a new {@link QueryPhaseResultConsumer}
@@ -634,8 +801,12 @@ public class SearchPhaseController extends AbstractComponent {
          * @param expectedResultSize the expected number of query results. Corresponds to the number of shards queried
          * @param bufferSize the size of the reduce buffer. if the buffer size is smaller than the number of expected results
          *                   the buffer is used to incrementally reduce aggregation results before all shards responded.
+         * @param hasTopDocs whether the top docs of the query results should be merged incrementally
+         * @param hasAggs whether the aggregations of the query results should be reduced incrementally
+         * @param isScrollRequest whether the results belong to a scroll request
          */
-        private QueryPhaseResultConsumer(SearchPhaseController controller, int expectedResultSize, int bufferSize) {
+        private QueryPhaseResultConsumer(SearchPhaseController controller, int expectedResultSize, int bufferSize,
+                                         boolean hasTopDocs, boolean hasAggs, boolean isScrollRequest) {
             super(expectedResultSize);
             if (expectedResultSize != 1 && bufferSize < 2) {
                 throw new IllegalArgumentException("buffer size must be >= 2 if there is more than one expected result");
@@ -643,39 +814,140 @@ public class SearchPhaseController extends AbstractComponent {
             if (expectedResultSize <= bufferSize) {
                 throw new IllegalArgumentException("buffer size must be less than the expected result size");
             }
+            if (hasAggs == false && hasTopDocs == false) {
+                throw new IllegalArgumentException("either aggs or top docs must be present");
+            }
             this.controller = controller;
             // no need to buffer anything if we have less expected results. in this case we don't consume any results ahead of time.
-            this.buffer = new InternalAggregations[bufferSize];
+            this.aggsBuffer = new InternalAggregations[hasAggs ? bufferSize : 0];
+            this.aggsBytesBuffer = new long[hasAggs ? bufferSize : 0];
+            this.topDocsBuffer = new TopDocs[hasTopDocs ? bufferSize : 0];
+            this.hasTopDocs = hasTopDocs;
+            this.hasAggs = hasAggs;
+            this.bufferSize = bufferSize;
+            this.isScrollRequest = isScrollRequest;
+            this.breaker = controller.getRequestBreaker();
         }
 
         @Override
         public void consumeResult(int shardIndex, QuerySearchResultProvider result) {
             super.consumeResult(shardIndex, result);
             QuerySearchResult queryResult = result.queryResult();
-            assert queryResult.hasAggs() : "this collector should only be used if aggs are requested";
-            consumeInternal(queryResult);
+            consumeInternal(shardIndex, queryResult);
         }
 
-        private synchronized void consumeInternal(QuerySearchResult querySearchResult) {
-            InternalAggregations aggregations = (InternalAggregations) querySearchResult.consumeAggs();
-            if (index == buffer.length) {
-                InternalAggregations reducedAggs = controller.reduceAggsIncrementally(Arrays.asList(buffer));
-                Arrays.fill(buffer, null);
+        private synchronized void consumeInternal(int shardIndex, QuerySearchResult querySearchResult) {
+            // the aggregations are taken from the result in any case so that the stored result doesn't hold on to them
+            final InternalAggregations aggs = hasAggs ? (InternalAggregations) querySearchResult.consumeAggs() : null;
+            if (failure != null || closed) {
+                // the request has failed or completed already, there is no point in holding on to more results
+                return;
+            }
+            try {
+                doConsumeInternal(shardIndex, querySearchResult, aggs);
+            } catch (CircuitBreakingException e) {
+                failure = e;
+                Arrays.fill(aggsBuffer, null);
+                Arrays.fill(topDocsBuffer, null);
+                releaseBreakerBytes();
+                throw e;
+            }
+        }
+
+        private void doConsumeInternal(int shardIndex, QuerySearchResult querySearchResult, InternalAggregations aggs) {
+            if (index == bufferSize) {
+                if (hasAggs) {
+                    // a partial reduce may need as much memory as its inputs until the inputs can be released
+                    final long inputBytes = Arrays.stream(aggsBytesBuffer).sum();
+                    addBreakerBytes(inputBytes);
+                    InternalAggregations reducedAggs = controller.reduceAggsIncrementally(Arrays.asList(aggsBuffer));
+                    Arrays.fill(aggsBuffer, null);
+                    Arrays.fill(aggsBytesBuffer, 0);
+                    aggsBuffer[0] = reducedAggs;
+                    aggsBytesBuffer[0] = estimateRamBytesUsed(reducedAggs);
+                    addBreakerBytesWithoutBreaking(aggsBytesBuffer[0] - 2 * inputBytes);
+                }
+                if (hasTopDocs) {
+                    // we keep the top from + size hits and drop everything else. the from is ignored for scroll requests
+                    // but keeping from + size hits is still a superset of what the final merge needs.
+                    TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer),
+                        querySearchResult.from() + querySearchResult.size(), 0);
+                    Arrays.fill(topDocsBuffer, null);
+                    topDocsBuffer[0] = reducedTopDocs;
+                }
                 numReducePhases++;
-                buffer[0] = reducedAggs;
                 index = 1;
             }
-            final int i = index++;
-            buffer[i] = aggregations;
+            final int i = index;
+            if (hasAggs) {
+                final long aggsBytes = estimateRamBytesUsed(aggs);
+                addBreakerBytes(aggsBytes);
+                aggsBuffer[i] = aggs;
+                aggsBytesBuffer[i] = aggsBytes;
+            }
+            index++;
+            if (hasTopDocs) {
+                final TopDocs topDocs = querySearchResult.consumeTopDocs(); // can't be null
+                topDocsStats.add(topDocs);
+                setShardIndex(topDocs, shardIndex);
+                topDocsBuffer[i] = topDocs;
+            }
+        }
+
+        private synchronized List<InternalAggregations> getRemainingAggs() {
+            return hasAggs ? Arrays.asList(aggsBuffer).subList(0, index) : null;
+        }
+
+        private synchronized List<TopDocs> getRemainingTopDocs() {
+            return hasTopDocs ? Arrays.asList(topDocsBuffer).subList(0, index) : null;
+        }
+
+        private void addBreakerBytes(long bytes) {
+            breaker.addEstimateBytesAndMaybeBreak(bytes, REDUCE_AGGS_BREAKER_LABEL);
+            breakerBytes += bytes;
+        }
+
+        private void addBreakerBytesWithoutBreaking(long bytes) {
+            breaker.addWithoutBreaking(bytes);
+            breakerBytes += bytes;
+        }
+
+        private synchronized void releaseBreakerBytes() {
+            breaker.addWithoutBreaking(-breakerBytes);
+            breakerBytes = 0;
         }
 
-        private synchronized  List<InternalAggregations> getRemaining() {
-            return Arrays.asList(buffer).subList(0, index);
+        private synchronized CircuitBreakingException getFailure() {
+            return failure;
         }
 
         @Override
         public ReducedQueryPhase reduce() {
-            return controller.reducedQueryPhase(results.asList(), getRemaining(), numReducePhases);
+            final CircuitBreakingException failure = getFailure();
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                return controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(), topDocsStats,
+                    numReducePhases, isScrollRequest);
+            } finally {
+                releaseBreakerBytes();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            Arrays.fill(aggsBuffer, null);
+            Arrays.fill(topDocsBuffer, null);
+            releaseBreakerBytes();
+        }
+
+        /**
+         * Returns the number of bytes that are currently accounted on the request circuit breaker for buffered aggregations
+         */
+        synchronized long getBreakerBytes() {
+            return breakerBytes;
         }
 
         /**
@@ -688,21 +960,126 @@ public class SearchPhaseController extends AbstractComponent {
         int getNumReducePhases() { return numReducePhases; }
     }
 
+    /**
+     * A {@link org.elasticsearch.action.search.InitialSearchPhase.SearchPhaseResults} implementation for searches with aggregations
+     * on fewer shards than the batched reduce size. The results are reduced in one go once all shards responded, but the
+     * estimated size of the aggregations of each result is accounted on the request circuit breaker as the result arrives, so
+     * that a search whose shard results don't fit fails right away rather than when the results are reduced. As with the
+     * {@link QueryPhaseResultConsumer}, the aggregations of the results that are consumed after the breaker tripped are dropped
+     * and the accounted bytes are released when the results are reduced or closed.
+     */
+    static final class AccountedQueryPhaseResults extends InitialSearchPhase.SearchPhaseResults<QuerySearchResultProvider> {
+        private final SearchPhaseController controller;
+        private final InternalAggregations[] aggs;
+        private final boolean isScrollRequest;
+        private final CircuitBreaker breaker;
+        private long breakerBytes;
+        private CircuitBreakingException failure;
+        private boolean closed;
+
+        private AccountedQueryPhaseResults(SearchPhaseController controller, int expectedResultSize, boolean isScrollRequest) {
+            super(expectedResultSize);
+            this.controller = controller;
+            this.aggs = new InternalAggregations[expectedResultSize];
+            this.isScrollRequest = isScrollRequest;
+            this.breaker = controller.getRequestBreaker();
+        }
+
+        @Override
+        public void consumeResult(int shardIndex, QuerySearchResultProvider result) {
+            super.consumeResult(shardIndex, result);
+            consumeAggs(shardIndex, (InternalAggregations) result.queryResult().consumeAggs());
+        }
+
+        private synchronized void consumeAggs(int shardIndex, InternalAggregations shardAggs) {
+            if (failure != null || closed) {
+                // the request has failed or completed already, there is no point in holding on to more results
+                return;
+            }
+            final long bytes = estimateRamBytesUsed(shardAggs);
+            try {
+                breaker.addEstimateBytesAndMaybeBreak(bytes, REDUCE_AGGS_BREAKER_LABEL);
+            } catch (CircuitBreakingException e) {
+                failure = e;
+                Arrays.fill(aggs, null);
+                releaseBreakerBytes();
+                throw e;
+            }
+            breakerBytes += bytes;
+            aggs[shardIndex] = shardAggs;
+        }
+
+        private synchronized List<InternalAggregations> getAggs() {
+            // keep the shard order so that the reduce sees the same input as if the aggregations were taken from the results
+            final List<InternalAggregations> list = new ArrayList<>(aggs.length);
+            for (InternalAggregations shardAggs : aggs) {
+                if (shardAggs != null) {
+                    list.add(shardAggs);
+                }
+            }
+            return list;
+        }
+
+        private synchronized void releaseBreakerBytes() {
+            breaker.addWithoutBreaking(-breakerBytes);
+            breakerBytes = 0;
+        }
+
+        private synchronized CircuitBreakingException getFailure() {
+            return failure;
+        }
+
+        @Override
+        public ReducedQueryPhase reduce() {
+            final CircuitBreakingException failure = getFailure();
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                return controller.reducedQueryPhase(results.asList(), getAggs(), null, new TopDocsStats(), 0, isScrollRequest);
+            } finally {
+                releaseBreakerBytes();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            Arrays.fill(aggs, null);
+            releaseBreakerBytes();
+        }
+
+        /**
+         * Returns the number of bytes that are currently accounted on the request circuit breaker for the consumed aggregations
+         */
+        synchronized long getBreakerBytes() {
+            return breakerBytes;
+        }
+    }
+
     /**
      * Returns a new SearchPhaseResults instance. This might return an instance that reduces search responses incrementally.
      */
     InitialSearchPhase.SearchPhaseResults<QuerySearchResultProvider> newSearchPhaseResults(SearchRequest request, int numShards) {
         SearchSourceBuilder source = request.source();
-        if (source != null && source.aggregations() != null) {
+        final boolean isScrollRequest = request.scroll() != null;
+        final boolean hasAggs = source != null && source.aggregations() != null;
+        final boolean hasTopDocs = source == null || source.size() != 0;
+        if (hasAggs || hasTopDocs) {
             if (request.getBatchedReduceSize() < numShards) {
-                // only use this if there are aggs and if there are more shards than we should reduce at once
-                return new QueryPhaseResultConsumer(this, numShards, request.getBatchedReduceSize());
+                // only use this if there are aggs or top docs and if there are more shards than we should reduce at once
+                return new QueryPhaseResultConsumer(this, numShards, request.getBatchedReduceSize(), hasTopDocs, hasAggs,
+                    isScrollRequest);
             }
         }
+        if (hasAggs) {
+            // the results are reduced at once but their aggregations are still accounted as they arrive
+            return new AccountedQueryPhaseResults(this, numShards, isScrollRequest);
+        }
         return new InitialSearchPhase.SearchPhaseResults(numShards) {
             @Override
             public ReducedQueryPhase reduce() {
-                return reducedQueryPhase(results.asList());
+                return reducedQueryPhase(results.asList(), isScrollRequest);
             }
         };
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import static org.elasticsearch.action.ValidateActions.addValidationError;
@@ -73,6 +74,12 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
 
     private int batchedReduceSize = 512;
 
+    private int preFilterShardSize = 128;
+
+    public static final int DEFAULT_MAX_CONCURRENT_SHARD_REQUESTS = 5;
+
+    private int maxConcurrentShardRequests = DEFAULT_MAX_CONCURRENT_SHARD_REQUESTS;
+
     private String[] types = Strings.EMPTY_ARRAY;
 
     public static final IndicesOptions DEFAULT_INDICES_OPTIONS = IndicesOptions.strictExpandOpenAndForbidClosed();
@@ -306,6 +313,46 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
         return batchedReduceSize;
     }
 
+    /**
+     * Sets a threshold that enforces a pre-filter roundtrip to pre-filter search shards based on query rewriting if the number of shards
+     * the search request expands to exceeds the threshold. This filter roundtrip can limit the number of shards significantly if for
+     * instance a shard can not match any documents based on it's rewrite method ie. if date filters are mandatory to match but the shard
+     * bounds and the query are disjoint. The default is <tt>128</tt>
+     */
+    public void setPreFilterShardSize(int preFilterShardSize) {
+        if (preFilterShardSize < 1) {
+            throw new IllegalArgumentException("preFilterShardSize must be >= 1");
+        }
+        this.preFilterShardSize = preFilterShardSize;
+    }
+
+    /**
+     * Returns a threshold that enforces a pre-filter roundtrip to pre-filter search shards based on query rewriting if the number of
+     * shards the search request expands to exceeds the threshold.
+     */
+    public int getPreFilterShardSize() {
+        return preFilterShardSize;
+    }
+
+    /**
+     * Sets the number of shard requests this search executes concurrently per node. This value should be used as a protection
+     * mechanism to reduce the number of shard requests fired per high level search request. Searches that hit the entire cluster can
+     * be throttled with this number to reduce the cluster load. The default is <tt>5</tt>
+     */
+    public void setMaxConcurrentShardRequests(int maxConcurrentShardRequests) {
+        if (maxConcurrentShardRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentShardRequests must be >= 1");
+        }
+        this.maxConcurrentShardRequests = maxConcurrentShardRequests;
+    }
+
+    /**
+     * Returns the number of shard requests this search executes concurrently per node.
+     */
+    public int getMaxConcurrentShardRequests() {
+        return maxConcurrentShardRequests;
+    }
+
     /**
      * @return true if the request only has suggest
      */
@@ -353,6 +400,10 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
         indicesOptions = IndicesOptions.readIndicesOptions(in);
         requestCache = in.readOptionalBoolean();
         batchedReduceSize = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            preFilterShardSize = in.readVInt();
+            maxConcurrentShardRequests = in.readVInt();
+        }
     }
 
     @Override
@@ -371,6 +422,10 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
         indicesOptions.writeIndicesOptions(out);
         out.writeOptionalBoolean(requestCache);
         out.writeVInt(batchedReduceSize);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeVInt(preFilterShardSize);
+            out.writeVInt(maxConcurrentShardRequests);
+        }
     }
 
     @Override
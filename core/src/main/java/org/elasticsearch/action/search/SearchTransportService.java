@@ -26,12 +26,17 @@ import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.QueryFetchSearchResult;
@@ -56,6 +61,8 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Supplier;
 
 /**
@@ -75,15 +82,25 @@ public class SearchTransportService extends AbstractLifecycleComponent {
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
+    public static final String QUERY_CAN_MATCH_NAME = "indices:data/read/search[can_match]";
 
     private final TransportService transportService;
     private final RemoteClusterService remoteClusterService;
     private final boolean connectToRemote;
+    @Nullable
+    private final ResponseCollectorService responseCollectorService;
+    private final Map<String, Long> pendingSearchRequests = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
     public SearchTransportService(Settings settings, ClusterSettings clusterSettings, TransportService transportService) {
+        this(settings, clusterSettings, transportService, null);
+    }
+
+    public SearchTransportService(Settings settings, ClusterSettings clusterSettings, TransportService transportService,
+                                  @Nullable ResponseCollectorService responseCollectorService) {
         super(settings);
         this.connectToRemote = RemoteClusterService.ENABLE_REMOTE_CLUSTERS.get(settings);
         this.transportService = transportService;
+        this.responseCollectorService = responseCollectorService;
         this.remoteClusterService = new RemoteClusterService(settings, transportService);
         if (connectToRemote) {
             clusterSettings.addAffixUpdateConsumer(RemoteClusterService.REMOTE_CLUSTERS_SEEDS, remoteClusterService::updateRemoteCluster,
@@ -123,26 +140,70 @@ public class SearchTransportService extends AbstractLifecycleComponent {
             new ActionListenerResponseHandler<>(listener, DfsSearchResult::new));
     }
 
+    public void sendCanMatch(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task,
+                             final ActionListener<CanMatchResponse> listener) {
+        if (connection.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            transportService.sendChildRequest(connection, QUERY_CAN_MATCH_NAME, request, task,
+                TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, CanMatchResponse::new));
+        } else {
+            // this might look weird but if we are in a CrossClusterSearch environment we can get a connection
+            // to a pre 6.0 node which doesn't know about the can_match phase, we just pretend the shard can match
+            listener.onResponse(new CanMatchResponse(true));
+        }
+    }
+
     public void sendExecuteQuery(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task,
                                  final ActionListener<QuerySearchResultProvider> listener) {
         // we optimize this and expect a QueryFetchSearchResult if we only have a single shard in the search request
         // this used to be the QUERY_AND_FETCH which doesn't exists anymore.
         final boolean fetchDocuments = request.numberOfShards() == 1;
         Supplier<QuerySearchResultProvider> supplier = fetchDocuments ? QueryFetchSearchResult::new : QuerySearchResult::new;
+        final ActionListener<QuerySearchResultProvider> handler = wrapWithStatsCollector(connection, listener);
         if (connection.getVersion().onOrBefore(Version.V_5_3_0_UNRELEASED) && fetchDocuments) {
             // TODO this BWC layer can be removed once this is back-ported to 5.3
             transportService.sendChildRequest(connection, QUERY_FETCH_ACTION_NAME, request, task,
-                new ActionListenerResponseHandler<>(listener, supplier));
+                new ActionListenerResponseHandler<>(handler, supplier));
         } else {
             transportService.sendChildRequest(connection, QUERY_ACTION_NAME, request, task,
-                new ActionListenerResponseHandler<>(listener, supplier));
+                new ActionListenerResponseHandler<>(handler, supplier));
         }
     }
 
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final ActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
-            new ActionListenerResponseHandler<>(listener, QuerySearchResult::new));
+            new ActionListenerResponseHandler<>(wrapWithStatsCollector(connection, listener), QuerySearchResult::new));
+    }
+
+    /**
+     * Wraps the given listener such that the response time and the statistics the executing node piggy-backs on the query result
+     * are recorded for adaptive replica selection. The number of in-flight query requests per node is tracked as well.
+     */
+    private <T extends QuerySearchResultProvider> ActionListener<T> wrapWithStatsCollector(Transport.Connection connection,
+                                                                                          ActionListener<T> listener) {
+        final DiscoveryNode node = connection.getNode();
+        if (responseCollectorService == null || node == null) {
+            return listener;
+        }
+        final String nodeId = node.getId();
+        pendingSearchRequests.compute(nodeId, (id, count) -> count == null ? 1 : count + 1);
+        return new SearchExecutionStatsCollector<>(listener, responseCollectorService, nodeId,
+            () -> pendingSearchRequests.computeIfPresent(nodeId, (id, count) -> count <= 1 ? null : count - 1));
+    }
+
+    /**
+     * Returns a snapshot of the number of query requests this node currently has in flight, keyed by the id of the target node.
+     */
+    public Map<String, Long> getPendingSearchRequests() {
+        return new HashMap<>(pendingSearchRequests);
+    }
+
+    /**
+     * Returns the service that keeps track of the response statistics per node or <code>null</code> if statistics are not collected.
+     */
+    @Nullable
+    public ResponseCollectorService getResponseCollectorService() {
+        return responseCollectorService;
     }
 
     public void sendExecuteQuery(DiscoveryNode node, final InternalScrollSearchRequest request, SearchTask task,
@@ -281,6 +342,53 @@ public class SearchTransportService extends AbstractLifecycleComponent {
         }
     }
 
+    public static final class CanMatchResponse extends TransportResponse implements SearchPhaseResult {
+        private SearchShardTarget shardTarget;
+        private boolean canMatch;
+
+        CanMatchResponse() {
+        }
+
+        CanMatchResponse(boolean canMatch) {
+            this.canMatch = canMatch;
+        }
+
+        /**
+         * Returns <code>false</code> iff the shard is guaranteed to not match any document for the given request.
+         */
+        public boolean canMatch() {
+            return canMatch;
+        }
+
+        @Override
+        public long id() {
+            // the can match phase never creates a search context on the shard
+            return -1;
+        }
+
+        @Override
+        public SearchShardTarget shardTarget() {
+            return shardTarget;
+        }
+
+        @Override
+        public void shardTarget(SearchShardTarget shardTarget) {
+            this.shardTarget = shardTarget;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            canMatch = in.readBoolean();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBoolean(canMatch);
+        }
+    }
+
     public static void registerRequestHandler(TransportService transportService, SearchService searchService) {
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ScrollFreeContextRequest::new, ThreadPool.Names.SAME,
             new TaskAwareTransportRequestHandler<ScrollFreeContextRequest>() {
@@ -396,6 +504,16 @@ public class SearchTransportService extends AbstractLifecycleComponent {
                 }
             });
         TransportActionProxy.registerProxyAction(transportService, FETCH_ID_ACTION_NAME, FetchSearchResult::new);
+
+        transportService.registerRequestHandler(QUERY_CAN_MATCH_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
+            new TaskAwareTransportRequestHandler<ShardSearchTransportRequest>() {
+                @Override
+                public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel, Task task) throws Exception {
+                    boolean canMatch = searchService.canMatch(request);
+                    channel.sendResponse(new CanMatchResponse(canMatch));
+                }
+            });
+        TransportActionProxy.registerProxyAction(transportService, QUERY_CAN_MATCH_NAME, CanMatchResponse::new);
     }
 
     Transport.Connection getConnection(DiscoveryNode node) {
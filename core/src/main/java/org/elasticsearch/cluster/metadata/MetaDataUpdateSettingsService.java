@@ -44,6 +44,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSortConfig;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -169,6 +170,10 @@ public class MetaDataUpdateSettingsService extends AbstractComponent implements
                 listener.onFailure(new IllegalArgumentException("can't change the number of shards for an index"));
                 return;
             }
+            if (IndexSortConfig.isIndexSortSetting(entry.getKey())) {
+                listener.onFailure(new IllegalArgumentException("can't change the index sort of an index"));
+                return;
+            }
             Setting setting = indexScopedSettings.get(entry.getKey());
             assert setting != null; // we already validated the normalized settings
             settingsForClosedIndices.put(entry.getKey(), entry.getValue());
@@ -28,17 +28,20 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static java.util.Collections.emptyMap;
@@ -255,6 +258,79 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, ordered by the adaptive replica selection rank of the nodes the
+     * shards are allocated on. Active shards on nodes without statistics come first (in random order) such that they get a chance
+     * to report statistics. Initializing shards are the last to iterate through.
+     * @param collector the service holding the per node statistics
+     * @param nodeSearchCounts the number of search requests the coordinating node has in flight, per node. The count of the node
+     *                         the best ranked copy lives on is incremented such that subsequent shards of the same request account
+     *                         for it.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector, Map<String, Long> nodeSearchCounts) {
+        final int seed = shuffler.nextSeed();
+        final List<ShardRouting> rankedActiveShards = rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector,
+            nodeSearchCounts);
+        if (allInitializingShards.isEmpty()) {
+            return new PlainShardIterator(shardId, rankedActiveShards);
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(rankedActiveShards);
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
+    private static List<ShardRouting> rankShardsAndUpdateStats(List<ShardRouting> shards, ResponseCollectorService collector,
+                                                               Map<String, Long> nodeSearchCounts) {
+        if (shards.size() <= 1) {
+            return shards;
+        }
+        final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats = new HashMap<>(shards.size());
+        for (ShardRouting shard : shards) {
+            nodeStats.computeIfAbsent(shard.currentNodeId(), collector::getNodeStatistics);
+        }
+        final Map<String, Double> nodeRanks = new HashMap<>(nodeStats.size());
+        for (Map.Entry<String, Optional<ResponseCollectorService.ComputedNodeStats>> entry : nodeStats.entrySet()) {
+            final String nodeId = entry.getKey();
+            entry.getValue().ifPresent(stats -> nodeRanks.put(nodeId, stats.rank(nodeSearchCounts.getOrDefault(nodeId, 1L))));
+        }
+
+        // the sort is stable so copies on nodes with the same rank (or without stats) keep their shuffled order
+        final ArrayList<ShardRouting> sortedShards = new ArrayList<>(shards);
+        sortedShards.sort((s1, s2) -> {
+            Double rank1 = nodeRanks.get(s1.currentNodeId());
+            Double rank2 = nodeRanks.get(s2.currentNodeId());
+            if (rank1 == null) {
+                // nodes without stats go first so that they can be measured
+                return rank2 == null ? 0 : -1;
+            } else if (rank2 == null) {
+                return 1;
+            }
+            return rank1.compareTo(rank2);
+        });
+
+        final String minNodeId = sortedShards.get(0).currentNodeId();
+        final Optional<ResponseCollectorService.ComputedNodeStats> maybeMinStats = nodeStats.get(minNodeId);
+        if (maybeMinStats.isPresent()) {
+            final ResponseCollectorService.ComputedNodeStats minStats = maybeMinStats.get();
+            // move the stats of the losing nodes towards the winner so that they eventually get a chance to receive requests
+            // again and can report that they recovered
+            for (Map.Entry<String, Optional<ResponseCollectorService.ComputedNodeStats>> entry : nodeStats.entrySet()) {
+                final String nodeId = entry.getKey();
+                if (nodeId.equals(minNodeId) == false && entry.getValue().isPresent()) {
+                    final ResponseCollectorService.ComputedNodeStats stats = entry.getValue().get();
+                    final int updatedQueue = (minStats.queueSize + stats.queueSize) / 2;
+                    final long updatedResponse = (long) (minStats.responseTime + stats.responseTime) / 2;
+                    final long updatedService = (long) (minStats.serviceTime + stats.serviceTime) / 2;
+                    collector.addNodeStatistics(nodeId, updatedQueue, updatedResponse, updatedService);
+                }
+            }
+            // this only modifies the snapshot of counts that was taken for this search request
+            nodeSearchCounts.compute(minNodeId, (id, count) -> count == null ? 1 : count + 1);
+        }
+        return sortedShards;
+    }
+
     /**
      * Returns true if no primaries are active or initializing for this shard
      */
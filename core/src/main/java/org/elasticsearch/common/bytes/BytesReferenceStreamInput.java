@@ -129,7 +129,7 @@ final class BytesReferenceStreamInput extends StreamInput {
         int remaining = numBytesSkipped;
         while (remaining > 0) {
             maybeNextSlice();
-            int currentLen = Math.min(remaining, slice.length - (slice.offset + sliceOffset));
+            final int currentLen = Math.min(remaining, slice.length - sliceOffset);
             remaining -= currentLen;
             sliceOffset += currentLen;
             offset += currentLen;
@@ -26,6 +26,8 @@ import org.apache.lucene.util.RamUsageEstimator;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -64,6 +66,14 @@ public final class CompositeBytesReference extends BytesReference {
     }
 
 
+    /**
+     * Returns the references this composite is made of, in order. Transports use this to hand each part to the network
+     * layer as is instead of iterating over it page by page.
+     */
+    public List<BytesReference> references() {
+        return Collections.unmodifiableList(Arrays.asList(references));
+    }
+
     @Override
     public byte get(int index) {
         final int i = getOffsetIndex(index);
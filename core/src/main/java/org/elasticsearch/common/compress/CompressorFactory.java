@@ -34,6 +34,9 @@ public class CompressorFactory {
 
     public static final Compressor COMPRESSOR = new DeflateCompressor();
 
+    /** A faster compressor than {@link #COMPRESSOR} that trades compression ratio for speed, used for transport messages. */
+    public static final Compressor LZ4 = new LZ4Compressor();
+
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
     }
@@ -47,6 +50,10 @@ public class CompressorFactory {
                 assert XContentFactory.xContentType(bytes) == null;
                 return COMPRESSOR;
             }
+            if (LZ4.isCompressed(bytes)) {
+                assert XContentFactory.xContentType(bytes) == null;
+                return LZ4;
+            }
 
         XContentType contentType = XContentFactory.xContentType(bytes);
         if (contentType == null) {
@@ -24,6 +24,7 @@ import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestRequestBodyConsumer;
 
 public interface HttpServerTransport extends LifecycleComponent {
 
@@ -61,6 +62,30 @@ public interface HttpServerTransport extends LifecycleComponent {
          */
         void dispatchBadRequest(RestRequest request, RestChannel channel, ThreadContext threadContext, Throwable cause);
 
+        /**
+         * Returns whether the body of the given request, of which only the headers have been received so far, can be consumed
+         * chunk by chunk as it arrives. If so the request should be dispatched via {@link #dispatchStreamingRequest}, otherwise
+         * via {@link #dispatchRequest} once its body has been received in full.
+         *
+         * @param request the request without content
+         */
+        default boolean supportsStreamingRequestBody(RestRequest request) {
+            return false;
+        }
+
+        /**
+         * Dispatches a request that {@link #supportsStreamingRequestBody} accepted, before its body has been received. If the
+         * request fails before its body is consumed, the failure is sent on the channel and the returned consumer discards the body.
+         *
+         * @param request       the request without content
+         * @param channel       the response channel of this request
+         * @param threadContext the thread context
+         * @return the consumer to pass the chunks of the body to
+         */
+        default RestRequestBodyConsumer dispatchStreamingRequest(RestRequest request, RestChannel channel, ThreadContext threadContext) {
+            throw new UnsupportedOperationException("streaming request bodies are not supported");
+        }
+
     }
 
 }
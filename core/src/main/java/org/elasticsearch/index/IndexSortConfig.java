@@ -0,0 +1,271 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSelector;
+import org.apache.lucene.search.SortedSetSortField;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.index.mapper.BooleanFieldMapper;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.IpFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortMode;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Holds all the information that is used to build the sort order of an index.
+ *
+ * The index sort is configured once on index creation and can't be changed afterwards. Documents are written to
+ * the segments in the configured order which allows searches that sort by a prefix of the index sort to stop
+ * collecting hits on each segment once enough top hits are found.
+ *
+ * <p>The index sort supports the following <b>static</b> settings:
+ *
+ * <ul>
+ * <li><code>index.sort.field</code>:
+ *
+ *     The list of fields to sort the index by. Only fields with doc values of type <code>keyword</code>, <code>ip</code>,
+ *     <code>boolean</code>, <code>date</code> and numeric fields can be used.
+ *
+ * <li><code>index.sort.order</code>:
+ *
+ *     The sort order for each field, either <code>asc</code> or <code>desc</code>. Defaults to <code>asc</code>.
+ *
+ * <li><code>index.sort.mode</code>:
+ *
+ *     The value of a multi-valued field that is used to sort the document, either <code>min</code> or <code>max</code>.
+ *     Defaults to <code>min</code> for ascending and <code>max</code> for descending sorts.
+ *
+ * <li><code>index.sort.missing</code>:
+ *
+ *     How documents without a value for the field are sorted, either <code>_last</code> or <code>_first</code>.
+ *     Defaults to <code>_last</code>.
+ * </ul>
+ */
+public final class IndexSortConfig {
+
+    static final String INDEX_SORT_SETTING_PREFIX = "index.sort.";
+
+    /**
+     * The list of field names
+     */
+    public static final Setting<List<String>> INDEX_SORT_FIELD_SETTING =
+        Setting.listSetting(INDEX_SORT_SETTING_PREFIX + "field", Collections.emptyList(), Function.identity(), Property.IndexScope);
+
+    /**
+     * The {@link SortOrder} for each specified sort field (ie. <b>asc</b> or <b>desc</b>).
+     */
+    public static final Setting<List<SortOrder>> INDEX_SORT_ORDER_SETTING =
+        Setting.listSetting(INDEX_SORT_SETTING_PREFIX + "order", Collections.emptyList(), IndexSortConfig::parseOrderMode,
+            Property.IndexScope);
+
+    /**
+     * The {@link SortMode} for each specified sort field (ie. <b>min</b> or <b>max</b>)
+     */
+    public static final Setting<List<SortMode>> INDEX_SORT_MODE_SETTING =
+        Setting.listSetting(INDEX_SORT_SETTING_PREFIX + "mode", Collections.emptyList(), IndexSortConfig::parseMultiValueMode,
+            Property.IndexScope);
+
+    /**
+     * The missing value for each specified sort field (ie. <b>_first</b> or <b>_last</b>)
+     */
+    public static final Setting<List<String>> INDEX_SORT_MISSING_SETTING =
+        Setting.listSetting(INDEX_SORT_SETTING_PREFIX + "missing", Collections.emptyList(), IndexSortConfig::validateMissingValue,
+            Property.IndexScope);
+
+    private static SortOrder parseOrderMode(String value) {
+        try {
+            return SortOrder.fromString(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Illegal sort order: " + value);
+        }
+    }
+
+    private static SortMode parseMultiValueMode(String value) {
+        SortMode mode = SortMode.fromString(value);
+        if (mode != SortMode.MAX && mode != SortMode.MIN) {
+            throw new IllegalArgumentException("Illegal index sort mode: [" + mode + "], " +
+                "must be one of [" + SortMode.MAX + ", " + SortMode.MIN + "]");
+        }
+        return mode;
+    }
+
+    private static String validateMissingValue(String missing) {
+        if ("_last".equals(missing) == false && "_first".equals(missing) == false) {
+            throw new IllegalArgumentException("Illegal missing value: [" + missing + "], " +
+                "must be one of [_last, _first]");
+        }
+        return missing;
+    }
+
+    /**
+     * Returns <code>true</code> iff the given setting key belongs to the index sort configuration
+     */
+    public static boolean isIndexSortSetting(String key) {
+        return key.startsWith(INDEX_SORT_SETTING_PREFIX);
+    }
+
+    final FieldSortSpec[] sortSpecs;
+
+    IndexSortConfig(IndexSettings indexSettings) {
+        final List<String> fields = indexSettings.getValue(INDEX_SORT_FIELD_SETTING);
+        sortSpecs = new FieldSortSpec[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            sortSpecs[i] = new FieldSortSpec(fields.get(i));
+        }
+
+        final List<SortOrder> orders = indexSettings.getValue(INDEX_SORT_ORDER_SETTING);
+        if (orders.isEmpty() == false) {
+            if (orders.size() != sortSpecs.length) {
+                throw new IllegalArgumentException("index.sort.field:" + fields +
+                    " index.sort.order:" + orders + ", size mismatch");
+            }
+            for (int i = 0; i < sortSpecs.length; i++) {
+                sortSpecs[i].order = orders.get(i);
+            }
+        }
+
+        final List<SortMode> modes = indexSettings.getValue(INDEX_SORT_MODE_SETTING);
+        if (modes.isEmpty() == false) {
+            if (modes.size() != sortSpecs.length) {
+                throw new IllegalArgumentException("index.sort.field:" + fields +
+                    " index.sort.mode:" + modes + ", size mismatch");
+            }
+            for (int i = 0; i < sortSpecs.length; i++) {
+                sortSpecs[i].mode = modes.get(i);
+            }
+        }
+
+        final List<String> missingValues = indexSettings.getValue(INDEX_SORT_MISSING_SETTING);
+        if (missingValues.isEmpty() == false) {
+            if (missingValues.size() != sortSpecs.length) {
+                throw new IllegalArgumentException("index.sort.field:" + fields +
+                    " index.sort.missing:" + missingValues + ", size mismatch");
+            }
+            for (int i = 0; i < sortSpecs.length; i++) {
+                sortSpecs[i].missingValue = missingValues.get(i);
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the index should be sorted
+     */
+    public boolean hasIndexSort() {
+        return sortSpecs.length > 0;
+    }
+
+    /**
+     * Builds the {@link Sort} order from the settings for this index or returns <code>null</code> if this index has no sort.
+     *
+     * @param fieldTypeLookup a function that returns the mapped field type of a field or <code>null</code> if the field is not mapped
+     * @throws IllegalArgumentException if a sort field is not mapped or doesn't support index sorting
+     */
+    public Sort buildIndexSort(Function<String, MappedFieldType> fieldTypeLookup) {
+        if (hasIndexSort() == false) {
+            return null;
+        }
+        final SortField[] sortFields = new SortField[sortSpecs.length];
+        for (int i = 0; i < sortSpecs.length; i++) {
+            final FieldSortSpec sortSpec = sortSpecs[i];
+            final MappedFieldType ft = fieldTypeLookup.apply(sortSpec.field);
+            if (ft == null) {
+                throw new IllegalArgumentException("unknown index sort field:[" + sortSpec.field + "]");
+            }
+            if (ft.hasDocValues() == false) {
+                throw new IllegalArgumentException("docvalues not found for index sort field:[" + sortSpec.field + "]");
+            }
+            final boolean reverse = sortSpec.order == SortOrder.DESC;
+            final boolean missingFirst = "_first".equals(sortSpec.missingValue);
+            final SortMode mode = sortSpec.mode == null ? (reverse ? SortMode.MAX : SortMode.MIN) : sortSpec.mode;
+            if (ft instanceof NumberFieldMapper.NumberFieldType || ft instanceof DateFieldMapper.DateFieldType
+                || ft instanceof BooleanFieldMapper.BooleanFieldType) {
+                // all numeric doc values are encoded as sortable longs so that we can sort on the raw values
+                final SortField sortField = new SortedNumericSortField(sortSpec.field, SortField.Type.LONG, reverse,
+                    mode == SortMode.MAX ? SortedNumericSelector.Type.MAX : SortedNumericSelector.Type.MIN);
+                sortField.setMissingValue(missingFirst ^ reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+                sortFields[i] = sortField;
+            } else if (ft instanceof KeywordFieldMapper.KeywordFieldType || ft instanceof IpFieldMapper.IpFieldType) {
+                final SortField sortField = new SortedSetSortField(sortSpec.field, reverse,
+                    mode == SortMode.MAX ? SortedSetSelector.Type.MAX : SortedSetSelector.Type.MIN);
+                sortField.setMissingValue(missingFirst ^ reverse ? SortField.STRING_FIRST : SortField.STRING_LAST);
+                sortFields[i] = sortField;
+            } else {
+                throw new IllegalArgumentException("invalid index sort field:[" + sortSpec.field + "] of type [" + ft.typeName() + "]");
+            }
+        }
+        return new Sort(sortFields);
+    }
+
+    /**
+     * Returns <code>true</code> iff the given search sort is a prefix of the index sort. Hits of searches sorted by a prefix of
+     * the index sort are collected in sort order on every segment, so collection can be terminated early once enough hits are found.
+     */
+    public boolean isPrefixOfIndexSort(List<SortBuilder<?>> sorts) {
+        if (sorts == null || sorts.isEmpty() || sorts.size() > sortSpecs.length) {
+            return false;
+        }
+        for (int i = 0; i < sorts.size(); i++) {
+            if (sorts.get(i) instanceof FieldSortBuilder == false) {
+                return false;
+            }
+            final FieldSortBuilder sort = (FieldSortBuilder) sorts.get(i);
+            final FieldSortSpec sortSpec = sortSpecs[i];
+            final boolean reverse = sortSpec.order == SortOrder.DESC;
+            final SortMode indexMode = sortSpec.mode == null ? (reverse ? SortMode.MAX : SortMode.MIN) : sortSpec.mode;
+            final SortMode searchMode = sort.sortMode() == null ? (reverse ? SortMode.MAX : SortMode.MIN) : sort.sortMode();
+            final Object searchMissing = sort.missing() == null ? "_last" : sort.missing();
+            final String indexMissing = sortSpec.missingValue == null ? "_last" : sortSpec.missingValue;
+            if (sortSpec.field.equals(sort.getFieldName()) == false
+                || sortSpec.order != sort.order()
+                || indexMode != searchMode
+                || indexMissing.equals(searchMissing) == false
+                || sort.getNestedPath() != null
+                || sort.getNestedFilter() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static class FieldSortSpec {
+        final String field;
+        SortOrder order = SortOrder.ASC;
+        SortMode mode;
+        String missingValue;
+
+        FieldSortSpec(String field) {
+            this.field = field;
+        }
+    }
+}
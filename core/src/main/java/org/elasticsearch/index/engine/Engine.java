@@ -72,6 +72,7 @@ import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Comparator;
@@ -294,6 +295,31 @@ public abstract class Engine implements Closeable {
      */
     public abstract DeleteResult delete(Delete delete) throws IOException;
 
+    /**
+     * Perform a batch of document index and delete operations on the engine, in order. Engines may buffer the translog
+     * records of the operations and write them to the translog at once when all operations were applied.
+     * @param operations the index and delete operations to perform
+     * @return the results of the operations in the same order as the operations
+     *
+     * Note: engine level failures (i.e. persistent engine failures) are thrown
+     */
+    public List<Result> applyBatch(List<Operation> operations) throws IOException {
+        final List<Result> results = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            switch (operation.operationType()) {
+                case INDEX:
+                    results.add(index((Index) operation));
+                    break;
+                case DELETE:
+                    results.add(delete((Delete) operation));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unsupported operation type [" + operation.operationType() + "] in batch");
+            }
+        }
+        return results;
+    }
+
     public abstract NoOpResult noOp(NoOp noOp);
 
     /**
@@ -19,6 +19,8 @@
 
 package org.elasticsearch.index.engine;
 
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.cursors.LongCursor;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexCommit;
@@ -74,6 +76,7 @@ import org.elasticsearch.index.translog.TranslogCorruptedException;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -239,14 +242,19 @@ public class InternalEngine extends Engine {
     @Override
     public InternalEngine recoverFromTranslog() throws IOException {
         flushLock.lock();
-        try (ReleasableLock lock = readLock.acquire()) {
-            ensureOpen();
-            if (openMode != EngineConfig.OpenMode.OPEN_INDEX_AND_TRANSLOG) {
-                throw new IllegalStateException("Can't recover from translog with open mode: " + openMode);
-            }
-            if (pendingTranslogRecovery.get() == false) {
-                throw new IllegalStateException("Engine has already been recovered");
+        try {
+            try (ReleasableLock lock = readLock.acquire()) {
+                ensureOpen();
+                if (openMode != EngineConfig.OpenMode.OPEN_INDEX_AND_TRANSLOG) {
+                    throw new IllegalStateException("Can't recover from translog with open mode: " + openMode);
+                }
+                if (pendingTranslogRecovery.get() == false) {
+                    throw new IllegalStateException("Engine has already been recovered");
+                }
             }
+            // the read lock is not held while operations are replayed since the recovery performer may apply them on several
+            // threads: a concurrent close would otherwise block these threads while waiting for us. Every operation acquires the
+            // lock on its own and fails if the engine got closed in the meantime. Flushes are still prevented by the flush lock.
             try {
                 recoverFromTranslog(engineConfig.getTranslogRecoveryPerformer());
             } catch (Exception e) {
@@ -282,7 +290,10 @@ public class InternalEngine extends Engine {
                 opsRecovered, translogGeneration == null ? null : translogGeneration.translogFileGeneration, translog.currentFileGeneration());
             flush(true, true);
         } else if (translog.isCurrent(translogGeneration) == false) {
-            commitIndexWriter(indexWriter, translog, lastCommittedSegmentInfos.getUserData().get(Engine.SYNC_COMMIT_ID));
+            try (ReleasableLock lock = readLock.acquire()) {
+                ensureOpen();
+                commitIndexWriter(indexWriter, translog, lastCommittedSegmentInfos.getUserData().get(Engine.SYNC_COMMIT_ID));
+            }
         }
     }
 
@@ -509,6 +520,10 @@ public class InternalEngine extends Engine {
 
     @Override
     public IndexResult index(Index index) throws IOException {
+        return index(index, null);
+    }
+
+    private IndexResult index(Index index, @Nullable TranslogBatch batch) throws IOException {
         final boolean doThrottle = index.origin().isRecovery() == false;
         try (ReleasableLock releasableLock = readLock.acquire()) {
             ensureOpen();
@@ -586,18 +601,29 @@ public class InternalEngine extends Engine {
                     }
                     indexResult = indexIntoLucene(index, seqNo, currentVersion, deleted, forceUpdateDocument, canOptimizeAddDocument, expectedVersion);
                 }
-                if (indexResult.hasFailure() == false) {
+                final boolean deferTranslog = batch != null && indexResult.hasFailure() == false
+                    && index.origin() != Operation.Origin.LOCAL_TRANSLOG_RECOVERY;
+                if (indexResult.hasFailure() == false && deferTranslog == false) {
                     location = index.origin() != Operation.Origin.LOCAL_TRANSLOG_RECOVERY
                         ? translog.add(new Translog.Index(index, indexResult))
                         : null;
                     indexResult.setTranslogLocation(location);
                 }
                 indexResult.setTook(System.nanoTime() - index.startTime());
-                indexResult.freeze();
+                if (deferTranslog) {
+                    // the batch sets the location and freezes the result once the batch is written to the translog
+                    batch.add(new Translog.Index(index, indexResult), indexResult);
+                } else {
+                    indexResult.freeze();
+                }
                 return indexResult;
             } finally {
                 if (seqNo != SequenceNumbersService.UNASSIGNED_SEQ_NO) {
-                    seqNoService().markSeqNoAsCompleted(seqNo);
+                    if (batch != null) {
+                        batch.markSeqNoAsCompletedOnWrite(seqNo);
+                    } else {
+                        seqNoService().markSeqNoAsCompleted(seqNo);
+                    }
                 }
             }
         } catch (RuntimeException | IOException e) {
@@ -705,12 +731,16 @@ public class InternalEngine extends Engine {
 
     @Override
     public DeleteResult delete(Delete delete) throws IOException {
+        return delete(delete, null);
+    }
+
+    private DeleteResult delete(Delete delete, @Nullable TranslogBatch batch) throws IOException {
         DeleteResult result;
         try (ReleasableLock ignored = readLock.acquire()) {
             assert assertVersionType(delete);
             ensureOpen();
             // NOTE: we don't throttle this when merges fall behind because delete-by-id does not create new segments:
-            result = innerDelete(delete);
+            result = innerDelete(delete, batch);
         } catch (RuntimeException | IOException e) {
             try {
                 maybeFailEngine("index", e);
@@ -731,7 +761,7 @@ public class InternalEngine extends Engine {
         }
     }
 
-    private DeleteResult innerDelete(Delete delete) throws IOException {
+    private DeleteResult innerDelete(Delete delete, @Nullable TranslogBatch batch) throws IOException {
         assert assertSequenceNumber(delete.origin(), delete.seqNo());
         final Translog.Location location;
         final long updatedVersion;
@@ -774,18 +804,116 @@ public class InternalEngine extends Engine {
                 versionMap.putUnderLock(delete.uid().bytes(),
                     new DeleteVersionValue(updatedVersion, engineConfig.getThreadPool().relativeTimeInMillis()));
             }
-            if (!deleteResult.hasFailure()) {
+            final boolean deferTranslog = batch != null && deleteResult.hasFailure() == false
+                && delete.origin() != Operation.Origin.LOCAL_TRANSLOG_RECOVERY;
+            if (!deleteResult.hasFailure() && deferTranslog == false) {
                 location = delete.origin() != Operation.Origin.LOCAL_TRANSLOG_RECOVERY
                     ? translog.add(new Translog.Delete(delete, deleteResult))
                     : null;
                 deleteResult.setTranslogLocation(location);
             }
             deleteResult.setTook(System.nanoTime() - delete.startTime());
-            deleteResult.freeze();
+            if (deferTranslog) {
+                batch.add(new Translog.Delete(delete, deleteResult), deleteResult);
+            } else {
+                deleteResult.freeze();
+            }
             return deleteResult;
         } finally {
             if (seqNo != SequenceNumbersService.UNASSIGNED_SEQ_NO) {
-                seqNoService().markSeqNoAsCompleted(seqNo);
+                if (batch != null) {
+                    batch.markSeqNoAsCompletedOnWrite(seqNo);
+                } else {
+                    seqNoService().markSeqNoAsCompleted(seqNo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the operations one by one but buffers their translog records so that they are written to the translog with a
+     * single write once all operations were applied.
+     */
+    @Override
+    public List<Result> applyBatch(List<Operation> operations) throws IOException {
+        final TranslogBatch batch = new TranslogBatch();
+        final List<Result> results = new ArrayList<>(operations.size());
+        try {
+            for (Operation operation : operations) {
+                switch (operation.operationType()) {
+                    case INDEX:
+                        results.add(index((Index) operation, batch));
+                        break;
+                    case DELETE:
+                        results.add(delete((Delete) operation, batch));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unsupported operation type [" + operation.operationType() + "] in batch");
+                }
+            }
+        } catch (Exception e) {
+            // the operations that were applied so far still need to make it to the translog
+            try {
+                writeBatch(batch);
+            } catch (Exception inner) {
+                e.addSuppressed(inner);
+            }
+            throw e;
+        }
+        writeBatch(batch);
+        return results;
+    }
+
+    private void writeBatch(TranslogBatch batch) throws IOException {
+        try (ReleasableLock ignored = readLock.acquire()) {
+            batch.write();
+        } catch (RuntimeException | IOException e) {
+            try {
+                maybeFailEngine("index", e);
+            } catch (Exception inner) {
+                e.addSuppressed(inner);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Buffers the translog records of a batch of operations, see {@link #applyBatch(List)}. The sequence numbers of the
+     * operations are only marked as completed once the records were written so that the local checkpoint never covers an
+     * operation that is not in the translog yet.
+     */
+    private final class TranslogBatch {
+        private final List<Translog.Operation> operations = new ArrayList<>();
+        private final List<Result> results = new ArrayList<>();
+        private final LongArrayList seqNos = new LongArrayList();
+
+        void add(Translog.Operation operation, Result result) {
+            operations.add(operation);
+            results.add(result);
+        }
+
+        void markSeqNoAsCompletedOnWrite(long seqNo) {
+            seqNos.add(seqNo);
+        }
+
+        void write() throws IOException {
+            try {
+                if (operations.isEmpty() == false) {
+                    final Translog.Location[] locations = translog.add(operations);
+                    for (int i = 0; i < locations.length; i++) {
+                        results.get(i).setTranslogLocation(locations[i]);
+                    }
+                }
+            } finally {
+                for (Result result : results) {
+                    result.freeze();
+                }
+                for (LongCursor seqNo : seqNos) {
+                    seqNoService().markSeqNoAsCompleted(seqNo.value);
+                }
+                operations.clear();
+                results.clear();
+                seqNos.clear();
             }
         }
     }
@@ -1343,6 +1471,9 @@ public class InternalEngine extends Engine {
         iwc.setRAMBufferSizeMB(engineConfig.getIndexingBufferSize().getMbFrac());
         iwc.setCodec(engineConfig.getCodec());
         iwc.setUseCompoundFile(true); // always use compound on flush - reduces # of file-handles on refresh
+        if (config().getIndexSort() != null) {
+            iwc.setIndexSort(config().getIndexSort());
+        }
         return iwc;
     }
 
@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata;
+
+/**
+ * A stateful lightweight per document pre-aggregated histogram, made of distinct values and the number of times each
+ * of them occurred. To iterate over the histogram of a document use the following pattern:
+ * <pre>
+ *   HistogramValues values = ..;
+ *   values.setDocument(docId);
+ *   final int numValues = values.count();
+ *   for (int i = 0; i &lt; numValues; i++) {
+ *       double value = values.valueAt(i);
+ *       int count = values.countAt(i);
+ *       // process value
+ *   }
+ * </pre>
+ * Values come in ascending order.
+ */
+public abstract class HistogramValues {
+
+    /**
+     * Creates a new {@link HistogramValues} instance
+     */
+    protected HistogramValues() {
+    }
+
+    /**
+     * Sets iteration to the specified docID.
+     * @param docId document ID
+     *
+     * @see #valueAt(int)
+     * @see #countAt(int)
+     * @see #count()
+     */
+    public abstract void setDocument(int docId);
+
+    /**
+     * Return the number of distinct values in the histogram of the current document.
+     */
+    public abstract int count();
+
+    /**
+     * Return the <code>i-th</code> value of the histogram of the current document.
+     */
+    public abstract double valueAt(int i);
+
+    /**
+     * Return the number of times the <code>i-th</code> value occurred in the histogram of the current document.
+     */
+    public abstract int countAt(int i);
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.fielddata.AtomicHistogramFieldData;
+import org.elasticsearch.index.fielddata.HistogramValues;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Reads the histograms that {@link org.elasticsearch.index.mapper.HistogramFieldMapper} encodes as a sequence of
+ * (vint count, long value bits) pairs in ascending order of value.
+ */
+final class HistogramBinaryDVAtomicFieldData implements AtomicHistogramFieldData {
+
+    private final String fieldName;
+    private final BinaryDocValues values;
+
+    HistogramBinaryDVAtomicFieldData(String fieldName, BinaryDocValues values) {
+        this.fieldName = fieldName;
+        this.values = values;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return 0; // not exposed by Lucene
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public HistogramValues getHistogramValues() {
+        return new HistogramValues() {
+
+            int count;
+            double[] docValues = new double[0];
+            int[] docCounts = new int[0];
+            final ByteArrayDataInput in = new ByteArrayDataInput();
+
+            @Override
+            public void setDocument(int docId) {
+                final BytesRef bytes = values.get(docId);
+                in.reset(bytes.bytes, bytes.offset, bytes.length);
+                count = 0;
+                while (in.eof() == false) {
+                    if (count == docValues.length) {
+                        docValues = ArrayUtil.grow(docValues, count + 1);
+                        docCounts = ArrayUtil.grow(docCounts, count + 1);
+                    }
+                    docCounts[count] = in.readVInt();
+                    docValues[count] = Double.longBitsToDouble(in.readLong());
+                    ++count;
+                }
+            }
+
+            @Override
+            public int count() {
+                return count;
+            }
+
+            @Override
+            public double valueAt(int i) {
+                return docValues[i];
+            }
+
+            @Override
+            public int countAt(int i) {
+                return docCounts[i];
+            }
+        };
+    }
+
+    @Override
+    public ScriptDocValues<?> getScriptValues() {
+        throw new IllegalArgumentException("histogram field [" + fieldName + "] can't be accessed from scripts");
+    }
+
+    @Override
+    public SortedBinaryDocValues getBytesValues() {
+        throw new IllegalArgumentException("histogram field [" + fieldName + "] can't be read as string values");
+    }
+
+    @Override
+    public void close() {
+        // no-op
+    }
+}
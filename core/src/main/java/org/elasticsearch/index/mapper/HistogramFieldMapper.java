@@ -0,0 +1,231 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.plain.HistogramBinaryDVIndexFieldData;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.query.QueryShardException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.index.mapper.TypeParsers.parseField;
+
+/**
+ * A field mapper for pre-aggregated histograms. A histogram is made of distinct values in increasing order and of the
+ * number of times each of them occurred, and is stored in binary doc values so that the <code>percentiles</code> and
+ * <code>percentile_ranks</code> aggregations can merge it without expanding it into individual values:
+ * <pre>
+ * "latency" : {
+ *     "values" : [0.1, 0.2, 0.3],
+ *     "counts" : [3, 7, 23]
+ * }
+ * </pre>
+ */
+public class HistogramFieldMapper extends FieldMapper {
+
+    public static final String CONTENT_TYPE = "histogram";
+
+    public static final String VALUES_FIELD = "values";
+    public static final String COUNTS_FIELD = "counts";
+
+    public static class Defaults {
+        public static final MappedFieldType FIELD_TYPE = new HistogramFieldType();
+
+        static {
+            FIELD_TYPE.freeze();
+        }
+    }
+
+    public static class Builder extends FieldMapper.Builder<Builder, HistogramFieldMapper> {
+
+        public Builder(String name) {
+            super(name, Defaults.FIELD_TYPE, Defaults.FIELD_TYPE);
+            builder = this;
+        }
+
+        @Override
+        public Builder docValues(boolean docValues) {
+            if (docValues == false) {
+                throw new IllegalArgumentException("field [" + name + "] of type [" + CONTENT_TYPE + "] requires doc values");
+            }
+            return super.docValues(docValues);
+        }
+
+        @Override
+        public HistogramFieldMapper build(BuilderContext context) {
+            setupFieldType(context);
+            return new HistogramFieldMapper(name, fieldType, defaultFieldType,
+                    context.indexSettings(), multiFieldsBuilder.build(this, context), copyTo);
+        }
+    }
+
+    public static class TypeParser implements Mapper.TypeParser {
+        @Override
+        public Mapper.Builder parse(String name, Map<String, Object> node, ParserContext parserContext) throws MapperParsingException {
+            HistogramFieldMapper.Builder builder = new HistogramFieldMapper.Builder(name);
+            parseField(builder, name, node, parserContext);
+            return builder;
+        }
+    }
+
+    public static final class HistogramFieldType extends MappedFieldType {
+
+        public HistogramFieldType() {
+            setTokenized(false);
+            setHasDocValues(true);
+            setIndexOptions(IndexOptions.NONE);
+        }
+
+        protected HistogramFieldType(HistogramFieldType ref) {
+            super(ref);
+        }
+
+        @Override
+        public MappedFieldType clone() {
+            return new HistogramFieldType(this);
+        }
+
+        @Override
+        public String typeName() {
+            return CONTENT_TYPE;
+        }
+
+        @Override
+        public IndexFieldData.Builder fielddataBuilder() {
+            failIfNoDocValues();
+            return new HistogramBinaryDVIndexFieldData.Builder();
+        }
+
+        @Override
+        public Query termQuery(Object value, QueryShardContext context) {
+            throw new QueryShardException(context, "Histogram fields do not support searching");
+        }
+    }
+
+    protected HistogramFieldMapper(String simpleName, MappedFieldType fieldType, MappedFieldType defaultFieldType,
+                                   Settings indexSettings, MultiFields multiFields, CopyTo copyTo) {
+        super(simpleName, fieldType, defaultFieldType, indexSettings, multiFields, copyTo);
+    }
+
+    @Override
+    protected void parseCreateField(ParseContext context, List<IndexableField> fields) throws IOException {
+        final XContentParser parser = context.parser();
+        XContentParser.Token token = parser.currentToken();
+        if (token == XContentParser.Token.VALUE_NULL) {
+            return;
+        }
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new MapperParsingException("error parsing field [" + name() + "], expected an object but got " + token);
+        }
+        List<Double> values = null;
+        List<Integer> counts = null;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (VALUES_FIELD.equals(currentFieldName)) {
+                ensureArray(token);
+                values = new ArrayList<>();
+                while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                    final double value = parser.doubleValue();
+                    if (values.isEmpty() == false && values.get(values.size() - 1) > value) {
+                        throw new MapperParsingException("error parsing field [" + name() + "], [" + VALUES_FIELD
+                            + "] must be in increasing order, got [" + value + "] after [" + values.get(values.size() - 1) + "]");
+                    }
+                    values.add(value);
+                }
+            } else if (COUNTS_FIELD.equals(currentFieldName)) {
+                ensureArray(token);
+                counts = new ArrayList<>();
+                while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                    final int count = parser.intValue();
+                    if (count < 0) {
+                        throw new MapperParsingException("error parsing field [" + name() + "], [" + COUNTS_FIELD
+                            + "] must be non-negative, got [" + count + "]");
+                    }
+                    counts.add(count);
+                }
+            } else {
+                throw new MapperParsingException("error parsing field [" + name() + "], unknown parameter [" + currentFieldName + "]");
+            }
+        }
+        if (values == null || counts == null) {
+            throw new MapperParsingException("error parsing field [" + name() + "], expected both [" + VALUES_FIELD
+                + "] and [" + COUNTS_FIELD + "]");
+        }
+        if (values.size() != counts.size()) {
+            throw new MapperParsingException("error parsing field [" + name() + "], expected the same number of [" + VALUES_FIELD
+                + "] and [" + COUNTS_FIELD + "] but got [" + values.size() + "] and [" + counts.size() + "]");
+        }
+        if (context.doc().getByKey(fieldType().name()) != null) {
+            throw new MapperParsingException("field [" + name() + "] does not support indexing multiple values "
+                + "for the same field in the same document");
+        }
+        final double[] histogramValues = new double[values.size()];
+        final int[] histogramCounts = new int[counts.size()];
+        for (int i = 0; i < histogramValues.length; i++) {
+            histogramValues[i] = values.get(i);
+            histogramCounts[i] = counts.get(i);
+        }
+        final BinaryDocValuesField field = new BinaryDocValuesField(fieldType().name(), encode(histogramValues, histogramCounts));
+        context.doc().addWithKey(fieldType().name(), field);
+    }
+
+    /**
+     * Encodes a histogram as a sequence of (vint count, long value bits) pairs. Values must be in increasing order
+     * and values that have a count of zero are skipped.
+     */
+    public static BytesRef encode(double[] values, int[] counts) throws IOException {
+        assert values.length == counts.length;
+        // each pair takes at most 5 bytes for the vint count and 8 bytes for the value
+        final byte[] bytes = new byte[values.length * 13];
+        final ByteArrayDataOutput out = new ByteArrayDataOutput(bytes);
+        for (int i = 0; i < values.length; i++) {
+            if (counts[i] > 0) {
+                out.writeVInt(counts[i]);
+                out.writeLong(Double.doubleToRawLongBits(values[i]));
+            }
+        }
+        return new BytesRef(bytes, 0, out.getPosition());
+    }
+
+    private void ensureArray(XContentParser.Token token) {
+        if (token != XContentParser.Token.START_ARRAY) {
+            throw new MapperParsingException("error parsing field [" + name() + "], expected an array but got " + token);
+        }
+    }
+
+    @Override
+    protected String contentType() {
+        return CONTENT_TYPE;
+    }
+}
@@ -436,6 +436,7 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
             checkNestedFieldsLimit(fullPathObjectMappers);
             checkDepthLimit(fullPathObjectMappers.keySet());
         }
+        checkIndexSortCompatibility(hasNested);
 
         for (Map.Entry<String, DocumentMapper> entry : mappers.entrySet()) {
             if (entry.getKey().equals(DEFAULT_MAPPING)) {
@@ -596,6 +597,14 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
         }
     }
 
+    private void checkIndexSortCompatibility(boolean hasNested) {
+        // sorting the segments would break the contiguous blocks that nested documents rely on
+        if (hasNested && indexSettings.getIndexSortConfig().hasIndexSort()) {
+            throw new IllegalArgumentException("cannot have nested fields when index sort is activated for index ["
+                + indexSettings.getIndex().getName() + "]");
+        }
+    }
+
     private void checkPartitionedIndexConstraints(DocumentMapper newMapper) {
         if (indexSettings.getIndexMetaData().isRoutingPartitionedIndex()) {
             if (newMapper.parentFieldMapper().active()) {
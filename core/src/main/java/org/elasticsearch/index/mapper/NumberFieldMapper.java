@@ -174,6 +174,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.floatValue(coerce);
             }
 
+            @Override
+            Float parsePoint(byte[] value) {
+                return HalfFloatPoint.decodeDimension(value, 0);
+            }
+
             @Override
             Query termQuery(String field, Object value) {
                 float v = parse(value, false);
@@ -272,6 +277,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.floatValue(coerce);
             }
 
+            @Override
+            Float parsePoint(byte[] value) {
+                return FloatPoint.decodeDimension(value, 0);
+            }
+
             @Override
             Query termQuery(String field, Object value) {
                 float v = parse(value, false);
@@ -368,6 +378,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.doubleValue(coerce);
             }
 
+            @Override
+            Double parsePoint(byte[] value) {
+                return DoublePoint.decodeDimension(value, 0);
+            }
+
             @Override
             Query termQuery(String field, Object value) {
                 double v = parse(value, false);
@@ -475,6 +490,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return (short) value;
             }
 
+            @Override
+            Byte parsePoint(byte[] value) {
+                return INTEGER.parsePoint(value).byteValue();
+            }
+
             @Override
             Query termQuery(String field, Object value) {
                 return INTEGER.termQuery(field, value);
@@ -537,6 +557,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return (short) value;
             }
 
+            @Override
+            Short parsePoint(byte[] value) {
+                return INTEGER.parsePoint(value).shortValue();
+            }
+
             @Override
             Query termQuery(String field, Object value) {
                 return INTEGER.termQuery(field, value);
@@ -595,6 +620,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.intValue(coerce);
             }
 
+            @Override
+            Integer parsePoint(byte[] value) {
+                return IntPoint.decodeDimension(value, 0);
+            }
+
             @Override
             Query termQuery(String field, Object value) {
                 if (hasDecimalPart(value)) {
@@ -725,6 +755,11 @@ public class NumberFieldMapper extends FieldMapper {
                 return parser.longValue(coerce);
             }
 
+            @Override
+            Long parsePoint(byte[] value) {
+                return LongPoint.decodeDimension(value, 0);
+            }
+
             @Override
             Query termQuery(String field, Object value) {
                 if (hasDecimalPart(value)) {
@@ -855,6 +890,7 @@ public class NumberFieldMapper extends FieldMapper {
                                   boolean hasDocValues);
         abstract Number parse(XContentParser parser, boolean coerce) throws IOException;
         abstract Number parse(Object value, boolean coerce);
+        abstract Number parsePoint(byte[] value);
         public abstract List<Field> createFields(String name, Number value, boolean indexed,
                                                  boolean docValued, boolean stored);
         abstract FieldStats<? extends Number> stats(IndexReader reader, String fieldName,
@@ -958,6 +994,13 @@ public class NumberFieldMapper extends FieldMapper {
             return type.stats(reader, name(), isSearchable(), isAggregatable());
         }
 
+        /**
+         * Decodes the value of a point indexed for this field.
+         */
+        public Number parsePoint(byte[] value) {
+            return type.parsePoint(value);
+        }
+
         @Override
         public IndexFieldData.Builder fielddataBuilder() {
             failIfNoDocValues();
@@ -459,6 +459,12 @@ public class BoolQueryBuilder extends AbstractQueryBuilder<BoolQueryBuilder> {
         changed |= rewriteClauses(queryRewriteContext, mustNotClauses, newBuilder::mustNot);
         changed |= rewriteClauses(queryRewriteContext, filterClauses, newBuilder::filter);
         changed |= rewriteClauses(queryRewriteContext, shouldClauses, newBuilder::should);
+        // early terminate when we can since there is no way this query can match anything if one of the
+        // required clauses can't match
+        if (newBuilder.mustClauses.stream().anyMatch(b -> b instanceof MatchNoneQueryBuilder) ||
+            newBuilder.filterClauses.stream().anyMatch(b -> b instanceof MatchNoneQueryBuilder)) {
+            return new MatchNoneQueryBuilder();
+        }
 
         if (changed) {
             newBuilder.adjustPureNegative = adjustPureNegative;
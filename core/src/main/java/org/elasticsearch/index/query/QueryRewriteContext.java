@@ -56,6 +56,13 @@ public class QueryRewriteContext {
         this.nowInMillis = nowInMillis;
     }
 
+    /**
+     * Returns the script service to allow script compilation and execution
+     */
+    public ScriptService getScriptService() {
+        return scriptService;
+    }
+
     /**
      * Returns a clients to fetch resources from local or remove nodes.
      */
@@ -31,6 +31,7 @@ import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Lock;
@@ -137,6 +138,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -314,6 +316,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return mapperService;
     }
 
+    /**
+     * Returns the sort order of the documents in this shard's segments or <code>null</code> if the index is not sorted.
+     * @see org.elasticsearch.index.IndexSortConfig
+     */
+    public Sort getIndexSort() {
+        return indexSettings.getIndexSortConfig().buildIndexSort(mapperService::fullName);
+    }
+
     public SearchOperationListener getSearchOperationListener() {
         return this.searchOperationListener;
     }
@@ -616,6 +626,55 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return result;
     }
 
+    /**
+     * Executes the given index and delete operations in order. The engine writes the translog records of the operations
+     * at once after all operations were applied.
+     *
+     * @return the results of the operations in the same order as the operations
+     */
+    public List<Engine.Result> applyBatch(List<Engine.Operation> operations) throws IOException {
+        for (Engine.Operation operation : operations) {
+            ensureWriteAllowed(operation);
+        }
+        Engine engine = getEngine();
+        active.set(true);
+        final List<Engine.Operation> preparedOperations = new ArrayList<>(operations.size());
+        for (Engine.Operation operation : operations) {
+            if (operation instanceof Engine.Index) {
+                preparedOperations.add(indexingOperationListeners.preIndex(shardId, (Engine.Index) operation));
+            } else if (operation instanceof Engine.Delete) {
+                preparedOperations.add(indexingOperationListeners.preDelete(shardId, (Engine.Delete) operation));
+            } else {
+                throw new IllegalArgumentException("unsupported operation [" + operation.getClass().getSimpleName() + "] in batch");
+            }
+        }
+        final List<Engine.Result> results;
+        try {
+            if (logger.isTraceEnabled()) {
+                logger.trace("applying batch of [{}] operations", preparedOperations.size());
+            }
+            results = engine.applyBatch(preparedOperations);
+        } catch (Exception e) {
+            for (Engine.Operation operation : preparedOperations) {
+                if (operation instanceof Engine.Index) {
+                    indexingOperationListeners.postIndex(shardId, (Engine.Index) operation, e);
+                } else {
+                    indexingOperationListeners.postDelete(shardId, (Engine.Delete) operation, e);
+                }
+            }
+            throw e;
+        }
+        for (int i = 0; i < preparedOperations.size(); i++) {
+            final Engine.Operation operation = preparedOperations.get(i);
+            if (operation instanceof Engine.Index) {
+                indexingOperationListeners.postIndex(shardId, (Engine.Index) operation, (Engine.IndexResult) results.get(i));
+            } else {
+                indexingOperationListeners.postDelete(shardId, (Engine.Delete) operation, (Engine.DeleteResult) results.get(i));
+            }
+        }
+        return results;
+    }
+
     public Engine.GetResult get(Engine.Get get) {
         readAllowed();
         return getEngine().get(get, this::acquireSearcher);
@@ -1733,12 +1792,13 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     }
 
     private EngineConfig newEngineConfig(EngineConfig.OpenMode openMode, long maxUnsafeAutoIdTimestamp) {
-        final IndexShardRecoveryPerformer translogRecoveryPerformer = new IndexShardRecoveryPerformer(shardId, mapperService, logger);
+        final IndexShardRecoveryPerformer translogRecoveryPerformer = new IndexShardRecoveryPerformer(shardId, mapperService, logger,
+            threadPool.executor(ThreadPool.Names.GENERIC), indexSettings.getTranslogRecoveryThreads());
         return new EngineConfig(openMode, shardId,
             threadPool, indexSettings, warmer, store, deletionPolicy, indexSettings.getMergePolicy(),
             mapperService.indexAnalyzer(), similarityService.similarity(mapperService), codecService, shardEventListener, translogRecoveryPerformer, indexCache.query(), cachingPolicy, translogConfig,
             IndexingMemoryController.SHARD_INACTIVE_TIME_SETTING.get(indexSettings.getSettings()), refreshListeners,
-            maxUnsafeAutoIdTimestamp);
+            maxUnsafeAutoIdTimestamp, getIndexSort());
     }
 
     /**
@@ -1913,8 +1973,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
 
     private class IndexShardRecoveryPerformer extends TranslogRecoveryPerformer {
 
-        protected IndexShardRecoveryPerformer(ShardId shardId, MapperService mapperService, Logger logger) {
-            super(shardId, mapperService, logger);
+        protected IndexShardRecoveryPerformer(ShardId shardId, MapperService mapperService, Logger logger, ExecutorService executor,
+                                              int recoveryThreads) {
+            super(shardId, mapperService, logger, executor, recoveryThreads);
         }
 
         @Override
@@ -20,8 +20,11 @@ package org.elasticsearch.index.shard;
 
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
@@ -36,8 +39,14 @@ import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 
@@ -46,15 +55,41 @@ import static org.elasticsearch.index.mapper.SourceToParse.source;
  * indexing operation including source parsing and field creation from the source.
  */
 public class TranslogRecoveryPerformer {
+
+    /**
+     * The number of operations that are read from the translog before they are handed to the recovery threads. Operations of
+     * different batches are never applied concurrently.
+     */
+    static final int RECOVERY_BATCH_SIZE = 4096;
+
     private final MapperService mapperService;
     private final Logger logger;
     private final Map<String, Mapping> recoveredTypes = new HashMap<>();
     private final ShardId shardId;
+    private final ExecutorService executor;
+    private final int recoveryThreads;
 
     protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, Logger logger) {
+        this(shardId, mapperService, logger, null, 1);
+    }
+
+    /**
+     * Creates a recovery performer that replays local translog operations on up to <code>recoveryThreads</code> threads. Operations
+     * are partitioned by their id such that all operations on the same document are applied in translog order by a single thread.
+     */
+    protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, Logger logger, @Nullable ExecutorService executor,
+                                        int recoveryThreads) {
+        if (recoveryThreads < 1) {
+            throw new IllegalArgumentException("recovery threads must be at least 1 but was [" + recoveryThreads + "]");
+        }
+        if (recoveryThreads > 1 && executor == null) {
+            throw new IllegalArgumentException("an executor is required to recover on [" + recoveryThreads + "] threads");
+        }
         this.shardId = shardId;
         this.mapperService = mapperService;
         this.logger = logger;
+        this.executor = executor;
+        this.recoveryThreads = recoveryThreads;
     }
 
     protected DocumentMapperForType docMapper(String type) {
@@ -83,24 +118,134 @@ public class TranslogRecoveryPerformer {
 
     public int recoveryFromSnapshot(Engine engine, Translog.Snapshot snapshot) throws IOException {
         Translog.Operation operation;
+        if (recoveryThreads == 1) {
+            int opsRecovered = 0;
+            while ((operation = snapshot.next()) != null) {
+                opsRecovered += recoverFromSnapshot(engine, operation);
+            }
+            return opsRecovered;
+        }
+        final List<List<Translog.Operation>> partitions = new ArrayList<>(recoveryThreads);
+        for (int i = 0; i < recoveryThreads; i++) {
+            partitions.add(new ArrayList<>());
+        }
         int opsRecovered = 0;
+        int pendingOps = 0;
         while ((operation = snapshot.next()) != null) {
+            partitions.get(partition(operation)).add(operation);
+            if (++pendingOps == RECOVERY_BATCH_SIZE) {
+                opsRecovered += recoverPartitions(engine, partitions);
+                pendingOps = 0;
+            }
+        }
+        opsRecovered += recoverPartitions(engine, partitions);
+        return opsRecovered;
+    }
+
+    /**
+     * Applies a single operation of a local translog and returns the number of recovered operations. Corrupt entries are skipped.
+     */
+    private int recoverFromSnapshot(Engine engine, Translog.Operation operation) throws IOException {
+        try {
+            performRecoveryOperation(engine, operation, true, Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY);
+            return 1;
+        } catch (ElasticsearchException e) {
+            if (e.status() == RestStatus.BAD_REQUEST) {
+                // mainly for MapperParsingException and Failure to detect xcontent
+                logger.info("ignoring recovery of a corrupt translog entry", e);
+                return 0;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Applies the partitioned operations concurrently, one partition per thread, and clears the partitions once all of them
+     * are applied. The first partition and the partitions that the executor rejects are applied on the calling thread.
+     */
+    private int recoverPartitions(Engine engine, List<List<Translog.Operation>> partitions) throws IOException {
+        final List<Future<Integer>> futures = new ArrayList<>(partitions.size() - 1);
+        final List<List<Translog.Operation>> localPartitions = new ArrayList<>();
+        localPartitions.add(partitions.get(0));
+        for (List<Translog.Operation> partition : partitions.subList(1, partitions.size())) {
+            if (partition.isEmpty() == false) {
+                try {
+                    futures.add(executor.submit(() -> recoverPartition(engine, partition)));
+                } catch (EsRejectedExecutionException | RejectedExecutionException e) {
+                    localPartitions.add(partition);
+                }
+            }
+        }
+        int opsRecovered = 0;
+        Exception failure = null;
+        for (List<Translog.Operation> partition : localPartitions) {
             try {
-                performRecoveryOperation(engine, operation, true, Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY);
-                opsRecovered++;
-            } catch (ElasticsearchException e) {
-                if (e.status() == RestStatus.BAD_REQUEST) {
-                    // mainly for MapperParsingException and Failure to detect xcontent
-                    logger.info("ignoring recovery of a corrupt translog entry", e);
-                } else {
-                    throw e;
+                opsRecovered += recoverPartition(engine, partition);
+            } catch (Exception e) {
+                failure = ExceptionsHelper.useOrSuppress(failure, e);
+            }
+        }
+        // we must wait for all partitions even if one failed or we got interrupted so that no operation is applied once we return
+        boolean interrupted = false;
+        for (Future<Integer> future : futures) {
+            while (true) {
+                try {
+                    opsRecovered += future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    failure = ExceptionsHelper.useOrSuppress(failure, cause instanceof Exception ? (Exception) cause : e);
+                    break;
                 }
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+        for (List<Translog.Operation> partition : partitions) {
+            partition.clear();
+        }
+        return opsRecovered;
+    }
 
+    private int recoverPartition(Engine engine, List<Translog.Operation> operations) throws IOException {
+        int opsRecovered = 0;
+        for (Translog.Operation operation : operations) {
+            opsRecovered += recoverFromSnapshot(engine, operation);
+        }
         return opsRecovered;
     }
 
+    /**
+     * Returns the partition of the given operation. All operations on the same id end up in the same partition, no-ops are spread by
+     * their sequence number.
+     */
+    private int partition(Translog.Operation operation) {
+        final int hash;
+        switch (operation.opType()) {
+            case CREATE:
+            case INDEX:
+                hash = ((Translog.Index) operation).id().hashCode();
+                break;
+            case DELETE:
+                hash = Uid.createUid(((Translog.Delete) operation).uid().text()).id().hashCode();
+                break;
+            default:
+                hash = Long.hashCode(operation.seqNo());
+                break;
+        }
+        return Math.floorMod(hash, recoveryThreads);
+    }
+
     public static class BatchOperationException extends ElasticsearchException {
 
         private final int completedOperations;
@@ -128,7 +273,7 @@ public class TranslogRecoveryPerformer {
         }
     }
 
-    private void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
+    private synchronized void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
         if (update == null) {
             return;
         }
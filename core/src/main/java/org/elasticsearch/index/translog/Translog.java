@@ -30,6 +30,8 @@ import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -125,6 +127,16 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private volatile long lastCommittedTranslogFileGeneration = NOT_SET_GENERATION;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final TranslogConfig config;
+
+    /**
+     * Marks an operation that is stored as a compressed block. It never collides with the id of an {@link Operation.Type}.
+     */
+    static final byte COMPRESSED_OPERATION = (byte) -1;
+
+    /**
+     * Operations that are estimated to be smaller than this are never compressed since the compression header would eat the savings.
+     */
+    static final int COMPRESSION_THRESHOLD_BYTES = 256;
     private final LongSupplier globalCheckpointSupplier;
     private final String translogUUID;
 
@@ -412,7 +424,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             final BufferedChecksumStreamOutput checksumStreamOutput = new BufferedChecksumStreamOutput(out);
             final long start = out.position();
             out.skip(Integer.BYTES);
-            writeOperationNoSize(checksumStreamOutput, operation);
+            writeOperation(checksumStreamOutput, operation);
             final long end = out.position();
             final int operationSize = (int) (end - Integer.BYTES - start);
             out.seek(start);
@@ -442,6 +454,57 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Adds a batch of operations to the transaction log. The operations are serialized up-front and written to the
+     * current translog file as one contiguous write under a single lock acquisition.
+     *
+     * @param operations the operations to add
+     * @return the locations of the operations in the translog, in the same order as the operations
+     * @throws IOException if adding the operations to the translog resulted in an I/O exception
+     */
+    public Location[] add(final List<Operation> operations) throws IOException {
+        final ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        try {
+            final BufferedChecksumStreamOutput checksumStreamOutput = new BufferedChecksumStreamOutput(out);
+            final int[] sizes = new int[operations.size()];
+            final long[] seqNos = new long[operations.size()];
+            for (int i = 0; i < sizes.length; i++) {
+                final Operation operation = operations.get(i);
+                final long start = out.position();
+                out.skip(Integer.BYTES);
+                writeOperation(checksumStreamOutput, operation);
+                final long end = out.position();
+                final int operationSize = (int) (end - Integer.BYTES - start);
+                out.seek(start);
+                out.writeInt(operationSize);
+                out.seek(end);
+                sizes[i] = (int) (end - start);
+                seqNos[i] = operation.seqNo();
+            }
+            final ReleasablePagedBytesReference bytes = out.bytes();
+            try (ReleasableLock ignored = readLock.acquire()) {
+                ensureOpen();
+                return current.add(bytes, sizes, seqNos);
+            }
+        } catch (final AlreadyClosedException | IOException ex) {
+            try {
+                closeOnTragicEvent(ex);
+            } catch (final Exception inner) {
+                ex.addSuppressed(inner);
+            }
+            throw ex;
+        } catch (final Exception e) {
+            try {
+                closeOnTragicEvent(e);
+            } catch (final Exception inner) {
+                e.addSuppressed(inner);
+            }
+            throw new TranslogException(shardId, "Failed to write [" + operations.size() + "] operations", e);
+        } finally {
+            Releasables.close(out.bytes());
+        }
+    }
+
     /**
      * The a {@linkplain Location} that will sort after the {@linkplain Location} returned by the last write but before any locations which
      * can be returned by the next write.
@@ -784,7 +847,14 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
          * {@link Operation#writeType(Operation, StreamOutput)}
          */
         static Operation readType(StreamInput input) throws IOException {
-            Translog.Operation.Type type = Translog.Operation.Type.fromId(input.readByte());
+            return readType(input.readByte(), input);
+        }
+
+        /**
+         * Reads the operation with the given type id from the given stream.
+         */
+        static Operation readType(byte typeId, StreamInput input) throws IOException {
+            Translog.Operation.Type type = Translog.Operation.Type.fromId(typeId);
             switch (type) {
                 case CREATE:
                     // the deserialization logic in Index was identical to that of Create when create was deprecated
@@ -1274,8 +1344,18 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 verifyChecksum(in);
                 in.reset();
             }
-            operation = Translog.Operation.readType(in);
-            verifyChecksum(in);
+            final byte type = in.readByte();
+            if (type == COMPRESSED_OPERATION) {
+                final byte[] compressed = new byte[opSize - 4 - 1]; // the checksum and the marker are not compressed
+                in.readBytes(compressed, 0, compressed.length);
+                verifyChecksum(in);
+                try (StreamInput decompressed = CompressorFactory.COMPRESSOR.streamInput(new BytesArray(compressed).streamInput())) {
+                    operation = Translog.Operation.readType(decompressed);
+                }
+            } else {
+                operation = Translog.Operation.readType(type, in);
+                verifyChecksum(in);
+            }
         } catch (TranslogCorruptedException e) {
             throw e;
         } catch (EOFException e) {
@@ -1312,6 +1392,27 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
     }
 
+    /**
+     * Writes the given operation to the translog file, compressing it as a single block if translog compression is enabled on the
+     * index and the operation is large enough to benefit from it. Compressed blocks are transparently decompressed by
+     * {@link #readOperation(BufferedChecksumStreamInput)}. The checksum is computed over the bytes as they are stored on disk.
+     */
+    private void writeOperation(BufferedChecksumStreamOutput out, Translog.Operation op) throws IOException {
+        if (indexSettings.isTranslogCompressEnabled() && op.estimateSize() >= COMPRESSION_THRESHOLD_BYTES) {
+            final BytesStreamOutput compressed = new BytesStreamOutput();
+            try (StreamOutput compressing = CompressorFactory.COMPRESSOR.streamOutput(compressed)) {
+                Translog.Operation.writeType(op, compressing);
+            }
+            out.resetDigest();
+            out.writeByte(COMPRESSED_OPERATION);
+            compressed.bytes().writeTo(out);
+            long checksum = out.getChecksum();
+            out.writeInt((int) checksum);
+        } else {
+            writeOperationNoSize(out, op);
+        }
+    }
+
     public static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op) throws IOException {
         // This BufferedChecksumStreamOutput remains unclosed on purpose,
         // because closing it closes the underlying stream, which we don't
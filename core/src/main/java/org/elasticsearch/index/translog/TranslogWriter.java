@@ -198,6 +198,44 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         return new Translog.Location(generation, offset, data.length());
     }
 
+    /**
+     * Add a batch of serialized operations to the translog with a single write; returns the locations the operations were
+     * written to, in order.
+     *
+     * @param data   the bytes of all operations, one after the other
+     * @param sizes  the number of bytes of each operation
+     * @param seqNos the sequence numbers associated with the operations
+     * @return the locations the operations were written to
+     * @throws IOException if writing to the translog resulted in an I/O exception
+     */
+    public synchronized Translog.Location[] add(final BytesReference data, final int[] sizes, final long[] seqNos) throws IOException {
+        assert sizes.length == seqNos.length : "expected one size per sequence number";
+        ensureOpen();
+        long offset = totalOffset;
+        try {
+            data.writeTo(outputStream);
+        } catch (final Exception ex) {
+            try {
+                closeWithTragicEvent(ex);
+            } catch (final Exception inner) {
+                ex.addSuppressed(inner);
+            }
+            throw ex;
+        }
+        totalOffset += data.length();
+
+        final Translog.Location[] locations = new Translog.Location[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            locations[i] = new Translog.Location(generation, offset, sizes[i]);
+            offset += sizes[i];
+            minSeqNo = SequenceNumbers.min(minSeqNo, seqNos[i]);
+            maxSeqNo = SequenceNumbers.max(maxSeqNo, seqNos[i]);
+        }
+        assert offset == totalOffset : "sizes don't add up to the number of written bytes";
+        operationCounter += sizes.length;
+        return locations;
+    }
+
     /**
      * write all buffered ops to disk and fsync file.
      *
@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A node level cache for the background frequencies of terms that are looked up by the significant terms aggregations.
+ * Entries are keyed by the shard and the version of the top-level reader they were computed on, so that repeated requests
+ * against the same point-in-time view of a shard don't have to count the documents of every candidate term again. A reader
+ * is marked for cleanup when it is closed, which happens once a refresh opened a new reader and no search holds on to the
+ * old one anymore, and its entries are removed by the periodic {@link #cleanCache()} like the entries of the
+ * {@link IndicesRequestCache}. The cache is shared by all shards of the node and bounded by the estimated memory of its entries.
+ */
+public final class IndicesBackgroundFrequencyCache extends AbstractComponent implements Closeable {
+
+    public static final Setting<ByteSizeValue> INDICES_CACHE_BACKGROUND_FREQUENCY_SIZE =
+        Setting.memorySizeSetting("indices.significant_terms.background_frequency_cache.size", "1%", Property.NodeScope);
+
+    // the filters of the background are not accountable in general, we use the same default as Lucene's query cache
+    private static final long QUERY_DEFAULT_RAM_BYTES_USED = 1024;
+
+    private final Cache<Key, Long> cache;
+    private final Set<ReaderKey> trackedReaders = ConcurrentCollections.newConcurrentSet();
+    private final Set<ReaderKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+
+    IndicesBackgroundFrequencyCache(Settings settings) {
+        super(settings);
+        final long sizeInBytes = INDICES_CACHE_BACKGROUND_FREQUENCY_SIZE.get(settings).getBytes();
+        this.cache = CacheBuilder.<Key, Long>builder().setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed()).build();
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the background frequency of the given term, computing it with the provided loader if it is not cached yet.
+     * Frequencies are only cached for readers that are not wrapped since wrapped readers may expose a different set of
+     * documents under the same reader version.
+     *
+     * @param reader the top-level reader of the shard the frequency is computed on
+     * @param field the name of the field the term belongs to
+     * @param filter the background filter or <code>null</code> if the background is the whole shard
+     * @param term the formatted value of the term
+     * @param loader computes the background frequency of the term on the reader
+     */
+    public long getOrCompute(DirectoryReader reader, String field, @Nullable Query filter, String term,
+                             CheckedSupplier<Long, IOException> loader) throws IOException {
+        final ElasticsearchDirectoryReader elasticsearchReader = ElasticsearchDirectoryReader.getElasticsearchDirectoryReader(reader);
+        if (elasticsearchReader != reader) {
+            return loader.get();
+        }
+        final ReaderKey readerKey = new ReaderKey(elasticsearchReader.shardId(), reader.getVersion());
+        final Key key = new Key(readerKey, field, filter, term);
+        final Long cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (trackedReaders.add(readerKey)) {
+            ElasticsearchDirectoryReader.addReaderCloseListener(reader, closedReader -> onClose(readerKey));
+        }
+        final long frequency = loader.get();
+        cache.put(key, frequency);
+        if (trackedReaders.contains(readerKey) == false) {
+            // the reader was closed while the frequency was computed, the cleanup might have run before the entry was added
+            cache.invalidate(key);
+        }
+        return frequency;
+    }
+
+    private void onClose(ReaderKey readerKey) {
+        // the reader is no longer tracked before it is marked for cleanup, see getOrCompute
+        trackedReaders.remove(readerKey);
+        keysToClean.add(readerKey);
+    }
+
+    /**
+     * Removes the entries of the readers that were closed since the last cleanup.
+     */
+    synchronized void cleanCache() {
+        final Set<ReaderKey> currentKeysToClean = new HashSet<>();
+        for (Iterator<ReaderKey> iterator = keysToClean.iterator(); iterator.hasNext(); ) {
+            currentKeysToClean.add(iterator.next());
+            iterator.remove();
+        }
+        if (currentKeysToClean.isEmpty() == false) {
+            for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+                if (currentKeysToClean.contains(iterator.next().readerKey)) {
+                    iterator.remove();
+                }
+            }
+        }
+        cache.refresh();
+    }
+
+    /**
+     * Returns the number of cached background frequencies.
+     */
+    int count() {
+        return cache.count();
+    }
+
+    /**
+     * Returns the estimated memory of the cached background frequencies.
+     */
+    long weight() {
+        return cache.weight();
+    }
+
+    private static final class ReaderKey {
+        private final ShardId shardId;
+        private final long readerVersion;
+
+        private ReaderKey(ShardId shardId, long readerVersion) {
+            this.shardId = shardId;
+            this.readerVersion = readerVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ReaderKey readerKey = (ReaderKey) o;
+            return readerVersion == readerKey.readerVersion && shardId.equals(readerKey.shardId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shardId, readerVersion);
+        }
+    }
+
+    private static final class Key implements Accountable {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class)
+            + RamUsageEstimator.shallowSizeOfInstance(ReaderKey.class) + RamUsageEstimator.shallowSizeOfInstance(Long.class);
+
+        private final ReaderKey readerKey;
+        private final String field;
+        private final Query filter;
+        private final String term;
+
+        private Key(ReaderKey readerKey, String field, Query filter, String term) {
+            this.readerKey = readerKey;
+            this.field = field;
+            this.filter = filter;
+            this.term = term;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            long ramBytesUsed = BASE_RAM_BYTES_USED + sizeOf(field) + sizeOf(term);
+            if (filter instanceof Accountable) {
+                ramBytesUsed += ((Accountable) filter).ramBytesUsed();
+            } else if (filter != null) {
+                ramBytesUsed += QUERY_DEFAULT_RAM_BYTES_USED;
+            }
+            return ramBytesUsed;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return Collections.emptyList();
+        }
+
+        private static long sizeOf(String value) {
+            return RamUsageEstimator.shallowSizeOfInstance(String.class)
+                + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) Character.BYTES * value.length());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return readerKey.equals(key.readerKey)
+                && field.equals(key.field)
+                && Objects.equals(filter, key.filter)
+                && term.equals(key.term);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(readerKey, field, filter, term);
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.indices.recovery;
 
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
@@ -201,8 +202,11 @@ public class PeerRecoverySourceService extends AbstractComponent implements Inde
                     handler = new SharedFSRecoverySourceHandler(shard, recoveryTarget, request, currentClusterStateVersionSupplier,
                         this::delayNewRecoveries, settings);
                 } else {
+                    // older targets write the file chunks in the order they receive them so we must send them one at a time
+                    final int maxConcurrentFileChunks = request.targetNode().getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)
+                        ? recoverySettings.getMaxConcurrentFileChunks() : 1;
                     handler = new RecoverySourceHandler(shard, recoveryTarget, request, currentClusterStateVersionSupplier,
-                        this::delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(), settings);
+                        this::delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(), maxConcurrentFileChunks, settings);
                 }
                 return handler;
             }
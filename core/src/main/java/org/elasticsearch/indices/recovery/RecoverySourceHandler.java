@@ -31,9 +31,11 @@ import org.apache.lucene.store.RateLimiter;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.Loggers;
@@ -57,7 +59,10 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
@@ -85,7 +90,12 @@ public class RecoverySourceHandler {
     private final Supplier<Long> currentClusterStateVersionSupplier;
     private final Function<String, Releasable> delayNewRecoveries;
     private final int chunkSizeInBytes;
+    private final int maxConcurrentFileChunks;
     private final RecoveryTargetHandler recoveryTarget;
+    // limits the number of file chunk requests that are in flight
+    private final Semaphore fileChunkPermits;
+    // the first file chunk that failed on the target together with the file it belongs to
+    private final AtomicReference<Tuple<StoreFileMetaData, Exception>> failedFileChunk = new AtomicReference<>();
 
     protected final RecoveryResponse response;
 
@@ -110,6 +120,7 @@ public class RecoverySourceHandler {
                                  final Supplier<Long> currentClusterStateVersionSupplier,
                                  Function<String, Releasable> delayNewRecoveries,
                                  final int fileChunkSizeInBytes,
+                                 final int maxConcurrentFileChunks,
                                  final Settings nodeSettings) {
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
@@ -120,6 +131,8 @@ public class RecoverySourceHandler {
         this.shardId = this.request.shardId().id();
         this.logger = Loggers.getLogger(getClass(), nodeSettings, request.shardId(), "recover to " + request.targetNode().getName());
         this.chunkSizeInBytes = fileChunkSizeInBytes;
+        this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+        this.fileChunkPermits = new Semaphore(maxConcurrentFileChunks);
         this.response = new RecoveryResponse();
     }
 
@@ -566,16 +579,27 @@ public class RecoverySourceHandler {
 
         @Override
         public void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
+            // the buffer is reused for the next chunk while this one might still be in flight
+            final BytesArray content = new BytesArray(Arrays.copyOfRange(b, offset, offset + length));
+            sendNextChunk(position, content, md.length() == position + length);
             position += length;
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
 
         private void sendNextChunk(long position, BytesArray content, boolean lastChunk) throws IOException {
-            // Actually send the file chunk to the target node, waiting for it to complete
-            cancellableThreads.executeIO(() ->
-                    recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations())
-            );
+            // Actually send the file chunk to the target node once less than maxConcurrentFileChunks chunks are in flight
+            cancellableThreads.execute(fileChunkPermits::acquire);
+            final Tuple<StoreFileMetaData, Exception> failure = failedFileChunk.get();
+            if (failure != null) {
+                fileChunkPermits.release();
+                throw ExceptionsHelper.convertToRuntime(failure.v2());
+            }
+            recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations(), ActionListener.wrap(
+                r -> fileChunkPermits.release(),
+                e -> {
+                    failedFileChunk.compareAndSet(null, new Tuple<>(md, e));
+                    fileChunkPermits.release();
+                }));
             if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
@@ -593,35 +617,52 @@ public class RecoverySourceHandler {
                     // exceptions during close correctly and doesn't hide the original exception.
                     Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
                 } catch (Exception e) {
-                    final IOException corruptIndexException;
-                    if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
-                        if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
-                            logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
-                            failEngine(corruptIndexException);
-                            throw corruptIndexException;
-                        } else { // corruption has happened on the way to replica
-                            RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
-                                    "checksums are ok", null);
-                            exception.addSuppressed(e);
-                            logger.warn(
-                                (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
-                                    "{} Remote file corruption on node {}, recovering {}. local checksum OK",
-                                    shardId,
-                                    request.targetNode(),
-                                    md),
-                                corruptIndexException);
-                            throw exception;
-                        }
+                    final Tuple<StoreFileMetaData, Exception> failure = failedFileChunk.get();
+                    if (failure != null) {
+                        // a chunk that was sent before failed on the target, it might belong to a previous file
+                        handleErrorOnSendFiles(store, failure.v2(), failure.v1());
                     } else {
-                        throw e;
+                        handleErrorOnSendFiles(store, e, md);
                     }
                 }
             }
+            // wait for the chunks that are still in flight
+            cancellableThreads.execute(() -> fileChunkPermits.acquire(maxConcurrentFileChunks));
+            fileChunkPermits.release(maxConcurrentFileChunks);
+            final Tuple<StoreFileMetaData, Exception> failure = failedFileChunk.get();
+            if (failure != null) {
+                handleErrorOnSendFiles(store, failure.v2(), failure.v1());
+            }
         } finally {
             store.decRef();
         }
     }
 
+    private void handleErrorOnSendFiles(Store store, Exception e, StoreFileMetaData md) throws Exception {
+        final IOException corruptIndexException;
+        if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
+            if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
+                logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
+                failEngine(corruptIndexException);
+                throw corruptIndexException;
+            } else { // corruption has happened on the way to replica
+                RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
+                        "checksums are ok", null);
+                exception.addSuppressed(e);
+                logger.warn(
+                    (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
+                        "{} Remote file corruption on node {}, recovering {}. local checksum OK",
+                        shardId,
+                        request.targetNode(),
+                        md),
+                    corruptIndexException);
+                throw exception;
+            }
+        } else {
+            throw e;
+        }
+    }
+
     protected void failEngine(IOException cause) {
         shard.failShard("recovery", cause);
     }
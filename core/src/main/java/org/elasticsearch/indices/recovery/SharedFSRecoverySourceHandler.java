@@ -39,7 +39,7 @@ public class SharedFSRecoverySourceHandler extends RecoverySourceHandler {
     SharedFSRecoverySourceHandler(IndexShard shard, RecoveryTargetHandler recoveryTarget, StartRecoveryRequest request,
                                   Supplier<Long> currentClusterStateVersionSupplier,
                                   Function<String, Releasable> delayNewRecoveries, Settings nodeSettings) {
-        super(shard, recoveryTarget, request, currentClusterStateVersionSupplier, delayNewRecoveries, -1, nodeSettings);
+        super(shard, recoveryTarget, request, currentClusterStateVersionSupplier, delayNewRecoveries, -1, 1, nodeSettings);
         this.shard = shard;
         this.request = request;
     }
@@ -41,6 +41,7 @@ import org.elasticsearch.snapshots.RestoreService;
 import org.elasticsearch.snapshots.SnapshotsService;
 import org.elasticsearch.transport.TransportService;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,7 +54,7 @@ import java.util.stream.Collectors;
 /**
  * Service responsible for maintaining and providing access to snapshot repositories on nodes.
  */
-public class RepositoriesService extends AbstractComponent implements ClusterStateApplier {
+public class RepositoriesService extends AbstractComponent implements ClusterStateApplier, Closeable {
 
     private final Map<String, Repository.Factory> typesRegistry;
 
@@ -363,6 +364,23 @@ public class RepositoriesService extends AbstractComponent implements ClusterSta
         return true;
     }
 
+    /**
+     * Closes all registered repositories, this is called when the node shuts down.
+     */
+    @Override
+    public void close() throws IOException {
+        final Map<String, Repository> toClose = repositories;
+        repositories = Collections.emptyMap();
+        for (Repository repository : toClose.values()) {
+            try {
+                closeRepository(repository);
+            } catch (Exception e) {
+                logger.warn((Supplier<?>) () -> new ParameterizedMessage("failed to close repository [{}]",
+                    repository.getMetadata().name()), e);
+            }
+        }
+    }
+
     /** Closes the given repository. */
     private void closeRepository(Repository repository) throws IOException {
         logger.debug("closing repository [{}][{}]", repository.getMetadata().type(), repository.getMetadata().name());
@@ -21,6 +21,7 @@ package org.elasticsearch.repositories.blobstore;
 
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
+import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexFormatTooNewException;
@@ -44,6 +45,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.metadata.RepositoryMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
@@ -66,6 +68,10 @@ import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.util.iterable.Iterables;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
@@ -103,6 +109,7 @@ import org.elasticsearch.snapshots.SnapshotId;
 import org.elasticsearch.snapshots.SnapshotInfo;
 import org.elasticsearch.snapshots.SnapshotMissingException;
 import org.elasticsearch.snapshots.SnapshotShardFailure;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.FilterInputStream;
 import java.io.IOException;
@@ -116,6 +123,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyMap;
@@ -207,6 +219,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
     private final RateLimiter restoreRateLimiter;
 
+    private final int maxConcurrentFileTransfers;
+
+    private EsThreadPoolExecutor fileTransferExecutor;
+
     private final CounterMetric snapshotRateLimitingTimeInNanos = new CounterMetric();
 
     private final CounterMetric restoreRateLimitingTimeInNanos = new CounterMetric();
@@ -236,6 +252,12 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         snapshotRateLimiter = getRateLimiter(metadata.settings(), "max_snapshot_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(metadata.settings(), "max_restore_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         readOnly = metadata.settings().getAsBoolean("readonly", false);
+        maxConcurrentFileTransfers = metadata.settings().getAsInt("max_concurrent_file_transfers",
+            Math.min(4, EsExecutors.numberOfProcessors(globalSettings)));
+        if (maxConcurrentFileTransfers < 1) {
+            throw new RepositoryException(metadata.name(),
+                "max_concurrent_file_transfers must be >= 1 but was [" + maxConcurrentFileTransfers + "]");
+        }
 
         indexShardSnapshotFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_CODEC, SNAPSHOT_NAME_FORMAT,
             BlobStoreIndexShardSnapshot::fromXContent, namedXContentRegistry, isCompress());
@@ -259,6 +281,11 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
     @Override
     protected void doClose() {
+        synchronized (this) {
+            if (fileTransferExecutor != null) {
+                ThreadPool.terminate(fileTransferExecutor, 10, TimeUnit.SECONDS);
+            }
+        }
         try {
             blobStore().close();
         } catch (Exception t) {
@@ -266,6 +293,80 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
+    /**
+     * Returns the executor that uploads and downloads the files of shard snapshots. It is created on first use so
+     * that repositories which never snapshot or restore a shard on this node don't start any threads.
+     */
+    private synchronized EsThreadPoolExecutor fileTransferExecutor() {
+        if (fileTransferExecutor == null) {
+            final int maxThreads = Math.max(maxConcurrentFileTransfers, Math.min(10, 2 * EsExecutors.numberOfProcessors(settings)));
+            fileTransferExecutor = EsExecutors.newScaling("snapshot_io", 0, maxThreads, 30, TimeUnit.SECONDS,
+                EsExecutors.daemonThreadFactory(settings, "snapshot_io[" + metadata.name() + "]"), new ThreadContext(settings));
+        }
+        return fileTransferExecutor;
+    }
+
+    /**
+     * Transfers the given files of a shard using up to {@code max_concurrent_file_transfers} files in parallel. The calling
+     * thread transfers files too, the other transfers run on the snapshot I/O executor of this repository. Files that are
+     * not started yet are skipped once a transfer failed, the first failure is rethrown after all running transfers are done.
+     */
+    private void transferFiles(List<BlobStoreIndexShardSnapshot.FileInfo> files,
+                               CheckedConsumer<BlobStoreIndexShardSnapshot.FileInfo, IOException> transfer) throws IOException {
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            int i;
+            while (failure.get() == null && (i = nextFile.getAndIncrement()) < files.size()) {
+                try {
+                    transfer.accept(files.get(i));
+                } catch (Exception e) {
+                    if (failure.compareAndSet(null, e) == false) {
+                        failure.get().addSuppressed(e);
+                    }
+                }
+            }
+        };
+        final int numWorkers = Math.min(maxConcurrentFileTransfers, files.size());
+        final List<Future<?>> futures = new ArrayList<>(numWorkers);
+        for (int i = 1; i < numWorkers; i++) {
+            try {
+                futures.add(fileTransferExecutor().submit(worker));
+            } catch (EsRejectedExecutionException e) {
+                // the repository is closing, transfer the remaining files on the calling thread
+                break;
+            }
+        }
+        worker.run();
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // the worker records its failures so this can only be an error
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new AssertionError("unexpected failure of a file transfer worker", e);
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final Exception e = failure.get();
+        if (e != null) {
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw ExceptionsHelper.convertToRuntime(e);
+        }
+    }
+
     /**
      * Returns the BlobStore to read and write data.
      */
@@ -1210,12 +1311,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
-                for (BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo : filesToSnapshot) {
-                    try {
-                        snapshotFile(snapshotFileInfo);
-                    } catch (IOException e) {
-                        throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
-                    }
+                try {
+                    transferFiles(filesToSnapshot, this::snapshotFile);
+                } catch (IOException e) {
+                    throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
                 }
 
                 snapshotStatus.indexVersion(snapshotIndexCommit.getGeneration());
@@ -1252,8 +1351,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         /**
          * Snapshot individual file
          * <p>
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * Several files of the same shard might be snapshotted concurrently, see {@link #transferFiles}.
          *
          * @param fileInfo file to be snapshotted
          */
@@ -1445,12 +1543,14 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
                 SnapshotFiles snapshotFiles = new SnapshotFiles(snapshot.snapshot(), snapshot.indexFiles());
                 Store.MetadataSnapshot recoveryTargetMetadata;
+                boolean noLocalCommit = false;
                 try {
                     recoveryTargetMetadata = targetShard.snapshotStoreMetadata();
                 } catch (IndexNotFoundException e) {
                     // happens when restore to an empty shard, not a big deal
                     logger.trace("[{}] [{}] restoring from to an empty shard", shardId, snapshotId);
                     recoveryTargetMetadata = Store.MetadataSnapshot.EMPTY;
+                    noLocalCommit = true;
                 } catch (IOException e) {
                     logger.warn((Supplier<?>) () -> new ParameterizedMessage("{} Can't read metadata from store, will not reuse any local file while restoring", shardId), e);
                     recoveryTargetMetadata = Store.MetadataSnapshot.EMPTY;
@@ -1473,6 +1573,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                     snapshotMetaData.put(fileInfo.metadata().name(), fileInfo.metadata());
                     fileInfos.put(fileInfo.metadata().name(), fileInfo);
                 }
+                if (noLocalCommit) {
+                    // the store might still hold files of a previous restore of this shard that didn't complete
+                    recoveryTargetMetadata = loadIdenticalLocalFiles(store, snapshot.indexFiles());
+                }
                 final Store.MetadataSnapshot sourceMetaData = new Store.MetadataSnapshot(unmodifiableMap(snapshotMetaData), emptyMap(), 0);
                 final Store.RecoveryDiff diff = sourceMetaData.recoveryDiff(recoveryTargetMetadata);
                 for (StoreFileMetaData md : diff.identical) {
@@ -1502,27 +1606,30 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
                 if (logger.isTraceEnabled()) {
                     logger.trace("[{}] [{}] recovering_files [{}] with total_size [{}], reusing_files [{}] with reused_size [{}]", shardId, snapshotId,
-                        index.totalRecoverFiles(), new ByteSizeValue(index.totalRecoverBytes()), index.reusedFileCount(), new ByteSizeValue(index.reusedFileCount()));
+                        index.totalRecoverFiles(), new ByteSizeValue(index.totalRecoverBytes()), index.reusedFileCount(), new ByteSizeValue(index.reusedBytes()));
                 }
                 try {
                     // first, delete pre-existing files in the store that have the same name but are
-                    // different (i.e. different length/checksum) from those being restored in the snapshot
-                    for (final StoreFileMetaData storeFileMetaData : diff.different) {
-                        IOUtils.deleteFiles(store.directory(), storeFileMetaData.name());
+                    // different (i.e. different length/checksum) from those being restored in the snapshot.
+                    // These might also be files that no commit references, like leftovers of a failed restore.
+                    final Set<String> localFiles = Sets.newHashSet(store.directory().listAll());
+                    for (final BlobStoreIndexShardSnapshot.FileInfo fileToRecover : filesToRecover) {
+                        if (localFiles.contains(fileToRecover.physicalName())) {
+                            IOUtils.deleteFiles(store.directory(), fileToRecover.physicalName());
+                        }
                     }
                     // restore the files from the snapshot to the Lucene store
-                    for (final BlobStoreIndexShardSnapshot.FileInfo fileToRecover : filesToRecover) {
+                    transferFiles(filesToRecover, fileToRecover -> {
                         logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
                         restoreFile(fileToRecover, store);
-                    }
+                    });
                 } catch (IOException ex) {
                     throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", ex);
                 }
                 final StoreFileMetaData restoredSegmentsFile = sourceMetaData.getSegmentsFile();
-                if (recoveryTargetMetadata == null) {
+                if (restoredSegmentsFile == null) {
                     throw new IndexShardRestoreFailedException(shardId, "Snapshot has no segments file");
                 }
-                assert restoredSegmentsFile != null;
                 // read the snapshot data persisted
                 final SegmentInfos segmentCommitInfos;
                 try {
@@ -1553,10 +1660,53 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             }
         }
 
+        /**
+         * Returns the metadata of the local files that are identical to files of the snapshot. This is used if the store has no
+         * commit, for instance because a previous restore of the shard failed half way, so that the files that were restored
+         * already are not downloaded again. No commit references these files so their content is verified against the snapshot.
+         */
+        private Store.MetadataSnapshot loadIdenticalLocalFiles(final Store store, final List<BlobStoreIndexShardSnapshot.FileInfo> files) {
+            final Set<String> localFiles;
+            try {
+                localFiles = Sets.newHashSet(store.directory().listAll());
+            } catch (IOException e) {
+                logger.warn((Supplier<?>) () -> new ParameterizedMessage("{} Can't list local files, will not reuse any local file while restoring", shardId), e);
+                return Store.MetadataSnapshot.EMPTY;
+            }
+            final Map<String, StoreFileMetaData> identicalFiles = new HashMap<>();
+            for (final BlobStoreIndexShardSnapshot.FileInfo fileInfo : files) {
+                final StoreFileMetaData md = fileInfo.metadata();
+                if (localFiles.contains(md.name()) == false || fileInfo.hasUnknownChecksum()) {
+                    continue;
+                }
+                try (IndexInput input = store.directory().openInput(md.name(), IOContext.READONCE)) {
+                    if (input.length() != md.length()) {
+                        continue;
+                    }
+                    final boolean identical;
+                    if (md.hash().length > 0) {
+                        // the hash holds the whole content of the file
+                        final BytesRef content = new BytesRef(Math.toIntExact(md.length()));
+                        input.readBytes(content.bytes, 0, content.bytes.length);
+                        content.length = content.bytes.length;
+                        identical = content.bytesEquals(md.hash());
+                    } else {
+                        identical = md.checksum().equals(Store.digestToString(CodecUtil.checksumEntireFile(input)));
+                    }
+                    if (identical) {
+                        identicalFiles.put(md.name(), md);
+                    }
+                } catch (Exception e) {
+                    logger.trace((Supplier<?>) () -> new ParameterizedMessage("[{}] [{}] can't verify local file [{}], will restore it", shardId, snapshotId, md.name()), e);
+                }
+            }
+            return new Store.MetadataSnapshot(unmodifiableMap(identicalFiles), emptyMap(), 0);
+        }
+
         /**
          * Restores a file
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * <p>
+         * Several files of the same shard might be restored concurrently, see {@link #transferFiles}.
          *
          * @param fileInfo file to be restored
          */
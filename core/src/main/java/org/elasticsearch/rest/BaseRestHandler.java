@@ -63,6 +63,21 @@ public abstract class BaseRestHandler extends AbstractComponent implements RestH
         // prepare the request for execution; has the side effect of touching the request parameters
         final RestChannelConsumer action = prepareRequest(request, client);
 
+        validateUnconsumedParams(request);
+
+        // execute the action
+        action.accept(channel);
+    }
+
+    @Override
+    public final RestRequestBodyConsumer prepareStreamingRequest(RestRequest request, RestChannel channel, NodeClient client)
+            throws Exception {
+        final RestRequestBodyConsumer consumer = prepareRequestBodyConsumer(request, channel, client);
+        validateUnconsumedParams(request);
+        return consumer;
+    }
+
+    private void validateUnconsumedParams(RestRequest request) {
         // validate unconsumed params, but we must exclude params used to format the response
         // use a sorted set so the unconsumed parameters appear in a reliable sorted order
         final SortedSet<String> unconsumedParams =
@@ -75,9 +90,6 @@ public abstract class BaseRestHandler extends AbstractComponent implements RestH
             candidateParams.addAll(responseParams());
             throw new IllegalArgumentException(unrecognized(request, unconsumedParams, candidateParams, "parameter"));
         }
-
-        // execute the action
-        action.accept(channel);
     }
 
     protected final String unrecognized(
@@ -144,6 +156,22 @@ public abstract class BaseRestHandler extends AbstractComponent implements RestH
      */
     protected abstract RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) throws IOException;
 
+    /**
+     * Prepare a request whose body is passed to the returned consumer as it arrives, for handlers that
+     * {@link #supportsStreamingRequestBody() support it}. Like {@link #prepareRequest(RestRequest, NodeClient)}
+     * implementations should consume all request params before returning.
+     *
+     * @param request the request to execute, without content
+     * @param channel the channel to send the response to once the whole body has been consumed
+     * @param client  client for executing actions on the local node
+     * @return the consumer of the request body
+     * @throws IOException if an I/O exception occurred parsing the request
+     */
+    protected RestRequestBodyConsumer prepareRequestBodyConsumer(RestRequest request, RestChannel channel, NodeClient client)
+            throws IOException {
+        throw new UnsupportedOperationException("[" + request.path() + "] does not support streaming request bodies");
+    }
+
     /**
      * Parameters used for controlling the response and thus might not be consumed during
      * preparation of the request execution in
@@ -0,0 +1,150 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * A response whose XContent body is serialized lazily, a chunk at a time, instead of being built in memory in full before the first byte
+ * is sent. The body is given as a sequence of fragments that are rendered into the reusable {@link RestChannel#bytesOutput()} of the
+ * channel until a chunk is full, so channels that support it can send each chunk as soon as it is produced and only ask for the next one
+ * once the previous one has been written. Channels that don't support chunked responses get the whole body from {@link #content()}.
+ */
+public final class ChunkedRestResponse extends RestResponse implements Releasable {
+
+    public static final ByteSizeValue DEFAULT_CHUNK_SIZE = new ByteSizeValue(64, ByteSizeUnit.KB);
+
+    private final RestStatus status;
+    private final Iterator<? extends ToXContent> fragments;
+    private final ToXContent.Params params;
+    private final BytesStreamOutput output;
+    private final XContentBuilder builder;
+    private final int chunkSizeInBytes;
+    private boolean done;
+    private boolean closed;
+    private BytesReference content;
+
+    /**
+     * Creates a new chunked response that renders the given fragments with the builder and the request parameters of the channel.
+     */
+    public ChunkedRestResponse(RestChannel channel, RestStatus status, Iterator<? extends ToXContent> fragments) throws IOException {
+        this(channel, status, fragments, DEFAULT_CHUNK_SIZE.bytesAsInt());
+    }
+
+    public ChunkedRestResponse(RestChannel channel, RestStatus status, Iterator<? extends ToXContent> fragments,
+                               int chunkSizeInBytes) throws IOException {
+        if (chunkSizeInBytes <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive but was [" + chunkSizeInBytes + "]");
+        }
+        this.status = status;
+        this.fragments = fragments;
+        this.params = channel.request();
+        this.builder = channel.newBuilder();
+        // the builder writes to the channel level output, which is only reset and not replaced when asked for again, so this gives
+        // us the output to read the bytes of each chunk from and to reset for the next one
+        this.output = channel.bytesOutput();
+        this.chunkSizeInBytes = chunkSizeInBytes;
+    }
+
+    @Override
+    public String contentType() {
+        return builder.contentType().mediaType();
+    }
+
+    @Override
+    public RestStatus status() {
+        return status;
+    }
+
+    /**
+     * Renders the next chunk of the body. A chunk holds at least {@code chunkSizeInBytes} bytes unless it is the last one, but may be
+     * larger as fragments are never split. The returned bytes share the pages of the channel output and are only valid until the next
+     * call to this method or to {@link #close()}, so callers must be done writing a chunk before asking for the next one.
+     */
+    public BytesReference nextChunk() throws IOException {
+        if (done) {
+            throw new IllegalStateException("all chunks of the response have been rendered already");
+        }
+        output.reset();
+        while (output.size() < chunkSizeInBytes && fragments.hasNext()) {
+            fragments.next().toXContent(builder, params);
+            builder.flush();
+        }
+        if (fragments.hasNext() == false) {
+            builder.close();
+            done = true;
+        }
+        return output.bytes();
+    }
+
+    /**
+     * Returns true once the last chunk of the body has been rendered.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Renders the whole body in a single buffer, for channels that can't send chunked responses. This consumes the fragments so the
+     * response can't be sent in chunks afterwards.
+     */
+    @Override
+    public BytesReference content() {
+        if (content == null) {
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                while (done == false) {
+                    nextChunk().writeTo(out);
+                }
+                content = out.bytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                close();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Releases the pages of the channel output once the response has been sent or sending it has failed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        done = true;
+        BytesReference bytes = output.bytes();
+        if (bytes instanceof Releasable) {
+            ((Releasable) bytes).close();
+        }
+    }
+}
@@ -226,17 +226,46 @@ public class RestController extends AbstractComponent implements HttpServerTrans
         }
     }
 
+    @Override
+    public boolean supportsStreamingRequestBody(RestRequest request) {
+        final RestHandler handler = getHandler(request);
+        if (handler == null || handler.supportsStreamingRequestBody() == false) {
+            return false;
+        }
+        // requests with a content type that can't be streamed are dispatched as usual, which takes care of rejecting them
+        return hasContentType(request, handler)
+            && (request.getXContentType() == XContentType.JSON || request.getXContentType() == XContentType.SMILE);
+    }
+
+    @Override
+    public RestRequestBodyConsumer dispatchStreamingRequest(RestRequest request, RestChannel channel, ThreadContext threadContext) {
+        try {
+            if (checkRequestParameters(request, channel) == false) {
+                channel.sendResponse(BytesRestResponse.createSimpleErrorResponse(BAD_REQUEST, "error traces in responses are disabled."));
+                return RestRequestBodyConsumer.DISCARD;
+            }
+            copyHeaders(request, threadContext);
+            final RestHandler handler = Objects.requireNonNull(getHandler(request), "no handler for a streaming request");
+            final RestHandler wrappedHandler = Objects.requireNonNull(handlerWrapper.apply(handler));
+            return Objects.requireNonNull(wrappedHandler.prepareStreamingRequest(request, channel, client));
+        } catch (Exception e) {
+            try {
+                channel.sendResponse(new BytesRestResponse(channel, e));
+            } catch (Exception inner) {
+                inner.addSuppressed(e);
+                logger.error((Supplier<?>) () ->
+                    new ParameterizedMessage("failed to send failure response for uri [{}]", request.uri()), inner);
+            }
+            return RestRequestBodyConsumer.DISCARD;
+        }
+    }
+
     void dispatchRequest(final RestRequest request, final RestChannel channel, final NodeClient client, ThreadContext threadContext,
                          final RestHandler handler) throws Exception {
         if (checkRequestParameters(request, channel) == false) {
             channel.sendResponse(BytesRestResponse.createSimpleErrorResponse(BAD_REQUEST, "error traces in responses are disabled."));
         } else {
-            for (String key : headersToCopy) {
-                String httpHeader = request.header(key);
-                if (httpHeader != null) {
-                    threadContext.putHeader(key, httpHeader);
-                }
-            }
+            copyHeaders(request, threadContext);
 
             if (handler == null) {
                 if (request.method() == RestRequest.Method.OPTIONS) {
@@ -254,6 +283,15 @@ public class RestController extends AbstractComponent implements HttpServerTrans
         }
     }
 
+    private void copyHeaders(final RestRequest request, final ThreadContext threadContext) {
+        for (String key : headersToCopy) {
+            String httpHeader = request.header(key);
+            if (httpHeader != null) {
+                threadContext.putHeader(key, httpHeader);
+            }
+        }
+    }
+
     /**
      * If a request contains content, this method will return {@code true} if the {@code Content-Type} header is present, matches an
      * {@link XContentType} or the handler supports a content stream and the content type header is for newline delimited JSON,
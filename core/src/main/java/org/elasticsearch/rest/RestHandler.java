@@ -47,4 +47,23 @@ public interface RestHandler {
     default boolean supportsContentStream() {
         return false;
     }
+
+    /**
+     * Indicates if the RestHandler can consume the body of a request chunk by chunk as it arrives, through
+     * {@link #prepareStreamingRequest}. Such requests are dispatched once their headers have been received.
+     */
+    default boolean supportsStreamingRequestBody() {
+        return false;
+    }
+
+    /**
+     * Prepares a request whose body has not been received yet, see {@link #supportsStreamingRequestBody()}.
+     * @param request The request to handle, without content
+     * @param channel The channel to write the request response to
+     * @param client A client to use to make internal requests on behalf of the original request
+     * @return the consumer that the body of the request is passed to
+     */
+    default RestRequestBodyConsumer prepareStreamingRequest(RestRequest request, RestChannel channel, NodeClient client) throws Exception {
+        throw new UnsupportedOperationException("[" + request.path() + "] does not support streaming request bodies");
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * Consumes the body of a request chunk by chunk while it is being received, rather than once it has been buffered in full.
+ * Chunks are passed one at a time and in order. The transport stops reading from the network after handing out a chunk
+ * until the consumer asks for more, which lets the consumer apply backpressure on the client.
+ */
+public interface RestRequestBodyConsumer {
+
+    /**
+     * A consumer that discards the body, used for requests that have already been responded to.
+     */
+    RestRequestBodyConsumer DISCARD = new RestRequestBodyConsumer() {
+        @Override
+        public void accept(BytesReference chunk, boolean isLast, Runnable readMore) {
+            if (isLast == false) {
+                readMore.run();
+            }
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+        }
+    };
+
+    /**
+     * Consumes the next chunk of the body.
+     *
+     * @param chunk    the chunk, which is only valid for the duration of this call
+     * @param isLast   whether this is the last chunk of the body
+     * @param readMore to be called, possibly from another thread, once the consumer is ready to receive the next chunk. It must
+     *                 not be called after the last chunk.
+     */
+    void accept(BytesReference chunk, boolean isLast, Runnable readMore) throws Exception;
+
+    /**
+     * Called instead of {@link #accept} if the rest of the body can not be received or the previous chunk could not be consumed.
+     * The consumer is expected to respond with the failure unless it responded already.
+     */
+    void onFailure(Exception e);
+}
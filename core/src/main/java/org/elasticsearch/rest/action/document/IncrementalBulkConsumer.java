@@ -0,0 +1,238 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.document;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestRequestBodyConsumer;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.action.RestStatusToXContentListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Parses the body of a bulk request while it arrives and executes its items in batches of bounded size, so that the body is
+ * never held in memory in full. The next chunk of the body is only read once the previous batch has been executed. The
+ * responses of all batches are combined into a single bulk response once the whole body has been consumed. The bytes of an item
+ * that is not complete yet are held on to until the rest of it arrives, which is limited by <code>http.max_content_length</code>
+ * like the body of a request that is not streamed.
+ */
+final class IncrementalBulkConsumer implements RestRequestBodyConsumer {
+
+    /**
+     * Adds the complete items of the given data to a bulk request and returns the number of bytes that they take up.
+     */
+    @FunctionalInterface
+    interface ItemParser {
+        int addItems(BulkRequest bulkRequest, BytesReference data) throws IOException;
+    }
+
+    private final RestChannel channel;
+    private final NodeClient client;
+    private final Supplier<BulkRequest> bulkRequestSupplier;
+    private final ItemParser itemParser;
+    private final byte separator;
+    private final long batchSizeInBytes;
+    private final long maxPendingSizeInBytes;
+    private final ThreadContext.StoredContext context;
+    private final AtomicBoolean responded = new AtomicBoolean();
+
+    // the state below is only accessed by one thread at a time, as the next chunk is only read once a batch has been executed
+    private final List<BulkItemResponse> responses = new ArrayList<>();
+    private long tookInMillis = 0;
+    private long ingestTookInMillis = BulkResponse.NO_INGEST_TOOK;
+    private BulkRequest batch;
+    private BytesReference pending = BytesArray.EMPTY;
+
+    IncrementalBulkConsumer(RestChannel channel, NodeClient client, Supplier<BulkRequest> bulkRequestSupplier, ItemParser itemParser,
+                            byte separator, long batchSizeInBytes, long maxPendingSizeInBytes) {
+        this.channel = channel;
+        this.client = client;
+        this.bulkRequestSupplier = bulkRequestSupplier;
+        this.itemParser = itemParser;
+        this.separator = separator;
+        this.batchSizeInBytes = batchSizeInBytes;
+        this.maxPendingSizeInBytes = maxPendingSizeInBytes;
+        // batches are executed from the network thread that reads the body, with the headers of the request
+        this.context = client.threadPool().getThreadContext().newStoredContext(false);
+        this.batch = bulkRequestSupplier.get();
+    }
+
+    @Override
+    public void accept(BytesReference chunk, boolean isLast, Runnable readMore) {
+        if (responded.get()) {
+            // the request failed already, we only drain the rest of the body
+            if (isLast == false) {
+                readMore.run();
+            }
+            return;
+        }
+        final BulkRequest toExecute;
+        try {
+            final BytesArray copy = copy(chunk);
+            final BytesReference data = append(pending, copy);
+            if (isLast || contains(copy, separator)) {
+                final int consumed = itemParser.addItems(batch, data);
+                pending = data.slice(consumed, data.length() - consumed);
+            } else {
+                // every item ends with a separator, so without one the chunk can't complete an item and isn't parsed again
+                pending = data;
+            }
+            if (pending.length() > maxPendingSizeInBytes) {
+                throw new ElasticsearchStatusException("bulk item is larger than the max content length [{}]",
+                    RestStatus.REQUEST_ENTITY_TOO_LARGE, new ByteSizeValue(maxPendingSizeInBytes));
+            }
+            if (isLast || batch.estimatedSizeInBytes() >= batchSizeInBytes) {
+                toExecute = batch;
+                batch = bulkRequestSupplier.get();
+            } else {
+                toExecute = null;
+            }
+        } catch (Exception e) {
+            onFailure(e);
+            if (isLast == false) {
+                readMore.run();
+            }
+            return;
+        }
+        if (toExecute != null) {
+            execute(toExecute, isLast, readMore);
+        } else {
+            readMore.run();
+        }
+    }
+
+    private void execute(BulkRequest bulkRequest, boolean isLast, Runnable readMore) {
+        if (isLast && bulkRequest.numberOfActions() == 0 && responses.isEmpty() == false) {
+            sendResponse();
+            return;
+        }
+        final ThreadContext threadContext = client.threadPool().getThreadContext();
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            context.restore();
+            client.bulk(bulkRequest, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    // number the items by their position in the whole body rather than in the batch
+                    final int offset = responses.size();
+                    for (BulkItemResponse item : response.getItems()) {
+                        final int id = offset + item.getItemId();
+                        if (item.isFailed()) {
+                            responses.add(new BulkItemResponse(id, item.getOpType(), item.getFailure()));
+                        } else {
+                            responses.add(new BulkItemResponse(id, item.getOpType(), item.getResponse()));
+                        }
+                    }
+                    tookInMillis += response.getTookInMillis();
+                    if (response.getIngestTookInMillis() != BulkResponse.NO_INGEST_TOOK) {
+                        ingestTookInMillis = Math.max(ingestTookInMillis, 0) + response.getIngestTookInMillis();
+                    }
+                    if (isLast) {
+                        sendResponse();
+                    } else {
+                        readMore.run();
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    IncrementalBulkConsumer.this.onFailure(e);
+                    if (isLast == false) {
+                        readMore.run();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onFailure(Exception e) {
+        pending = BytesArray.EMPTY;
+        if (responded.compareAndSet(false, true)) {
+            new RestStatusToXContentListener<BulkResponse>(channel).onFailure(e);
+        }
+    }
+
+    private void sendResponse() {
+        if (responded.compareAndSet(false, true)) {
+            final BulkItemResponse[] items = responses.toArray(new BulkItemResponse[responses.size()]);
+            new RestStatusToXContentListener<BulkResponse>(channel).onResponse(new BulkResponse(items, tookInMillis, ingestTookInMillis));
+        }
+    }
+
+    /**
+     * Copies the given chunk into a new array. The chunk is only valid while it is consumed, whereas the parsed items keep
+     * referencing the data they were parsed from.
+     */
+    private static BytesArray copy(BytesReference chunk) throws IOException {
+        final byte[] bytes = new byte[chunk.length()];
+        int offset = 0;
+        final BytesRefIterator iterator = chunk.iterator();
+        BytesRef slice;
+        while ((slice = iterator.next()) != null) {
+            System.arraycopy(slice.bytes, slice.offset, bytes, offset, slice.length);
+            offset += slice.length;
+        }
+        return new BytesArray(bytes);
+    }
+
+    /**
+     * Joins the bytes that were left over from the previous chunks with the copy of the given chunk without copying them again.
+     * The references of the left over bytes are flattened so that slicing the result doesn't nest composites chunk after chunk.
+     */
+    private static BytesReference append(BytesReference pending, BytesArray copy) {
+        if (pending.length() == 0) {
+            return copy;
+        }
+        final List<BytesReference> references = new ArrayList<>();
+        if (pending instanceof CompositeBytesReference) {
+            references.addAll(((CompositeBytesReference) pending).references());
+        } else {
+            references.add(pending);
+        }
+        references.add(copy);
+        return new CompositeBytesReference(references.toArray(new BytesReference[references.size()]));
+    }
+
+    private static boolean contains(BytesArray bytes, byte marker) {
+        for (int i = 0; i < bytes.length(); i++) {
+            if (bytes.array()[bytes.offset() + i] == marker) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
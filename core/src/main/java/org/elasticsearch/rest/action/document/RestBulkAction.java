@@ -25,12 +25,21 @@ import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestRequestBodyConsumer;
 import org.elasticsearch.rest.action.RestStatusToXContentListener;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
@@ -52,7 +61,15 @@ public class RestBulkAction extends BaseRestHandler {
     private static final DeprecationLogger DEPRECATION_LOGGER =
         new DeprecationLogger(Loggers.getLogger(RestBulkAction.class));
 
+    /**
+     * The size of the batches that the items of a bulk request are executed in when its body is streamed.
+     */
+    public static final Setting<ByteSizeValue> STREAMING_BATCH_SIZE =
+        Setting.byteSizeSetting("rest.action.bulk.streaming_batch_size", new ByteSizeValue(5, ByteSizeUnit.MB), Property.NodeScope);
+
     private final boolean allowExplicitIndex;
+    private final long streamingBatchSizeInBytes;
+    private final long maxContentLengthInBytes;
 
     public RestBulkAction(Settings settings, RestController controller) {
         super(settings);
@@ -65,31 +82,80 @@ public class RestBulkAction extends BaseRestHandler {
         controller.registerHandler(PUT, "/{index}/{type}/_bulk", this);
 
         this.allowExplicitIndex = MULTI_ALLOW_EXPLICIT_INDEX.get(settings);
+        this.streamingBatchSizeInBytes = STREAMING_BATCH_SIZE.get(settings).getBytes();
+        // the http layer resets larger values to 100mb, which is still larger than a single item can be
+        this.maxContentLengthInBytes = Math.min(HttpTransportSettings.SETTING_HTTP_MAX_CONTENT_LENGTH.get(settings).getBytes(),
+            Integer.MAX_VALUE);
     }
 
     @Override
     public RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
-        BulkRequest bulkRequest = Requests.bulkRequest();
-        String defaultIndex = request.param("index");
-        String defaultType = request.param("type");
-        String defaultRouting = request.param("routing");
-        FetchSourceContext defaultFetchSourceContext = FetchSourceContext.parseFromRestRequest(request);
-        String fieldsParam = request.param("fields");
-        if (fieldsParam != null) {
-            DEPRECATION_LOGGER.deprecated("Deprecated field [fields] used, expected [_source] instead");
+        final BulkRequestParser parser = new BulkRequestParser(request);
+        BulkRequest bulkRequest = parser.newBulkRequest();
+        parser.addItems(bulkRequest, request.content());
+
+        return channel -> client.bulk(bulkRequest, new RestStatusToXContentListener<>(channel));
+    }
+
+    @Override
+    protected RestRequestBodyConsumer prepareRequestBodyConsumer(RestRequest request, RestChannel channel, NodeClient client) {
+        final BulkRequestParser parser = new BulkRequestParser(request);
+        return new IncrementalBulkConsumer(channel, client, parser::newBulkRequest, parser::addItems,
+            request.getXContentType().xContent().streamSeparator(), streamingBatchSizeInBytes, maxContentLengthInBytes);
+    }
+
+    @Override
+    public boolean supportsStreamingRequestBody() {
+        return true;
+    }
+
+    /**
+     * Holds the parameters of a bulk request that apply to all of its items.
+     */
+    private final class BulkRequestParser {
+        private final RestRequest request;
+        private final String defaultIndex;
+        private final String defaultType;
+        private final String defaultRouting;
+        private final FetchSourceContext defaultFetchSourceContext;
+        private final String[] defaultFields;
+        private final String defaultPipeline;
+        private final ActiveShardCount waitForActiveShards;
+        private final TimeValue timeout;
+        private final String refresh;
+
+        BulkRequestParser(RestRequest request) {
+            this.request = request;
+            defaultIndex = request.param("index");
+            defaultType = request.param("type");
+            defaultRouting = request.param("routing");
+            defaultFetchSourceContext = FetchSourceContext.parseFromRestRequest(request);
+            String fieldsParam = request.param("fields");
+            if (fieldsParam != null) {
+                DEPRECATION_LOGGER.deprecated("Deprecated field [fields] used, expected [_source] instead");
+            }
+            defaultFields = fieldsParam != null ? Strings.commaDelimitedListToStringArray(fieldsParam) : null;
+            defaultPipeline = request.param("pipeline");
+            String waitForActiveShards = request.param("wait_for_active_shards");
+            this.waitForActiveShards = waitForActiveShards != null ? ActiveShardCount.parseString(waitForActiveShards) : null;
+            timeout = request.paramAsTime("shard_timeout", BulkShardRequest.DEFAULT_TIMEOUT);
+            refresh = request.param("refresh");
         }
-        String[] defaultFields = fieldsParam != null ? Strings.commaDelimitedListToStringArray(fieldsParam) : null;
-        String defaultPipeline = request.param("pipeline");
-        String waitForActiveShards = request.param("wait_for_active_shards");
-        if (waitForActiveShards != null) {
-            bulkRequest.waitForActiveShards(ActiveShardCount.parseString(waitForActiveShards));
+
+        BulkRequest newBulkRequest() {
+            BulkRequest bulkRequest = Requests.bulkRequest();
+            if (waitForActiveShards != null) {
+                bulkRequest.waitForActiveShards(waitForActiveShards);
+            }
+            bulkRequest.timeout(timeout);
+            bulkRequest.setRefreshPolicy(refresh);
+            return bulkRequest;
         }
-        bulkRequest.timeout(request.paramAsTime("shard_timeout", BulkShardRequest.DEFAULT_TIMEOUT));
-        bulkRequest.setRefreshPolicy(request.param("refresh"));
-        bulkRequest.add(request.content(), defaultIndex, defaultType, defaultRouting, defaultFields,
-            defaultFetchSourceContext, defaultPipeline, null, allowExplicitIndex, request.getXContentType());
 
-        return channel -> client.bulk(bulkRequest, new RestStatusToXContentListener<>(channel));
+        int addItems(BulkRequest bulkRequest, BytesReference data) throws IOException {
+            return bulkRequest.addCompleteItems(data, defaultIndex, defaultType, defaultRouting, defaultFields,
+                defaultFetchSourceContext, defaultPipeline, null, allowExplicitIndex, request.getXContentType());
+        }
     }
 
     @Override
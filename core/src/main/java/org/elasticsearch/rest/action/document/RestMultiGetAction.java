@@ -20,14 +20,18 @@
 package org.elasticsearch.rest.action.document;
 
 import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
-import org.elasticsearch.rest.action.RestToXContentListener;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.action.RestResponseListener;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 import java.io.IOException;
@@ -73,6 +77,12 @@ public class RestMultiGetAction extends BaseRestHandler {
                 request.param("routing"), parser, allowExplicitIndex);
         }
 
-        return channel -> client.multiGet(multiGetRequest, new RestToXContentListener<>(channel));
+        return channel -> client.multiGet(multiGetRequest, new RestResponseListener<MultiGetResponse>(channel) {
+            @Override
+            public RestResponse buildResponse(MultiGetResponse response) throws Exception {
+                // a response with many documents is sent in chunks as it is rendered rather than built in full first
+                return new ChunkedRestResponse(channel, RestStatus.OK, response.toXContentFragments());
+            }
+        });
     }
 }
@@ -95,6 +95,11 @@ public class RestSearchAction extends BaseRestHandler {
 
         final int batchedReduceSize = request.paramAsInt("batched_reduce_size", searchRequest.getBatchedReduceSize());
         searchRequest.setBatchedReduceSize(batchedReduceSize);
+        final int preFilterShardSize = request.paramAsInt("pre_filter_shard_size", searchRequest.getPreFilterShardSize());
+        searchRequest.setPreFilterShardSize(preFilterShardSize);
+        final int maxConcurrentShardRequests = request.paramAsInt("max_concurrent_shard_requests",
+            searchRequest.getMaxConcurrentShardRequests());
+        searchRequest.setMaxConcurrentShardRequests(maxConcurrentShardRequests);
 
         // do not allow 'query_and_fetch' or 'dfs_query_and_fetch' search types
         // from the REST layer. these modes are an internal optimization and should
@@ -190,6 +195,10 @@ public class RestSearchAction extends BaseRestHandler {
             searchSourceBuilder.trackScores(request.paramAsBoolean("track_scores", false));
         }
 
+        if (request.hasParam("track_total_hits")) {
+            searchSourceBuilder.trackTotalHits(request.paramAsBoolean("track_total_hits", true));
+        }
+
         String sSorts = request.param("sort");
         if (sSorts != null) {
             String[] sorts = Strings.splitStringByCommaToArray(sSorts);
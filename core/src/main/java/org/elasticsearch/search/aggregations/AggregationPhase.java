@@ -48,20 +48,11 @@ public class AggregationPhase implements SearchPhase {
     @Override
     public void preProcess(SearchContext context) {
         if (context.aggregations() != null) {
-            List<Aggregator> collectors = new ArrayList<>();
-            Aggregator[] aggregators;
             try {
-                AggregatorFactories factories = context.aggregations().factories();
-                aggregators = factories.createTopLevelAggregators();
-                for (int i = 0; i < aggregators.length; i++) {
-                    if (aggregators[i] instanceof GlobalAggregator == false) {
-                        collectors.add(aggregators[i]);
-                    }
-                }
+                Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
                 context.aggregations().aggregators(aggregators);
-                if (!collectors.isEmpty()) {
-                    Collector collector = BucketCollector.wrap(collectors);
-                    ((BucketCollector)collector).preCollection();
+                Collector collector = createCollector(aggregators);
+                if (collector != null) {
                     if (context.getProfilers() != null) {
                         collector = new InternalProfileCollector(collector, CollectorResult.REASON_AGGREGATION,
                                 // TODO: report on child aggs as well
@@ -75,6 +66,36 @@ public class AggregationPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Creates a new set of top level aggregators that collects one slice of the shard when segments are searched concurrently
+     * and returns their collector, or <code>null</code> if there is nothing to collect. The aggregations of all slices are
+     * reduced and pruned in {@link #execute(SearchContext)}.
+     */
+    public static Collector createSliceCollector(SearchContext context) {
+        try {
+            Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
+            context.aggregations().addSliceAggregators(aggregators);
+            return createCollector(aggregators);
+        } catch (IOException e) {
+            throw new AggregationInitializationException("Could not initialize aggregators", e);
+        }
+    }
+
+    private static BucketCollector createCollector(Aggregator[] aggregators) throws IOException {
+        List<Aggregator> collectors = new ArrayList<>();
+        for (int i = 0; i < aggregators.length; i++) {
+            if (aggregators[i] instanceof GlobalAggregator == false) {
+                collectors.add(aggregators[i]);
+            }
+        }
+        if (collectors.isEmpty()) {
+            return null;
+        }
+        BucketCollector collector = BucketCollector.wrap(collectors);
+        collector.preCollection();
+        return collector;
+    }
+
     @Override
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
@@ -122,14 +143,12 @@ public class AggregationPhase implements SearchPhase {
             }
         }
 
-        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
-        for (Aggregator aggregator : context.aggregations().aggregators()) {
-            try {
-                aggregator.postCollection();
-                aggregations.add(aggregator.buildAggregation(0));
-            } catch (IOException e) {
-                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
-            }
+        List<Aggregator[]> sliceAggregators = context.aggregations().sliceAggregators();
+        final List<InternalAggregation> aggregations;
+        if (sliceAggregators.isEmpty()) {
+            aggregations = buildAggregations(aggregators);
+        } else {
+            aggregations = reduceSlices(context, aggregators, sliceAggregators);
         }
         context.queryResult().aggregations(new InternalAggregations(aggregations));
         try {
@@ -154,4 +173,52 @@ public class AggregationPhase implements SearchPhase {
         context.queryCollectors().remove(AggregationPhase.class);
     }
 
+    /**
+     * Reduces the aggregations of the slices that were collected concurrently. The slice aggregators don't prune their
+     * buckets so the reduced aggregations are pruned once, like the aggregations of a shard that is collected sequentially.
+     * Global aggregations are only collected by the main aggregators.
+     */
+    private static List<InternalAggregation> reduceSlices(SearchContext context, Aggregator[] aggregators,
+                                                          List<Aggregator[]> sliceAggregators) {
+        List<List<InternalAggregation>> sliceAggregations = new ArrayList<>(sliceAggregators.size());
+        for (Aggregator[] slice : sliceAggregators) {
+            sliceAggregations.add(buildAggregations(slice));
+        }
+        // this is not the final reduce: the coordinating node still needs to prune buckets and run pipeline aggregations
+        InternalAggregation.ReduceContext reduceContext = new InternalAggregation.ReduceContext(context.bigArrays(),
+                context.getQueryShardContext().getScriptService(), false);
+        AggregatorFactories factories = context.aggregations().factories();
+        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+        for (int i = 0; i < aggregators.length; i++) {
+            if (aggregators[i] instanceof GlobalAggregator) {
+                aggregations.add(buildAggregation(aggregators[i]));
+                continue;
+            }
+            List<InternalAggregation> toReduce = new ArrayList<>(sliceAggregations.size());
+            for (List<InternalAggregation> slice : sliceAggregations) {
+                toReduce.add(slice.get(i));
+            }
+            InternalAggregation reduced = toReduce.get(0).reduce(toReduce, reduceContext);
+            aggregations.add(factories.pruneSliceReduction(reduced));
+        }
+        return aggregations;
+    }
+
+    private static List<InternalAggregation> buildAggregations(Aggregator[] aggregators) {
+        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+        for (Aggregator aggregator : aggregators) {
+            aggregations.add(buildAggregation(aggregator));
+        }
+        return aggregations;
+    }
+
+    private static InternalAggregation buildAggregation(Aggregator aggregator) {
+        try {
+            aggregator.postCollection();
+            return aggregator.buildAggregation(0);
+        } catch (IOException e) {
+            throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+        }
+    }
+
 }
@@ -26,6 +26,8 @@ import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
 import org.elasticsearch.search.aggregations.support.AggregationPath.PathElement;
@@ -228,6 +230,48 @@ public class AggregatorFactories {
         return aggregators;
     }
 
+    /**
+     * Returns <code>true</code> if all the aggregator factories of the tree support collecting the slices of a shard
+     * concurrently.
+     */
+    public boolean supportsConcurrentSearch() {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory.supportsConcurrentSearch() == false || factory.factories.supportsConcurrentSearch() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prunes an aggregation that was reduced from the unpruned aggregations of the slices of a shard with the factory that
+     * created it.
+     *
+     * @see AggregatorFactory#pruneSliceReduction(InternalAggregation)
+     */
+    public InternalAggregation pruneSliceReduction(InternalAggregation reduced) {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory.name().equals(reduced.getName())) {
+                return factory.pruneSliceReduction(reduced);
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * Prunes the sub-aggregations of a bucket that was reduced from the slices of a shard.
+     */
+    public InternalAggregations pruneSliceReductions(InternalAggregations reduced) {
+        if (factories.length == 0) {
+            return reduced;
+        }
+        List<InternalAggregation> pruned = new ArrayList<>();
+        for (Aggregation aggregation : reduced) {
+            pruned.add(pruneSliceReduction((InternalAggregation) aggregation));
+        }
+        return new InternalAggregations(pruned);
+    }
+
     /**
      * @return the number of sub-aggregator factories not including pipeline
      *         aggregator factories
@@ -307,6 +351,24 @@ public class AggregatorFactories {
             return this;
         }
 
+        /**
+         * Returns <code>true</code> iff one of the aggregations in this builder has to see every document of the shard, even
+         * documents that don't match the query. If this returns <code>false</code> a shard that doesn't match any document can be
+         * skipped entirely without changing the aggregation results.
+         */
+        public boolean mustVisitAllDocs() {
+            for (AggregationBuilder builder : aggregationBuilders) {
+                if (builder instanceof GlobalAggregationBuilder) {
+                    return true;
+                } else if (builder instanceof TermsAggregationBuilder) {
+                    if (((TermsAggregationBuilder) builder).minDocCount() == 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
         /**
          * FOR TESTING ONLY
          */
@@ -24,11 +24,14 @@ import org.apache.lucene.search.Scorer;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ObjectArray;
+import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -200,6 +203,53 @@ public abstract class AggregatorFactory<AF extends AggregatorFactory<AF>> {
     public void doValidate() {
     }
 
+    /**
+     * Returns <code>true</code> if the aggregators of this factory can collect the slices of a shard independently and
+     * still produce correct results once their aggregations are reduced. Aggregations that rely on statistics of the whole
+     * shard or sample a fixed number of documents per shard must return <code>false</code>.
+     */
+    protected boolean supportsConcurrentSearch() {
+        return true;
+    }
+
+    /**
+     * Prunes an aggregation that was reduced from the aggregations of the slices of a shard that were collected concurrently.
+     * Aggregators that are created while slices are collected (see {@link SearchContextAggregations#collectsSlices()}) must
+     * not prune their buckets on their own since a bucket that is cut from several slices could make it into the top buckets
+     * of the shard. Factories of such aggregators override this method to prune the reduced aggregation once, the same way
+     * a single aggregator that collects the whole shard would. The default implementation prunes the sub-aggregations of
+     * the buckets.
+     */
+    public InternalAggregation pruneSliceReduction(InternalAggregation reduced) {
+        if (factories.countAggregators() == 0) {
+            return reduced;
+        }
+        if (reduced instanceof InternalSingleBucketAggregation) {
+            InternalSingleBucketAggregation singleBucket = (InternalSingleBucketAggregation) reduced;
+            return singleBucket.create(factories.pruneSliceReductions((InternalAggregations) singleBucket.getAggregations()));
+        }
+        if (reduced instanceof InternalMultiBucketAggregation) {
+            return pruneBuckets(reduced);
+        }
+        return reduced;
+    }
+
+    @SuppressWarnings("unchecked")
+    private InternalAggregation pruneBuckets(InternalAggregation reduced) {
+        InternalMultiBucketAggregation<InternalMultiBucketAggregation, InternalMultiBucketAggregation.InternalBucket> multiBucket =
+            (InternalMultiBucketAggregation<InternalMultiBucketAggregation, InternalMultiBucketAggregation.InternalBucket>) reduced;
+        List<? extends MultiBucketsAggregation.Bucket> buckets = multiBucket.getBuckets();
+        if (buckets.isEmpty()) {
+            return reduced;
+        }
+        List<InternalMultiBucketAggregation.InternalBucket> pruned = new ArrayList<>(buckets.size());
+        for (MultiBucketsAggregation.Bucket bucket : buckets) {
+            InternalAggregations subAggregations = factories.pruneSliceReductions((InternalAggregations) bucket.getAggregations());
+            pruned.add(multiBucket.createBucket(subAggregations, (InternalMultiBucketAggregation.InternalBucket) bucket));
+        }
+        return multiBucket.create(pruned);
+    }
+
     protected abstract Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException;
 
@@ -18,6 +18,9 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The aggregation context that is part of the search context.
  */
@@ -25,6 +28,8 @@ public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
     private Aggregator[] aggregators;
+    private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
+    private volatile boolean collectsSlices;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -50,4 +55,28 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * Registers the top level aggregators that collect an additional slice of the shard when segments are searched
+     * concurrently. Their aggregations are reduced with the ones of the main {@link #aggregators()}.
+     */
+    public synchronized void addSliceAggregators(Aggregator[] aggregators) {
+        sliceAggregators.add(aggregators);
+    }
+
+    public synchronized List<Aggregator[]> sliceAggregators() {
+        return new ArrayList<>(sliceAggregators);
+    }
+
+    /**
+     * Returns <code>true</code> while the slices of the shard are collected concurrently. Aggregators that are created in the
+     * meantime must not prune their buckets since the aggregations of the slices are only pruned once they are reduced.
+     */
+    public boolean collectsSlices() {
+        return collectsSlices;
+    }
+
+    public void collectsSlices(boolean collectsSlices) {
+        this.collectsSlices = collectsSlices;
+    }
+
 }
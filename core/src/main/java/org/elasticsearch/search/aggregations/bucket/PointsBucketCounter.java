@@ -0,0 +1,217 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Counts the documents of a segment per bucket straight from the points index of the field of a bucket aggregation
+ * instead of collecting the documents that match the query one by one. Cells of the points tree whose values all fall
+ * into the same buckets are counted without decoding their values.
+ *
+ * This is only possible for top-level aggregations without sub-aggregations on a field indexed with points, when the
+ * query matches all documents or is a range query on the same field. Segments with deleted documents or with
+ * documents that have several values for the field are collected as usual.
+ */
+public final class PointsBucketCounter {
+
+    /**
+     * The buckets of an aggregation that are counted from the points index.
+     */
+    public interface Buckets {
+        /**
+         * Returns <code>true</code> if all the values between <code>min</code> and <code>max</code>, inclusive,
+         * fall into the same buckets.
+         */
+        boolean sameBuckets(Number min, Number max);
+
+        /**
+         * Adds <code>docCount</code> documents to the buckets of the provided value.
+         */
+        void count(Number value, int docCount);
+    }
+
+    private final String field;
+    private final Function<byte[], Number> pointReader;
+    private final int bytesPerDim;
+    private final byte[] lowerPoint;
+    private final byte[] upperPoint;
+
+    private PointsBucketCounter(String field, Function<byte[], Number> pointReader, int bytesPerDim,
+                                @Nullable byte[] lowerPoint, @Nullable byte[] upperPoint) {
+        this.field = field;
+        this.pointReader = pointReader;
+        this.bytesPerDim = bytesPerDim;
+        this.lowerPoint = lowerPoint;
+        this.upperPoint = upperPoint;
+    }
+
+    /**
+     * Returns a counter for the provided aggregation or <code>null</code> if its documents must be collected one by one.
+     */
+    @Nullable
+    public static PointsBucketCounter build(SearchContext context, Aggregator parent, AggregatorFactories factories,
+                                            ValuesSourceConfig<?> config) {
+        if (parent != null || factories.countAggregators() > 0) {
+            return null;
+        }
+        if (context.minimumScore() != null || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return null;
+        }
+        final Function<byte[], Number> pointReader = config.getPointReaderOrNull();
+        if (pointReader == null) {
+            return null;
+        }
+        final String field = config.fieldContext().field();
+        Query query = context.query();
+        if (query instanceof ConstantScoreQuery) {
+            query = ((ConstantScoreQuery) query).getQuery();
+        }
+        if (query instanceof IndexOrDocValuesQuery) {
+            query = ((IndexOrDocValuesQuery) query).getIndexQuery();
+        }
+        if (query instanceof MatchAllDocsQuery) {
+            return new PointsBucketCounter(field, pointReader, 0, null, null);
+        }
+        if (query instanceof PointRangeQuery) {
+            PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (rangeQuery.getField().equals(field) && rangeQuery.getNumDims() == 1) {
+                return new PointsBucketCounter(field, pointReader, rangeQuery.getBytesPerDim(),
+                    rangeQuery.getLowerPoint(), rangeQuery.getUpperPoint());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the documents of the provided segment into the buckets. Returns <code>false</code> if the documents of
+     * this segment could not be counted from the points index and must be collected.
+     */
+    public boolean count(LeafReaderContext ctx, Buckets buckets) throws IOException {
+        final LeafReader reader = ctx.reader();
+        if (reader.getLiveDocs() != null) {
+            // deleted documents are still part of the points index
+            return false;
+        }
+        final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null) {
+            // no document has a value for this field in the segment
+            return true;
+        }
+        final PointValues values = reader.getPointValues();
+        if (values == null || fieldInfo.getPointDimensionCount() != 1) {
+            return false;
+        }
+        if (values.size(field) != values.getDocCount(field)) {
+            // a document with several values would be counted once per value
+            return false;
+        }
+        final CountingVisitor visitor = new CountingVisitor(buckets);
+        values.intersect(field, visitor);
+        visitor.flush();
+        return true;
+    }
+
+    private boolean matchesQuery(byte[] packedValue) {
+        return (lowerPoint == null || StringHelper.compare(bytesPerDim, packedValue, 0, lowerPoint, 0) >= 0)
+            && (upperPoint == null || StringHelper.compare(bytesPerDim, packedValue, 0, upperPoint, 0) <= 0);
+    }
+
+    private PointValues.Relation relateToQuery(byte[] minPackedValue, byte[] maxPackedValue) {
+        if (lowerPoint != null) {
+            if (StringHelper.compare(bytesPerDim, maxPackedValue, 0, lowerPoint, 0) < 0) {
+                return PointValues.Relation.CELL_OUTSIDE_QUERY;
+            } else if (StringHelper.compare(bytesPerDim, minPackedValue, 0, lowerPoint, 0) < 0) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        }
+        if (upperPoint != null) {
+            if (StringHelper.compare(bytesPerDim, minPackedValue, 0, upperPoint, 0) > 0) {
+                return PointValues.Relation.CELL_OUTSIDE_QUERY;
+            } else if (StringHelper.compare(bytesPerDim, maxPackedValue, 0, upperPoint, 0) > 0) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        }
+        return PointValues.Relation.CELL_INSIDE_QUERY;
+    }
+
+    private class CountingVisitor implements PointValues.IntersectVisitor {
+        private final Buckets buckets;
+        // the minimum value of the last cell that fully lies in the same buckets and the number of documents visited in it
+        private Number cellMin;
+        private int cellCount;
+
+        CountingVisitor(Buckets buckets) {
+            this.buckets = buckets;
+        }
+
+        @Override
+        public void visit(int docID) {
+            cellCount++;
+        }
+
+        @Override
+        public void visit(int docID, byte[] packedValue) {
+            if (matchesQuery(packedValue)) {
+                buckets.count(pointReader.apply(packedValue), 1);
+            }
+        }
+
+        @Override
+        public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+            flush();
+            PointValues.Relation relation = relateToQuery(minPackedValue, maxPackedValue);
+            if (relation == PointValues.Relation.CELL_INSIDE_QUERY) {
+                Number min = pointReader.apply(minPackedValue);
+                if (buckets.sameBuckets(min, pointReader.apply(maxPackedValue))) {
+                    cellMin = min;
+                } else {
+                    relation = PointValues.Relation.CELL_CROSSES_QUERY;
+                }
+            }
+            return relation;
+        }
+
+        void flush() {
+            if (cellCount > 0) {
+                buckets.count(cellMin, cellCount);
+            }
+            cellMin = null;
+            cellCount = 0;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multi bucket aggregation that creates a bucket for every combination of the values of its sources. The buckets are
+ * sorted by their composite key and can be paginated with the {@link #afterKey()} of the previous page.
+ */
+public interface CompositeAggregation extends MultiBucketsAggregation {
+
+    interface Bucket extends MultiBucketsAggregation.Bucket {
+        /**
+         * Returns the values of the bucket for each source, keyed by the name of the source.
+         */
+        @Override
+        Map<String, Object> getKey();
+    }
+
+    @Override
+    List<? extends CompositeAggregation.Bucket> getBuckets();
+
+    /**
+     * Returns the key of the last bucket of this page or <code>null</code> if there is no bucket. It can be used as the
+     * <code>after</code> key of the next request to retrieve the buckets that follow this page.
+     */
+    Map<String, Object> afterKey();
+}
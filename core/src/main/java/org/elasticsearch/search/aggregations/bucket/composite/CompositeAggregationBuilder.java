@@ -0,0 +1,216 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ObjectParser;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A builder for the composite aggregation, a multi bucket aggregation that paginates over all the combinations of the
+ * values of its sources in the order of the composite keys.
+ */
+public class CompositeAggregationBuilder extends AbstractAggregationBuilder<CompositeAggregationBuilder> {
+    public static final String NAME = "composite";
+
+    public static final ParseField AFTER_FIELD_NAME = new ParseField("after");
+    public static final ParseField SIZE_FIELD_NAME = new ParseField("size");
+    public static final ParseField SOURCES_FIELD_NAME = new ParseField("sources");
+
+    private static final ObjectParser<CompositeAggregationBuilder, QueryParseContext> PARSER;
+    static {
+        PARSER = new ObjectParser<>(NAME);
+        PARSER.declareInt(CompositeAggregationBuilder::size, SIZE_FIELD_NAME);
+        PARSER.declareObject(CompositeAggregationBuilder::aggregateAfter, (parser, context) -> parser.map(), AFTER_FIELD_NAME);
+        PARSER.declareObjectArray(CompositeAggregationBuilder::setSources,
+            (parser, context) -> CompositeValuesSourceParserHelper.fromXContent(parser), SOURCES_FIELD_NAME);
+    }
+
+    public static CompositeAggregationBuilder parse(String aggregationName, QueryParseContext context) throws IOException {
+        CompositeAggregationBuilder builder = PARSER.parse(context.parser(), new CompositeAggregationBuilder(aggregationName), context);
+        if (builder.sources.isEmpty()) {
+            throw new IllegalArgumentException("Composite [" + SOURCES_FIELD_NAME.getPreferredName() + "] cannot be null or empty");
+        }
+        return builder;
+    }
+
+    private List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>();
+    private Map<String, Object> after;
+    private int size = 10;
+
+    private CompositeAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public CompositeAggregationBuilder(String name, List<CompositeValuesSourceBuilder<?>> sources) {
+        super(name);
+        setSources(sources);
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public CompositeAggregationBuilder(StreamInput in) throws IOException {
+        super(in);
+        int num = in.readVInt();
+        this.sources = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            sources.add(CompositeValuesSourceParserHelper.readFrom(in));
+        }
+        this.size = in.readVInt();
+        if (in.readBoolean()) {
+            this.after = in.readMap();
+        }
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(sources.size());
+        for (CompositeValuesSourceBuilder<?> builder : sources) {
+            CompositeValuesSourceParserHelper.writeTo(builder, out);
+        }
+        out.writeVInt(size);
+        out.writeBoolean(after != null);
+        if (after != null) {
+            out.writeMap(after);
+        }
+    }
+
+    private CompositeAggregationBuilder setSources(List<CompositeValuesSourceBuilder<?>> sources) {
+        if (sources == null || sources.isEmpty()) {
+            throw new IllegalArgumentException("Composite [" + SOURCES_FIELD_NAME.getPreferredName() + "] cannot be null or empty");
+        }
+        Set<String> names = new HashSet<>();
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            if (names.add(source.name()) == false) {
+                throw new IllegalArgumentException("Composite source names must be unique, found duplicates: [" + source.name() + "]");
+            }
+        }
+        this.sources = new ArrayList<>(sources);
+        return this;
+    }
+
+    /**
+     * Gets the list of {@link CompositeValuesSourceBuilder} for this aggregation.
+     */
+    public List<CompositeValuesSourceBuilder<?>> sources() {
+        return sources;
+    }
+
+    /**
+     * Sets the values that indicates which composite bucket this request should "aggregate after".
+     * Defaults to <tt>null</tt>.
+     */
+    public CompositeAggregationBuilder aggregateAfter(Map<String, Object> afterKey) {
+        this.after = afterKey;
+        return this;
+    }
+
+    /**
+     * The number of composite buckets to return. Defaults to <tt>10</tt>.
+     */
+    public CompositeAggregationBuilder size(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("[" + SIZE_FIELD_NAME.getPreferredName() + "] must be greater than 0. Found ["
+                + size + "] in [" + name + "]");
+        }
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Returns the number of composite buckets to return.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    protected AggregatorFactory<?> doBuild(SearchContext context, AggregatorFactory<?> parent,
+                                           AggregatorFactories.Builder subfactoriesBuilder) throws IOException {
+        if (parent != null) {
+            throw new IllegalArgumentException("[composite] aggregation cannot be used with a parent aggregation");
+        }
+        if (after != null) {
+            if (after.size() != sources.size()) {
+                throw new IllegalArgumentException("[after] has " + after.size() + " value(s) but [sources] has " + sources.size());
+            }
+            for (CompositeValuesSourceBuilder<?> source : sources) {
+                if (after.get(source.name()) == null) {
+                    throw new IllegalArgumentException("missing value for source [" + source.name() + "] in [after]");
+                }
+            }
+        }
+        CompositeValuesSourceConfig[] configs = new CompositeValuesSourceConfig[sources.size()];
+        for (int i = 0; i < configs.length; i++) {
+            configs[i] = sources.get(i).build(context);
+        }
+        return new CompositeAggregationFactory(name, context, parent, subfactoriesBuilder, metaData, size, configs, after);
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(SIZE_FIELD_NAME.getPreferredName(), size);
+        builder.startArray(SOURCES_FIELD_NAME.getPreferredName());
+        for (CompositeValuesSourceBuilder<?> source: sources) {
+            source.toXContent(builder, params);
+        }
+        builder.endArray();
+        if (after != null) {
+            builder.field(AFTER_FIELD_NAME.getPreferredName(), after);
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(sources, size, after);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        CompositeAggregationBuilder other = (CompositeAggregationBuilder) obj;
+        return size == other.size
+            && Objects.equals(sources, other.sources)
+            && Objects.equals(after, other.after);
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+}
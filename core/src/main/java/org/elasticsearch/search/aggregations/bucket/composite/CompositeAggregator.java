@@ -0,0 +1,275 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.DeferringBucketCollector;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the composite keys that follow the <code>after</code> key of the request. Only the first <code>size</code>
+ * keys are kept in memory, a key that is greater than all the keys of a full page can never be part of the page so it is
+ * skipped, and the greatest key of the page is evicted when a smaller key is found. The new key then reuses the slot of
+ * the evicted key, so bucket ordinals never exceed <code>size</code>. The sub-aggregations are deferred until the keys
+ * of the page are known.
+ */
+final class CompositeAggregator extends BucketsAggregator {
+
+    /**
+     * The slot of the key that is currently collected, used to look it up in the page.
+     */
+    private static final int CURRENT_SLOT = -1;
+
+    private final int size;
+    private final List<String> sourceNames;
+    private final List<DocValueFormat> formats;
+    private final int[] reverseMuls;
+    private final CompositeValuesSource[] sources;
+    private final boolean unmapped;
+    private final boolean hasAfter;
+    /** The slots of the keys of the page, sorted by key */
+    private final TreeMap<Integer, Integer> page;
+    private LongArray docCounts;
+
+    CompositeAggregator(String name, AggregatorFactories factories, SearchContext context, Aggregator parent,
+                        List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData,
+                        int size, CompositeValuesSourceConfig[] configs, Map<String, Object> afterKey) throws IOException {
+        super(name, factories, context, parent, pipelineAggregators, metaData);
+        this.size = size;
+        this.sourceNames = new ArrayList<>(configs.length);
+        this.formats = new ArrayList<>(configs.length);
+        this.reverseMuls = new int[configs.length];
+        this.sources = new CompositeValuesSource[configs.length];
+        boolean unmapped = false;
+        for (int i = 0; i < configs.length; i++) {
+            sourceNames.add(configs[i].name());
+            formats.add(configs[i].format());
+            reverseMuls[i] = configs[i].reverseMul();
+            sources[i] = CompositeValuesSource.create(context.bigArrays(), configs[i]);
+            if (sources[i] == null) {
+                // a composite key needs a value for every source
+                unmapped = true;
+            } else if (afterKey != null) {
+                sources[i].setAfter(afterKey.get(configs[i].name()), context.getQueryShardContext()::nowInMillis);
+            }
+        }
+        this.unmapped = unmapped;
+        this.hasAfter = afterKey != null;
+        this.page = new TreeMap<>(this::compare);
+        this.docCounts = context.bigArrays().newLongArray(1, false);
+    }
+
+    private int compare(int slot1, int slot2) {
+        for (int i = 0; i < sources.length; i++) {
+            final int cmp;
+            if (slot1 == CURRENT_SLOT) {
+                cmp = sources[i].compareCurrent(slot2);
+            } else if (slot2 == CURRENT_SLOT) {
+                cmp = -sources[i].compareCurrent(slot1);
+            } else {
+                cmp = sources[i].compare(slot1, slot2);
+            }
+            if (cmp != 0) {
+                return cmp * reverseMuls[i];
+            }
+        }
+        return 0;
+    }
+
+    private int compareCurrentWithAfter() {
+        for (int i = 0; i < sources.length; i++) {
+            int cmp = sources[i].compareCurrentWithAfter();
+            if (cmp != 0) {
+                return cmp * reverseMuls[i];
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    protected boolean shouldDefer(Aggregator aggregator) {
+        // buckets may be evicted from the page so sub-aggregations are only collected for the final keys
+        return true;
+    }
+
+    @Override
+    public DeferringBucketCollector getDeferringCollector() {
+        // slots are reused by other keys so the deferred documents are replayed with the slots of their final keys
+        return new CompositeBucketsDeferringCollector(context(), this::getReplayCollector);
+    }
+
+    @Override
+    protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        if (unmapped) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        final KeyCollector keyCollector = new KeyCollector(ctx) {
+            @Override
+            void collectKey(int doc) throws IOException {
+                if (hasAfter && compareCurrentWithAfter() <= 0) {
+                    return;
+                }
+                Integer slot = page.get(CURRENT_SLOT);
+                if (slot == null) {
+                    if (page.size() < size) {
+                        slot = page.size();
+                    } else {
+                        final int last = page.lastKey();
+                        if (compare(CURRENT_SLOT, last) > 0) {
+                            // the page is full and this key comes after all of its keys
+                            return;
+                        }
+                        // the new key takes over the slot of the evicted key
+                        page.remove(last);
+                        slot = last;
+                    }
+                    for (CompositeValuesSource source : sources) {
+                        source.copyCurrent(slot);
+                    }
+                    docCounts = context.bigArrays().grow(docCounts, slot + 1);
+                    docCounts.set(slot, 0);
+                    page.put(slot, slot);
+                }
+                docCounts.increment(slot, 1);
+                sub.collect(doc, slot);
+            }
+        };
+        return new LeafBucketCollectorBase(sub, null) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                keyCollector.collect(doc);
+            }
+        };
+    }
+
+    /**
+     * Returns a collector that replays the given deferred collector on the documents of the segment with the slots of the
+     * keys of the final page.
+     */
+    private LeafBucketCollector getReplayCollector(LeafReaderContext ctx, LeafBucketCollector deferred) throws IOException {
+        final KeyCollector keyCollector = new KeyCollector(ctx) {
+            @Override
+            void collectKey(int doc) throws IOException {
+                Integer slot = page.get(CURRENT_SLOT);
+                if (slot != null) {
+                    deferred.collect(doc, slot);
+                }
+            }
+        };
+        return new LeafBucketCollectorBase(deferred, null) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                keyCollector.collect(doc);
+            }
+        };
+    }
+
+    /**
+     * Sets every combination of the values of a document as the current key of the sources.
+     */
+    private abstract class KeyCollector {
+        private final CompositeValuesSource.LeafValues[] leafValues;
+        private final int[] counts;
+
+        KeyCollector(LeafReaderContext ctx) throws IOException {
+            leafValues = new CompositeValuesSource.LeafValues[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                leafValues[i] = sources[i].getLeafValues(ctx);
+            }
+            counts = new int[sources.length];
+        }
+
+        final void collect(int doc) throws IOException {
+            for (int i = 0; i < leafValues.length; i++) {
+                counts[i] = leafValues[i].setDocument(doc);
+                if (counts[i] == 0) {
+                    return;
+                }
+            }
+            collectKeys(doc, 0);
+        }
+
+        private void collectKeys(int doc, int position) throws IOException {
+            if (position == leafValues.length) {
+                collectKey(doc);
+                return;
+            }
+            for (int i = 0; i < counts[position]; i++) {
+                if (leafValues[position].setCurrent(i)) {
+                    collectKeys(doc, position + 1);
+                }
+            }
+        }
+
+        abstract void collectKey(int doc) throws IOException;
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0L;
+        final long[] bucketOrds = new long[page.size()];
+        int pos = 0;
+        for (Integer slot : page.keySet()) {
+            bucketOrds[pos++] = slot;
+        }
+        runDeferredCollections(bucketOrds);
+
+        final List<InternalComposite.InternalBucket> buckets = new ArrayList<>(page.size());
+        for (Integer slot : page.keySet()) {
+            final Comparable<?>[] values = new Comparable<?>[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                values[i] = sources[i].toBucketValue(slot);
+            }
+            buckets.add(new InternalComposite.InternalBucket(sourceNames, formats, values, docCounts.get(slot),
+                bucketAggregations(slot)));
+        }
+        return new InternalComposite(name, size, sourceNames, formats, reverseMuls, buckets, pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalComposite(name, size, sourceNames, formats, reverseMuls, Collections.emptyList(),
+            pipelineAggregators(), metaData());
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(docCounts);
+        Releasables.close(sources);
+    }
+}
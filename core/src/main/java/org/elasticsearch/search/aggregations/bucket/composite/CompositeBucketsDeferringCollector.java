@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.DeferringBucketCollector;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link DeferringBucketCollector} that only records the documents that were collected by the composite aggregator.
+ * The bucket ordinals of the composite aggregator are the slots of the keys of its page, and a slot is reused when its
+ * key is evicted, so the recorded documents are replayed by computing their keys again and looking up the slots of the
+ * final page.
+ */
+final class CompositeBucketsDeferringCollector extends DeferringBucketCollector {
+
+    /**
+     * Creates the collector that replays the deferred collector on a segment with the slots of the final page.
+     */
+    @FunctionalInterface
+    interface ReplayCollectorFactory {
+        LeafBucketCollector create(LeafReaderContext ctx, LeafBucketCollector deferred) throws IOException;
+    }
+
+    private static class Entry {
+        final LeafReaderContext context;
+        final PackedLongValues docDeltas;
+
+        Entry(LeafReaderContext context, PackedLongValues docDeltas) {
+            this.context = context;
+            this.docDeltas = docDeltas;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final SearchContext searchContext;
+    private final ReplayCollectorFactory replayCollectorFactory;
+    private BucketCollector collector;
+    private LeafReaderContext context;
+    private PackedLongValues.Builder docDeltas;
+    private boolean finished = false;
+    private boolean replayed = false;
+
+    CompositeBucketsDeferringCollector(SearchContext searchContext, ReplayCollectorFactory replayCollectorFactory) {
+        this.searchContext = searchContext;
+        this.replayCollectorFactory = replayCollectorFactory;
+    }
+
+    @Override
+    public boolean needsScores() {
+        if (collector == null) {
+            throw new IllegalStateException();
+        }
+        return collector.needsScores();
+    }
+
+    @Override
+    public void setDeferredCollector(Iterable<BucketCollector> deferredCollectors) {
+        this.collector = BucketCollector.wrap(deferredCollectors);
+    }
+
+    private void finishLeaf() {
+        if (context != null) {
+            entries.add(new Entry(context, docDeltas.build()));
+        }
+        context = null;
+        docDeltas = null;
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        finishLeaf();
+
+        context = ctx;
+        docDeltas = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+
+        return new LeafBucketCollector() {
+            int lastDoc = -1;
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                // a document is collected once per key but only needs to be recorded once
+                if (doc != lastDoc) {
+                    docDeltas.add(doc - Math.max(lastDoc, 0));
+                    lastDoc = doc;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        collector.preCollection();
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        finishLeaf();
+        finished = true;
+    }
+
+    /**
+     * Replays the recorded documents on the deferred collector. The selected buckets are ignored since the documents are
+     * only collected in the slots of the keys that made it into the final page.
+     */
+    @Override
+    public void prepareSelectedBuckets(long... selectedBuckets) throws IOException {
+        if (finished == false) {
+            throw new IllegalStateException("Cannot replay yet, collection is not finished: postCollect() has not been called");
+        }
+        if (replayed) {
+            throw new IllegalStateException("Already been replayed");
+        }
+        replayed = true;
+
+        boolean needsScores = collector.needsScores();
+        Weight weight = null;
+        if (needsScores) {
+            weight = searchContext.searcher().createNormalizedWeight(searchContext.query(), true);
+        }
+        for (Entry entry : entries) {
+            final LeafBucketCollector leafCollector = collector.getLeafCollector(entry.context);
+            DocIdSetIterator docIt = null;
+            if (needsScores && entry.docDeltas.size() > 0) {
+                Scorer scorer = weight.scorer(entry.context);
+                // We don't need to check if the scorer is null
+                // since we are sure that there are documents to replay (entry.docDeltas it not empty).
+                docIt = scorer.iterator();
+                leafCollector.setScorer(scorer);
+            }
+            final LeafBucketCollector replayCollector = replayCollectorFactory.create(entry.context, leafCollector);
+            final PackedLongValues.Iterator docDeltaIterator = entry.docDeltas.iterator();
+            int doc = 0;
+            for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
+                doc += docDeltaIterator.next();
+                if (needsScores) {
+                    if (docIt.docID() < doc) {
+                        docIt.advance(doc);
+                    }
+                    // aggregations should only be replayed on matching documents
+                    assert docIt.docID() == doc;
+                }
+                replayCollector.collect(doc, 0);
+            }
+        }
+
+        collector.postCollection();
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.ObjectArray;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Extracts the values of a source of a composite aggregation on a shard. The values of the keys of the page are stored
+ * in arrays indexed by the slot of their bucket, the value that is currently collected is held separately and only
+ * copied to a slot when its key is added to the page. Values are compared in their natural order: global ordinals for
+ * fields that have ordinals, bytes for other bytes values and longs or doubles for numbers.
+ */
+abstract class CompositeValuesSource implements Releasable {
+
+    /**
+     * The values of a source on a segment.
+     */
+    abstract static class LeafValues {
+        /**
+         * Loads the values of the given document and returns their number.
+         */
+        abstract int setDocument(int doc);
+
+        /**
+         * Sets the value at the given index as the current value of the source. Values are iterated in ascending order.
+         *
+         * @return <code>false</code> if the value is equal to the previous value of the document, which happens when
+         *         values are rounded
+         */
+        abstract boolean setCurrent(int index);
+    }
+
+    protected final BigArrays bigArrays;
+    protected final CompositeValuesSourceConfig config;
+
+    CompositeValuesSource(BigArrays bigArrays, CompositeValuesSourceConfig config) {
+        this.bigArrays = bigArrays;
+        this.config = config;
+    }
+
+    DocValueFormat format() {
+        return config.format();
+    }
+
+    /**
+     * Returns the values of this source for the given segment.
+     */
+    abstract LeafValues getLeafValues(LeafReaderContext context) throws IOException;
+
+    /**
+     * Copies the current value to the given slot.
+     */
+    abstract void copyCurrent(int slot);
+
+    /**
+     * Compares the values of two slots in the natural order of the values.
+     */
+    abstract int compare(int slot1, int slot2);
+
+    /**
+     * Compares the current value with the value of the given slot in the natural order of the values.
+     */
+    abstract int compareCurrent(int slot);
+
+    /**
+     * Sets the value of this source in the key to paginate after.
+     */
+    abstract void setAfter(Object value, LongSupplier now);
+
+    /**
+     * Compares the current value with the value of this source in the key to paginate after, in the natural order of
+     * the values.
+     */
+    abstract int compareCurrentWithAfter();
+
+    /**
+     * Returns the value of the given slot as it is returned in the bucket keys.
+     */
+    abstract Comparable<?> toBucketValue(int slot);
+
+    /**
+     * Creates the values source for the given configuration or returns <code>null</code> if the source is unmapped.
+     */
+    static CompositeValuesSource create(BigArrays bigArrays, CompositeValuesSourceConfig config) {
+        final ValuesSource vs = config.valuesSource();
+        if (vs == null) {
+            return null;
+        } else if (vs instanceof ValuesSource.Bytes.WithOrdinals && config.longRounding() == null && config.doubleRounding() == null) {
+            return new GlobalOrdinalValuesSource(bigArrays, config, (ValuesSource.Bytes.WithOrdinals) vs);
+        } else if (vs instanceof ValuesSource.Bytes) {
+            return new BinaryValuesSource(bigArrays, config, (ValuesSource.Bytes) vs);
+        } else if (vs instanceof ValuesSource.Numeric) {
+            ValuesSource.Numeric numeric = (ValuesSource.Numeric) vs;
+            if (config.doubleRounding() != null || (config.longRounding() == null && numeric.isFloatingPoint())) {
+                return new DoubleValuesSource(bigArrays, config, numeric);
+            }
+            return new LongValuesSource(bigArrays, config, numeric);
+        }
+        throw new IllegalArgumentException("source [" + config.name() + "] does not support values of type ["
+            + vs.getClass().getSimpleName() + "]");
+    }
+
+    /**
+     * A source that collects the global ordinals of the terms so that values are compared without looking up the terms.
+     */
+    static final class GlobalOrdinalValuesSource extends CompositeValuesSource {
+        private final ValuesSource.Bytes.WithOrdinals vs;
+        private LongArray values;
+        private long currentValue;
+        private RandomAccessOrds lookup;
+        private BytesRef afterTerm;
+        private long afterOrd = -1;
+        private boolean afterTermExists;
+
+        GlobalOrdinalValuesSource(BigArrays bigArrays, CompositeValuesSourceConfig config, ValuesSource.Bytes.WithOrdinals vs) {
+            super(bigArrays, config);
+            this.vs = vs;
+            this.values = bigArrays.newLongArray(1, false);
+        }
+
+        @Override
+        LeafValues getLeafValues(LeafReaderContext context) throws IOException {
+            final RandomAccessOrds ords = vs.globalOrdinalsValues(context);
+            if (lookup == null) {
+                lookup = ords;
+                if (afterTerm != null) {
+                    // global ordinals are the same for all segments so the after term only needs to be resolved once
+                    long ord = lookup.lookupTerm(afterTerm);
+                    afterTermExists = ord >= 0;
+                    // if the term does not exist we keep the ordinal of the first term that is greater
+                    afterOrd = afterTermExists ? ord : -1 - ord;
+                }
+            }
+            return new LeafValues() {
+                @Override
+                int setDocument(int doc) {
+                    ords.setDocument(doc);
+                    return ords.cardinality();
+                }
+
+                @Override
+                boolean setCurrent(int index) {
+                    currentValue = ords.ordAt(index);
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        void copyCurrent(int slot) {
+            values = bigArrays.grow(values, slot + 1);
+            values.set(slot, currentValue);
+        }
+
+        @Override
+        int compare(int slot1, int slot2) {
+            return Long.compare(values.get(slot1), values.get(slot2));
+        }
+
+        @Override
+        int compareCurrent(int slot) {
+            return Long.compare(currentValue, values.get(slot));
+        }
+
+        @Override
+        void setAfter(Object value, LongSupplier now) {
+            afterTerm = format().parseBytesRef(value.toString());
+        }
+
+        @Override
+        int compareCurrentWithAfter() {
+            if (afterTermExists) {
+                return Long.compare(currentValue, afterOrd);
+            }
+            // the after term lies between the terms at afterOrd - 1 and afterOrd
+            return currentValue < afterOrd ? -1 : 1;
+        }
+
+        @Override
+        Comparable<?> toBucketValue(int slot) {
+            return BytesRef.deepCopyOf(lookup.lookupOrd(values.get(slot)));
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(values);
+        }
+    }
+
+    /**
+     * A source that collects the bytes values of fields that don't have ordinals or of scripts.
+     */
+    static final class BinaryValuesSource extends CompositeValuesSource {
+        private final ValuesSource.Bytes vs;
+        private ObjectArray<BytesRefBuilder> values;
+        private BytesRef currentValue;
+        private BytesRef after;
+
+        BinaryValuesSource(BigArrays bigArrays, CompositeValuesSourceConfig config, ValuesSource.Bytes vs) {
+            super(bigArrays, config);
+            this.vs = vs;
+            this.values = bigArrays.newObjectArray(1);
+        }
+
+        @Override
+        LeafValues getLeafValues(LeafReaderContext context) throws IOException {
+            final SortedBinaryDocValues docValues = vs.bytesValues(context);
+            final BytesRefBuilder previous = new BytesRefBuilder();
+            return new LeafValues() {
+                int count;
+
+                @Override
+                int setDocument(int doc) {
+                    docValues.setDocument(doc);
+                    count = docValues.count();
+                    return count;
+                }
+
+                @Override
+                boolean setCurrent(int index) {
+                    final BytesRef value = docValues.valueAt(index);
+                    if (index > 0 && previous.get().equals(value)) {
+                        return false;
+                    }
+                    if (index < count - 1) {
+                        // the bytes of the value may be reused so the next value is compared with a copy
+                        previous.copyBytes(value);
+                    }
+                    currentValue = value;
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        void copyCurrent(int slot) {
+            values = bigArrays.grow(values, slot + 1);
+            BytesRefBuilder builder = values.get(slot);
+            if (builder == null) {
+                builder = new BytesRefBuilder();
+                values.set(slot, builder);
+            }
+            builder.copyBytes(currentValue);
+        }
+
+        @Override
+        int compare(int slot1, int slot2) {
+            return values.get(slot1).get().compareTo(values.get(slot2).get());
+        }
+
+        @Override
+        int compareCurrent(int slot) {
+            return currentValue.compareTo(values.get(slot).get());
+        }
+
+        @Override
+        void setAfter(Object value, LongSupplier now) {
+            after = format().parseBytesRef(value.toString());
+        }
+
+        @Override
+        int compareCurrentWithAfter() {
+            return currentValue.compareTo(after);
+        }
+
+        @Override
+        Comparable<?> toBucketValue(int slot) {
+            return values.get(slot).toBytesRef();
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(values);
+        }
+    }
+
+    /**
+     * A source that collects long values, optionally rounded.
+     */
+    static final class LongValuesSource extends CompositeValuesSource {
+        private final ValuesSource.Numeric vs;
+        private final LongUnaryOperator rounding;
+        private LongArray values;
+        private long currentValue;
+        private long after;
+
+        LongValuesSource(BigArrays bigArrays, CompositeValuesSourceConfig config, ValuesSource.Numeric vs) {
+            super(bigArrays, config);
+            this.vs = vs;
+            this.rounding = config.longRounding() == null ? LongUnaryOperator.identity() : config.longRounding();
+            this.values = bigArrays.newLongArray(1, false);
+        }
+
+        @Override
+        LeafValues getLeafValues(LeafReaderContext context) throws IOException {
+            final SortedNumericDocValues docValues = vs.longValues(context);
+            return new LeafValues() {
+                @Override
+                int setDocument(int doc) {
+                    docValues.setDocument(doc);
+                    return docValues.count();
+                }
+
+                @Override
+                boolean setCurrent(int index) {
+                    final long value = rounding.applyAsLong(docValues.valueAt(index));
+                    if (index > 0 && value == currentValue) {
+                        return false;
+                    }
+                    currentValue = value;
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        void copyCurrent(int slot) {
+            values = bigArrays.grow(values, slot + 1);
+            values.set(slot, currentValue);
+        }
+
+        @Override
+        int compare(int slot1, int slot2) {
+            return Long.compare(values.get(slot1), values.get(slot2));
+        }
+
+        @Override
+        int compareCurrent(int slot) {
+            return Long.compare(currentValue, values.get(slot));
+        }
+
+        @Override
+        void setAfter(Object value, LongSupplier now) {
+            if (value instanceof Number) {
+                after = ((Number) value).longValue();
+            } else {
+                after = format().parseLong(value.toString(), false, now);
+            }
+        }
+
+        @Override
+        int compareCurrentWithAfter() {
+            return Long.compare(currentValue, after);
+        }
+
+        @Override
+        Comparable<?> toBucketValue(int slot) {
+            return values.get(slot);
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(values);
+        }
+    }
+
+    /**
+     * A source that collects double values, optionally rounded.
+     */
+    static final class DoubleValuesSource extends CompositeValuesSource {
+        private final ValuesSource.Numeric vs;
+        private final DoubleUnaryOperator rounding;
+        private DoubleArray values;
+        private double currentValue;
+        private double after;
+
+        DoubleValuesSource(BigArrays bigArrays, CompositeValuesSourceConfig config, ValuesSource.Numeric vs) {
+            super(bigArrays, config);
+            this.vs = vs;
+            this.rounding = config.doubleRounding() == null ? DoubleUnaryOperator.identity() : config.doubleRounding();
+            this.values = bigArrays.newDoubleArray(1, false);
+        }
+
+        @Override
+        LeafValues getLeafValues(LeafReaderContext context) throws IOException {
+            final SortedNumericDoubleValues docValues = vs.doubleValues(context);
+            return new LeafValues() {
+                @Override
+                int setDocument(int doc) {
+                    docValues.setDocument(doc);
+                    return docValues.count();
+                }
+
+                @Override
+                boolean setCurrent(int index) {
+                    final double value = rounding.applyAsDouble(docValues.valueAt(index));
+                    if (index > 0 && Double.compare(value, currentValue) == 0) {
+                        return false;
+                    }
+                    currentValue = value;
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        void copyCurrent(int slot) {
+            values = bigArrays.grow(values, slot + 1);
+            values.set(slot, currentValue);
+        }
+
+        @Override
+        int compare(int slot1, int slot2) {
+            return Double.compare(values.get(slot1), values.get(slot2));
+        }
+
+        @Override
+        int compareCurrent(int slot) {
+            return Double.compare(currentValue, values.get(slot));
+        }
+
+        @Override
+        void setAfter(Object value, LongSupplier now) {
+            if (value instanceof Number) {
+                after = ((Number) value).doubleValue();
+            } else {
+                after = format().parseDouble(value.toString(), false, now);
+            }
+        }
+
+        @Override
+        int compareCurrentWithAfter() {
+            return Double.compare(currentValue, after);
+        }
+
+        @Override
+        Comparable<?> toBucketValue(int slot) {
+            return values.get(slot);
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(values);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.search.aggregations.support.ValueType;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.sort.SortOrder;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Builds one of the sources of the composite keys of a {@link CompositeAggregationBuilder}.
+ */
+public abstract class CompositeValuesSourceBuilder<AB extends CompositeValuesSourceBuilder<AB>> implements Writeable, ToXContent {
+    static final ParseField FIELD_FIELD = new ParseField("field");
+    static final ParseField VALUE_TYPE_FIELD = new ParseField("value_type", "valueType");
+    static final ParseField ORDER_FIELD = new ParseField("order");
+
+    protected final String name;
+    private String field = null;
+    private Script script = null;
+    private ValueType valueType = null;
+    private SortOrder order = SortOrder.ASC;
+
+    CompositeValuesSourceBuilder(String name) {
+        this.name = Objects.requireNonNull(name, "[name] must not be null");
+    }
+
+    CompositeValuesSourceBuilder(StreamInput in) throws IOException {
+        this.name = in.readString();
+        this.field = in.readOptionalString();
+        if (in.readBoolean()) {
+            this.script = new Script(in);
+        }
+        if (in.readBoolean()) {
+            this.valueType = ValueType.readFromStream(in);
+        }
+        this.order = SortOrder.readFromStream(in);
+    }
+
+    @Override
+    public final void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeOptionalString(field);
+        boolean hasScript = script != null;
+        out.writeBoolean(hasScript);
+        if (hasScript) {
+            script.writeTo(out);
+        }
+        boolean hasValueType = valueType != null;
+        out.writeBoolean(hasValueType);
+        if (hasValueType) {
+            valueType.writeTo(out);
+        }
+        order.writeTo(out);
+        innerWriteTo(out);
+    }
+
+    protected abstract void innerWriteTo(StreamOutput out) throws IOException;
+
+    protected abstract void doXContentBody(XContentBuilder builder, Params params) throws IOException;
+
+    @Override
+    public final XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.startObject(name);
+        builder.startObject(type());
+        if (field != null) {
+            builder.field(FIELD_FIELD.getPreferredName(), field);
+        }
+        if (script != null) {
+            builder.field(Script.SCRIPT_PARSE_FIELD.getPreferredName(), script);
+        }
+        if (valueType != null) {
+            builder.field(VALUE_TYPE_FIELD.getPreferredName(), valueType.getPreferredName());
+        }
+        builder.field(ORDER_FIELD.getPreferredName(), order);
+        doXContentBody(builder, params);
+        builder.endObject();
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(name, field, script, valueType, order, innerHashCode());
+    }
+
+    protected abstract int innerHashCode();
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        @SuppressWarnings("unchecked")
+        AB that = (AB) o;
+        return Objects.equals(name, that.name())
+            && Objects.equals(field, that.field())
+            && Objects.equals(script, that.script())
+            && Objects.equals(valueType, that.valueType())
+            && Objects.equals(order, that.order())
+            && innerEquals(that);
+    }
+
+    protected abstract boolean innerEquals(AB builder);
+
+    /**
+     * The name of the type of this source.
+     */
+    public abstract String type();
+
+    /**
+     * The name of this source, it is used as the key of its values in the composite keys.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Sets the field to use for this source.
+     */
+    @SuppressWarnings("unchecked")
+    public AB field(String field) {
+        if (field == null) {
+            throw new IllegalArgumentException("[field] must not be null");
+        }
+        this.field = field;
+        return (AB) this;
+    }
+
+    /**
+     * Gets the field to use for this source.
+     */
+    public String field() {
+        return field;
+    }
+
+    /**
+     * Sets the script to use for this source.
+     */
+    @SuppressWarnings("unchecked")
+    public AB script(Script script) {
+        if (script == null) {
+            throw new IllegalArgumentException("[script] must not be null");
+        }
+        this.script = script;
+        return (AB) this;
+    }
+
+    /**
+     * Gets the script to use for this source.
+     */
+    public Script script() {
+        return script;
+    }
+
+    /**
+     * Sets the {@link ValueType} for the value produced by this source.
+     */
+    @SuppressWarnings("unchecked")
+    public AB valueType(ValueType valueType) {
+        if (valueType == null) {
+            throw new IllegalArgumentException("[valueType] must not be null");
+        }
+        this.valueType = valueType;
+        return (AB) this;
+    }
+
+    /**
+     * Gets the {@link ValueType} for the value produced by this source.
+     */
+    public ValueType valueType() {
+        return valueType;
+    }
+
+    /**
+     * Sets the {@link SortOrder} to use to sort values produced by this source.
+     */
+    @SuppressWarnings("unchecked")
+    public AB order(String order) {
+        if (order == null) {
+            throw new IllegalArgumentException("[order] must not be null");
+        }
+        this.order = SortOrder.fromString(order);
+        return (AB) this;
+    }
+
+    /**
+     * Sets the {@link SortOrder} to use to sort values produced by this source.
+     */
+    @SuppressWarnings("unchecked")
+    public AB order(SortOrder order) {
+        if (order == null) {
+            throw new IllegalArgumentException("[order] must not be null");
+        }
+        this.order = order;
+        return (AB) this;
+    }
+
+    /**
+     * Gets the {@link SortOrder} to use to sort values produced by this source.
+     */
+    public SortOrder order() {
+        return order;
+    }
+
+    /**
+     * The time zone to use to resolve the values of this source, <code>null</code> by default.
+     */
+    protected DateTimeZone timeZone() {
+        return null;
+    }
+
+    /**
+     * Creates a {@link CompositeValuesSourceConfig} for this source.
+     *
+     * @param context   The search context for this source.
+     * @param config    The {@link ValuesSourceConfig} for this source.
+     */
+    protected abstract CompositeValuesSourceConfig innerBuild(SearchContext context, ValuesSourceConfig<?> config) throws IOException;
+
+    public final CompositeValuesSourceConfig build(SearchContext context) throws IOException {
+        if (field == null && script == null) {
+            throw new IllegalArgumentException("failed to build source [" + name + "]: either [field] or [script] must be set");
+        }
+        ValuesSourceConfig<?> config = ValuesSourceConfig.resolve(context.getQueryShardContext(),
+            valueType, field, script, null, timeZone(), null);
+        if (config.valueSourceType() == ValuesSourceType.HISTOGRAM) {
+            throw new IllegalArgumentException("failed to build source [" + name + "]: field [" + field + "] of type ["
+                + config.fieldContext().fieldType().typeName() + "] is not supported");
+        }
+        return innerBuild(context, config);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * The resolved configuration of a source of a composite aggregation on a shard.
+ */
+class CompositeValuesSourceConfig {
+    private final String name;
+    private final ValuesSource vs;
+    private final DocValueFormat format;
+    private final int reverseMul;
+    private final LongUnaryOperator longRounding;
+    private final DoubleUnaryOperator doubleRounding;
+
+    /**
+     * @param name           The name of the source.
+     * @param vs             The values source or <code>null</code> if the source is unmapped.
+     * @param format         The format of the values.
+     * @param order          The sort order of the values.
+     * @param longRounding   The function that rounds the long values or <code>null</code>.
+     * @param doubleRounding The function that rounds the double values or <code>null</code>.
+     */
+    CompositeValuesSourceConfig(String name, @Nullable ValuesSource vs, DocValueFormat format, SortOrder order,
+                                @Nullable LongUnaryOperator longRounding, @Nullable DoubleUnaryOperator doubleRounding) {
+        this.name = name;
+        this.vs = vs;
+        this.format = format;
+        this.reverseMul = order == SortOrder.ASC ? 1 : -1;
+        this.longRounding = longRounding;
+        this.doubleRounding = doubleRounding;
+    }
+
+    String name() {
+        return name;
+    }
+
+    ValuesSource valuesSource() {
+        return vs;
+    }
+
+    DocValueFormat format() {
+        return format;
+    }
+
+    /**
+     * Returns <code>1</code> if the values are sorted in ascending order and <code>-1</code> otherwise.
+     */
+    int reverseMul() {
+        return reverseMul;
+    }
+
+    LongUnaryOperator longRounding() {
+        return longRounding;
+    }
+
+    DoubleUnaryOperator doubleRounding() {
+        return doubleRounding;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.AbstractObjectParser;
+import org.elasticsearch.common.xcontent.ObjectParser;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.search.aggregations.support.ValueType;
+
+import java.io.IOException;
+
+import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
+
+/**
+ * Helpers to parse and serialize the sources of a {@link CompositeAggregationBuilder}.
+ */
+class CompositeValuesSourceParserHelper {
+
+    static <VB extends CompositeValuesSourceBuilder<VB>, T> void declareValuesSourceFields(AbstractObjectParser<VB, T> objectParser) {
+        objectParser.declareField(VB::field, XContentParser::text,
+            CompositeValuesSourceBuilder.FIELD_FIELD, ObjectParser.ValueType.STRING);
+
+        objectParser.declareField(VB::valueType, p -> {
+            ValueType valueType = ValueType.resolveForScript(p.text());
+            if (valueType == null) {
+                throw new ParsingException(p.getTokenLocation(), "unknown [value_type]: [" + p.text() + "]");
+            }
+            return valueType;
+        }, CompositeValuesSourceBuilder.VALUE_TYPE_FIELD, ObjectParser.ValueType.STRING);
+
+        objectParser.declareField(VB::script,
+            (parser, context) -> Script.parse(parser), Script.SCRIPT_PARSE_FIELD, ObjectParser.ValueType.OBJECT_OR_STRING);
+
+        objectParser.declareField(VB::order, XContentParser::text, CompositeValuesSourceBuilder.ORDER_FIELD,
+            ObjectParser.ValueType.STRING);
+    }
+
+    static void writeTo(CompositeValuesSourceBuilder<?> builder, StreamOutput out) throws IOException {
+        out.writeString(builder.type());
+        builder.writeTo(out);
+    }
+
+    static CompositeValuesSourceBuilder<?> readFrom(StreamInput in) throws IOException {
+        String type = in.readString();
+        switch (type) {
+            case TermsValuesSourceBuilder.TYPE:
+                return new TermsValuesSourceBuilder(in);
+            case HistogramValuesSourceBuilder.TYPE:
+                return new HistogramValuesSourceBuilder(in);
+            case DateHistogramValuesSourceBuilder.TYPE:
+                return new DateHistogramValuesSourceBuilder(in);
+            default:
+                throw new IOException("invalid composite source type: [" + type + "]");
+        }
+    }
+
+    /**
+     * Parses a source of the form <code>{ "name": { "type": { ... } } }</code>.
+     */
+    static CompositeValuesSourceBuilder<?> fromXContent(XContentParser parser) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, token, parser::getTokenLocation);
+        token = parser.nextToken();
+        ensureExpectedToken(XContentParser.Token.FIELD_NAME, token, parser::getTokenLocation);
+        String name = parser.currentName();
+        token = parser.nextToken();
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, token, parser::getTokenLocation);
+        token = parser.nextToken();
+        ensureExpectedToken(XContentParser.Token.FIELD_NAME, token, parser::getTokenLocation);
+        String type = parser.currentName();
+        token = parser.nextToken();
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, token, parser::getTokenLocation);
+        final CompositeValuesSourceBuilder<?> builder;
+        switch (type) {
+            case TermsValuesSourceBuilder.TYPE:
+                builder = TermsValuesSourceBuilder.parse(name, parser);
+                break;
+            case HistogramValuesSourceBuilder.TYPE:
+                builder = HistogramValuesSourceBuilder.parse(name, parser);
+                break;
+            case DateHistogramValuesSourceBuilder.TYPE:
+                builder = DateHistogramValuesSourceBuilder.parse(name, parser);
+                break;
+            default:
+                throw new ParsingException(parser.getTokenLocation(), "invalid source type: [" + type + "]");
+        }
+        ensureExpectedToken(XContentParser.Token.END_OBJECT, parser.nextToken(), parser::getTokenLocation);
+        ensureExpectedToken(XContentParser.Token.END_OBJECT, parser.nextToken(), parser::getTokenLocation);
+        return builder;
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+public class InternalComposite extends InternalMultiBucketAggregation<InternalComposite, InternalComposite.InternalBucket>
+        implements CompositeAggregation {
+
+    public static final String AFTER_KEY = "after_key";
+
+    public static class InternalBucket extends InternalMultiBucketAggregation.InternalBucket implements CompositeAggregation.Bucket {
+
+        private final List<String> sourceNames;
+        private final List<DocValueFormat> formats;
+        private final Comparable<?>[] values;
+        private final long docCount;
+        private final InternalAggregations aggregations;
+
+        InternalBucket(List<String> sourceNames, List<DocValueFormat> formats, Comparable<?>[] values, long docCount,
+                       InternalAggregations aggregations) {
+            this.sourceNames = sourceNames;
+            this.formats = formats;
+            this.values = values;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        /**
+         * Read from a stream.
+         */
+        InternalBucket(StreamInput in, List<String> sourceNames, List<DocValueFormat> formats) throws IOException {
+            this.sourceNames = sourceNames;
+            this.formats = formats;
+            this.values = new Comparable<?>[sourceNames.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (Comparable<?>) in.readGenericValue();
+            }
+            this.docCount = in.readVLong();
+            this.aggregations = InternalAggregations.readAggregations(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            for (Comparable<?> value : values) {
+                out.writeGenericValue(value);
+            }
+            out.writeVLong(docCount);
+            aggregations.writeTo(out);
+        }
+
+        Comparable<?>[] getRawKey() {
+            return values;
+        }
+
+        Comparable<?>[] values() {
+            return values;
+        }
+
+        @Override
+        public Map<String, Object> getKey() {
+            return formatKey(sourceNames, formats, values);
+        }
+
+        @Override
+        public String getKeyAsString() {
+            return getKey().toString();
+        }
+
+        @Override
+        public long getDocCount() {
+            return docCount;
+        }
+
+        @Override
+        public Aggregations getAggregations() {
+            return aggregations;
+        }
+
+        InternalBucket reduce(List<InternalBucket> buckets, ReduceContext reduceContext) {
+            List<InternalAggregations> aggregations = new ArrayList<>(buckets.size());
+            long docCount = 0;
+            for (InternalBucket bucket : buckets) {
+                docCount += bucket.docCount;
+                aggregations.add(bucket.aggregations);
+            }
+            InternalAggregations aggs = InternalAggregations.reduce(aggregations, reduceContext);
+            return new InternalBucket(sourceNames, formats, values, docCount, aggs);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            InternalBucket that = (InternalBucket) obj;
+            return Objects.equals(sourceNames, that.sourceNames)
+                && Arrays.equals(values, that.values)
+                && docCount == that.docCount
+                && Objects.equals(aggregations, that.aggregations);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getClass(), sourceNames, Arrays.hashCode(values), docCount, aggregations);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field(CommonFields.KEY, getKey());
+            builder.field(CommonFields.DOC_COUNT, docCount);
+            aggregations.toXContentInternal(builder, params);
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    private final int size;
+    private final List<String> sourceNames;
+    private final List<DocValueFormat> formats;
+    private final int[] reverseMuls;
+    private final List<InternalBucket> buckets;
+
+    InternalComposite(String name, int size, List<String> sourceNames, List<DocValueFormat> formats, int[] reverseMuls,
+                      List<InternalBucket> buckets, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, pipelineAggregators, metaData);
+        this.size = size;
+        this.sourceNames = sourceNames;
+        this.formats = formats;
+        this.reverseMuls = reverseMuls;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public InternalComposite(StreamInput in) throws IOException {
+        super(in);
+        this.size = in.readVInt();
+        this.sourceNames = in.readList(StreamInput::readString);
+        this.formats = in.readNamedWriteableList(DocValueFormat.class);
+        this.reverseMuls = in.readIntArray();
+        this.buckets = in.readList(input -> new InternalBucket(input, sourceNames, formats));
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(size);
+        out.writeStringList(sourceNames);
+        out.writeNamedWriteableList(formats);
+        out.writeIntArray(reverseMuls);
+        out.writeList(buckets);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return CompositeAggregationBuilder.NAME;
+    }
+
+    @Override
+    public InternalComposite create(List<InternalBucket> buckets) {
+        return new InternalComposite(name, size, sourceNames, formats, reverseMuls, buckets, pipelineAggregators(), getMetaData());
+    }
+
+    @Override
+    public InternalBucket createBucket(InternalAggregations aggregations, InternalBucket prototype) {
+        return new InternalBucket(prototype.sourceNames, prototype.formats, prototype.values, prototype.docCount, aggregations);
+    }
+
+    @Override
+    public List<InternalBucket> getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public Map<String, Object> afterKey() {
+        if (buckets.isEmpty()) {
+            return null;
+        }
+        return buckets.get(buckets.size() - 1).getKey();
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        // every shard returns its first keys in sorted order so we merge sort them and keep the first keys of the page
+        final PriorityQueue<BucketIterator> pq = new PriorityQueue<BucketIterator>(aggregations.size()) {
+            @Override
+            protected boolean lessThan(BucketIterator a, BucketIterator b) {
+                return compareKeys(a.current().values, b.current().values) < 0;
+            }
+        };
+        final Class<?>[] keyTypes = new Class<?>[sourceNames.size()];
+        for (InternalAggregation aggregation : aggregations) {
+            InternalComposite composite = (InternalComposite) aggregation;
+            if (composite.buckets.isEmpty() == false) {
+                // the keys of a shard all have the same types, checking its first bucket is enough
+                checkKeyTypes(keyTypes, composite.buckets.get(0).values);
+                pq.add(new BucketIterator(composite.buckets));
+            }
+        }
+        final List<InternalBucket> result = new ArrayList<>();
+        final List<InternalBucket> sameKeyBuckets = new ArrayList<>();
+        while (pq.size() > 0 && result.size() < size) {
+            BucketIterator top = pq.top();
+            InternalBucket bucket = top.current();
+            if (sameKeyBuckets.isEmpty() == false && compareKeys(sameKeyBuckets.get(0).values, bucket.values) != 0) {
+                result.add(sameKeyBuckets.get(0).reduce(sameKeyBuckets, reduceContext));
+                sameKeyBuckets.clear();
+                continue;
+            }
+            sameKeyBuckets.add(bucket);
+            if (top.next() == null) {
+                pq.pop();
+            } else {
+                pq.updateTop();
+            }
+        }
+        if (sameKeyBuckets.isEmpty() == false && result.size() < size) {
+            result.add(sameKeyBuckets.get(0).reduce(sameKeyBuckets, reduceContext));
+        }
+        return new InternalComposite(name, size, sourceNames, formats, reverseMuls, result, pipelineAggregators(), getMetaData());
+    }
+
+    /**
+     * Checks that the keys of a shard result have the same types as the keys of the other shard results so that they can be
+     * compared. This is not the case if the field of a source is mapped with different types in the targeted indices.
+     */
+    private void checkKeyTypes(Class<?>[] keyTypes, Comparable<?>[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            if (keyTypes[i] == null) {
+                keyTypes[i] = values[i].getClass();
+            } else if (keyTypes[i] != values[i].getClass()) {
+                throw new AggregationExecutionException("Merging/Reducing the aggregations failed when computing the aggregation ["
+                    + name + "] because the field of the source [" + sourceNames.get(i) + "] existed as two different types ["
+                    + keyTypeName(keyTypes[i]) + "] and [" + keyTypeName(values[i].getClass()) + "] in two different indices");
+            }
+        }
+    }
+
+    private static String keyTypeName(Class<?> type) {
+        return type == BytesRef.class ? "string" : type.getSimpleName().toLowerCase(Locale.ROOT);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int compareKeys(Comparable<?>[] values1, Comparable<?>[] values2) {
+        for (int i = 0; i < values1.length; i++) {
+            int cmp = ((Comparable) values1[i]).compareTo(values2[i]);
+            if (cmp != 0) {
+                return cmp * reverseMuls[i];
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        if (buckets.isEmpty() == false) {
+            builder.field(AFTER_KEY, afterKey());
+        }
+        builder.startArray(CommonFields.BUCKETS);
+        for (InternalBucket bucket : buckets) {
+            bucket.toXContent(builder, params);
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        InternalComposite that = (InternalComposite) obj;
+        return Objects.equals(size, that.size)
+            && Objects.equals(sourceNames, that.sourceNames)
+            && Objects.equals(formats, that.formats)
+            && Arrays.equals(reverseMuls, that.reverseMuls)
+            && Objects.equals(buckets, that.buckets);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(size, sourceNames, formats, Arrays.hashCode(reverseMuls), buckets);
+    }
+
+    /**
+     * Formats the values of a composite key for the response. Terms are formatted with the format of their source while
+     * numbers are returned as is so that keys can be sent back as the <code>after</code> key of the next request.
+     */
+    static Map<String, Object> formatKey(List<String> sourceNames, List<DocValueFormat> formats, Comparable<?>[] values) {
+        Map<String, Object> key = new LinkedHashMap<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof BytesRef) {
+                value = formats.get(i).format((BytesRef) value);
+            }
+            key.put(sourceNames.get(i), value);
+        }
+        return Collections.unmodifiableMap(key);
+    }
+
+    private static final class BucketIterator {
+        private final List<InternalBucket> buckets;
+        private int index = 0;
+
+        BucketIterator(List<InternalBucket> buckets) {
+            this.buckets = buckets;
+        }
+
+        InternalBucket current() {
+            return buckets.get(index);
+        }
+
+        InternalBucket next() {
+            return ++index < buckets.size() ? buckets.get(index) : null;
+        }
+    }
+}
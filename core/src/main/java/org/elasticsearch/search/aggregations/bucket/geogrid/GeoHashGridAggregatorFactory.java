@@ -52,6 +52,12 @@ public class GeoHashGridAggregatorFactory extends ValuesSourceAggregatorFactory<
         this.shardSize = shardSize;
     }
 
+    @Override
+    protected boolean supportsConcurrentSearch() {
+        // each slice would keep its own top shard_size cells
+        return false;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
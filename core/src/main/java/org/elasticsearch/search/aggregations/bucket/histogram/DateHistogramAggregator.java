@@ -32,6 +32,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointsBucketCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
@@ -58,6 +59,7 @@ class DateHistogramAggregator extends BucketsAggregator {
 
     private final long minDocCount;
     private final ExtendedBounds extendedBounds;
+    private final PointsBucketCounter pointsCounter;
 
     private final LongHash bucketOrds;
     private long offset;
@@ -65,7 +67,7 @@ class DateHistogramAggregator extends BucketsAggregator {
     DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, long offset, InternalOrder order,
             boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            DocValueFormat formatter, SearchContext aggregationContext,
+            DocValueFormat formatter, @Nullable PointsBucketCounter pointsCounter, SearchContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
@@ -77,6 +79,7 @@ class DateHistogramAggregator extends BucketsAggregator {
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
         this.formatter = formatter;
+        this.pointsCounter = pointsCounter;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
     }
@@ -92,6 +95,25 @@ class DateHistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (pointsCounter != null && pointsCounter.count(ctx, new PointsBucketCounter.Buckets() {
+                @Override
+                public boolean sameBuckets(Number min, Number max) {
+                    return rounding.round(min.longValue() - offset) == rounding.round(max.longValue() - offset);
+                }
+
+                @Override
+                public void count(Number value, int docCount) {
+                    long rounded = rounding.round(value.longValue() - offset) + offset;
+                    long bucketOrd = bucketOrds.add(rounded);
+                    if (bucketOrd < 0) { // already seen
+                        bucketOrd = -1 - bucketOrd;
+                    }
+                    incrementBucketDocCount(bucketOrd, docCount);
+                }
+            })) {
+            // the documents of this segment have been counted from the points index
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -32,6 +32,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointsBucketCounter;
 import org.elasticsearch.search.aggregations.bucket.histogram.InternalHistogram.EmptyBucketInfo;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -58,12 +59,13 @@ class HistogramAggregator extends BucketsAggregator {
     private final boolean keyed;
     private final long minDocCount;
     private final double minBound, maxBound;
+    private final PointsBucketCounter pointsCounter;
 
     private final LongHash bucketOrds;
 
     HistogramAggregator(String name, AggregatorFactories factories, double interval, double offset,
             InternalOrder order, boolean keyed, long minDocCount, double minBound, double maxBound,
-            @Nullable ValuesSource.Numeric valuesSource, DocValueFormat formatter,
+            @Nullable ValuesSource.Numeric valuesSource, DocValueFormat formatter, @Nullable PointsBucketCounter pointsCounter,
             SearchContext context, Aggregator parent,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
@@ -80,6 +82,7 @@ class HistogramAggregator extends BucketsAggregator {
         this.maxBound = maxBound;
         this.valuesSource = valuesSource;
         this.formatter = formatter;
+        this.pointsCounter = pointsCounter;
 
         bucketOrds = new LongHash(1, context.bigArrays());
     }
@@ -95,6 +98,25 @@ class HistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (pointsCounter != null && pointsCounter.count(ctx, new PointsBucketCounter.Buckets() {
+                @Override
+                public boolean sameBuckets(Number min, Number max) {
+                    return Math.floor((min.doubleValue() - offset) / interval) == Math.floor((max.doubleValue() - offset) / interval);
+                }
+
+                @Override
+                public void count(Number value, int docCount) {
+                    double key = Math.floor((value.doubleValue() - offset) / interval);
+                    long bucketOrd = bucketOrds.add(Double.doubleToLongBits(key));
+                    if (bucketOrd < 0) { // already seen
+                        bucketOrd = -1 - bucketOrd;
+                    }
+                    incrementBucketDocCount(bucketOrd, docCount);
+                }
+            })) {
+            // the documents of this segment have been counted from the points index
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
 
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
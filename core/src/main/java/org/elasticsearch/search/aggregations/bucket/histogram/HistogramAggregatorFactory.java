@@ -22,6 +22,7 @@ package org.elasticsearch.search.aggregations.bucket.histogram;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.bucket.PointsBucketCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
@@ -72,7 +73,8 @@ public final class HistogramAggregatorFactory extends ValuesSourceAggregatorFact
             Map<String, Object> metaData) throws IOException {
 
         return new HistogramAggregator(name, factories, interval, offset, order, keyed, minDocCount, minBound, maxBound, valuesSource,
-                config.format(), context, parent, pipelineAggregators, metaData);
+                config.format(), valuesSource == null ? null : PointsBucketCounter.build(context, parent, factories, config),
+                context, parent, pipelineAggregators, metaData);
     }
 
     @Override
@@ -19,6 +19,7 @@
 package org.elasticsearch.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -36,6 +37,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointsBucketCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
@@ -200,12 +202,14 @@ public class RangeAggregator extends BucketsAggregator {
     final Range[] ranges;
     final boolean keyed;
     final InternalRange.Factory rangeFactory;
+    final PointsBucketCounter pointsCounter;
 
     final double[] maxTo;
 
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
-            InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+            InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, @Nullable PointsBucketCounter pointsCounter,
+            SearchContext context, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, context, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
@@ -213,6 +217,7 @@ public class RangeAggregator extends BucketsAggregator {
         this.format = format;
         this.keyed = keyed;
         this.rangeFactory = rangeFactory;
+        this.pointsCounter = pointsCounter;
 
         this.ranges = ranges;
 
@@ -232,6 +237,33 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (pointsCounter != null && pointsCounter.count(ctx, new PointsBucketCounter.Buckets() {
+                @Override
+                public boolean sameBuckets(Number min, Number max) {
+                    final double minValue = min.doubleValue();
+                    final double maxValue = max.doubleValue();
+                    for (Range range : ranges) {
+                        // the documents of a range change if one of its bounds lies between min (exclusive) and max (inclusive)
+                        if ((range.from > minValue && range.from <= maxValue) || (range.to > minValue && range.to <= maxValue)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public void count(Number value, int docCount) {
+                    final double doubleValue = value.doubleValue();
+                    for (int i = 0; i < ranges.length; i++) {
+                        if (ranges[i].matches(doubleValue)) {
+                            incrementBucketDocCount(subBucketOrdinal(0, i), docCount);
+                        }
+                    }
+                }
+            })) {
+            // the documents of this segment have been counted from the points index
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.bucket.significant;
 
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
@@ -34,6 +35,7 @@ import org.elasticsearch.common.lucene.index.FilterableTermsEnum;
 import org.elasticsearch.common.lucene.index.FreqTermsEnum;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.indices.IndicesBackgroundFrequencyCache;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -120,6 +122,17 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
     }
 
     private long getBackgroundFrequency(String value) throws IOException {
+        final IndicesBackgroundFrequencyCache cache = context.backgroundFrequencyCache();
+        final IndexReader reader = context.searcher().getIndexReader();
+        if (cache != null && reader instanceof DirectoryReader) {
+            // background frequencies only depend on the point-in-time view of the shard so they can be shared across requests
+            return cache.getOrCompute((DirectoryReader) reader, indexedFieldName, filter, value,
+                () -> computeBackgroundFrequency(value));
+        }
+        return computeBackgroundFrequency(value);
+    }
+
+    private long computeBackgroundFrequency(String value) throws IOException {
         Query query = fieldType.termQuery(value, context.getQueryShardContext());
         if (query instanceof TermQuery) {
             // for types that use the inverted index, we prefer using a caching terms
@@ -165,6 +178,12 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
         };
     }
 
+    @Override
+    protected boolean supportsConcurrentSearch() {
+        // the background frequencies are computed on the whole shard, summing them per slice would inflate them
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(ValuesSource valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -149,6 +149,12 @@ public class DoubleTerms extends InternalMappedTerms<DoubleTerms, DoubleTerms.Bu
                 shardSize, showTermDocCountError, otherDocCount, buckets, docCountError);
     }
 
+    @Override
+    protected DoubleTerms create(List<Bucket> buckets, int shardSize, long otherDocCount) {
+        return new DoubleTerms(name, order, requiredSize, minDocCount, pipelineAggregators(), metaData, format,
+                shardSize, showTermDocCountError, otherDocCount, buckets, docCountError);
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.field(InternalTerms.DOC_COUNT_ERROR_UPPER_BOUND_FIELD_NAME, docCountError);
@@ -22,9 +22,11 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -79,6 +81,32 @@ public abstract class InternalMappedTerms<A extends InternalTerms<A, B>, B exten
         out.writeList(buckets);
     }
 
+    @Override
+    public A pruneShardBuckets(int shardSize, long shardMinDocCount) {
+        long otherDocCount = this.otherDocCount;
+        BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(Math.min(shardSize, buckets.size()), order.comparator(null));
+        for (B bucket : buckets) {
+            if (bucket.getDocCount() >= shardMinDocCount) {
+                B removed = ordered.insertWithOverflow(bucket);
+                if (removed != null) {
+                    otherDocCount += removed.getDocCount();
+                }
+            } else {
+                otherDocCount += bucket.getDocCount();
+            }
+        }
+        B[] list = createBucketsArray(ordered.size());
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            list[i] = ordered.pop();
+        }
+        return create(Arrays.asList(list), shardSize, otherDocCount);
+    }
+
+    /**
+     * Create a copy of this aggregation with the provided buckets, shard size and count of other documents.
+     */
+    protected abstract A create(List<B> buckets, int shardSize, long otherDocCount);
+
     @Override
     protected void setDocCountError(long docCountError) {
         this.docCountError = docCountError; 
@@ -296,6 +296,15 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
         return create(name, Arrays.asList(list), docCountError, otherDocCount);
     }
 
+    /**
+     * Prunes the buckets of a shard level aggregation that was reduced from the unpruned aggregations of the slices of the
+     * shard to the buckets that a single aggregator would have returned for the whole shard.
+     *
+     * @param shardSize the maximum number of buckets to return
+     * @param shardMinDocCount the minimum document count of the returned buckets
+     */
+    public abstract A pruneShardBuckets(int shardSize, long shardMinDocCount);
+
     protected abstract void setDocCountError(long docCountError);
 
     protected abstract int getShardSize();
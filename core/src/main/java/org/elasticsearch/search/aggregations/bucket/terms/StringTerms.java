@@ -145,6 +145,12 @@ public class StringTerms extends InternalMappedTerms<StringTerms, StringTerms.Bu
                 showTermDocCountError, otherDocCount, buckets, docCountError);
     }
 
+    @Override
+    protected StringTerms create(List<Bucket> buckets, int shardSize, long otherDocCount) {
+        return new StringTerms(name, order, requiredSize, minDocCount, pipelineAggregators(), metaData, format, shardSize,
+                showTermDocCountError, otherDocCount, buckets, docCountError);
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.field(InternalTerms.DOC_COUNT_ERROR_UPPER_BOUND_FIELD_NAME, docCountError);
@@ -89,16 +89,15 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         if (collectsFromSingleBucket == false) {
             return asMultiBucketAggregator(this, context, parent);
         }
-        BucketCountThresholds bucketCountThresholds = new BucketCountThresholds(this.bucketCountThresholds);
-        if (!(order == InternalOrder.TERM_ASC || order == InternalOrder.TERM_DESC)
-                && bucketCountThresholds.getShardSize() == TermsAggregationBuilder.DEFAULT_BUCKET_COUNT_THRESHOLDS.getShardSize()) {
-            // The user has not made a shardSize selection. Use default
-            // heuristic to avoid any wrong-ranking caused by distributed
-            // counting
-            bucketCountThresholds.setShardSize(BucketUtils.suggestShardSideQueueSize(bucketCountThresholds.getRequiredSize(),
-                    context.numberOfShards()));
+        BucketCountThresholds bucketCountThresholds = shardBucketCountThresholds();
+        BucketCountThresholds collectThresholds = bucketCountThresholds;
+        if (context.aggregations() != null && context.aggregations().collectsSlices()) {
+            // the slice aggregations are pruned to the shard size once they are reduced, see #pruneSliceReduction, so
+            // each slice over-requests the same way the shards do to avoid wrong-ranking caused by counting per slice
+            collectThresholds = new BucketCountThresholds(bucketCountThresholds);
+            collectThresholds.setShardSize(BucketUtils.suggestShardSideQueueSize(bucketCountThresholds.getShardSize(),
+                    context.searcher().getSliceCount()));
         }
-        bucketCountThresholds.ensureValidity();
         if (valuesSource instanceof ValuesSource.Bytes) {
             ExecutionMode execution = null;
             if (executionHint != null) {
@@ -165,7 +164,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                         + "settings as they can only be applied to string fields. Use an array of values for include/exclude clauses");
             }
 
-            return execution.create(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude, context, parent,
+            return execution.create(name, factories, valuesSource, order, format, collectThresholds, includeExclude, context, parent,
                     cm, showTermDocCountError, pipelineAggregators, metaData);
         }
 
@@ -189,14 +188,14 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                     longFilter = includeExclude.convertToDoubleFilter();
                 }
                 return new DoubleTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                        bucketCountThresholds, context, parent, cm, showTermDocCountError, longFilter,
+                        collectThresholds, context, parent, cm, showTermDocCountError, longFilter,
                         pipelineAggregators, metaData);
             }
             if (includeExclude != null) {
                 longFilter = includeExclude.convertToLongFilter(config.format());
             }
             return new LongTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                    bucketCountThresholds, context, parent, cm, showTermDocCountError, longFilter, pipelineAggregators,
+                    collectThresholds, context, parent, cm, showTermDocCountError, longFilter, pipelineAggregators,
                     metaData);
         }
 
@@ -204,6 +203,33 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 + "]. It can only be applied to numeric or string fields.");
     }
 
+    /**
+     * Returns the thresholds that the buckets of a shard must pass.
+     */
+    private BucketCountThresholds shardBucketCountThresholds() {
+        BucketCountThresholds bucketCountThresholds = new BucketCountThresholds(this.bucketCountThresholds);
+        if (!(order == InternalOrder.TERM_ASC || order == InternalOrder.TERM_DESC)
+                && bucketCountThresholds.getShardSize() == TermsAggregationBuilder.DEFAULT_BUCKET_COUNT_THRESHOLDS.getShardSize()) {
+            // The user has not made a shardSize selection. Use default
+            // heuristic to avoid any wrong-ranking caused by distributed
+            // counting
+            bucketCountThresholds.setShardSize(BucketUtils.suggestShardSideQueueSize(bucketCountThresholds.getRequiredSize(),
+                    context.numberOfShards()));
+        }
+        bucketCountThresholds.ensureValidity();
+        return bucketCountThresholds;
+    }
+
+    @Override
+    public InternalAggregation pruneSliceReduction(InternalAggregation reduced) {
+        if (reduced instanceof InternalTerms) {
+            BucketCountThresholds bucketCountThresholds = shardBucketCountThresholds();
+            reduced = ((InternalTerms<?, ?>) reduced).pruneShardBuckets(bucketCountThresholds.getShardSize(),
+                    bucketCountThresholds.getShardMinDocCount());
+        }
+        return super.pruneSliceReduction(reduced);
+    }
+
     // return the SubAggCollectionMode that this aggregation should use based on the expected size
     // and the cardinality of the field
     static SubAggCollectionMode subAggCollectionMode(int expectedSize, long maxOrd) {
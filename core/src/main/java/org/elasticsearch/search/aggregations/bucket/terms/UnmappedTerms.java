@@ -109,6 +109,11 @@ public class UnmappedTerms extends InternalTerms<UnmappedTerms, UnmappedTerms.Bu
         return builder;
     }
 
+    @Override
+    public UnmappedTerms pruneShardBuckets(int shardSize, long shardMinDocCount) {
+        return this;
+    }
+
     @Override
     protected void setDocCountError(long docCountError) {
     }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+
+/**
+ * Reads the minimum or the maximum value of a field in a segment from the metadata of its points index instead of
+ * collecting the documents that match the query one by one.
+ *
+ * This is only possible for top-level aggregations on a field indexed with points when the query matches all documents.
+ * Segments with deleted documents are collected as usual.
+ */
+public final class PointsMinMaxReader {
+
+    private final String field;
+    private final Function<byte[], Number> pointReader;
+
+    private PointsMinMaxReader(String field, Function<byte[], Number> pointReader) {
+        this.field = field;
+        this.pointReader = pointReader;
+    }
+
+    /**
+     * Returns a reader for the field of the provided config or <code>null</code> if the matching documents must be collected.
+     */
+    @Nullable
+    public static PointsMinMaxReader build(SearchContext context, Aggregator parent, ValuesSourceConfig<?> config) {
+        if (parent != null) {
+            return null;
+        }
+        if (context.minimumScore() != null || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return null;
+        }
+        if (context.query() == null || context.query().getClass() != MatchAllDocsQuery.class) {
+            return null;
+        }
+        final Function<byte[], Number> pointReader = config.getPointReaderOrNull();
+        if (pointReader == null) {
+            return null;
+        }
+        return new PointsMinMaxReader(config.fieldContext().field(), pointReader);
+    }
+
+    /**
+     * Passes the minimum value of the field in the segment to the consumer, if any document of the segment has a value.
+     * Returns <code>false</code> if the documents of this segment must be collected.
+     */
+    public boolean readMin(LeafReader reader, DoubleConsumer consumer) throws IOException {
+        return read(reader, false, consumer);
+    }
+
+    /**
+     * Passes the maximum value of the field in the segment to the consumer, if any document of the segment has a value.
+     * Returns <code>false</code> if the documents of this segment must be collected.
+     */
+    public boolean readMax(LeafReader reader, DoubleConsumer consumer) throws IOException {
+        return read(reader, true, consumer);
+    }
+
+    private boolean read(LeafReader reader, boolean max, DoubleConsumer consumer) throws IOException {
+        if (reader.getLiveDocs() != null) {
+            // deleted documents still contribute to the points metadata
+            return false;
+        }
+        final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null) {
+            // no document of this segment has a value for the field
+            return true;
+        }
+        if (fieldInfo.getPointDimensionCount() != 1) {
+            return false;
+        }
+        final byte[] packedValue = max
+            ? reader.getPointValues().getMaxPackedValue(field)
+            : reader.getPointValues().getMinPackedValue(field);
+        consumer.accept(pointReader.apply(packedValue).doubleValue());
+        return true;
+    }
+}
@@ -19,8 +19,6 @@
 
 package org.elasticsearch.search.aggregations.metrics.cardinality;
 
-import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -28,12 +26,10 @@ import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.ObjectArray;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 /**
  * Hyperloglog++ counter, implemented based on pseudo code from
@@ -44,7 +40,9 @@ import java.nio.ByteOrder;
  * This implementation is different from the original implementation in that it
  * uses a hash table instead of a sorted list for linear counting. Although this
  * requires more space and makes hyperloglog (which is less accurate) used sooner,
- * this is also considerably faster.
+ * this is also considerably faster. Buckets only allocate their hyperloglog registers
+ * once they are upgraded from linear counting, so that the memory usage of a bucket
+ * that only sees a few distinct values is proportional to its number of values.
  *
  * Trying to understand what this class does without having read the paper is
  * considered adventurous.
@@ -59,6 +57,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private static final float MAX_LOAD_FACTOR = 0.75f;
     private static final int P2 = 25;
     private static final int BIAS_K = 6;
+    private static final int INITIAL_HASHSET_CAPACITY = 16;
 
     /**
      * Compute the required precision so that <code>count</code> distinct entries
@@ -73,7 +72,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     /**
-     * Return the expected per-bucket memory usage for the given precision.
+     * Return the maximum per-bucket memory usage for the given precision.
      */
     public static long memoryUsage(int precision) {
         return 1L << precision;
@@ -151,11 +150,11 @@ public final class HyperLogLogPlusPlus implements Releasable {
     };
 
     private final BigArrays bigArrays;
-    private final OpenBitSet algorithm;
-    private ByteArray runLens;
-    private final Hashset hashSet;
     private final int p, m;
     private final double alphaMM;
+    // registers of the buckets that have been upgraded to hyperloglog, null for the buckets that use linear counting
+    private ObjectArray<ByteArray> runLens;
+    private final Hashset hashSet;
 
     public HyperLogLogPlusPlus(int precision, BigArrays bigArrays, long initialBucketCount) {
         if (precision < 4) {
@@ -167,9 +166,16 @@ public final class HyperLogLogPlusPlus implements Releasable {
         p = precision;
         m = 1 << p;
         this.bigArrays = bigArrays;
-        algorithm = new OpenBitSet();
-        runLens = bigArrays.newByteArray(initialBucketCount << p);
-        hashSet = new Hashset(initialBucketCount);
+        boolean success = false;
+        try {
+            runLens = bigArrays.newObjectArray(initialBucketCount);
+            hashSet = new Hashset(initialBucketCount);
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(runLens);
+            }
+        }
         final double alpha;
         switch (p) {
         case 4:
@@ -190,11 +196,19 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     public long maxBucket() {
-        return runLens.size() >>> p;
+        return runLens.size();
     }
 
     private void ensureCapacity(long numBuckets) {
-        runLens = bigArrays.grow(runLens, numBuckets << p);
+        runLens = bigArrays.grow(runLens, numBuckets);
+        hashSet.ensureCapacity(numBuckets);
+    }
+
+    /**
+     * Return the registers of the given bucket or <code>null</code> if the bucket still uses linear counting.
+     */
+    private ByteArray registers(long bucket) {
+        return bucket < runLens.size() ? runLens.get(bucket) : null;
     }
 
     public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
@@ -202,12 +216,13 @@ public final class HyperLogLogPlusPlus implements Releasable {
             throw new IllegalArgumentException();
         }
         ensureCapacity(thisBucket + 1);
-        if (other.algorithm.get(otherBucket) == LINEAR_COUNTING) {
+        final ByteArray otherRegisters = other.registers(otherBucket);
+        if (otherRegisters == null) {
             final IntArray values = other.hashSet.values(otherBucket);
             try {
                 for (long i = 0; i < values.size(); ++i) {
                     final int encoded = values.get(i);
-                    if (algorithm.get(thisBucket) == LINEAR_COUNTING) {
+                    if (registers(thisBucket) == null) {
                         collectLcEncoded(thisBucket, encoded);
                     } else {
                         collectHllEncoded(thisBucket, encoded);
@@ -217,20 +232,19 @@ public final class HyperLogLogPlusPlus implements Releasable {
                 Releasables.close(values);
             }
         } else {
-            if (algorithm.get(thisBucket) != HYPERLOGLOG) {
+            if (registers(thisBucket) == null) {
                 upgradeToHll(thisBucket);
             }
-            final long thisStart = thisBucket << p;
-            final long otherStart = otherBucket << p;
+            final ByteArray thisRegisters = registers(thisBucket);
             for (int i = 0; i < m; ++i) {
-                runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
+                thisRegisters.set(i, (byte) Math.max(thisRegisters.get(i), otherRegisters.get(i)));
             }
         }
     }
 
     public void collect(long bucket, long hash) {
         ensureCapacity(bucket + 1);
-        if (algorithm.get(bucket) == LINEAR_COUNTING) {
+        if (registers(bucket) == null) {
             collectLc(bucket, hash);
         } else {
             collectHll(bucket, hash);
@@ -262,15 +276,16 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectHll(long bucket, long index, int runLen) {
-        final long bucketIndex = (bucket << p) + index;
-        runLens.set(bucketIndex, (byte) Math.max(runLen, runLens.get(bucketIndex)));
+        final ByteArray registers = runLens.get(bucket);
+        registers.set(index, (byte) Math.max(runLen, registers.get(index)));
     }
 
     public long cardinality(long bucket) {
-        if (algorithm.get(bucket) == LINEAR_COUNTING) {
+        final ByteArray registers = registers(bucket);
+        if (registers == null) {
             return cardinalityLc(bucket);
         } else {
-            return cardinalityHll(bucket);
+            return cardinalityHll(registers);
         }
     }
 
@@ -280,11 +295,11 @@ public final class HyperLogLogPlusPlus implements Releasable {
         return linearCounting(m, v);
     }
 
-    private long cardinalityHll(long bucket) {
+    private long cardinalityHll(ByteArray registers) {
         double inverseSum = 0;
         int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
-            final int runLen = runLens.get(i);
+        for (long i = 0; i < m; ++i) {
+            final int runLen = registers.get(i);
             inverseSum += 1. / (1L << runLen);
             if (runLen == 0) {
                 ++zeros;
@@ -305,16 +320,20 @@ public final class HyperLogLogPlusPlus implements Releasable {
         }
     }
 
+    /**
+     * Promote the given bucket from its sparse hash set to dense hyperloglog registers.
+     */
     void upgradeToHll(long bucket) {
+        assert registers(bucket) == null;
         ensureCapacity(bucket + 1);
         final IntArray values = hashSet.values(bucket);
         try {
-            runLens.fill(bucket << p, (bucket << p) + m, (byte) 0);
+            runLens.set(bucket, bigArrays.newByteArray(m));
             for (long i = 0; i < values.size(); ++i) {
                 final int encoded = values.get(i);
                 collectHllEncoded(bucket, encoded);
             }
-            algorithm.set(bucket);
+            hashSet.clear(bucket);
         } finally {
             Releasables.close(values);
         }
@@ -417,54 +436,46 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     @Override
     public void close() {
-        Releasables.close(runLens, hashSet.sizes);
+        try {
+            for (long i = 0; i < runLens.size(); ++i) {
+                Releasables.close(runLens.get(i));
+            }
+        } finally {
+            Releasables.close(runLens, hashSet);
+        }
     }
 
     /**
-     * We are actually using HyperLogLog's runLens array but interpreting it as a hash set
-     * for linear counting.
+     * The sparse representation of the buckets that use linear counting. Every bucket gets its own open-addressing
+     * hash table of encoded hashes that starts small and doubles as values are added. The table never grows beyond
+     * the size of the hyperloglog registers: the bucket is upgraded to hyperloglog before that, so buckets that only
+     * see a few distinct values don't pay for <code>2^precision</code> bytes.
      */
-    private class Hashset {
+    private class Hashset implements Releasable {
 
-        private final int capacity;
+        private final int maxCapacity;
         private final int threshold;
-        private final int mask;
+        private ObjectArray<IntArray> tables;
         private IntArray sizes;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
 
         Hashset(long initialBucketCount) {
-            capacity = m / 4; // because ints take 4 bytes
-            threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
-            sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
-        }
-
-        private long index (long bucket, int index) {
-            return (bucket << p) + (index << 2);
-        }
-
-        private int get(long bucket, int index) {
-            runLens.get(index(bucket, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
-        }
-
-        private void set(long bucket, int index, int value) {
-            writeSpare.putInt(0, value);
-            runLens.set(index(bucket, index), writeSpare.array(), 0, 4);
-        }
-
-        private int recomputedSize(long bucket) {
-            int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucket, i);
-                if (v != 0) {
-                    ++size;
+            maxCapacity = m / 4; // because ints take 4 bytes
+            threshold = (int) (maxCapacity * MAX_LOAD_FACTOR);
+            boolean success = false;
+            try {
+                tables = bigArrays.newObjectArray(initialBucketCount);
+                sizes = bigArrays.newIntArray(initialBucketCount);
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.close(tables, sizes);
                 }
             }
-            return size;
+        }
+
+        void ensureCapacity(long numBuckets) {
+            tables = bigArrays.grow(tables, numBuckets);
+            sizes = bigArrays.grow(sizes, numBuckets);
         }
 
         public int size(long bucket) {
@@ -476,24 +487,69 @@ public final class HyperLogLogPlusPlus implements Releasable {
             return size;
         }
 
+        private int recomputedSize(long bucket) {
+            final IntArray table = bucket < tables.size() ? tables.get(bucket) : null;
+            int size = 0;
+            if (table != null) {
+                for (long i = 0; i < table.size(); ++i) {
+                    if (table.get(i) != 0) {
+                        ++size;
+                    }
+                }
+            }
+            return size;
+        }
+
         /**
          * Add <code>k</code> to the hash table associated with <code>bucket</code>.
          * Return <tt>-1</tt> if the value was already in the set or the new set size if it was added.
          */
         public int add(long bucket, int k) {
-            sizes = bigArrays.grow(sizes, bucket + 1);
             assert k != 0;
-            for (int i = (k & mask); ; i = (i + 1) & mask) {
-                final int v = get(bucket, i);
+            ensureCapacity(bucket + 1);
+            IntArray table = tables.get(bucket);
+            if (table == null) {
+                table = bigArrays.newIntArray(Math.min(INITIAL_HASHSET_CAPACITY, maxCapacity));
+                tables.set(bucket, table);
+            }
+            if (insert(table, k) == false) {
+                return -1;
+            }
+            final int size = sizes.increment(bucket, 1);
+            if (size > table.size() * MAX_LOAD_FACTOR && table.size() < maxCapacity) {
+                tables.set(bucket, grow(table));
+            }
+            return size;
+        }
+
+        private boolean insert(IntArray table, int k) {
+            final long mask = table.size() - 1;
+            for (long i = k & mask; ; i = (i + 1) & mask) {
+                final int v = table.get(i);
                 if (v == 0) {
                     // means unused, take it!
-                    set(bucket, i, k);
-                    return sizes.increment(bucket, 1);
+                    table.set(i, k);
+                    return true;
                 } else if (v == k) {
                     // k is already in the set
-                    return -1;
+                    return false;
+                }
+            }
+        }
+
+        private IntArray grow(IntArray table) {
+            final IntArray newTable = bigArrays.newIntArray(table.size() << 1);
+            try {
+                for (long i = 0; i < table.size(); ++i) {
+                    final int k = table.get(i);
+                    if (k != 0) {
+                        insert(newTable, k);
+                    }
                 }
+            } finally {
+                Releasables.close(table);
             }
+            return newTable;
         }
 
         public IntArray values(final long bucket) {
@@ -502,9 +558,10 @@ public final class HyperLogLogPlusPlus implements Releasable {
             if (size == 0) {
                 return values;
             }
+            final IntArray table = tables.get(bucket);
             int i = 0;
-            for (int j = 0; j < capacity; ++j) {
-                final int k = get(bucket, j);
+            for (long j = 0; j < table.size(); ++j) {
+                final int k = table.get(j);
                 if (k != 0) {
                     values.set(i++, k);
                 }
@@ -513,11 +570,32 @@ public final class HyperLogLogPlusPlus implements Releasable {
             return values;
         }
 
+        /**
+         * Release the hash table of the given bucket once it has been upgraded to hyperloglog.
+         */
+        void clear(long bucket) {
+            if (bucket < tables.size()) {
+                Releasables.close(tables.set(bucket, null));
+                sizes.set(bucket, 0);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                for (long i = 0; i < tables.size(); ++i) {
+                    Releasables.close(tables.get(i));
+                }
+            } finally {
+                Releasables.close(tables, sizes);
+            }
+        }
     }
 
     public void writeTo(long bucket, StreamOutput out) throws IOException {
         out.writeVInt(p);
-        if (algorithm.get(bucket) == LINEAR_COUNTING) {
+        final ByteArray registers = registers(bucket);
+        if (registers == null) {
             out.writeBoolean(LINEAR_COUNTING);
             try (IntArray hashes = hashSet.values(bucket)) {
                 out.writeVLong(hashes.size());
@@ -527,8 +605,8 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
-                out.writeByte(runLens.get(i));
+            for (long i = 0; i < m; ++i) {
+                out.writeByte(registers.get(i));
             }
         }
     }
@@ -538,46 +616,19 @@ public final class HyperLogLogPlusPlus implements Releasable {
         HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
         final boolean algorithm = in.readBoolean();
         if (algorithm == LINEAR_COUNTING) {
-            counts.algorithm.clear(0);
             final long size = in.readVLong();
             for (long i = 0; i < size; ++i) {
                 final int encoded = in.readInt();
                 counts.hashSet.add(0, encoded);
             }
         } else {
-            counts.algorithm.set(0);
+            final ByteArray registers = bigArrays.newByteArray(counts.m);
+            counts.runLens.set(0, registers);
             for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
+                registers.set(i, in.readByte());
             }
         }
         return counts;
     }
-    
-    /** looks and smells like the old openbitset. */
-    static class OpenBitSet {
-        LongBitSet impl = new LongBitSet(64);
-
-        boolean get(long bit) {
-            if (bit < impl.length()) {
-                return impl.get(bit);
-            } else {
-                return false;
-            }
-        }
-        
-        void ensureCapacity(long bit) {
-            impl = LongBitSet.ensureCapacity(impl, bit);
-        }
-        
-        void set(long bit) {
-            ensureCapacity(bit);
-            impl.set(bit);
-        }
-        
-        void clear(long bit) {
-            ensureCapacity(bit);
-            impl.clear(bit);
-        }
-    }
 
 }
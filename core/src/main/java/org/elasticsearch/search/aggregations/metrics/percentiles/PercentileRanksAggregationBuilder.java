@@ -32,7 +32,6 @@ import org.elasticsearch.search.aggregations.metrics.percentiles.hdr.HDRPercenti
 import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestPercentileRanksAggregatorFactory;
 import org.elasticsearch.search.aggregations.support.ValueType;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
-import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
 import org.elasticsearch.search.aggregations.support.ValuesSourceAggregationBuilder.LeafOnly;
 import org.elasticsearch.search.aggregations.support.ValuesSourceAggregatorFactory;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -44,7 +43,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Objects;
 
-public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Numeric, PercentileRanksAggregationBuilder> {
+public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource, PercentileRanksAggregationBuilder> {
     public static final String NAME = PercentileRanks.TYPE_NAME;
 
     public static final ParseField VALUES_FIELD = new ParseField("values");
@@ -73,7 +72,7 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
     private static final ObjectParser<PercentileRanksAggregationBuilder, QueryParseContext> PARSER;
     static {
         PARSER = new ObjectParser<>(PercentileRanksAggregationBuilder.NAME);
-        ValuesSourceParserHelper.declareNumericFields(PARSER, true, false, false);
+        ValuesSourceParserHelper.declareNumericOrHistogramFields(PARSER, true, false, false);
 
         PARSER.declareDoubleArray(
                 (b, v) -> b.values(v.stream().mapToDouble(Double::doubleValue).toArray()),
@@ -220,7 +219,12 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
     }
 
     @Override
-    protected ValuesSourceAggregatorFactory<Numeric, ?> innerBuild(SearchContext context, ValuesSourceConfig<Numeric> config,
+    protected boolean supportsHistograms() {
+        return true;
+    }
+
+    @Override
+    protected ValuesSourceAggregatorFactory<ValuesSource, ?> innerBuild(SearchContext context, ValuesSourceConfig<ValuesSource> config,
             AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
         switch (method) {
         case TDIGEST:
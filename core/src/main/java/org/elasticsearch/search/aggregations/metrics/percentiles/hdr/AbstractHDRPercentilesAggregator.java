@@ -23,8 +23,8 @@ import org.HdrHistogram.DoubleHistogram;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.ArrayUtils;
-import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ObjectArray;
+import org.elasticsearch.index.fielddata.HistogramValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -46,13 +46,13 @@ public abstract class AbstractHDRPercentilesAggregator extends NumericMetricsAgg
     }
 
     protected final double[] keys;
-    protected final ValuesSource.Numeric valuesSource;
+    protected final ValuesSource valuesSource;
     protected final DocValueFormat format;
     protected ObjectArray<DoubleHistogram> states;
     protected final int numberOfSignificantValueDigits;
     protected final boolean keyed;
 
-    public AbstractHDRPercentilesAggregator(String name, ValuesSource.Numeric valuesSource, SearchContext context, Aggregator parent,
+    public AbstractHDRPercentilesAggregator(String name, ValuesSource valuesSource, SearchContext context, Aggregator parent,
             double[] keys, int numberOfSignificantValueDigits, boolean keyed, DocValueFormat formatter,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         super(name, context, parent, pipelineAggregators, metaData);
@@ -75,26 +75,25 @@ public abstract class AbstractHDRPercentilesAggregator extends NumericMetricsAgg
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
-        final BigArrays bigArrays = context.bigArrays();
-        final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        if (valuesSource instanceof ValuesSource.Histogram) {
+            final HistogramValues values = ((ValuesSource.Histogram) valuesSource).histogramValues(ctx);
+            return new LeafBucketCollectorBase(sub, values) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    final DoubleHistogram state = getOrCreateState(bucket);
+                    values.setDocument(doc);
+                    final int valueCount = values.count();
+                    for (int i = 0; i < valueCount; i++) {
+                        state.recordValueWithCount(values.valueAt(i), values.countAt(i));
+                    }
+                }
+            };
+        }
+        final SortedNumericDoubleValues values = ((ValuesSource.Numeric) valuesSource).doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                states = bigArrays.grow(states, bucket + 1);
-
-                DoubleHistogram state = states.get(bucket);
-                if (state == null) {
-                    state = new DoubleHistogram(numberOfSignificantValueDigits);
-                    // Set the histogram to autosize so it can resize itself as
-                    // the data range increases. Resize operations should be
-                    // rare as the histogram buckets are exponential (on the top
-                    // level). In the future we could expose the range as an
-                    // option on the request so the histogram can be fixed at
-                    // initialisation and doesn't need resizing.
-                    state.setAutoResize(true);
-                    states.set(bucket, state);
-                }
-
+                final DoubleHistogram state = getOrCreateState(bucket);
                 values.setDocument(doc);
                 final int valueCount = values.count();
                 for (int i = 0; i < valueCount; i++) {
@@ -104,6 +103,23 @@ public abstract class AbstractHDRPercentilesAggregator extends NumericMetricsAgg
         };
     }
 
+    private DoubleHistogram getOrCreateState(long bucket) {
+        states = context.bigArrays().grow(states, bucket + 1);
+        DoubleHistogram state = states.get(bucket);
+        if (state == null) {
+            state = new DoubleHistogram(numberOfSignificantValueDigits);
+            // Set the histogram to autosize so it can resize itself as
+            // the data range increases. Resize operations should be
+            // rare as the histogram buckets are exponential (on the top
+            // level). In the future we could expose the range as an
+            // option on the request so the histogram can be fixed at
+            // initialisation and doesn't need resizing.
+            state.setAutoResize(true);
+            states.set(bucket, state);
+        }
+        return state;
+    }
+
     @Override
     public boolean hasMetric(String name) {
         return indexOfKey(keys, Double.parseDouble(name)) >= 0;
@@ -56,6 +56,12 @@ public class ScriptedMetricAggregatorFactory extends AggregatorFactory<ScriptedM
         this.params = params;
     }
 
+    @Override
+    protected boolean supportsConcurrentSearch() {
+        // the combine script expects to see the state of the whole shard
+        return false;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
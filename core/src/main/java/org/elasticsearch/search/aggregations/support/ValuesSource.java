@@ -32,8 +32,10 @@ import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.lucene.ScorerAware;
 import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.AtomicParentChildFieldData;
+import org.elasticsearch.index.fielddata.HistogramValues;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
+import org.elasticsearch.index.fielddata.IndexHistogramFieldData;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.IndexParentChildFieldData;
@@ -487,6 +489,40 @@ public abstract class ValuesSource {
         }
     }
 
+    /**
+     * A source of pre-aggregated histograms. It can't be read as individual values, so it is only accepted by the
+     * aggregations that know how to merge histograms.
+     */
+    public abstract static class Histogram extends ValuesSource {
+
+        /** Get the current {@link HistogramValues}. */
+        public abstract HistogramValues histogramValues(LeafReaderContext context) throws IOException;
+
+        @Override
+        public SortedBinaryDocValues bytesValues(LeafReaderContext context) {
+            throw new UnsupportedOperationException("histogram fields can't be read as individual values");
+        }
+
+        public static class Fielddata extends Histogram {
+
+            protected final IndexHistogramFieldData indexFieldData;
+
+            public Fielddata(IndexHistogramFieldData indexFieldData) {
+                this.indexFieldData = indexFieldData;
+            }
+
+            @Override
+            public Bits docsWithValue(LeafReaderContext context) throws IOException {
+                return DocValues.getDocsWithField(context.reader(), indexFieldData.getFieldName());
+            }
+
+            @Override
+            public HistogramValues histogramValues(LeafReaderContext context) {
+                return indexFieldData.load(context).getHistogramValues();
+            }
+        }
+    }
+
     public abstract static class GeoPoint extends ValuesSource {
 
         public static final GeoPoint EMPTY = new GeoPoint() {
@@ -285,10 +285,21 @@ public abstract class ValuesSourceAggregationBuilder<VS extends ValuesSource, AB
     protected final ValuesSourceAggregatorFactory<VS, ?> doBuild(SearchContext context, AggregatorFactory<?> parent,
             AggregatorFactories.Builder subFactoriesBuilder) throws IOException {
         ValuesSourceConfig<VS> config = resolveConfig(context);
+        if (config.valueSourceType() == ValuesSourceType.HISTOGRAM && supportsHistograms() == false) {
+            throw new IllegalArgumentException("field [" + field + "] of type [" + config.fieldContext().fieldType().typeName()
+                + "] is not supported by aggregation [" + name + "] of type [" + getType() + "]");
+        }
         ValuesSourceAggregatorFactory<VS, ?> factory = innerBuild(context, config, parent, subFactoriesBuilder);
         return factory;
     }
 
+    /**
+     * Whether the aggregation knows how to merge the pre-aggregated histograms of a {@link ValuesSource.Histogram}.
+     */
+    protected boolean supportsHistograms() {
+        return false;
+    }
+
     protected ValuesSourceConfig<VS> resolveConfig(SearchContext context) {
         ValueType valueType = this.valueType != null ? this.valueType : targetValueType;
         return ValuesSourceConfig.resolve(context.getQueryShardContext(),
@@ -18,16 +18,21 @@
  */
 package org.elasticsearch.search.aggregations.support;
 
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.geo.GeoUtils;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
+import org.elasticsearch.index.fielddata.IndexHistogramFieldData;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.plain.ParentChildIndexFieldData;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptContext;
@@ -37,6 +42,7 @@ import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.joda.time.DateTimeZone;
 
 import java.io.IOException;
+import java.util.function.Function;
 
 /**
  * A configuration that tells aggregations how to retrieve data from the index
@@ -97,7 +103,10 @@ public class ValuesSourceConfig<VS extends ValuesSource> {
         IndexFieldData<?> indexFieldData = context.getForField(fieldType);
 
         ValuesSourceConfig<VS> config;
-        if (valueType == null) {
+        if (indexFieldData instanceof IndexHistogramFieldData) {
+            // histograms can't be read as any other type of values
+            config = new ValuesSourceConfig<>(ValuesSourceType.HISTOGRAM);
+        } else if (valueType == null) {
             if (indexFieldData instanceof IndexNumericFieldData) {
                 config = new ValuesSourceConfig<>(ValuesSourceType.NUMERIC);
             } else if (indexFieldData instanceof IndexGeoPointFieldData) {
@@ -220,6 +229,28 @@ public class ValuesSourceConfig<VS extends ValuesSource> {
         return format;
     }
 
+    /**
+     * Returns a function that decodes the points indexed for the field of this configuration, or <code>null</code> if
+     * the values of the aggregation cannot be read from the points index: the field must be a numeric or date field
+     * indexed with points and the configuration must have no script and no missing value.
+     */
+    @Nullable
+    public Function<byte[], Number> getPointReaderOrNull() {
+        if (fieldContext == null || script != null || missing != null) {
+            return null;
+        }
+        MappedFieldType fieldType = fieldContext.fieldType();
+        if (fieldType == null || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+            return ((NumberFieldMapper.NumberFieldType) fieldType)::parsePoint;
+        } else if (fieldType.getClass() == DateFieldMapper.DateFieldType.class) {
+            return point -> LongPoint.decodeDimension(point, 0);
+        }
+        return null;
+    }
+
     /** Get a value source given its configuration. A return value of null indicates that
      *  no value source could be built. */
     @Nullable
@@ -258,6 +289,8 @@ public class ValuesSourceConfig<VS extends ValuesSource> {
             } else {
                 return (VS) MissingValues.replaceMissing((ValuesSource.Bytes) vs, missing);
             }
+        } else if (vs instanceof ValuesSource.Histogram) {
+            throw new IllegalArgumentException("missing is not supported on histogram field [" + fieldContext().field() + "]");
         } else if (vs instanceof ValuesSource.Numeric) {
             Number missing = format.parseDouble(missing().toString(), false, context::nowInMillis);
             return (VS) MissingValues.replaceMissing((ValuesSource.Numeric) vs, missing);
@@ -292,6 +325,9 @@ public class ValuesSourceConfig<VS extends ValuesSource> {
         if (valueSourceType() == ValuesSourceType.GEOPOINT) {
             return (VS) geoPointField();
         }
+        if (valueSourceType() == ValuesSourceType.HISTOGRAM) {
+            return (VS) histogramField();
+        }
         // falling back to bytes values
         return (VS) bytesField();
     }
@@ -343,4 +379,17 @@ public class ValuesSourceConfig<VS extends ValuesSource> {
 
         return new ValuesSource.GeoPoint.Fielddata((IndexGeoPointFieldData) fieldContext().indexFieldData());
     }
+
+    private ValuesSource.Histogram histogramField() throws IOException {
+
+        if (!(fieldContext().indexFieldData() instanceof IndexHistogramFieldData)) {
+            throw new IllegalArgumentException("Expected histogram type on field [" + fieldContext().field() +
+                    "], but got [" + fieldContext().fieldType().typeName() + "]");
+        }
+        if (script() != null) {
+            throw new IllegalArgumentException("scripts are not supported on histogram field [" + fieldContext().field() + "]");
+        }
+
+        return new ValuesSource.Histogram.Fielddata((IndexHistogramFieldData) fieldContext().indexFieldData());
+    }
 }
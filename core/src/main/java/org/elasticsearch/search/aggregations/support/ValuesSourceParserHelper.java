@@ -44,6 +44,15 @@ public final class ValuesSourceParserHelper {
         declareFields(objectParser, scriptable, formattable, timezoneAware, ValueType.NUMERIC);
     }
 
+    /**
+     * Declares the fields of aggregations that accept both numeric values and pre-aggregated histograms.
+     */
+    public static void declareNumericOrHistogramFields(
+            ObjectParser<? extends ValuesSourceAggregationBuilder<ValuesSource, ?>, QueryParseContext> objectParser,
+            boolean scriptable, boolean formattable, boolean timezoneAware) {
+        declareFields(objectParser, scriptable, formattable, timezoneAware, ValueType.NUMERIC);
+    }
+
     public static void declareBytesFields(
             ObjectParser<? extends ValuesSourceAggregationBuilder<ValuesSource.Bytes, ?>, QueryParseContext> objectParser,
             boolean scriptable, boolean formattable) {
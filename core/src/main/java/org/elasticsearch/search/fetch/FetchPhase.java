@@ -53,6 +53,7 @@ import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -132,15 +133,27 @@ public class FetchPhase implements SearchPhase {
             }
         }
 
+        // load the documents in doc id order so that stored fields are read sequentially, one segment after the other,
+        // and every compressed block of stored fields is decompressed at most once
+        DocIdToIndex[] docs = new DocIdToIndex[context.docIdsToLoadSize()];
+        for (int index = 0; index < docs.length; index++) {
+            docs[index] = new DocIdToIndex(context.docIdsToLoad()[context.docIdsToLoadFrom() + index], index);
+        }
+        Arrays.sort(docs);
+
         SearchHit[] hits = new SearchHit[context.docIdsToLoadSize()];
         FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
-        for (int index = 0; index < context.docIdsToLoadSize(); index++) {
+        List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        LeafReaderContext subReaderContext = null;
+        for (DocIdToIndex doc : docs) {
             if(context.isCancelled()) {
                 throw new TaskCancelledException("cancelled");
             }
-            int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
-            int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-            LeafReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
+            int docId = doc.docId;
+            if (subReaderContext == null || docId >= subReaderContext.docBase + subReaderContext.reader().maxDoc()) {
+                // doc ids are sorted so the leaf only changes once we moved past its last document
+                subReaderContext = leaves.get(ReaderUtil.subIndex(docId, leaves));
+            }
             int subDocId = docId - subReaderContext.docBase;
 
             final SearchHit searchHit;
@@ -155,7 +168,8 @@ public class FetchPhase implements SearchPhase {
                 throw ExceptionsHelper.convertToElastic(e);
             }
 
-            hits[index] = searchHit;
+            // restore the order of the hits as ranked by the query phase
+            hits[doc.index] = searchHit;
             hitContext.reset(searchHit, subReaderContext, subDocId, context.searcher());
             for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
                 fetchSubPhase.hitExecute(context, hitContext);
@@ -169,6 +183,24 @@ public class FetchPhase implements SearchPhase {
         context.fetchResult().hits(new SearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
     }
 
+    /**
+     * A doc id to load along with the position of its hit in the response.
+     */
+    static final class DocIdToIndex implements Comparable<DocIdToIndex> {
+        final int docId;
+        final int index;
+
+        DocIdToIndex(int docId, int index) {
+            this.docId = docId;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(DocIdToIndex other) {
+            return Integer.compare(docId, other.docId);
+        }
+    }
+
     private int findRootDocumentIfNested(SearchContext context, LeafReaderContext subReaderContext, int subDocId) throws IOException {
         if (context.mapperService().hasNested()) {
             BitSet bits = context.bitsetFilterCache().getBitSetProducer(Queries.newNonNestedFilter()).getBitSet(subReaderContext);
@@ -20,9 +20,11 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -30,6 +32,9 @@ import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
@@ -39,12 +44,23 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
  */
 public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
+    /** Concurrent searches close a slice of leaves once it reaches this number of documents */
+    static final int MAX_DOCS_PER_SLICE = 250_000;
+
+    /** Concurrent searches never group more than this number of leaves into a single slice */
+    static final int MAX_SEGMENTS_PER_SLICE = 5;
+
     /** The wrapped {@link IndexSearcher}. The reason why we sometimes prefer delegating to this searcher instead of <tt>super</tt> is that
      *  this instance may have more assertions, for example if it comes from MockInternalEngine which wraps the IndexSearcher into an
      *  AssertingIndexSearcher. */
@@ -57,16 +73,119 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     // TODO revisit moving the profiler to inheritance or wrapping model in the future
     private QueryProfiler profiler;
 
+    /** The executor that searches the slices concurrently or <code>null</code> if the leaves are searched sequentially */
+    private final ExecutorService executor;
+
+    /** The groups of leaves that are searched concurrently, <code>null</code> if there is no executor */
+    private final List<List<LeafReaderContext>> slices;
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
+        this(searcher, queryCache, queryCachingPolicy, null);
+    }
+
+    public ContextIndexSearcher(Engine.Searcher searcher, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                @Nullable ExecutorService executor) {
+        // the executor is not handed to the super class so that only the slices of the query phase are searched concurrently
         super(searcher.reader());
         in = searcher.searcher();
         engineSearcher = searcher;
+        this.executor = executor;
+        this.slices = executor == null ? null : groupLeaves(leafContexts, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
         setSimilarity(searcher.searcher().getSimilarity(true));
         setQueryCache(queryCache);
         setQueryCachingPolicy(queryCachingPolicy);
     }
 
+    /**
+     * Groups consecutive leaves into slices that hold at most <code>maxSegmentsPerSlice</code> segments and are closed once
+     * they reach <code>maxDocsPerSlice</code> documents. Slices keep the order of the leaves so that ties on the sort values
+     * are still broken by doc id when the top docs of the slices are merged.
+     */
+    static List<List<LeafReaderContext>> groupLeaves(List<LeafReaderContext> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        final List<List<LeafReaderContext>> groups = new ArrayList<>();
+        List<LeafReaderContext> group = new ArrayList<>();
+        long numDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            group.add(leaf);
+            numDocs += leaf.reader().maxDoc();
+            if (numDocs >= maxDocsPerSlice || group.size() >= maxSegmentsPerSlice) {
+                groups.add(group);
+                group = new ArrayList<>();
+                numDocs = 0;
+            }
+        }
+        if (group.isEmpty() == false) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the number of slices that {@link #search(Query, List)} expects collectors for. This is <code>1</code> if the
+     * searcher doesn't search concurrently.
+     */
+    public int getSliceCount() {
+        return slices == null ? 1 : slices.size();
+    }
+
+    /**
+     * Searches each slice with its own collector on the executor of this searcher. Unlike
+     * {@link IndexSearcher#search(Query, org.apache.lucene.search.CollectorManager)} this waits for all slices to complete
+     * before the first failure is rethrown so that the collectors can safely be read afterwards, for instance to return
+     * partial results on timeout.
+     */
+    public void search(Query query, List<? extends Collector> collectors) throws IOException {
+        if (slices == null) {
+            assert collectors.size() == 1 : "expected a single collector but got " + collectors.size();
+            search(query, collectors.get(0));
+            return;
+        }
+        assert collectors.size() == slices.size() : "expected " + slices.size() + " collectors but got " + collectors.size();
+        boolean needsScores = false;
+        for (Collector collector : collectors) {
+            needsScores |= collector.needsScores();
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+        final List<Future<?>> futures = new ArrayList<>(slices.size());
+        Exception failure = null;
+        try {
+            for (int i = 0; i < slices.size(); i++) {
+                final List<LeafReaderContext> leaves = slices.get(i);
+                final Collector collector = collectors.get(i);
+                futures.add(executor.submit(() -> {
+                    search(leaves, weight, collector);
+                    return null;
+                }));
+            }
+        } catch (Exception e) {
+            // the slices that were submitted already need to complete before we can fail
+            failure = e;
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = ExceptionsHelper.useOrSuppress(failure, e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                failure = ExceptionsHelper.useOrSuppress(failure, (Exception) cause);
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new ElasticsearchException(failure);
+        }
+    }
+
     @Override
     public void close() {
     }
@@ -64,6 +64,7 @@ public class SubSearchContext extends FilteredSearchContext {
 
     private boolean explain;
     private boolean trackScores;
+    private boolean trackTotalHits = true;
     private boolean version;
 
     public SubSearchContext(SearchContext context) {
@@ -216,6 +217,17 @@ public class SubSearchContext extends FilteredSearchContext {
         return trackScores;
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return trackTotalHits;
+    }
+
     @Override
     public SearchContext parsedPostFilter(ParsedQuery postFilter) {
         throw new UnsupportedOperationException("Not supported");
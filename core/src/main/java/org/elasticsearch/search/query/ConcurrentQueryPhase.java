@@ -0,0 +1,262 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.EarlyTerminatingSortingCollector;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TimeLimitingCollector;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.MinimumScoreCollector;
+import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.rescore.RescoreSearchContext;
+import org.elasticsearch.search.sort.SortAndFormats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes the main query of a shard by searching the slices of its segments concurrently with a dedicated set of collectors
+ * per slice. The top docs and hit counts of the slices are merged once all slices completed while the aggregations of the
+ * slices are reduced and pruned in the {@link AggregationPhase}.
+ */
+final class ConcurrentQueryPhase {
+
+    private ConcurrentQueryPhase() {}
+
+    /**
+     * Returns <code>true</code> if the request can be executed concurrently on the given searcher. Features that rely on
+     * collecting the whole shard in doc id order, like scrolling, collapsing, <code>terminate_after</code> or profiling, are
+     * always executed sequentially.
+     */
+    static boolean canExecuteConcurrently(SearchContext searchContext, IndexSearcher searcher) {
+        if (searcher instanceof ContextIndexSearcher == false || ((ContextIndexSearcher) searcher).getSliceCount() <= 1) {
+            return false;
+        }
+        if (searchContext.getProfilers() != null
+            || searchContext.scrollContext() != null
+            || searchContext.collapse() != null
+            || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return false;
+        }
+        if (searchContext.size() == 0 && searchContext.queryCollectors().isEmpty()) {
+            // counts can be optimized to run in constant time in the sequential execution
+            return false;
+        }
+        for (Class<?> key : searchContext.queryCollectors().keySet()) {
+            if (key != AggregationPhase.class) {
+                // other collectors don't know how to collect slices independently
+                return false;
+            }
+        }
+        return searchContext.aggregations() == null || searchContext.aggregations().factories().supportsConcurrentSearch();
+    }
+
+    /**
+     * Executes the query of the given context concurrently on the slices of the searcher.
+     * @return whether the rescoring phase should be executed
+     */
+    static boolean execute(SearchContext searchContext, ContextIndexSearcher searcher) throws QueryPhaseExecutionException {
+        QuerySearchResult queryResult = searchContext.queryResult();
+        queryResult.searchTimedOut(false);
+        boolean rescore = false;
+        try {
+            queryResult.from(searchContext.from());
+            queryResult.size(searchContext.size());
+
+            final Query query = searchContext.query();
+            final int totalNumDocs = searcher.getIndexReader().numDocs();
+            int numDocs = Math.min(searchContext.from() + searchContext.size(), totalNumDocs);
+            if (totalNumDocs == 0) {
+                // top collectors don't like a size of 0
+                numDocs = 1;
+            }
+            final SortAndFormats sort = searchContext.sort();
+            DocValueFormat[] sortValueFormats = new DocValueFormat[0];
+            if (searchContext.size() > 0) {
+                if (sort != null) {
+                    sortValueFormats = sort.formats;
+                } else {
+                    rescore = !searchContext.rescore().isEmpty();
+                    for (RescoreSearchContext rescoreContext : searchContext.rescore()) {
+                        numDocs = Math.max(rescoreContext.window(), numDocs);
+                    }
+                }
+            }
+            final FieldDoc after = searchContext.searchAfter();
+            final Sort indexSort = searchContext.size() > 0 && after == null && QueryPhase.canEarlyTerminate(searchContext)
+                ? QueryPhase.getIndexSort(searcher.getIndexReader()) : null;
+            final Weight postFilterWeight = searchContext.parsedPostFilter() == null ? null
+                : searcher.createNormalizedWeight(searchContext.parsedPostFilter().query(), false);
+
+            final int sliceCount = searcher.getSliceCount();
+            final List<SliceCollector> sliceCollectors = new ArrayList<>(sliceCount);
+            final List<Collector> collectors = new ArrayList<>(sliceCount);
+            if (searchContext.aggregations() != null) {
+                // every slice collects its own unpruned aggregators, the main aggregators only collect the global aggregations
+                searchContext.aggregations().collectsSlices(true);
+            }
+            try {
+                for (int i = 0; i < sliceCount; i++) {
+                    final SliceCollector sliceCollector = new SliceCollector(searchContext, numDocs, after, indexSort);
+                    sliceCollectors.add(sliceCollector);
+                    collectors.add(wrapSliceCollector(searchContext, sliceCollector, postFilterWeight));
+                }
+                searcher.search(query, collectors);
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                queryResult.searchTimedOut(true);
+            } finally {
+                if (searchContext.aggregations() != null) {
+                    searchContext.aggregations().collectsSlices(false);
+                }
+                searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+            }
+
+            queryResult.topDocs(mergeTopDocs(searchContext, sliceCollectors, numDocs), sortValueFormats);
+            if (indexSort != null) {
+                for (SliceCollector sliceCollector : sliceCollectors) {
+                    if (sliceCollector.earlyTerminatingCollector.terminatedEarly()) {
+                        queryResult.terminatedEarly(true);
+                        break;
+                    }
+                }
+            }
+            return rescore;
+        } catch (Exception e) {
+            throw new QueryPhaseExecutionException(searchContext, "Failed to execute main query", e);
+        }
+    }
+
+    private static Collector wrapSliceCollector(SearchContext searchContext, SliceCollector sliceCollector, Weight postFilterWeight) {
+        Collector collector = sliceCollector.topDocsCollector;
+        if (postFilterWeight != null) {
+            collector = new FilteredCollector(collector, postFilterWeight);
+        }
+        if (searchContext.aggregations() != null) {
+            final Collector aggsCollector = AggregationPhase.createSliceCollector(searchContext);
+            if (aggsCollector != null) {
+                collector = MultiCollector.wrap(collector, aggsCollector);
+            }
+        }
+        // apply the minimum score after multi collector so we filter aggs as well
+        if (searchContext.minimumScore() != null) {
+            collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+        }
+        if (searchContext.timeout() != null && !searchContext.timeout().equals(SearchService.NO_TIMEOUT)) {
+            collector = Lucene.wrapTimeLimitingCollector(collector, searchContext.timeEstimateCounter(),
+                searchContext.timeout().millis());
+        }
+        return new CancellableCollector(searchContext.getTask()::isCancelled, searchContext.lowLevelCancellation(), collector);
+    }
+
+    private static TopDocs mergeTopDocs(SearchContext searchContext, List<SliceCollector> sliceCollectors, int numDocs) {
+        int totalHits = 0;
+        for (SliceCollector sliceCollector : sliceCollectors) {
+            if (sliceCollector.totalHitCountCollector != null) {
+                totalHits += sliceCollector.totalHitCountCollector.getTotalHits();
+            }
+        }
+        if (searchContext.size() == 0) {
+            return new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0);
+        }
+        final TopDocs topDocs;
+        if (searchContext.sort() != null) {
+            final TopFieldDocs[] shardTopDocs = new TopFieldDocs[sliceCollectors.size()];
+            for (int i = 0; i < shardTopDocs.length; i++) {
+                shardTopDocs[i] = (TopFieldDocs) ((TopDocsCollector<?>) sliceCollectors.get(i).topDocs).topDocs();
+            }
+            topDocs = TopDocs.merge(searchContext.sort().sort, numDocs, shardTopDocs);
+        } else {
+            final TopDocs[] shardTopDocs = new TopDocs[sliceCollectors.size()];
+            for (int i = 0; i < shardTopDocs.length; i++) {
+                shardTopDocs[i] = ((TopDocsCollector<?>) sliceCollectors.get(i).topDocs).topDocs();
+            }
+            topDocs = TopDocs.merge(numDocs, shardTopDocs);
+        }
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            // merging sets the index of the slice, reset it like the sequential execution does
+            scoreDoc.shardIndex = -1;
+        }
+        if (sliceCollectors.get(0).totalHitCountCollector != null) {
+            // the slices were terminated early so the top docs only count the collected documents
+            topDocs.totalHits = totalHits;
+        }
+        return topDocs;
+    }
+
+    /**
+     * The collectors that compute the top docs and the hit count of a single slice.
+     */
+    private static final class SliceCollector {
+
+        final Collector topDocs;
+        final Collector topDocsCollector;
+        final EarlyTerminatingSortingCollector earlyTerminatingCollector;
+        final TotalHitCountCollector totalHitCountCollector;
+
+        SliceCollector(SearchContext searchContext, int numDocs, FieldDoc after, Sort indexSort) {
+            if (searchContext.size() == 0) {
+                totalHitCountCollector = new TotalHitCountCollector();
+                topDocs = totalHitCountCollector;
+                topDocsCollector = totalHitCountCollector;
+                earlyTerminatingCollector = null;
+                return;
+            }
+            if (searchContext.sort() != null) {
+                topDocs = TopFieldCollector.create(searchContext.sort().sort, numDocs, after, true, searchContext.trackScores(),
+                    searchContext.trackScores());
+            } else {
+                topDocs = TopScoreDocCollector.create(numDocs, after);
+            }
+            if (indexSort != null) {
+                // the request sort is a prefix of the index sort so the top hits of each segment are its first documents
+                earlyTerminatingCollector = new EarlyTerminatingSortingCollector(topDocs, indexSort, numDocs);
+                if (searchContext.trackTotalHits()) {
+                    totalHitCountCollector = new TotalHitCountCollector();
+                    topDocsCollector = MultiCollector.wrap(earlyTerminatingCollector, totalHitCountCollector);
+                } else {
+                    totalHitCountCollector = null;
+                    topDocsCollector = earlyTerminatingCollector;
+                }
+            } else {
+                earlyTerminatingCollector = null;
+                totalHitCountCollector = null;
+                topDocsCollector = topDocs;
+            }
+        }
+    }
+}
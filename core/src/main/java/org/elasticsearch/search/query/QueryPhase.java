@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.query;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.MinDocQuery;
@@ -26,6 +27,7 @@ import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.EarlyTerminatingSortingCollector;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -47,11 +49,13 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.search.collapse.CollapseContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.ProfileShardResult;
@@ -132,12 +136,40 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns <code>true</code> if the sort of the request is a prefix of the index sort, in which case the top hits
+     * of each segment are the first documents that match the query.
+     */
+    static boolean canEarlyTerminate(SearchContext searchContext) {
+        if (searchContext.sort() == null || searchContext.request().source() == null) {
+            return false;
+        }
+        final IndexSettings indexSettings = searchContext.getQueryShardContext().getIndexSettings();
+        return indexSettings.getIndexSortConfig().isPrefixOfIndexSort(searchContext.request().source().sorts());
+    }
+
+    /**
+     * Returns the sort of the segments of the given reader or <code>null</code> if no segment is sorted.
+     */
+    static Sort getIndexSort(IndexReader reader) {
+        for (LeafReaderContext context : reader.leaves()) {
+            final Sort indexSort = context.reader().getIndexSort();
+            if (indexSort != null) {
+                return indexSort;
+            }
+        }
+        return null;
+    }
+
     /**
      * In a package-private method so that it can be tested without having to
      * wire everything (mapperService, etc.)
      * @return whether the rescoring phase should be executed
      */
     static boolean execute(SearchContext searchContext, final IndexSearcher searcher) throws QueryPhaseExecutionException {
+        if (ConcurrentQueryPhase.canExecuteConcurrently(searchContext, searcher)) {
+            return ConcurrentQueryPhase.execute(searchContext, (ContextIndexSearcher) searcher);
+        }
         QuerySearchResult queryResult = searchContext.queryResult();
         queryResult.searchTimedOut(false);
 
@@ -235,6 +267,25 @@ public class QueryPhase implements SearchPhase {
                     }
                 }
                 collector = topDocsCollector;
+                final EarlyTerminatingSortingCollector earlyTerminatingCollector;
+                final TotalHitCountCollector totalHitCountCollector;
+                final Sort indexSort = after == null && scrollContext == null && searchContext.collapse() == null
+                    && canEarlyTerminate(searchContext) ? getIndexSort(searcher.getIndexReader()) : null;
+                if (indexSort != null) {
+                    // the request sort is a prefix of the index sort so the top hits of each segment are its first documents
+                    earlyTerminatingCollector = new EarlyTerminatingSortingCollector(collector, indexSort, numDocs);
+                    collector = earlyTerminatingCollector;
+                    if (searchContext.trackTotalHits()) {
+                        // the top docs collector stops early on each segment but we still need to count all matches
+                        totalHitCountCollector = new TotalHitCountCollector();
+                        collector = MultiCollector.wrap(collector, totalHitCountCollector);
+                    } else {
+                        totalHitCountCollector = null;
+                    }
+                } else {
+                    earlyTerminatingCollector = null;
+                    totalHitCountCollector = null;
+                }
                 if (doProfile) {
                     collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TOP_HITS, Collections.emptyList());
                 }
@@ -249,6 +300,14 @@ public class QueryPhase implements SearchPhase {
                         } else {
                             throw new IllegalStateException("Unknown top docs collector " + topDocsCollector.getClass().getName());
                         }
+                        if (earlyTerminatingCollector != null) {
+                            if (earlyTerminatingCollector.terminatedEarly()) {
+                                queryResult.terminatedEarly(true);
+                            }
+                            if (totalHitCountCollector != null) {
+                                topDocs.totalHits = totalHitCountCollector.getTotalHits();
+                            }
+                        }
                         if (scrollContext != null) {
                             if (scrollContext.totalHits == -1) {
                                 // first round
@@ -167,6 +167,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
     // connections while no connect operations is going on... (this might help with 100% CPU when stopping the transport?)
     protected final ReadWriteLock globalLock = new ReentrantReadWriteLock();
     protected final boolean compress;
+    private final Compressor compressor;
     protected volatile BoundTransportAddress boundAddress;
     private final String transportName;
     protected final ConnectionProfile defaultConnectionProfile;
@@ -175,6 +176,8 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
     private final AtomicLong requestIdGenerator = new AtomicLong();
     private final CounterMetric numHandshakes = new CounterMetric();
     private static final String HANDSHAKE_ACTION_NAME = "internal:tcp/handshake";
+    // the first version that can decompress messages compressed with lz4
+    static final Version LZ4_COMPRESSION_VERSION = Version.V_6_0_0_alpha1_UNRELEASED;
 
     public TcpTransport(String transportName, Settings settings, ThreadPool threadPool, BigArrays bigArrays,
                         CircuitBreakerService circuitBreakerService, NamedWriteableRegistry namedWriteableRegistry,
@@ -187,6 +190,8 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         this.pingSchedule = PING_SCHEDULE.get(settings);
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.compress = Transport.TRANSPORT_TCP_COMPRESS.get(settings);
+        this.compressor = "lz4".equals(Transport.TRANSPORT_TCP_COMPRESSION_SCHEME.get(settings)) ? CompressorFactory.LZ4
+            : CompressorFactory.COMPRESSOR;
         this.networkService = networkService;
         this.transportName = transportName;
         defaultConnectionProfile = buildDefaultConnectionProfile(settings);
@@ -997,6 +1002,17 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         return compress && (!(request instanceof BytesTransportRequest));
     }
 
+    /**
+     * Returns the compressor for messages that are serialized with the given version. The receiving node detects the compressor
+     * from the message, so <code>lz4</code> is used as soon as the node on the other end of the channel supports it.
+     */
+    private Compressor compressor(Version version) {
+        if (compressor == CompressorFactory.LZ4 && version.before(LZ4_COMPRESSION_VERSION)) {
+            return CompressorFactory.COMPRESSOR;
+        }
+        return compressor;
+    }
+
     private void sendRequestToChannel(DiscoveryNode node, final Channel targetChannel, final long requestId, final String action,
                                         final TransportRequest request, TransportRequestOptions options, Version channelVersion,
                                       byte status) throws IOException,
@@ -1012,18 +1028,18 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         boolean addedReleaseListener = false;
         StreamOutput stream = bStream;
         try {
+            // we pick the smallest of the 2, to support both backward and forward compatibility
+            // note, this is the only place we need to do this, since from here on, we use the serialized version
+            // as the version to use also when the node receiving this request will send the response with
+            Version version = Version.min(getCurrentVersion(), channelVersion);
+
             // only compress if asked, and, the request is not bytes, since then only
             // the header part is compressed, and the "body" can't be extracted as compressed
             if (options.compress() && canCompress(request)) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.COMPRESSOR.streamOutput(stream);
+                stream = compressor(version).streamOutput(stream);
             }
 
-            // we pick the smallest of the 2, to support both backward and forward compatibility
-            // note, this is the only place we need to do this, since from here on, we use the serialized version
-            // as the version to use also when the node receiving this request will send the response with
-            Version version = Version.min(getCurrentVersion(), channelVersion);
-
             stream.setVersion(version);
             threadPool.getThreadContext().writeTo(stream);
             stream.writeString(action);
@@ -1115,7 +1131,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         try {
             if (options.compress()) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.COMPRESSOR.streamOutput(stream);
+                stream = compressor(nodeVersion).streamOutput(stream);
             }
             threadPool.getThreadContext().writeTo(stream);
             stream.setVersion(nodeVersion);
@@ -40,6 +40,20 @@ public interface Transport extends LifecycleComponent {
 
     Setting<Boolean> TRANSPORT_TCP_COMPRESS = Setting.boolSetting("transport.tcp.compress", false, Property.NodeScope);
 
+    /**
+     * The algorithm that compresses messages, either <code>deflate</code> or the faster <code>lz4</code>. Messages to nodes
+     * that don't support <code>lz4</code> yet are compressed with <code>deflate</code>.
+     */
+    Setting<String> TRANSPORT_TCP_COMPRESSION_SCHEME = new Setting<>("transport.tcp.compression_scheme", "deflate", s -> {
+        switch (s) {
+            case "deflate":
+            case "lz4":
+                return s;
+            default:
+                throw new IllegalArgumentException("unknown compression scheme [" + s + "], must be one of [deflate, lz4]");
+        }
+    }, Property.NodeScope);
+
     void transportServiceAdapter(TransportServiceAdapter service);
 
     /**
@@ -63,6 +63,38 @@ public class BulkRequestTests extends ESTestCase {
         assertThat(((IndexRequest) bulkRequest.requests().get(2)).source(), equalTo(new BytesArray("{ \"field1\" : \"value3\" }")));
     }
 
+    public void testAddCompleteItems() throws Exception {
+        final String index = "{ \"index\":{\"_index\":\"test\",\"_type\":\"type1\",\"_id\":\"1\"} }\n";
+        final String source = "{ \"field1\" : \"value1\" }\n";
+        final String delete = "{ \"delete\" : { \"_index\" : \"test\", \"_type\" : \"type1\", \"_id\" : \"2\" } }\n";
+        final String bulkAction = index + source + delete + index + source;
+        final byte[] bytes = bulkAction.getBytes(StandardCharsets.UTF_8);
+
+        // feed the body in random chunks, passing the bytes that were not consumed again with the next chunk
+        final BulkRequest bulkRequest = new BulkRequest();
+        int from = 0;
+        int to = 0;
+        while (to < bytes.length) {
+            to = randomIntBetween(to + 1, bytes.length);
+            final int consumed = bulkRequest.addCompleteItems(new BytesArray(bytes, from, to - from), null, null, null, null, null,
+                null, null, true, XContentType.JSON);
+            from += consumed;
+            // only whole items are consumed
+            final String consumedSoFar = bulkAction.substring(0, from);
+            assertTrue(consumedSoFar, consumedSoFar.isEmpty() || consumedSoFar.endsWith(source) || consumedSoFar.endsWith(delete));
+        }
+        assertEquals(bytes.length, from);
+        assertThat(bulkRequest.numberOfActions(), equalTo(3));
+        assertThat(bulkRequest.requests().get(0), instanceOf(IndexRequest.class));
+        assertThat(bulkRequest.requests().get(1), instanceOf(DeleteRequest.class));
+        assertThat(bulkRequest.requests().get(2), instanceOf(IndexRequest.class));
+        assertEquals("{ \"field1\" : \"value1\" }", ((IndexRequest) bulkRequest.requests().get(2)).source().utf8ToString());
+
+        // an action line without its source is not consumed
+        assertEquals(0, new BulkRequest().addCompleteItems(new BytesArray(index + "{ \"field1\""), null, null, null, null, null,
+            null, null, true, XContentType.JSON));
+    }
+
     public void testSimpleBulkWithCarriageReturn() throws Exception {
         String bulkAction = "{ \"index\":{\"_index\":\"test\",\"_type\":\"type1\",\"_id\":\"1\"} }\r\n{ \"field1\" : \"value1\" }\r\n";
         BulkRequest bulkRequest = new BulkRequest();
@@ -0,0 +1,200 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.PlainShardIterator;
+import org.elasticsearch.cluster.routing.RecoverySource;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.UnassignedInfo;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportException;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
+
+    public void testFilterShards() throws InterruptedException {
+        final DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        final DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        final boolean shard1 = randomBoolean();
+        final boolean shard2 = randomBoolean();
+
+        SearchTransportService searchTransportService = new SearchTransportService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, Collections.singleton(RemoteClusterService.REMOTE_CLUSTERS_SEEDS)), null) {
+            @Override
+            public void sendCanMatch(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                                     ActionListener<CanMatchResponse> listener) {
+                new Thread(() -> listener.onResponse(new CanMatchResponse(request.shardId().id() == 0 ? shard1 : shard2))).start();
+            }
+        };
+
+        AtomicReference<GroupShardsIterator> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator shardsIter = getShardsIter("idx", 2, randomBoolean(), primaryNode, replicaNode);
+        CanMatchPreFilterSearchPhase canMatchPhase = newCanMatchPhase(searchTransportService, shardsIter, primaryNode, replicaNode,
+            result, latch);
+
+        canMatchPhase.start();
+        latch.await();
+
+        if (shard1 && shard2) {
+            assertEquals(2, result.get().size());
+        } else if (shard1 == false && shard2 == false) {
+            // we always keep one shard to produce a valid (empty) search response
+            assertEquals(1, result.get().size());
+            assertEquals(0, result.get().iterator().next().shardId().id());
+        } else {
+            assertEquals(1, result.get().size());
+            assertEquals(shard1 ? 0 : 1, result.get().iterator().next().shardId().id());
+        }
+    }
+
+    public void testFilterWithFailure() throws InterruptedException {
+        final DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        final DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        final boolean shard1 = randomBoolean();
+
+        SearchTransportService searchTransportService = new SearchTransportService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, Collections.singleton(RemoteClusterService.REMOTE_CLUSTERS_SEEDS)), null) {
+            @Override
+            public void sendCanMatch(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                                     ActionListener<CanMatchResponse> listener) {
+                boolean throwException = request.shardId().id() != 0;
+                if (throwException && randomBoolean()) {
+                    throw new IllegalArgumentException("boom");
+                } else {
+                    new Thread(() -> {
+                        if (throwException == false) {
+                            listener.onResponse(new CanMatchResponse(shard1));
+                        } else {
+                            listener.onFailure(new NullPointerException());
+                        }
+                    }).start();
+                }
+            }
+        };
+
+        AtomicReference<GroupShardsIterator> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator shardsIter = getShardsIter("idx", 2, false, primaryNode, replicaNode);
+        CanMatchPreFilterSearchPhase canMatchPhase = newCanMatchPhase(searchTransportService, shardsIter, primaryNode, replicaNode,
+            result, latch);
+
+        canMatchPhase.start();
+        latch.await();
+
+        // a failed shard is always passed on to the next phase which is responsible for retrying and reporting it
+        List<Integer> shardIds = new ArrayList<>();
+        for (ShardIterator iterator : result.get()) {
+            shardIds.add(iterator.shardId().id());
+            assertEquals(1, iterator.remaining());
+        }
+        if (shard1) {
+            assertEquals(Arrays.asList(0, 1), shardIds);
+        } else {
+            assertEquals(Collections.singletonList(1), shardIds);
+        }
+    }
+
+    private CanMatchPreFilterSearchPhase newCanMatchPhase(SearchTransportService searchTransportService, GroupShardsIterator shardsIter,
+                                                          DiscoveryNode primaryNode, DiscoveryNode replicaNode,
+                                                          AtomicReference<GroupShardsIterator> result, CountDownLatch latch) {
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(primaryNode.getId(), new MockConnection(primaryNode));
+        lookup.put(replicaNode.getId(), new MockConnection(replicaNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        return new CanMatchPreFilterSearchPhase(logger, searchTransportService, lookup::get, aliasFilters, Collections.emptyMap(),
+            Runnable::run, new SearchRequest(), null, shardsIter, 0, 0, null,
+            (iter) -> new SearchPhase("test") {
+                @Override
+                public void run() throws IOException {
+                    result.set(iter);
+                    latch.countDown();
+                }
+            });
+    }
+
+    private static GroupShardsIterator getShardsIter(String index, int numShards, boolean doReplicas, DiscoveryNode primaryNode,
+                                                     DiscoveryNode replicaNode) {
+        ArrayList<ShardIterator> list = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            ArrayList<ShardRouting> started = new ArrayList<>();
+            ShardRouting routing = ShardRouting.newUnassigned(new ShardId(new Index(index, "_na_"), i), true,
+                RecoverySource.StoreRecoverySource.EMPTY_STORE_INSTANCE, new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "foobar"));
+            routing = routing.initialize(primaryNode.getId(), i + "p", 0);
+            started.add(routing.moveToStarted());
+            if (doReplicas) {
+                routing = ShardRouting.newUnassigned(new ShardId(new Index(index, "_na_"), i), false,
+                    RecoverySource.PeerRecoverySource.INSTANCE, new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "foobar"));
+                routing = routing.initialize(replicaNode.getId(), i + "r", 0);
+                started.add(routing.moveToStarted());
+            }
+            list.add(new PlainShardIterator(new ShardId(new Index(index, "_na_"), i), started));
+        }
+        return new GroupShardsIterator(list);
+    }
+
+    private static final class MockConnection implements Transport.Connection {
+
+        private final DiscoveryNode node;
+
+        MockConnection(DiscoveryNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public DiscoveryNode getNode() {
+            return node;
+        }
+
+        @Override
+        public void sendRequest(long requestId, String action, TransportRequest request, TransportRequestOptions options)
+            throws IOException, TransportException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
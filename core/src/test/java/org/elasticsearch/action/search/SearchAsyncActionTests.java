@@ -51,13 +51,18 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
 public class SearchAsyncActionTests extends ESTestCase {
 
     public void testFanOutAndCollect() throws InterruptedException {
         SearchRequest request = new SearchRequest();
+        request.setMaxConcurrentShardRequests(randomIntBetween(1, 100));
         CountDownLatch latch = new CountDownLatch(1);
         AtomicReference<TestSearchResponse> response = new AtomicReference<>();
         ActionListener<SearchResponse> responseListener = new ActionListener<SearchResponse>() {
@@ -92,8 +97,9 @@ public class SearchAsyncActionTests extends ESTestCase {
         lookup.put(primaryNode.getId(), new MockConnection(primaryNode));
         lookup.put(replicaNode.getId(), new MockConnection(replicaNode));
         Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, Runtime.getRuntime().availableProcessors()));
         AbstractSearchAsyncAction asyncAction = new AbstractSearchAsyncAction<TestSearchPhaseResult>("test", logger, transportService,
-            lookup::get, aliasFilters, Collections.emptyMap(), null, request, responseListener, shardsIter, 0, 0, null,
+            lookup::get, aliasFilters, Collections.emptyMap(), executor, request, responseListener, shardsIter, 0, 0, 0, null,
             new InitialSearchPhase.SearchPhaseResults<>(shardsIter.size())) {
             TestSearchResponse response = new TestSearchResponse();
 
@@ -139,6 +145,84 @@ public class SearchAsyncActionTests extends ESTestCase {
         } else {
             assertTrue(nodeToContextMap.get(replicaNode).toString(), nodeToContextMap.get(replicaNode).isEmpty());
         }
+        executor.shutdown();
+    }
+
+    public void testLimitConcurrentShardRequests() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        final int maxConcurrentShardRequests = randomIntBetween(1, 5);
+        request.setMaxConcurrentShardRequests(maxConcurrentShardRequests);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<TestSearchResponse> response = new AtomicReference<>();
+        ActionListener<SearchResponse> responseListener = new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+                response.set((TestSearchResponse) searchResponse);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                logger.warn("test failed", e);
+                fail(e.getMessage());
+            }
+        };
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+
+        GroupShardsIterator shardsIter = getShardsIter("idx", randomIntBetween(maxConcurrentShardRequests + 1, 20), randomBoolean(),
+            primaryNode, replicaNode);
+        SearchTransportService transportService = new SearchTransportService(Settings.EMPTY, new ClusterSettings(Settings.EMPTY,
+            Collections.singleton(RemoteClusterService.REMOTE_CLUSTERS_SEEDS)), null);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(primaryNode.getId(), new MockConnection(primaryNode));
+        lookup.put(replicaNode.getId(), new MockConnection(replicaNode));
+        Map<String, AtomicInteger> inFlightPerNode = new HashMap<>();
+        inFlightPerNode.put(primaryNode.getId(), new AtomicInteger());
+        inFlightPerNode.put(replicaNode.getId(), new AtomicInteger());
+        AtomicInteger numRequests = new AtomicInteger();
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, Runtime.getRuntime().availableProcessors()));
+        AbstractSearchAsyncAction asyncAction = new AbstractSearchAsyncAction<TestSearchPhaseResult>("test", logger, transportService,
+            lookup::get, aliasFilters, Collections.emptyMap(), executor, request, responseListener, shardsIter, 0, 0, 0, null,
+            new InitialSearchPhase.SearchPhaseResults<>(shardsIter.size())) {
+            TestSearchResponse response = new TestSearchResponse();
+
+            @Override
+            protected void executePhaseOnShard(ShardIterator shardIt, ShardRouting shard, ActionListener<TestSearchPhaseResult> listener) {
+                assertTrue("shard: " + shard.shardId() + " has been queried twice", response.queried.add(shard.shardId()));
+                numRequests.incrementAndGet();
+                AtomicInteger inFlight = inFlightPerNode.get(shard.currentNodeId());
+                assertThat(inFlight.incrementAndGet(), lessThanOrEqualTo(maxConcurrentShardRequests));
+                Transport.Connection connection = getConnection(shard.currentNodeId());
+                TestSearchPhaseResult testSearchPhaseResult = new TestSearchPhaseResult(numRequests.get(), connection.getNode());
+                if (randomBoolean()) {
+                    inFlight.decrementAndGet();
+                    listener.onResponse(testSearchPhaseResult);
+                } else {
+                    new Thread(() -> {
+                        inFlight.decrementAndGet();
+                        listener.onResponse(testSearchPhaseResult);
+                    }).start();
+                }
+            }
+
+            @Override
+            protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                return new SearchPhase("test") {
+                    @Override
+                    public void run() throws IOException {
+                        responseListener.onResponse(response);
+                        latch.countDown();
+                    }
+                };
+            }
+        };
+        asyncAction.start();
+        latch.await();
+        assertNotNull(response.get());
+        assertEquals(shardsIter.size(), numRequests.get());
+        assertEquals(shardsIter.size(), response.get().queried.size());
+        executor.shutdown();
     }
 
     private GroupShardsIterator getShardsIter(String index, int numShards, boolean doReplicas, DiscoveryNode primaryNode,
@@ -21,12 +21,17 @@ package org.elasticsearch.action.search;
 
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
-import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
@@ -55,8 +60,11 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 
 public class SearchPhaseControllerTests extends ESTestCase {
@@ -120,7 +128,7 @@ public class SearchPhaseControllerTests extends ESTestCase {
         }
         ScoreDoc[] sortedDocs = mergedScoreDocs.toArray(new ScoreDoc[mergedScoreDocs.size()]);
         InternalSearchResponse mergedResponse = searchPhaseController.merge(true, sortedDocs,
-            searchPhaseController.reducedQueryPhase(queryResults.asList()),
+            searchPhaseController.reducedQueryPhase(queryResults.asList(), true),
             generateFetchResults(nShards, mergedSearchDocs, mergedSuggest));
         assertThat(mergedResponse.hits().getHits().length, equalTo(mergedSearchDocs.length));
         Suggest suggestResult = mergedResponse.suggest();
@@ -327,6 +335,182 @@ public class SearchPhaseControllerTests extends ESTestCase {
         assertEquals(max.get(), internalMax.getValue(), 0.0D);
     }
 
+    public void testConsumerAccountsAggsOnBreaker() {
+        HierarchyCircuitBreakerService breakerService = newBreakerService(new ByteSizeValue(1, ByteSizeUnit.GB).getBytes());
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, new BigArrays(null, breakerService, false), null);
+        int expectedNumResults = randomIntBetween(3, 20);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(randomIntBetween(2, expectedNumResults - 1));
+        SearchPhaseController.QueryPhaseResultConsumer consumer =
+            (SearchPhaseController.QueryPhaseResultConsumer) controller.newSearchPhaseResults(request, expectedNumResults);
+        for (int i = 0; i < expectedNumResults; i++) {
+            consumer.consumeResult(i, newMaxResult(i, i));
+            assertThat(consumer.getBreakerBytes(), greaterThan(0L));
+            assertEquals(consumer.getBreakerBytes(), breaker.getUsed());
+        }
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        InternalMax max = (InternalMax) reduce.aggregations.asList().get(0);
+        assertEquals(expectedNumResults - 1, max.getValue(), 0.0D);
+        assertEquals(0, consumer.getBreakerBytes());
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testConsumerReleasesBreakerOnClose() {
+        HierarchyCircuitBreakerService breakerService = newBreakerService(new ByteSizeValue(1, ByteSizeUnit.GB).getBytes());
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, new BigArrays(null, breakerService, false), null);
+        int expectedNumResults = randomIntBetween(3, 20);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(randomIntBetween(2, expectedNumResults - 1));
+        SearchPhaseController.QueryPhaseResultConsumer consumer =
+            (SearchPhaseController.QueryPhaseResultConsumer) controller.newSearchPhaseResults(request, expectedNumResults);
+        int numConsumed = randomIntBetween(1, expectedNumResults - 1);
+        for (int i = 0; i < numConsumed; i++) {
+            consumer.consumeResult(i, newMaxResult(i, i));
+        }
+        assertThat(breaker.getUsed(), greaterThan(0L));
+        // the search failed before the results were reduced
+        consumer.close();
+        assertEquals(0, consumer.getBreakerBytes());
+        assertEquals(0, breaker.getUsed());
+        // late shard results are not accounted anymore
+        consumer.consumeResult(numConsumed, newMaxResult(numConsumed, numConsumed));
+        assertEquals(0, breaker.getUsed());
+        consumer.close();
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testConsumerFailsOnBreaker() {
+        // leaves room for about two of the buffered aggregations
+        long limit = SearchPhaseController.estimateRamBytesUsed((InternalAggregations) newMaxResult(0, 0).consumeAggs()) * 5 / 2;
+        HierarchyCircuitBreakerService breakerService = newBreakerService(limit);
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, new BigArrays(null, breakerService, false), null);
+        int expectedNumResults = randomIntBetween(4, 20);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(expectedNumResults - 1);
+        SearchPhaseController.QueryPhaseResultConsumer consumer =
+            (SearchPhaseController.QueryPhaseResultConsumer) controller.newSearchPhaseResults(request, expectedNumResults);
+        List<QuerySearchResult> results = new ArrayList<>();
+        CircuitBreakingException tripped = null;
+        for (int i = 0; i < expectedNumResults; i++) {
+            QuerySearchResult result = newMaxResult(i, i);
+            results.add(result);
+            try {
+                consumer.consumeResult(i, result);
+            } catch (CircuitBreakingException e) {
+                // the failure is thrown right away, and only once
+                assertNull(tripped);
+                tripped = e;
+            }
+            assertThat(consumer.getBreakerBytes(), lessThanOrEqualTo(limit));
+            assertEquals(consumer.getBreakerBytes(), breaker.getUsed());
+        }
+        assertNotNull(tripped);
+        assertThat(tripped.getMessage(), containsString(SearchPhaseController.REDUCE_AGGS_BREAKER_LABEL));
+        // the buffered results are released as soon as the breaker trips and later results don't keep their aggregations
+        assertEquals(0, breaker.getUsed());
+        for (QuerySearchResult result : results) {
+            expectThrows(IllegalStateException.class, result::consumeAggs);
+        }
+        CircuitBreakingException e = expectThrows(CircuitBreakingException.class, consumer::reduce);
+        assertSame(tripped, e);
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testNonBatchedResultsAccountAggsOnBreaker() {
+        HierarchyCircuitBreakerService breakerService = newBreakerService(new ByteSizeValue(1, ByteSizeUnit.GB).getBytes());
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, new BigArrays(null, breakerService, false), null);
+        int expectedNumResults = randomIntBetween(1, 20);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(randomIntBetween(Math.max(2, expectedNumResults), 512));
+        SearchPhaseController.AccountedQueryPhaseResults results =
+            (SearchPhaseController.AccountedQueryPhaseResults) controller.newSearchPhaseResults(request, expectedNumResults);
+        long expectedBytes = 0;
+        for (int i = 0; i < expectedNumResults; i++) {
+            QuerySearchResult result = newMaxResult(i, i);
+            results.consumeResult(i, result);
+            expectedBytes += SearchPhaseController.estimateRamBytesUsed((InternalAggregations) newMaxResult(i, i).consumeAggs());
+            // every result is accounted as it arrives and doesn't hold on to its aggregations
+            assertEquals(expectedBytes, results.getBreakerBytes());
+            assertEquals(expectedBytes, breaker.getUsed());
+            expectThrows(IllegalStateException.class, result::consumeAggs);
+        }
+        SearchPhaseController.ReducedQueryPhase reduce = results.reduce();
+        assertEquals(1, reduce.numReducePhases);
+        InternalMax max = (InternalMax) reduce.aggregations.asList().get(0);
+        assertEquals(expectedNumResults - 1, max.getValue(), 0.0D);
+        assertEquals(0, results.getBreakerBytes());
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testNonBatchedResultsFailOnBreaker() {
+        // leaves room for about two of the aggregations
+        long limit = SearchPhaseController.estimateRamBytesUsed((InternalAggregations) newMaxResult(0, 0).consumeAggs()) * 5 / 2;
+        HierarchyCircuitBreakerService breakerService = newBreakerService(limit);
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, new BigArrays(null, breakerService, false), null);
+        int expectedNumResults = randomIntBetween(3, 20);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(expectedNumResults);
+        SearchPhaseController.AccountedQueryPhaseResults results =
+            (SearchPhaseController.AccountedQueryPhaseResults) controller.newSearchPhaseResults(request, expectedNumResults);
+        results.consumeResult(0, newMaxResult(0, 0));
+        results.consumeResult(1, newMaxResult(1, 1));
+        assertThat(breaker.getUsed(), greaterThan(0L));
+        // the third result doesn't fit anymore and fails before all shards responded
+        CircuitBreakingException tripped = expectThrows(CircuitBreakingException.class,
+            () -> results.consumeResult(2, newMaxResult(2, 2)));
+        assertThat(tripped.getMessage(), containsString(SearchPhaseController.REDUCE_AGGS_BREAKER_LABEL));
+        assertEquals(0, breaker.getUsed());
+        for (int i = 3; i < expectedNumResults; i++) {
+            QuerySearchResult result = newMaxResult(i, i);
+            results.consumeResult(i, result);
+            assertEquals(0, breaker.getUsed());
+            expectThrows(IllegalStateException.class, result::consumeAggs);
+        }
+        assertSame(tripped, expectThrows(CircuitBreakingException.class, results::reduce));
+        results.close();
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testReduceFailsOnBreaker() {
+        HierarchyCircuitBreakerService breakerService = newBreakerService(1);
+        SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, new BigArrays(null, breakerService, false), null);
+        int numResults = randomIntBetween(1, 5);
+        AtomicArray<QuerySearchResultProvider> results = new AtomicArray<>(numResults);
+        for (int i = 0; i < numResults; i++) {
+            results.set(i, newMaxResult(i, i));
+        }
+        CircuitBreakingException e = expectThrows(CircuitBreakingException.class,
+            () -> controller.reducedQueryPhase(results.asList(), false));
+        assertThat(e.getMessage(), containsString(SearchPhaseController.REDUCE_AGGS_BREAKER_LABEL));
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    private static HierarchyCircuitBreakerService newBreakerService(long requestLimit) {
+        return new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), requestLimit, ByteSizeUnit.BYTES)
+                .build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    private static QuerySearchResult newMaxResult(int shardIndex, double value) {
+        QuerySearchResult result = new QuerySearchResult(shardIndex, new SearchShardTarget("node", new Index("a", "b"), shardIndex));
+        result.topDocs(new TopDocs(0, new ScoreDoc[0], 0.0F), new DocValueFormat[0]);
+        result.aggregations(new InternalAggregations(Arrays.asList(new InternalMax("test", value, DocValueFormat.RAW,
+            Collections.emptyList(), Collections.emptyMap()))));
+        return result;
+    }
+
     public void testNewSearchPhaseResults() {
         for (int i = 0; i < 10; i++) {
             int expectedNumResults = randomIntBetween(1, 10);
@@ -336,43 +520,93 @@ public class SearchPhaseControllerTests extends ESTestCase {
             if ((hasAggs = randomBoolean())) {
                 request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.avg("foo")));
             }
+            final boolean hasTopDocs;
+            if ((hasTopDocs = randomBoolean())) {
+                if (request.source() != null) {
+                    request.source().size(randomIntBetween(1, 100));
+                } // no source means size = 10
+            } else {
+                if (request.source() == null) {
+                    request.source(new SearchSourceBuilder().size(0));
+                } else {
+                    request.source().size(0);
+                }
+            }
             request.setBatchedReduceSize(bufferSize);
             InitialSearchPhase.SearchPhaseResults<QuerySearchResultProvider> consumer
                 = searchPhaseController.newSearchPhaseResults(request, expectedNumResults);
-            if (hasAggs && expectedNumResults > bufferSize) {
+            if ((hasAggs || hasTopDocs) && expectedNumResults > bufferSize) {
                 assertThat("expectedNumResults: " + expectedNumResults + " bufferSize: " + bufferSize,
                     consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
             } else {
                 assertThat("expectedNumResults: " + expectedNumResults + " bufferSize: " + bufferSize,
                     consumer, not(instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class)));
+                assertEquals(hasAggs, consumer instanceof SearchPhaseController.AccountedQueryPhaseResults);
             }
         }
     }
 
-    public void testFillTopDocs() {
-        final int maxIters =  randomIntBetween(5, 15);
-        for (int iters = 0; iters < maxIters; iters++) {
-            TopDocs[] topDocs = new TopDocs[randomIntBetween(2, 100)];
-            int numShards = topDocs.length;
-            AtomicArray<QuerySearchResultProvider> resultProviderAtomicArray = generateQueryResults(numShards, Collections.emptyList(),
-                2, randomBoolean());
-            if (randomBoolean()) {
-                int maxNull = randomIntBetween(1, topDocs.length - 1);
-                for (int i = 0; i < maxNull; i++) {
-                    resultProviderAtomicArray.set(randomIntBetween(0, resultProviderAtomicArray.length() - 1), null);
-                }
+    public void testConsumerMergesTopDocs() {
+        final int expectedNumResults = randomIntBetween(3, 100);
+        final int bufferSize = randomIntBetween(2, expectedNumResults - 1);
+        final int from = randomIntBetween(0, 10);
+        final int size = randomIntBetween(1, 10);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().from(from).size(size));
+        request.setBatchedReduceSize(bufferSize);
+        InitialSearchPhase.SearchPhaseResults<QuerySearchResultProvider> consumer =
+            searchPhaseController.newSearchPhaseResults(request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        // the same results are reduced in one go to compare the incrementally merged top docs with
+        AtomicArray<QuerySearchResultProvider> expectedResults = new AtomicArray<>(expectedNumResults);
+        List<QuerySearchResult> results = new ArrayList<>();
+        long expectedTotalHits = 0;
+        for (int shardIndex = 0; shardIndex < expectedNumResults; shardIndex++) {
+            int numDocs = randomIntBetween(0, from + size);
+            float[] scores = new float[numDocs];
+            for (int i = 0; i < numDocs; i++) {
+                // few distinct scores such that we have to break ties
+                scores[i] = randomIntBetween(1, 5);
             }
-            SearchPhaseController.fillTopDocs(topDocs, resultProviderAtomicArray.asList(), Lucene.EMPTY_TOP_DOCS);
-            for (int i = 0; i < topDocs.length; i++) {
-                assertNotNull(topDocs[i]);
-                if (topDocs[i] == Lucene.EMPTY_TOP_DOCS) {
-                    assertNull(resultProviderAtomicArray.get(i));
-                } else {
-                    assertNotNull(resultProviderAtomicArray.get(i));
-                    assertNotNull(resultProviderAtomicArray.get(i).queryResult());
-                    assertSame(resultProviderAtomicArray.get(i).queryResult().topDocs(), topDocs[i]);
-                }
+            Arrays.sort(scores);
+            ScoreDoc[] scoreDocs = new ScoreDoc[numDocs];
+            ScoreDoc[] expectedScoreDocs = new ScoreDoc[numDocs];
+            for (int i = 0; i < numDocs; i++) {
+                scoreDocs[i] = new ScoreDoc(i, scores[numDocs - 1 - i]);
+                expectedScoreDocs[i] = new ScoreDoc(i, scores[numDocs - 1 - i]);
             }
+            float maxScore = numDocs == 0 ? Float.NaN : scores[numDocs - 1];
+            int totalHits = numDocs + randomIntBetween(0, 10);
+            expectedTotalHits += totalHits;
+            QuerySearchResult result = new QuerySearchResult(shardIndex, new SearchShardTarget("node", new Index("a", "b"), shardIndex));
+            result.topDocs(new TopDocs(totalHits, scoreDocs, maxScore), new DocValueFormat[0]);
+            result.from(from).size(size);
+            results.add(result);
+            QuerySearchResult expectedResult = new QuerySearchResult(shardIndex,
+                new SearchShardTarget("node", new Index("a", "b"), shardIndex));
+            expectedResult.topDocs(new TopDocs(totalHits, expectedScoreDocs, maxScore), new DocValueFormat[0]);
+            expectedResult.from(from).size(size);
+            expectedResults.set(shardIndex, expectedResult);
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < expectedNumResults; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random());
+        for (int shardIndex : order) {
+            consumer.consumeResult(shardIndex, results.get(shardIndex));
+            assertTrue(results.get(shardIndex).hasConsumedTopDocs());
+        }
+        assertThat(((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumBuffered(), lessThanOrEqualTo(bufferSize));
+        ScoreDoc[] expectedDocs = searchPhaseController.sortDocs(false, expectedResults);
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        assertEquals(expectedTotalHits, reduce.totalHits);
+        assertEquals(((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumReducePhases() + 1, reduce.numReducePhases);
+        assertEquals(expectedDocs.length, reduce.scoreDocs.length);
+        for (int i = 0; i < expectedDocs.length; i++) {
+            assertEquals(expectedDocs[i].doc, reduce.scoreDocs[i].doc);
+            assertEquals(expectedDocs[i].score, reduce.scoreDocs[i].score, 0.0F);
+            assertEquals(expectedDocs[i].shardIndex, reduce.scoreDocs[i].shardIndex);
         }
     }
 }
@@ -25,8 +25,10 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.test.ClusterServiceUtils;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
@@ -427,4 +429,59 @@ public class OperationRoutingTests extends ESTestCase{
         }
     }
 
+
+    public void testAdaptiveReplicaSelection() throws Exception {
+        final int numIndices = 1;
+        final int numShards = 1;
+        final int numReplicas = 1;
+        final String indexName = "test";
+        TestThreadPool threadPool = null;
+        ClusterService clusterService = null;
+        try {
+            threadPool = new TestThreadPool("testAdaptiveReplicaSelection");
+            clusterService = ClusterServiceUtils.createClusterService(threadPool);
+            ClusterServiceUtils.setState(clusterService,
+                ClusterStateCreationUtils.stateWithAssignedPrimariesAndOneReplica(indexName, numShards));
+            final ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            final OperationRouting opRouting = new OperationRouting(
+                Settings.builder().put(OperationRouting.USE_ADAPTIVE_REPLICA_SELECTION_SETTING.getKey(), true).build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+            final String[] indexNames = new String[] { indexName };
+            final Map<String, Long> outstandingRequests = new HashMap<>();
+
+            // without any statistics both copies are returned
+            GroupShardsIterator groupIterator = opRouting.searchShards(clusterService.state(), indexNames, null, null, collector,
+                outstandingRequests);
+            assertThat("One group per index shard", groupIterator.size(), equalTo(numIndices * numShards));
+            ShardIterator shardIterator = groupIterator.iterator().next();
+            assertThat(shardIterator.size(), equalTo(numReplicas + 1));
+            final ShardRouting firstChoice = shardIterator.nextOrNull();
+            final ShardRouting secondChoice = shardIterator.nextOrNull();
+            assertNotNull(firstChoice);
+            assertNotNull(secondChoice);
+            assertThat(outstandingRequests.size(), equalTo(0));
+
+            // the slow node has a long queue and a high service time and should be ranked last
+            final String slowNode = firstChoice.currentNodeId();
+            final String fastNode = secondChoice.currentNodeId();
+            collector.addNodeStatistics(slowNode, 10, TimeValue.timeValueMillis(10).nanos(), TimeValue.timeValueMillis(8).nanos());
+            collector.addNodeStatistics(fastNode, 1, TimeValue.timeValueMillis(1).nanos(), TimeValue.timeValueMillis(1).nanos());
+
+            groupIterator = opRouting.searchShards(clusterService.state(), indexNames, null, null, collector, outstandingRequests);
+            shardIterator = groupIterator.iterator().next();
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo(fastNode));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo(slowNode));
+            // the snapshot of outstanding requests accounts for the request we just routed
+            assertThat(outstandingRequests.get(fastNode), equalTo(1L));
+            // the stats of the losing node have been moved towards the winner
+            assertThat(collector.getNodeStatistics(slowNode).get().queueSize, equalTo(8));
+
+            // an explicit preference disables the ranking
+            groupIterator = opRouting.searchShards(clusterService.state(), indexNames, null, "_shards:0", null, null);
+            assertThat(groupIterator.iterator().next().size(), equalTo(numReplicas + 1));
+        } finally {
+            IOUtils.close(clusterService);
+            terminate(threadPool);
+        }
+    }
 }
@@ -23,6 +23,7 @@ import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.BytesRefIterator;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -57,6 +58,7 @@ public class CompositeBytesReferenceTests extends AbstractBytesReferenceTestCase
     public void testCompositeBuffer() throws IOException {
         List<BytesReference> referenceList = newRefList(randomIntBetween(1, PAGE_SIZE * 2));
         BytesReference ref = new CompositeBytesReference(referenceList.toArray(new BytesReference[0]));
+        assertEquals(referenceList, ((CompositeBytesReference) ref).references());
         BytesRefIterator iterator = ref.iterator();
         BytesRefBuilder builder = new BytesRefBuilder();
 
@@ -93,6 +95,26 @@ public class CompositeBytesReferenceTests extends AbstractBytesReferenceTestCase
         assertEquals(array, output.bytes());
     }
 
+    public void testSkipOverArraysWithOffsets() throws IOException {
+        final List<BytesReference> references = new ArrayList<>();
+        final BytesRefBuilder expected = new BytesRefBuilder();
+        final int numReferences = randomIntBetween(2, 10);
+        for (int i = 0; i < numReferences; i++) {
+            final byte[] bytes = new byte[randomIntBetween(10, 100)];
+            random().nextBytes(bytes);
+            final int offset = randomIntBetween(1, bytes.length - 1);
+            final int length = randomIntBetween(1, bytes.length - offset);
+            references.add(new BytesArray(bytes, offset, length));
+            expected.append(bytes, offset, length);
+        }
+        final BytesReference ref = new CompositeBytesReference(references.toArray(new BytesReference[0]));
+        final int skip = randomIntBetween(0, ref.length() - 1);
+        try (StreamInput input = ref.streamInput()) {
+            assertEquals(skip, input.skip(skip));
+            assertEquals(expected.byteAt(skip), input.readByte());
+        }
+    }
+
     @Override
     public void testToBytesRefSharedPage() throws IOException {
        // CompositeBytesReference doesn't share pages
@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Runs the streaming compression tests of {@link DeflateCompressTests} against {@link LZ4Compressor}.
+ */
+public class LZ4CompressTests extends DeflateCompressTests {
+
+    @Override
+    protected Compressor newCompressor() {
+        return new LZ4Compressor();
+    }
+
+    public void testDetectCompressor() throws IOException {
+        final byte[] bytes = randomUnicodeOfLengthBetween(1, 1000).getBytes("UTF-8");
+        final BytesStreamOutput bStream = new BytesStreamOutput();
+        try (StreamOutput out = CompressorFactory.LZ4.streamOutput(bStream)) {
+            out.writeByteArray(bytes);
+        }
+        final BytesReference compressed = bStream.bytes();
+        assertSame(CompressorFactory.LZ4, CompressorFactory.compressor(compressed));
+        try (StreamInput in = CompressorFactory.LZ4.streamInput(compressed.streamInput())) {
+            assertArrayEquals(bytes, in.readByteArray());
+            assertEquals(-1, in.read());
+        }
+    }
+}
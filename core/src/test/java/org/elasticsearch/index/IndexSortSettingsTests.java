@@ -0,0 +1,217 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSelector;
+import org.apache.lucene.search.SortedSetSortField;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.mapper.TextFieldMapper;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortMode;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+
+public class IndexSortSettingsTests extends ESTestCase {
+
+    private static IndexSettings indexSettings(Settings settings) {
+        return IndexSettingsModule.newIndexSettings("test", settings);
+    }
+
+    public void testNoIndexSort() {
+        IndexSettings indexSettings = indexSettings(Settings.EMPTY);
+        assertFalse(indexSettings.getIndexSortConfig().hasIndexSort());
+        assertNull(indexSettings.getIndexSortConfig().buildIndexSort(field -> null));
+    }
+
+    public void testSimpleIndexSort() {
+        Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.order", "asc")
+            .put("index.sort.mode", "max")
+            .put("index.sort.missing", "_last")
+            .build();
+        IndexSettings indexSettings = indexSettings(settings);
+        IndexSortConfig config = indexSettings.getIndexSortConfig();
+        assertTrue(config.hasIndexSort());
+        assertEquals(1, config.sortSpecs.length);
+
+        assertEquals("field1", config.sortSpecs[0].field);
+        assertEquals(SortOrder.ASC, config.sortSpecs[0].order);
+        assertEquals(SortMode.MAX, config.sortSpecs[0].mode);
+        assertEquals("_last", config.sortSpecs[0].missingValue);
+    }
+
+    public void testIndexSortWithArrays() {
+        Settings settings = Settings.builder()
+            .putArray("index.sort.field", "field1", "field2")
+            .putArray("index.sort.order", "asc", "desc")
+            .putArray("index.sort.missing", "_last", "_first")
+            .build();
+        IndexSettings indexSettings = indexSettings(settings);
+        IndexSortConfig config = indexSettings.getIndexSortConfig();
+        assertEquals(2, config.sortSpecs.length);
+
+        assertEquals("field1", config.sortSpecs[0].field);
+        assertEquals("field2", config.sortSpecs[1].field);
+        assertEquals(SortOrder.ASC, config.sortSpecs[0].order);
+        assertEquals(SortOrder.DESC, config.sortSpecs[1].order);
+        assertEquals("_last", config.sortSpecs[0].missingValue);
+        assertEquals("_first", config.sortSpecs[1].missingValue);
+        assertNull(config.sortSpecs[0].mode);
+        assertNull(config.sortSpecs[1].mode);
+    }
+
+    public void testInvalidIndexSort() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .putArray("index.sort.order", "asc", "desc")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("index.sort.field:[field1] index.sort.order:[asc, desc], size mismatch"));
+    }
+
+    public void testInvalidIndexSortWithArray() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .putArray("index.sort.missing", "_last", "_first")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("index.sort.field:[field1] index.sort.missing:[_last, _first], size mismatch"));
+    }
+
+    public void testInvalidOrder() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.order", "invalid")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("Illegal sort order: invalid"));
+    }
+
+    public void testInvalidMode() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.mode", "avg")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("Illegal index sort mode: [avg]"));
+    }
+
+    public void testInvalidMissing() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.missing", "default")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("Illegal missing value: [default]"));
+    }
+
+    public void testBuildIndexSort() {
+        final Settings settings = Settings.builder()
+            .putArray("index.sort.field", "num", "kw")
+            .putArray("index.sort.order", "desc", "asc")
+            .putArray("index.sort.missing", "_last", "_first")
+            .build();
+        final Map<String, MappedFieldType> fieldTypes = new HashMap<>();
+        fieldTypes.put("num", fieldType(new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG), "num", true));
+        fieldTypes.put("kw", fieldType(new KeywordFieldMapper.KeywordFieldType(), "kw", true));
+        Sort sort = indexSettings(settings).getIndexSortConfig().buildIndexSort(fieldTypes::get);
+
+        SortField numSortField = new SortedNumericSortField("num", SortField.Type.LONG, true, SortedNumericSelector.Type.MAX);
+        numSortField.setMissingValue(Long.MIN_VALUE);
+        SortField kwSortField = new SortedSetSortField("kw", false, SortedSetSelector.Type.MIN);
+        kwSortField.setMissingValue(SortField.STRING_FIRST);
+        assertEquals(new Sort(numSortField, kwSortField), sort);
+    }
+
+    public void testBuildIndexSortWithInvalidFields() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field")
+            .build();
+        final IndexSortConfig config = indexSettings(settings).getIndexSortConfig();
+
+        IllegalArgumentException exc = expectThrows(IllegalArgumentException.class, () -> config.buildIndexSort(field -> null));
+        assertThat(exc.getMessage(), containsString("unknown index sort field:[field]"));
+
+        exc = expectThrows(IllegalArgumentException.class, () -> config.buildIndexSort(field ->
+            fieldType(new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.INTEGER), "field", false)));
+        assertThat(exc.getMessage(), containsString("docvalues not found for index sort field:[field]"));
+
+        exc = expectThrows(IllegalArgumentException.class, () -> config.buildIndexSort(field ->
+            fieldType(new TextFieldMapper.TextFieldType(), "field", true)));
+        assertThat(exc.getMessage(), containsString("invalid index sort field:[field] of type [text]"));
+    }
+
+    public void testIsPrefixOfIndexSort() {
+        final Settings settings = Settings.builder()
+            .putArray("index.sort.field", "field1", "field2")
+            .putArray("index.sort.order", "desc", "asc")
+            .build();
+        final IndexSortConfig config = indexSettings(settings).getIndexSortConfig();
+
+        assertTrue(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field1").order(SortOrder.DESC))));
+        assertTrue(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field1").order(SortOrder.DESC).sortMode(SortMode.MAX),
+            new FieldSortBuilder("field2").missing("_last"))));
+
+        assertFalse(config.isPrefixOfIndexSort(null));
+        assertFalse(config.isPrefixOfIndexSort(Collections.emptyList()));
+        assertFalse(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field1"))));
+        assertFalse(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field2"))));
+        assertFalse(config.isPrefixOfIndexSort(sorts(new ScoreSortBuilder())));
+        assertFalse(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field1").order(SortOrder.DESC).sortMode(SortMode.MIN))));
+        assertFalse(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field1").order(SortOrder.DESC).missing("_first"))));
+        assertFalse(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field1").order(SortOrder.DESC).setNestedPath("path"))));
+        assertFalse(config.isPrefixOfIndexSort(sorts(new FieldSortBuilder("field1").order(SortOrder.DESC),
+            new FieldSortBuilder("field2"), new FieldSortBuilder("field3"))));
+    }
+
+    private static List<SortBuilder<?>> sorts(SortBuilder<?>... sorts) {
+        return Arrays.asList(sorts);
+    }
+
+    private static MappedFieldType fieldType(MappedFieldType fieldType, String name, boolean hasDocValues) {
+        fieldType.setName(name);
+        fieldType.setHasDocValues(hasDocValues);
+        return fieldType;
+    }
+}
@@ -86,6 +86,7 @@ import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.Index;
@@ -145,6 +146,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -153,6 +155,7 @@ import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -250,7 +253,7 @@ public class InternalEngineTests extends ESTestCase {
             config.getStore(), config.getDeletionPolicy(), config.getMergePolicy(), analyzer, config.getSimilarity(),
             new CodecService(null, logger), config.getEventListener(), config.getTranslogRecoveryPerformer(), config.getQueryCache(),
             config.getQueryCachingPolicy(), config.getTranslogConfig(), config.getFlushMergesAfter(), config.getRefreshListeners(),
-            config.getMaxUnsafeAutoIdTimestamp());
+            config.getMaxUnsafeAutoIdTimestamp(), config.getIndexSort());
     }
 
     @Override
@@ -402,9 +405,10 @@ public class InternalEngineTests extends ESTestCase {
         };
         EngineConfig config = new EngineConfig(openMode, shardId, threadPool, indexSettings, null, store, deletionPolicy,
                 mergePolicy, iwc.getAnalyzer(), iwc.getSimilarity(), new CodecService(null, logger), listener,
-                new TranslogHandler(xContentRegistry(), shardId.getIndexName(), logger), IndexSearcher.getDefaultQueryCache(),
+                new TranslogHandler(xContentRegistry(), shardId.getIndexName(), logger, threadPool.executor(ThreadPool.Names.GENERIC),
+                    randomIntBetween(1, 4)), IndexSearcher.getDefaultQueryCache(),
                 IndexSearcher.getDefaultQueryCachingPolicy(), translogConfig, TimeValue.timeValueMinutes(5), refreshListener,
-            maxUnsafeAutoIdTimestamp);
+            maxUnsafeAutoIdTimestamp, null);
 
         return config;
     }
@@ -1185,6 +1189,42 @@ public class InternalEngineTests extends ESTestCase {
         assertThat(indexResult.getVersion(), equalTo(1L));
     }
 
+    public void testApplyBatch() throws IOException {
+        final int numDocs = randomIntBetween(1, 10);
+        final List<Engine.Operation> operations = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), "test", null, testDocument(), B_1, null);
+            operations.add(indexForDoc(doc));
+        }
+        ParsedDocument deleted = testParsedDocument("0", "test", null, testDocument(), B_1, null);
+        operations.add(new Engine.Delete("test", "0", newUid(deleted)));
+        // a version conflict is reported on its own result and does not fail the batch
+        operations.add(new Engine.Index(newUid(deleted), deleted, SequenceNumbersService.UNASSIGNED_SEQ_NO, 0, 42,
+            VersionType.INTERNAL, PRIMARY, 0, -1, false));
+
+        final List<Engine.Result> results = engine.applyBatch(operations);
+        assertThat(results.size(), equalTo(operations.size()));
+        Translog.Location previous = null;
+        for (int i = 0; i < numDocs + 1; i++) {
+            Engine.Result result = results.get(i);
+            assertNull(result.getFailure());
+            assertNotNull(result.getTranslogLocation());
+            if (previous != null) {
+                assertThat(result.getTranslogLocation(), greaterThan(previous));
+            }
+            previous = result.getTranslogLocation();
+        }
+        assertThat(results.get(numDocs + 1).getFailure(), instanceOf(VersionConflictEngineException.class));
+        assertNull(results.get(numDocs + 1).getTranslogLocation());
+        assertThat(engine.seqNoService().getLocalCheckpoint(), equalTo((long) numDocs));
+        assertThat(engine.getTranslog().totalOperations(), equalTo(numDocs + 1));
+
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            assertThat(searcher.reader().numDocs(), equalTo(numDocs - 1));
+        }
+    }
+
     public void testExternalVersioningNewIndex() throws IOException {
         ParsedDocument doc = testParsedDocument("1", "test", null, testDocument(), B_1, null);
         Engine.Index index = new Engine.Index(newUid(doc), doc, SequenceNumbersService.UNASSIGNED_SEQ_NO, 0, 12, VersionType.EXTERNAL, PRIMARY, 0, -1, false);
@@ -2286,6 +2326,59 @@ public class InternalEngineTests extends ESTestCase {
         return paths.toArray(new Path[0]);
     }
 
+    public void testConcurrentTranslogReplay() throws IOException {
+        final int numDocs = randomIntBetween(1, 50);
+        final int numOps = randomIntBetween(numDocs, 500);
+        final Map<String, Long> versions = new HashMap<>();
+        for (int i = 0; i < numOps; i++) {
+            final String id = Integer.toString(randomInt(numDocs - 1));
+            final ParsedDocument doc = testParsedDocument(id, "test", null, testDocument(), new BytesArray("{}"), null);
+            final Engine.Result result;
+            if (versions.containsKey(id) && rarely()) {
+                result = engine.delete(new Engine.Delete("test", id, newUid(doc)));
+                versions.remove(id);
+            } else {
+                result = engine.index(indexForDoc(doc));
+                versions.put(id, result.getVersion());
+            }
+            assertNull(result.getFailure());
+        }
+        final long maxSeqNo = engine.seqNoService().getMaxSeqNo();
+        engine.close();
+
+        final EngineConfig config = engine.config();
+        final ExecutorService executor;
+        if (randomBoolean()) {
+            // a shut down executor rejects every partition, which must then be applied on the recovering thread
+            executor = EsExecutors.newFixed("test", 1, 1, EsExecutors.daemonThreadFactory("test"), threadPool.getThreadContext());
+            executor.shutdown();
+        } else {
+            executor = threadPool.executor(ThreadPool.Names.GENERIC);
+        }
+        final TranslogHandler handler = new TranslogHandler(xContentRegistry(), shardId.getIndexName(), logger, executor,
+            randomIntBetween(2, 8));
+        engine = new InternalEngine(new EngineConfig(EngineConfig.OpenMode.OPEN_INDEX_AND_TRANSLOG, config.getShardId(),
+            config.getThreadPool(), config.getIndexSettings(), config.getWarmer(), config.getStore(), config.getDeletionPolicy(),
+            config.getMergePolicy(), config.getAnalyzer(), config.getSimilarity(), new CodecService(null, logger),
+            config.getEventListener(), handler, config.getQueryCache(), config.getQueryCachingPolicy(), config.getTranslogConfig(),
+            config.getFlushMergesAfter(), config.getRefreshListeners(), config.getMaxUnsafeAutoIdTimestamp(), config.getIndexSort()));
+        engine.recoverFromTranslog();
+
+        assertEquals(numOps, handler.recoveredOps.get());
+        assertThat(engine.seqNoService().getLocalCheckpoint(), equalTo(maxSeqNo));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            assertThat(searcher.reader().numDocs(), equalTo(versions.size()));
+        }
+        for (Map.Entry<String, Long> entry : versions.entrySet()) {
+            ParsedDocument doc = testParsedDocument(entry.getKey(), "test", null, testDocument(), new BytesArray("{}"), null);
+            try (Engine.GetResult get = engine.get(new Engine.Get(true, newUid(doc)))) {
+                assertTrue(get.exists());
+                assertThat(get.version(), equalTo(entry.getValue()));
+            }
+        }
+    }
+
     public void testTranslogReplay() throws IOException {
         final int numDocs = randomIntBetween(1, 10);
         for (int i = 0; i < numDocs; i++) {
@@ -2378,7 +2471,12 @@ public class InternalEngineTests extends ESTestCase {
         public final AtomicInteger recoveredOps = new AtomicInteger(0);
 
         public TranslogHandler(NamedXContentRegistry xContentRegistry, String indexName, Logger logger) {
-            super(new ShardId("test", "_na_", 0), null, logger);
+            this(xContentRegistry, indexName, logger, null, 1);
+        }
+
+        public TranslogHandler(NamedXContentRegistry xContentRegistry, String indexName, Logger logger, ExecutorService executor,
+                               int recoveryThreads) {
+            super(new ShardId("test", "_na_", 0), null, logger, executor, recoveryThreads);
             Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT).build();
             Index index = new Index(indexName, "_na_");
             IndexSettings indexSettings = IndexSettingsModule.newIndexSettings(index, settings);
@@ -2435,7 +2533,7 @@ public class InternalEngineTests extends ESTestCase {
                 config.getIndexSettings(), null, store, createSnapshotDeletionPolicy(), newMergePolicy(), config.getAnalyzer(),
                 config.getSimilarity(), new CodecService(null, logger), config.getEventListener(), config.getTranslogRecoveryPerformer(),
                 IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), translogConfig,
-                TimeValue.timeValueMinutes(5), config.getRefreshListeners(), IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP);
+                TimeValue.timeValueMinutes(5), config.getRefreshListeners(), IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, null);
 
         try {
             InternalEngine internalEngine = new InternalEngine(brokenConfig);
@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class HistogramFieldMapperTests extends ESSingleNodeTestCase {
+
+    private DocumentMapper createDocumentMapper() throws IOException {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties")
+                .startObject("field")
+                .field("type", "histogram")
+                .endObject()
+                .endObject()
+                .endObject().endObject().string();
+        return createIndex("test").mapperService().documentMapperParser().parse("type", new CompressedXContent(mapping));
+    }
+
+    private static BytesReference source(double[] values, int[] counts) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject().startObject("field");
+        builder.startArray("values");
+        for (double value : values) {
+            builder.value(value);
+        }
+        builder.endArray();
+        builder.startArray("counts");
+        for (int count : counts) {
+            builder.value(count);
+        }
+        builder.endArray();
+        return builder.endObject().endObject().bytes();
+    }
+
+    public void testDefaultMapping() throws Exception {
+        DocumentMapper mapper = createDocumentMapper();
+        FieldMapper fieldMapper = mapper.mappers().smartNameFieldMapper("field");
+        assertThat(fieldMapper, instanceOf(HistogramFieldMapper.class));
+        assertFalse(fieldMapper.fieldType().stored());
+        assertTrue(fieldMapper.fieldType().hasDocValues());
+    }
+
+    public void testDocValuesCannotBeDisabled() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties")
+                .startObject("field")
+                .field("type", "histogram")
+                .field("doc_values", false)
+                .endObject()
+                .endObject()
+                .endObject().endObject().string();
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> createIndex("test").mapperService()
+                .documentMapperParser().parse("type", new CompressedXContent(mapping)));
+        assertThat(e.getMessage(), containsString("field [field] of type [histogram] requires doc values"));
+    }
+
+    public void testParse() throws Exception {
+        DocumentMapper mapper = createDocumentMapper();
+        ParsedDocument doc = mapper.parse(SourceToParse.source("test", "type", "1",
+                source(new double[] {0.1, 0.2, 0.2, 1.5}, new int[] {3, 0, 7, 23}), XContentType.JSON));
+        BytesRef indexedValue = doc.rootDoc().getBinaryValue("field");
+        // values that have a count of zero are skipped
+        assertEquals(HistogramFieldMapper.encode(new double[] {0.1, 0.2, 1.5}, new int[] {3, 7, 23}), indexedValue);
+
+        doc = mapper.parse(SourceToParse.source("test", "type", "1",
+                XContentFactory.jsonBuilder().startObject().nullField("field").endObject().bytes(), XContentType.JSON));
+        assertNull(doc.rootDoc().getField("field"));
+    }
+
+    public void testParseErrors() throws Exception {
+        DocumentMapper mapper = createDocumentMapper();
+        assertParseError(mapper, source(new double[] {0.2, 0.1}, new int[] {1, 1}), "[values] must be in increasing order");
+        assertParseError(mapper, source(new double[] {0.1, 0.2}, new int[] {1, -1}), "[counts] must be non-negative");
+        assertParseError(mapper, source(new double[] {0.1, 0.2}, new int[] {1}), "expected the same number of [values] and [counts]");
+        assertParseError(mapper, XContentFactory.jsonBuilder().startObject().startObject("field")
+                .array("values", 0.1).endObject().endObject().bytes(), "expected both [values] and [counts]");
+        assertParseError(mapper, XContentFactory.jsonBuilder().startObject().startObject("field")
+                .array("values", 0.1).array("counts", 1).field("sum", 1).endObject().endObject().bytes(), "unknown parameter [sum]");
+        assertParseError(mapper, XContentFactory.jsonBuilder().startObject().field("field", 0.1).endObject().bytes(),
+                "expected an object");
+        assertParseError(mapper, XContentFactory.jsonBuilder().startObject().startArray("field")
+                .startObject().array("values", 0.1).array("counts", 1).endObject()
+                .startObject().array("values", 0.2).array("counts", 1).endObject()
+                .endArray().endObject().bytes(), "does not support indexing multiple values");
+    }
+
+    private static void assertParseError(DocumentMapper mapper, BytesReference source, String message) {
+        MapperParsingException e = expectThrows(MapperParsingException.class,
+                () -> mapper.parse(SourceToParse.source("test", "type", "1", source, XContentType.JSON)));
+        assertThat(e.getCause().getMessage(), containsString(message));
+    }
+}
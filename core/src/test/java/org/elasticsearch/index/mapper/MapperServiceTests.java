@@ -270,4 +270,28 @@ public class MapperServiceTests extends ESSingleNodeTestCase {
                 .put("index.routing_partition_size", 2))
             .execute().actionGet().isAcknowledged());
     }
+
+    public void testIndexSortWithNestedFields() {
+        IllegalArgumentException nestedException = expectThrows(IllegalArgumentException.class, () -> {
+            client().admin().indices().prepareCreate("test-index")
+                .addMapping("type", "{\"type\":{\"properties\":{\"foo\":{\"type\":\"keyword\"}," +
+                    "\"nested_field\":{\"type\":\"nested\"}}}}", XContentType.JSON)
+                .setSettings(Settings.builder().put("index.sort.field", "foo"))
+                .execute().actionGet();
+        });
+        assertTrue(nestedException.getMessage(), nestedException.getMessage().contains("cannot have nested fields when index sort"));
+
+        IllegalArgumentException unknownFieldException = expectThrows(IllegalArgumentException.class, () -> {
+            client().admin().indices().prepareCreate("test-index")
+                .addMapping("type", "{\"type\":{\"properties\":{\"foo\":{\"type\":\"keyword\"}}}}", XContentType.JSON)
+                .setSettings(Settings.builder().put("index.sort.field", "bar"))
+                .execute().actionGet();
+        });
+        assertTrue(unknownFieldException.getMessage(), unknownFieldException.getMessage().contains("unknown index sort field:[bar]"));
+
+        assertTrue(client().admin().indices().prepareCreate("test-index")
+            .addMapping("type", "{\"type\":{\"properties\":{\"foo\":{\"type\":\"keyword\"}}}}", XContentType.JSON)
+            .setSettings(Settings.builder().put("index.sort.field", "foo"))
+            .execute().actionGet().isAcknowledged());
+    }
 }
@@ -293,6 +293,20 @@ public class NumberFieldTypeTests extends FieldTypeTestCase {
         assertFalse(NumberType.HALF_FLOAT.termQuery("field", -0f).equals(NumberType.HALF_FLOAT.termQuery("field", +0f)));
     }
 
+    public void testParsePoint() {
+        assertEquals((byte) 42, NumberType.BYTE.parsePoint(pointBytes(NumberType.BYTE, (byte) 42)));
+        assertEquals((short) -7, NumberType.SHORT.parsePoint(pointBytes(NumberType.SHORT, (short) -7)));
+        assertEquals(123456, NumberType.INTEGER.parsePoint(pointBytes(NumberType.INTEGER, 123456)));
+        assertEquals(Long.MIN_VALUE, NumberType.LONG.parsePoint(pointBytes(NumberType.LONG, Long.MIN_VALUE)));
+        assertEquals(1.5f, NumberType.HALF_FLOAT.parsePoint(pointBytes(NumberType.HALF_FLOAT, 1.5f)));
+        assertEquals(-3.25f, NumberType.FLOAT.parsePoint(pointBytes(NumberType.FLOAT, -3.25f)));
+        assertEquals(Math.PI, NumberType.DOUBLE.parsePoint(pointBytes(NumberType.DOUBLE, Math.PI)));
+    }
+
+    private static byte[] pointBytes(NumberType type, Number value) {
+        return type.createFields("field", value, true, false, false).get(0).binaryValue().bytes;
+    }
+
     // Make sure we construct the IndexOrDocValuesQuery objects with queries that match
     // the same ranges
     public void testDocValueByteRange() throws Exception {
@@ -51,6 +51,7 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.Engine.Operation.Origin;
@@ -105,6 +106,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 @LuceneTestCase.SuppressFileSystems("ExtrasFS")
 public class TranslogTests extends ESTestCase {
@@ -393,6 +395,73 @@ public class TranslogTests extends ESTestCase {
         assertThat(e, hasToString(containsString("translogSizeInBytes must be >= 0")));
     }
 
+    public void testAddBatch() throws IOException {
+        ArrayList<Translog.Operation> ops = new ArrayList<>();
+        addToTranslogAndList(translog, ops, new Translog.Index("test", "0", new byte[]{0}));
+        final List<Translog.Operation> batch = new ArrayList<>();
+        final int numOps = randomIntBetween(1, 10);
+        for (int i = 1; i <= numOps; i++) {
+            if (randomBoolean()) {
+                batch.add(new Translog.Index("test", Integer.toString(i), new byte[]{(byte) i}));
+            } else {
+                batch.add(new Translog.Delete(newUid(Integer.toString(i))));
+            }
+        }
+        final Translog.Location[] locations = translog.add(batch);
+        ops.addAll(batch);
+        assertThat(locations.length, equalTo(numOps));
+        for (int i = 1; i < locations.length; i++) {
+            assertThat(locations[i].generation, equalTo(locations[i - 1].generation));
+            assertThat(locations[i].translogLocation, equalTo(locations[i - 1].translogLocation + locations[i - 1].size));
+        }
+        assertThat(translog.totalOperations(), equalTo(numOps + 1));
+        assertThat(translog.newSnapshot(), SnapshotMatchers.equalsTo(ops));
+
+        addToTranslogAndList(translog, ops, new Translog.Index("test", "last", new byte[]{1}));
+        assertThat(translog.newSnapshot(), SnapshotMatchers.equalsTo(ops));
+    }
+
+    public void testCompressedOperations() throws IOException {
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING.getKey(), true)
+            .build();
+        final TranslogConfig config = new TranslogConfig(shardId, createTempDir(), IndexSettingsModule.newIndexSettings(shardId.getIndex(),
+            settings), BigArrays.NON_RECYCLING_INSTANCE);
+        final byte[] source = new byte[Translog.COMPRESSION_THRESHOLD_BYTES * 4];
+        Arrays.fill(source, (byte) 'a');
+        final ArrayList<Translog.Operation> ops = new ArrayList<>();
+        try (Translog compressed = new Translog(config, null, () -> SequenceNumbersService.UNASSIGNED_SEQ_NO)) {
+            final int numOps = randomIntBetween(1, 20);
+            for (int i = 0; i < numOps; i++) {
+                final Translog.Operation op;
+                switch (randomInt(2)) {
+                    case 0:
+                        op = new Translog.Index("test", Integer.toString(i), source);
+                        break;
+                    case 1:
+                        op = new Translog.Index("test", Integer.toString(i), new byte[]{(byte) i});
+                        break;
+                    default:
+                        op = new Translog.Delete(newUid(Integer.toString(i)));
+                        break;
+                }
+                addToTranslogAndList(compressed, ops, op);
+                addToTranslogAndList(translog, new ArrayList<>(), op);
+            }
+            assertThat(compressed.newSnapshot(), SnapshotMatchers.equalsTo(ops));
+            assertThat(compressed.sizeInBytes(), lessThanOrEqualTo(translog.sizeInBytes()));
+
+            // a translog holds a mix of compressed and uncompressed operations if the setting changes
+            final IndexMetaData metaData = config.getIndexSettings().getIndexMetaData();
+            config.getIndexSettings().updateIndexMetaData(IndexMetaData.builder(metaData).settings(Settings.builder()
+                .put(metaData.getSettings()).put(IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING.getKey(), false)).build());
+            assertFalse(config.getIndexSettings().isTranslogCompressEnabled());
+            addToTranslogAndList(compressed, ops, new Translog.Index("test", "uncompressed", source));
+            assertThat(compressed.newSnapshot(), SnapshotMatchers.equalsTo(ops));
+        }
+    }
+
     public void testSnapshot() throws IOException {
         ArrayList<Translog.Operation> ops = new ArrayList<>();
         Translog.Snapshot snapshot = translog.newSnapshot();
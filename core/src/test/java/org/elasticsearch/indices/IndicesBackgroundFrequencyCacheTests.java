@@ -0,0 +1,173 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterDirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class IndicesBackgroundFrequencyCacheTests extends ESTestCase {
+
+    public void testCacheAndInvalidateOnClose() throws IOException {
+        IndicesBackgroundFrequencyCache cache = new IndicesBackgroundFrequencyCache(Settings.EMPTY);
+        AtomicInteger loads = new AtomicInteger();
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+            Document doc = new Document();
+            doc.add(new StringField("field", "value", Field.Store.NO));
+            writer.addDocument(doc);
+            DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+
+            assertEquals(1, cache.getOrCompute(reader, "field", null, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(1, cache.getOrCompute(reader, "field", null, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.count());
+
+            // a different filter or term is a different entry
+            TermQuery filter = new TermQuery(new Term("field", "value"));
+            assertEquals(2, cache.getOrCompute(reader, "field", filter, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(2, cache.getOrCompute(reader, "field", new TermQuery(new Term("field", "value")), "value",
+                () -> (long) loads.incrementAndGet()));
+            assertEquals(3, cache.getOrCompute(reader, "field", null, "other", () -> (long) loads.incrementAndGet()));
+            assertEquals(3, loads.get());
+            assertEquals(3, cache.count());
+
+            // a refresh opens a new reader that doesn't see the entries of the previous one
+            writer.addDocument(doc);
+            DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+            assertNotNull(newReader);
+            assertEquals(4, cache.getOrCompute(newReader, "field", null, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(4, cache.count());
+
+            // closed readers are only cleaned up by the periodic cleanup
+            reader.close();
+            assertEquals(4, cache.count());
+            cache.cleanCache();
+            assertEquals(1, cache.count());
+            newReader.close();
+            cache.cleanCache();
+            assertEquals(0, cache.count());
+        }
+    }
+
+    public void testReaderClosedWhileComputing() throws IOException {
+        IndicesBackgroundFrequencyCache cache = new IndicesBackgroundFrequencyCache(Settings.EMPTY);
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+            writer.addDocument(new Document());
+            DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+            // the reader is closed and cleaned up after it was tracked but before its entry is added
+            assertEquals(1, cache.getOrCompute(reader, "field", null, "value", () -> {
+                reader.close();
+                cache.cleanCache();
+                return 1L;
+            }));
+            assertEquals(0, cache.count());
+        }
+    }
+
+    public void testWrappedReadersAreNotCached() throws IOException {
+        IndicesBackgroundFrequencyCache cache = new IndicesBackgroundFrequencyCache(Settings.EMPTY);
+        AtomicInteger loads = new AtomicInteger();
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+            writer.addDocument(new Document());
+            DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+            DirectoryReader wrapped = new FilterDirectoryReader(reader, new FilterDirectoryReader.SubReaderWrapper() {
+                @Override
+                public LeafReader wrap(LeafReader reader) {
+                    return reader;
+                }
+            }) {
+                @Override
+                protected DirectoryReader doWrapDirectoryReader(DirectoryReader in) throws IOException {
+                    return in;
+                }
+            };
+            assertEquals(1, cache.getOrCompute(wrapped, "field", null, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(2, cache.getOrCompute(wrapped, "field", null, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(0, cache.count());
+            wrapped.close();
+        }
+    }
+
+    public void testEntriesOfShardsAreSeparate() throws IOException {
+        IndicesBackgroundFrequencyCache cache = new IndicesBackgroundFrequencyCache(Settings.EMPTY);
+        AtomicInteger loads = new AtomicInteger();
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+            writer.addDocument(new Document());
+            DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+            DirectoryReader otherReader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 1));
+            assertEquals(reader.getVersion(), otherReader.getVersion());
+
+            assertEquals(1, cache.getOrCompute(reader, "field", null, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(2, cache.getOrCompute(otherReader, "field", null, "value", () -> (long) loads.incrementAndGet()));
+            assertEquals(2, cache.count());
+
+            reader.close();
+            cache.cleanCache();
+            assertEquals(1, cache.count());
+            otherReader.close();
+            cache.cleanCache();
+            assertEquals(0, cache.count());
+        }
+    }
+
+    public void testSizeIsBounded() throws IOException {
+        Settings settings = Settings.builder()
+            .put(IndicesBackgroundFrequencyCache.INDICES_CACHE_BACKGROUND_FREQUENCY_SIZE.getKey(), "1kb")
+            .build();
+        IndicesBackgroundFrequencyCache cache = new IndicesBackgroundFrequencyCache(settings);
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+            writer.addDocument(new Document());
+            DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+            int numTerms = randomIntBetween(50, 100);
+            for (int i = 0; i < numTerms; i++) {
+                long frequency = i;
+                assertEquals(frequency, cache.getOrCompute(reader, "field", null, "value" + i, () -> frequency));
+                assertThat(cache.weight(), lessThanOrEqualTo(1024L));
+            }
+            assertThat(cache.count(), lessThanOrEqualTo(numTerms - 1));
+            reader.close();
+            cache.cleanCache();
+            assertEquals(0, cache.count());
+        }
+    }
+}
@@ -32,9 +32,11 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.store.BaseDirectoryWrapper;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesArray;
@@ -75,16 +77,22 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -108,7 +116,8 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             randomBoolean() ? SequenceNumbersService.UNASSIGNED_SEQ_NO : randomNonNegativeLong());
         Store store = newStore(createTempDir());
         RecoverySourceHandler handler = new RecoverySourceHandler(null, null, request, () -> 0L, e -> () -> {},
-            recoverySettings.getChunkSize().bytesAsInt(), Settings.EMPTY);
+            recoverySettings.getChunkSize().bytesAsInt(),
+            between(1, 8), Settings.EMPTY);
         Directory dir = store.directory();
         RandomIndexWriter writer = new RandomIndexWriter(random(), dir, newIndexWriterConfig());
         int numDocs = randomIntBetween(10, 100);
@@ -150,6 +159,80 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         IOUtils.close(reader, store, targetStore);
     }
 
+    public void testSendFileChunksConcurrently() throws Throwable {
+        final RecoverySettings recoverySettings = new RecoverySettings(Settings.EMPTY, service);
+        final StartRecoveryRequest request = new StartRecoveryRequest(
+            shardId,
+            new DiscoveryNode("b", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT),
+            new DiscoveryNode("b", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT),
+            null,
+            randomBoolean(),
+            randomNonNegativeLong(),
+            randomBoolean() ? SequenceNumbersService.UNASSIGNED_SEQ_NO : randomNonNegativeLong());
+        final IndexShard shard = mock(IndexShard.class);
+        when(shard.state()).thenReturn(IndexShardState.STARTED);
+        final Translog.View translogView = mock(Translog.View.class);
+        Store store = newStore(createTempDir());
+        Directory dir = store.directory();
+        RandomIndexWriter writer = new RandomIndexWriter(random(), dir, newIndexWriterConfig());
+        int numDocs = randomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            Document document = new Document();
+            document.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+            document.add(newField("field", randomUnicodeOfCodepointLengthBetween(1, 10), TextField.TYPE_STORED));
+            writer.addDocument(document);
+        }
+        writer.commit();
+        writer.close();
+
+        final List<StoreFileMetaData> metas = new ArrayList<>();
+        long totalBytes = 0;
+        for (StoreFileMetaData md : store.getMetadata(null)) {
+            metas.add(md);
+            totalBytes += md.length();
+        }
+        final long bytesToSend = totalBytes;
+        final int maxConcurrentFileChunks = between(1, 8);
+        final List<ActionListener<Void>> pendingChunks = new ArrayList<>();
+        final Map<String, byte[]> receivedFiles = new HashMap<>();
+        final AtomicLong receivedBytes = new AtomicLong();
+        final RecoveryTargetHandler recoveryTarget = mock(RecoveryTargetHandler.class);
+        doAnswer(invocation -> {
+            final StoreFileMetaData md = (StoreFileMetaData) invocation.getArguments()[0];
+            final long position = (long) invocation.getArguments()[1];
+            final BytesReference content = (BytesReference) invocation.getArguments()[2];
+            @SuppressWarnings("unchecked")
+            final ActionListener<Void> listener = (ActionListener<Void>) invocation.getArguments()[5];
+            final byte[] file = receivedFiles.computeIfAbsent(md.name(), name -> new byte[Math.toIntExact(md.length())]);
+            System.arraycopy(BytesReference.toBytes(content), 0, file, Math.toIntExact(position), content.length());
+            pendingChunks.add(listener);
+            assertThat(pendingChunks.size(), lessThanOrEqualTo(maxConcurrentFileChunks));
+            if (receivedBytes.addAndGet(content.length()) == bytesToSend) {
+                // all chunks were sent, acknowledge the remaining ones
+                randomSubsetOf(pendingChunks.size(), pendingChunks).forEach(l -> l.onResponse(null));
+                pendingChunks.clear();
+            } else if (pendingChunks.size() == maxConcurrentFileChunks) {
+                // acknowledge a random chunk so that responses come back out of order
+                pendingChunks.remove(randomIntBetween(0, pendingChunks.size() - 1)).onResponse(null);
+            }
+            return null;
+        }).when(recoveryTarget).writeFileChunk(any(), anyLong(), any(), anyBoolean(), anyInt(), any());
+        RecoverySourceHandler handler = new RecoverySourceHandler(shard, recoveryTarget, request, () -> 0L, e -> () -> {},
+            recoverySettings.getChunkSize().bytesAsInt(), maxConcurrentFileChunks, Settings.EMPTY);
+        handler.sendFiles(store, metas.toArray(new StoreFileMetaData[0]),
+            md -> handler.new RecoveryOutputStream(md, translogView));
+        assertEquals(bytesToSend, receivedBytes.get());
+        assertTrue(pendingChunks.isEmpty());
+        for (StoreFileMetaData md : metas) {
+            try (IndexInput input = store.directory().openInput(md.name(), IOContext.READONCE)) {
+                final byte[] expected = new byte[Math.toIntExact(md.length())];
+                input.readBytes(expected, 0, expected.length);
+                assertArrayEquals(md.name(), expected, receivedFiles.get(md.name()));
+            }
+        }
+        IOUtils.close(store);
+    }
+
     public void testSendSnapshotSendsOps() throws IOException {
         final RecoverySettings recoverySettings = new RecoverySettings(Settings.EMPTY, service);
         final int fileChunkSizeInBytes = recoverySettings.getChunkSize().bytesAsInt();
@@ -166,7 +249,8 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         when(shard.state()).thenReturn(IndexShardState.STARTED);
         final RecoveryTargetHandler recoveryTarget = mock(RecoveryTargetHandler.class);
         final RecoverySourceHandler handler =
-            new RecoverySourceHandler(shard, recoveryTarget, request, () -> 0L, e -> () -> {}, fileChunkSizeInBytes, Settings.EMPTY);
+            new RecoverySourceHandler(shard, recoveryTarget, request, () -> 0L, e -> () -> {}, fileChunkSizeInBytes, between(1, 8),
+                Settings.EMPTY);
         final List<Translog.Operation> operations = new ArrayList<>();
         final int initialNumberOfDocs = randomIntBetween(16, 64);
         for (int i = 0; i < initialNumberOfDocs; i++) {
@@ -234,7 +318,8 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         Store store = newStore(tempDir, false);
         AtomicBoolean failedEngine = new AtomicBoolean(false);
         RecoverySourceHandler handler = new RecoverySourceHandler(null, null, request, () -> 0L, e -> () -> {},
-            recoverySettings.getChunkSize().bytesAsInt(), Settings.EMPTY) {
+            recoverySettings.getChunkSize().bytesAsInt(),
+            between(1, 8), Settings.EMPTY) {
             @Override
             protected void failEngine(IOException cause) {
                 assertFalse(failedEngine.get());
@@ -303,7 +388,8 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         Store store = newStore(tempDir, false);
         AtomicBoolean failedEngine = new AtomicBoolean(false);
         RecoverySourceHandler handler = new RecoverySourceHandler(null, null, request, () -> 0L, e -> () -> {},
-            recoverySettings.getChunkSize().bytesAsInt(), Settings.EMPTY) {
+            recoverySettings.getChunkSize().bytesAsInt(),
+            between(1, 8), Settings.EMPTY) {
             @Override
             protected void failEngine(IOException cause) {
                 assertFalse(failedEngine.get());
@@ -381,6 +467,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             () -> 0L,
             e -> () -> {},
             recoverySettings.getChunkSize().bytesAsInt(),
+            between(1, 8),
             Settings.EMPTY) {
 
             @Override
@@ -471,6 +558,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             currentClusterStateVersionSupplier,
             delayNewRecoveries,
             recoverySettings.getChunkSize().bytesAsInt(),
+            between(1, 8),
             Settings.EMPTY) {
 
             @Override
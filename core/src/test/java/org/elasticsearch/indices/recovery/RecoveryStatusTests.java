@@ -19,16 +19,24 @@
 package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -84,4 +92,57 @@ public class RecoveryStatusTests extends ESSingleNodeTestCase {
         // we must fail the recovery because marking it as done will try to move the shard to POST_RECOVERY, which will fail because it's started
         status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
     }
+
+    public void testWriteFileChunksOutOfOrder() throws IOException {
+        IndexService service = createIndex("foo");
+
+        IndexShard indexShard = service.getShardOrNull(0);
+        DiscoveryNode node = new DiscoveryNode("foo", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        RecoveryTarget status = new RecoveryTarget(indexShard, node, new PeerRecoveryTargetService.RecoveryListener() {
+            @Override
+            public void onRecoveryDone(RecoveryState state) {
+            }
+
+            @Override
+            public void onRecoveryFailure(RecoveryState state, RecoveryFailedException e, boolean sendShardFailure) {
+            }
+        }, version -> {});
+        final byte[] bytes;
+        final String checksum;
+        try (Directory dir = newDirectory()) {
+            try (IndexOutput output = dir.createOutput("foo.bar", IOContext.DEFAULT)) {
+                final byte[] content = new byte[randomIntBetween(1, 1024)];
+                random().nextBytes(content);
+                output.writeBytes(content, content.length);
+                CodecUtil.writeFooter(output);
+            }
+            try (IndexInput input = dir.openInput("foo.bar", IOContext.DEFAULT)) {
+                bytes = new byte[Math.toIntExact(input.length())];
+                input.readBytes(bytes, 0, bytes.length);
+                checksum = Store.digestToString(CodecUtil.retrieveChecksum(input));
+            }
+        }
+        final StoreFileMetaData md = new StoreFileMetaData("foo.bar", bytes.length, checksum);
+        status.state().getIndex().addFileDetail(md.name(), md.length(), false);
+        final List<Integer> positions = new ArrayList<>();
+        for (int position = 0; position < bytes.length; position += randomIntBetween(1, 64)) {
+            positions.add(position);
+        }
+        positions.add(bytes.length);
+        final List<Integer> chunks = new ArrayList<>(positions.subList(0, positions.size() - 1));
+        Collections.shuffle(chunks, random());
+        for (int chunk : chunks) {
+            final int position = positions.get(positions.indexOf(chunk));
+            final int next = positions.get(positions.indexOf(chunk) + 1);
+            status.writeFileChunk(md, position, new BytesArray(bytes, position, next - position), next == bytes.length, 0);
+        }
+        assertNull(status.getOpenIndexOutput(md.name()));
+        try (IndexInput input = status.store().directory().openInput(status.getTempNameForFile(md.name()), IOContext.DEFAULT)) {
+            final byte[] written = new byte[Math.toIntExact(input.length())];
+            input.readBytes(written, 0, written.length);
+            assertArrayEquals(bytes, written);
+        }
+        assertEquals(bytes.length, status.state().getIndex().recoveredBytes());
+        status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
+    }
 }
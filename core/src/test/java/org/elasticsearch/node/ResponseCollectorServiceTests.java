@@ -0,0 +1,155 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.node;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ClusterServiceUtils;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    private ClusterService clusterService;
+    private ResponseCollectorService collector;
+    private ThreadPool threadpool;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        threadpool = new TestThreadPool("response_collector_tests");
+        clusterService = ClusterServiceUtils.createClusterService(threadpool);
+        collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        IOUtils.close(clusterService);
+        terminate(threadpool);
+    }
+
+    public void testNodeStats() throws Exception {
+        collector.addNodeStatistics("node1", 1, 100, 10);
+        Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = collector.getAllNodeStatistics();
+        assertTrue(nodeStats.containsKey("node1"));
+        assertThat(nodeStats.get("node1").queueSize, equalTo(1));
+        assertThat(nodeStats.get("node1").responseTime, equalTo(100.0));
+        assertThat(nodeStats.get("node1").serviceTime, equalTo(10.0));
+
+        collector.addNodeStatistics("node1", 3, 200, 20);
+        ResponseCollectorService.ComputedNodeStats stats = collector.getNodeStatistics("node1").get();
+        // the queue size and response time are moving averages, the service time is the latest value reported by the node
+        assertThat(stats.queueSize, equalTo((int) (0.3 * 3 + 0.7 * 1)));
+        assertThat(stats.responseTime, equalTo(0.3 * 200 + 0.7 * 100));
+        assertThat(stats.serviceTime, equalTo(20.0));
+
+        assertFalse(collector.getNodeStatistics("node2").isPresent());
+    }
+
+    public void testRank() {
+        collector.addNodeStatistics("fast", 0, 1000000, 1000000);
+        collector.addNodeStatistics("slow", 10, 10000000, 5000000);
+        final double fastRank = collector.getNodeStatistics("fast").get().rank(1);
+        final double slowRank = collector.getNodeStatistics("slow").get().rank(1);
+        assertThat(slowRank, greaterThan(fastRank));
+
+        // outstanding requests to a node make it less attractive
+        final double busyRank = collector.getNodeStatistics("fast").get().rank(10);
+        assertThat(busyRank, greaterThan(fastRank));
+    }
+
+    /*
+     * Test that concurrently adding values and removing nodes does not cause exceptions
+     */
+    public void testConcurrentAddingAndRemoving() throws Exception {
+        String[] nodes = new String[] {"a", "b", "c", "d"};
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        Runnable f = () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                fail("should not be interrupted");
+            }
+            for (int i = 0; i < randomIntBetween(100, 200); i++) {
+                if (randomBoolean()) {
+                    collector.removeNode(randomFrom(nodes));
+                }
+                collector.addNodeStatistics(randomFrom(nodes), randomIntBetween(1, 100), randomIntBetween(1, 100),
+                    randomIntBetween(1, 100));
+            }
+        };
+
+        Thread t1 = new Thread(f);
+        Thread t2 = new Thread(f);
+        Thread t3 = new Thread(f);
+        Thread t4 = new Thread(f);
+
+        t1.start();
+        t2.start();
+        t3.start();
+        t4.start();
+        latch.countDown();
+        t1.join();
+        t2.join();
+        t3.join();
+        t4.join();
+
+        final Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = collector.getAllNodeStatistics();
+        logger.info("--> nodeStats: {}", nodeStats);
+    }
+
+    public void testNodeRemoval() throws Exception {
+        collector.addNodeStatistics("node1", 1, 100, 10);
+        collector.addNodeStatistics("node2", 1, 100, 10);
+
+        assertThat(collector.getAllNodeStatistics().size(), equalTo(2));
+
+        final DiscoveryNode node1 = new DiscoveryNode("node1", buildNewFakeTransportAddress(), Version.CURRENT);
+        final DiscoveryNode node2 = new DiscoveryNode("node2", buildNewFakeTransportAddress(), Version.CURRENT);
+        final ClusterState previousState = ClusterState.builder(new ClusterName("cluster"))
+            .nodes(DiscoveryNodes.builder().add(node1).add(node2).localNodeId("node1").masterNodeId("node1")).build();
+        final ClusterState newState = ClusterState.builder(previousState)
+            .nodes(DiscoveryNodes.builder(previousState.nodes()).remove("node2")).build();
+        collector.clusterChanged(new ClusterChangedEvent("test", newState, previousState));
+
+        assertThat(collector.getAllNodeStatistics().size(), equalTo(1));
+        assertFalse(collector.getNodeStatistics("node2").isPresent());
+    }
+}
@@ -19,20 +19,31 @@
 
 package org.elasticsearch.repositories.blobstore;
 
+import org.apache.lucene.index.IndexFileNames;
 import org.elasticsearch.action.admin.cluster.repositories.put.PutRepositoryResponse;
 import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardPath;
+import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.repositories.IndexId;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.RepositoryData;
 import org.elasticsearch.repositories.RepositoryException;
 import org.elasticsearch.snapshots.SnapshotId;
+import org.elasticsearch.snapshots.SnapshotState;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,7 +52,9 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.elasticsearch.repositories.RepositoryDataTests.generateRandomRepoData;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 /**
  * Tests for the {@link BlobStoreRepository} and its subclasses.
@@ -101,6 +114,120 @@ public class BlobStoreRepositoryTests extends ESSingleNodeTestCase {
         assertThat(snapshotIds, equalTo(originalSnapshots));
     }
 
+    public void testSnapshotAndRestoreFilesConcurrently() throws Exception {
+        final Client client = client();
+        final Path location = ESIntegTestCase.randomRepoPath(node().settings());
+        final String repositoryName = "test-repo";
+        final int maxConcurrentFileTransfers = randomIntBetween(1, 8);
+
+        logger.info("-->  creating repository with [{}] concurrent file transfers", maxConcurrentFileTransfers);
+        PutRepositoryResponse putRepositoryResponse =
+            client.admin().cluster().preparePutRepository(repositoryName)
+                                    .setType("fs")
+                                    .setSettings(Settings.builder().put(node().settings()).put("location", location)
+                                        .put("max_concurrent_file_transfers", maxConcurrentFileTransfers)
+                                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES))
+                                    .get();
+        assertThat(putRepositoryResponse.isAcknowledged(), equalTo(true));
+
+        logger.info("--> creating an index with several segments");
+        final String indexName = "test-idx";
+        createIndex(indexName, Settings.builder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0).build());
+        ensureGreen();
+        int numDocs = 0;
+        final int numSegments = randomIntBetween(2, 10);
+        for (int i = 0; i < numSegments; i++) {
+            final int docs = randomIntBetween(1, 20);
+            for (int j = 0; j < docs; j++) {
+                client().prepareIndex(indexName, "type1", Integer.toString(numDocs++))
+                    .setSource("{\"text\":\"sometext\"}", XContentType.JSON).get();
+            }
+            client().admin().indices().prepareFlush(indexName).get();
+        }
+
+        logger.info("--> create snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin()
+                                                              .cluster()
+                                                              .prepareCreateSnapshot(repositoryName, "test-snap")
+                                                              .setWaitForCompletion(true)
+                                                              .setIndices(indexName)
+                                                              .get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().state(), equalTo(SnapshotState.SUCCESS));
+        assertThat(createSnapshotResponse.getSnapshotInfo().failedShards(), equalTo(0));
+
+        logger.info("--> delete the index and restore it");
+        client.admin().indices().prepareDelete(indexName).get();
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin()
+                                                                .cluster()
+                                                                .prepareRestoreSnapshot(repositoryName, "test-snap")
+                                                                .setWaitForCompletion(true)
+                                                                .get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertHitCount(client.prepareSearch(indexName).setSize(0).get(), numDocs);
+    }
+
+    public void testRestoreReusesLocalFilesWithoutCommit() throws Exception {
+        final Client client = client();
+        final Path location = ESIntegTestCase.randomRepoPath(node().settings());
+        final String repositoryName = "test-repo";
+
+        PutRepositoryResponse putRepositoryResponse =
+            client.admin().cluster().preparePutRepository(repositoryName)
+                                    .setType("fs")
+                                    .setSettings(Settings.builder().put(node().settings()).put("location", location))
+                                    .get();
+        assertThat(putRepositoryResponse.isAcknowledged(), equalTo(true));
+
+        logger.info("--> creating an index and indexing documents");
+        final String indexName = "test-idx";
+        createIndex(indexName, Settings.builder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0).build());
+        ensureGreen();
+        int numDocs = randomIntBetween(10, 20);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex(indexName, "type1", Integer.toString(i)).setSource("{\"text\":\"sometext\"}", XContentType.JSON).get();
+        }
+        client().admin().indices().prepareFlush(indexName).get();
+
+        logger.info("--> create snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin()
+                                                              .cluster()
+                                                              .prepareCreateSnapshot(repositoryName, "test-snap")
+                                                              .setWaitForCompletion(true)
+                                                              .setIndices(indexName)
+                                                              .get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().state(), equalTo(SnapshotState.SUCCESS));
+
+        logger.info("--> close the index and remove its commit, as if a previous restore failed half way");
+        final ShardId shardId = new ShardId(resolveIndex(indexName), 0);
+        client.admin().indices().prepareClose(indexName).get();
+        for (Path shardPath : getInstanceFromNode(NodeEnvironment.class).availableShardPaths(shardId)) {
+            final Path indexPath = shardPath.resolve(ShardPath.INDEX_FOLDER_NAME);
+            if (Files.exists(indexPath)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexPath, IndexFileNames.SEGMENTS + "_*")) {
+                    for (Path segmentsFile : stream) {
+                        Files.delete(segmentsFile);
+                    }
+                }
+            }
+        }
+
+        logger.info("--> restore the snapshot into the closed index");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin()
+                                                                .cluster()
+                                                                .prepareRestoreSnapshot(repositoryName, "test-snap")
+                                                                .setWaitForCompletion(true)
+                                                                .get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertHitCount(client.prepareSearch(indexName).setSize(0).get(), numDocs);
+
+        final RecoveryState recoveryState = client.admin().indices().prepareRecoveries(indexName).get()
+            .shardRecoveryStates().get(indexName).get(0);
+        assertThat(recoveryState.getIndex().reusedFileCount(), greaterThan(0));
+        assertThat(recoveryState.getIndex().recoveredFileCount(), greaterThan(0));
+    }
+
     public void testReadAndWriteSnapshotsThroughIndexFile() throws Exception {
         final BlobStoreRepository repository = setupRepo();
 
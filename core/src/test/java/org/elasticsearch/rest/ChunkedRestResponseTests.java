@@ -0,0 +1,105 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class ChunkedRestResponseTests extends ESTestCase {
+
+    public void testChunksAddUpToTheWholeBody() throws IOException {
+        final RestRequest request = newRequest();
+        final List<ToXContent> fragments = randomFragments();
+        final int chunkSize = randomIntBetween(1, 512);
+        final ChunkedRestResponse response =
+            new ChunkedRestResponse(new FakeRestChannel(request, false, 1), RestStatus.OK, fragments.iterator(), chunkSize);
+        assertEquals(RestStatus.OK, response.status());
+
+        final BytesStreamOutput body = new BytesStreamOutput();
+        while (response.isDone() == false) {
+            final BytesReference chunk = response.nextChunk();
+            if (response.isDone() == false) {
+                assertThat(chunk.length(), greaterThanOrEqualTo(chunkSize));
+            }
+            chunk.writeTo(body);
+        }
+        expectThrows(IllegalStateException.class, response::nextChunk);
+        response.close();
+
+        assertEquals(render(request, fragments), body.bytes());
+    }
+
+    public void testContentRendersTheWholeBody() throws IOException {
+        final RestRequest request = newRequest();
+        final List<ToXContent> fragments = randomFragments();
+        final ChunkedRestResponse response = new ChunkedRestResponse(new FakeRestChannel(request, false, 1), RestStatus.CREATED,
+            fragments.iterator(), randomIntBetween(1, 512));
+        assertEquals(RestStatus.CREATED, response.status());
+
+        final BytesReference expected = render(request, fragments);
+        assertEquals(expected, response.content());
+        // the body is only rendered once
+        assertEquals(expected, response.content());
+        assertTrue(response.isDone());
+        response.close();
+    }
+
+    private RestRequest newRequest() {
+        final FakeRestRequest.Builder builder = new FakeRestRequest.Builder(xContentRegistry());
+        if (randomBoolean()) {
+            builder.withParams(new HashMap<>(Collections.singletonMap("pretty", "true")));
+        }
+        return builder.build();
+    }
+
+    private static List<ToXContent> randomFragments() {
+        final List<ToXContent> fragments = new ArrayList<>();
+        fragments.add((builder, params) -> builder.startObject().startArray("values"));
+        final int numValues = randomIntBetween(0, 100);
+        for (int i = 0; i < numValues; i++) {
+            final String value = randomAsciiOfLengthBetween(0, 64);
+            final int id = i;
+            fragments.add((builder, params) -> builder.startObject().field("id", id).field("value", value).endObject());
+        }
+        fragments.add((builder, params) -> builder.endArray().endObject());
+        return fragments;
+    }
+
+    private static BytesReference render(RestRequest request, List<ToXContent> fragments) throws IOException {
+        final XContentBuilder builder = new FakeRestChannel(request, false, 1).newBuilder();
+        for (ToXContent fragment : fragments) {
+            fragment.toXContent(builder, request);
+        }
+        return builder.bytes();
+    }
+}
@@ -355,6 +355,55 @@ public class RestControllerTests extends ESTestCase {
         assertTrue(channel.getSendResponseCalled());
     }
 
+    public void testDispatchStreamingRequest() {
+        final RestRequestBodyConsumer consumer = mock(RestRequestBodyConsumer.class);
+        final boolean failToPrepare = randomBoolean();
+        restController.registerHandler(RestRequest.Method.POST, "/stream", new RestHandler() {
+            @Override
+            public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) throws Exception {
+                throw new AssertionError("streaming requests are not handled as a whole");
+            }
+
+            @Override
+            public boolean supportsStreamingRequestBody() {
+                return true;
+            }
+
+            @Override
+            public RestRequestBodyConsumer prepareStreamingRequest(RestRequest request, RestChannel channel, NodeClient client) {
+                if (failToPrepare) {
+                    throw new IllegalArgumentException("test error");
+                }
+                return consumer;
+            }
+        });
+
+        final String mimeType = randomFrom("application/json", "application/smile", "application/x-ndjson");
+        final FakeRestRequest request = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
+            .withMethod(RestRequest.Method.POST).withPath("/stream")
+            .withHeaders(Collections.singletonMap("Content-Type", Collections.singletonList(mimeType))).build();
+        assertTrue(restController.supportsStreamingRequestBody(request));
+        final AssertingChannel channel = new AssertingChannel(request, true, failToPrepare ? RestStatus.BAD_REQUEST : RestStatus.OK);
+        final RestRequestBodyConsumer dispatched = restController.dispatchStreamingRequest(request, channel,
+            new ThreadContext(Settings.EMPTY));
+        if (failToPrepare) {
+            assertTrue(channel.getSendResponseCalled());
+            assertSame(RestRequestBodyConsumer.DISCARD, dispatched);
+        } else {
+            assertFalse(channel.getSendResponseCalled());
+            assertSame(consumer, dispatched);
+        }
+
+        // requests that are dispatched as a whole
+        final FakeRestRequest plainText = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
+            .withMethod(RestRequest.Method.POST).withPath("/stream")
+            .withHeaders(Collections.singletonMap("Content-Type", Collections.singletonList("text/plain"))).build();
+        assertFalse(restController.supportsStreamingRequestBody(plainText));
+        final FakeRestRequest otherHandler = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
+            .withHeaders(Collections.singletonMap("Content-Type", Collections.singletonList(mimeType))).build();
+        assertFalse(restController.supportsStreamingRequestBody(otherHandler));
+    }
+
     public void testDispatchWithContentStreamNoContentType() {
         FakeRestRequest fakeRestRequest = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
             .withContent(new BytesArray("{}"), null).withPath("/foo").build();
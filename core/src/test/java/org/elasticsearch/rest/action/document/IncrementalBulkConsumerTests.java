@@ -0,0 +1,228 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.document;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestRequest;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class IncrementalBulkConsumerTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+
+    @Before
+    public void createThreadPool() {
+        threadPool = new TestThreadPool(getTestName());
+    }
+
+    @After
+    public void terminateThreadPool() {
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+    }
+
+    public void testExecutesBatchesWhileBodyArrives() throws Exception {
+        final int numItems = randomIntBetween(1, 50);
+        final byte[] body = bulkBody(numItems);
+        final long batchSize = randomIntBetween(1, body.length);
+        final List<BulkRequest> executed = new CopyOnWriteArrayList<>();
+        final NodeClient client = new BulkClient(threadPool, bulkRequest -> {
+            executed.add(bulkRequest);
+            final BulkItemResponse[] items = new BulkItemResponse[bulkRequest.numberOfActions()];
+            for (int i = 0; i < items.length; i++) {
+                final DocWriteRequest request = bulkRequest.requests().get(i);
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                    new IndexResponse(new ShardId("test", "_na_", 0), request.type(), request.id(), 1, 1, true));
+            }
+            return new BulkResponse(items, 1);
+        });
+        final AtomicReference<RestResponse> response = new AtomicReference<>();
+        final IncrementalBulkConsumer consumer = newConsumer(client, response, batchSize);
+
+        feedInChunks(consumer, body);
+
+        // the items were executed in order, each batch once it reached the batch size
+        int id = 0;
+        for (int i = 0; i < executed.size(); i++) {
+            final BulkRequest bulkRequest = executed.get(i);
+            if (i < executed.size() - 1) {
+                assertThat(bulkRequest.estimatedSizeInBytes(), greaterThanOrEqualTo(batchSize));
+            }
+            for (DocWriteRequest request : bulkRequest.requests()) {
+                assertEquals(Integer.toString(id), request.id());
+                assertEquals("{\"field\":\"value" + id + "\"}", ((IndexRequest) request).source().utf8ToString());
+                id++;
+            }
+        }
+        assertEquals(numItems, id);
+
+        // a single response holds the items of all batches
+        assertNotNull(response.get());
+        assertEquals(RestStatus.OK, response.get().status());
+        final Map<String, Object> map = XContentHelper.convertToMap(response.get().content(), false, XContentType.JSON).v2();
+        assertEquals(numItems, ((List<?>) map.get("items")).size());
+        assertEquals(executed.size(), ((Number) map.get("took")).intValue());
+    }
+
+    public void testDrainsBodyAfterFailure() throws Exception {
+        final int numItems = randomIntBetween(1, 50);
+        final byte[] body = bulkBody(numItems);
+        final long batchSize = randomIntBetween(1, body.length);
+        final List<BulkRequest> executed = new CopyOnWriteArrayList<>();
+        final NodeClient client = new BulkClient(threadPool, bulkRequest -> {
+            executed.add(bulkRequest);
+            throw new IllegalStateException("test failure");
+        });
+        final AtomicReference<RestResponse> response = new AtomicReference<>();
+        final IncrementalBulkConsumer consumer = newConsumer(client, response, batchSize);
+
+        feedInChunks(consumer, body);
+
+        // nothing is executed after the first failure, which is responded to right away
+        assertEquals(1, executed.size());
+        assertEquals(RestStatus.INTERNAL_SERVER_ERROR, response.get().status());
+    }
+
+    public void testRejectsItemsLargerThanMaxContentLength() throws Exception {
+        final StringBuilder large = new StringBuilder("{\"index\":{\"_index\":\"test\",\"_type\":\"type\",\"_id\":\"0\"}}\n");
+        large.append("{\"field\":\"").append(randomAlphaOfLength(randomIntBetween(1024, 4096))).append("\"}\n");
+        final byte[] body = (large.toString() + new String(bulkBody(1), StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        final List<BulkRequest> executed = new CopyOnWriteArrayList<>();
+        final NodeClient client = new BulkClient(threadPool, bulkRequest -> {
+            executed.add(bulkRequest);
+            return new BulkResponse(new BulkItemResponse[0], 1);
+        });
+        final AtomicReference<RestResponse> response = new AtomicReference<>();
+        final IncrementalBulkConsumer consumer = newConsumer(client, response, Long.MAX_VALUE, randomIntBetween(1, 1023));
+
+        // chunks that are smaller than the item make it pile up until it is rejected
+        feedInChunks(consumer, body, 16);
+
+        // the partial item is rejected as soon as it exceeds the limit and the rest of the body is drained
+        assertEquals(0, executed.size());
+        assertEquals(RestStatus.REQUEST_ENTITY_TOO_LARGE, response.get().status());
+    }
+
+    private IncrementalBulkConsumer newConsumer(NodeClient client, AtomicReference<RestResponse> response, long batchSize) {
+        return newConsumer(client, response, batchSize, Long.MAX_VALUE);
+    }
+
+    private IncrementalBulkConsumer newConsumer(NodeClient client, AtomicReference<RestResponse> response, long batchSize,
+                                                long maxPendingSize) {
+        final RestChannel channel = new AbstractRestChannel(new FakeRestRequest(), true) {
+            @Override
+            public void sendResponse(RestResponse restResponse) {
+                assertTrue("responded more than once", response.compareAndSet(null, restResponse));
+            }
+        };
+        return new IncrementalBulkConsumer(channel, client, BulkRequest::new, (bulkRequest, data) ->
+            bulkRequest.addCompleteItems(data, null, null, null, null, null, null, null, true, XContentType.JSON),
+            XContentType.JSON.xContent().streamSeparator(), batchSize, maxPendingSize);
+    }
+
+    private void feedInChunks(IncrementalBulkConsumer consumer, byte[] body) throws Exception {
+        feedInChunks(consumer, body, body.length);
+    }
+
+    private void feedInChunks(IncrementalBulkConsumer consumer, byte[] body, int maxChunkSize) throws Exception {
+        int from = 0;
+        while (from < body.length) {
+            final int to = randomIntBetween(from + 1, Math.min(from + maxChunkSize, body.length));
+            final boolean isLast = to == body.length;
+            final AtomicBoolean readMore = new AtomicBoolean();
+            consumer.accept(new BytesArray(body, from, to - from), isLast, () -> assertTrue(readMore.compareAndSet(false, true)));
+            // the client responds synchronously so the consumer is ready for more right away
+            assertEquals(isLast == false, readMore.get());
+            // the chunk belongs to the network layer once it was consumed
+            Arrays.fill(body, from, to, (byte) 0);
+            from = to;
+        }
+    }
+
+    private static byte[] bulkBody(int numItems) {
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < numItems; i++) {
+            body.append("{\"index\":{\"_index\":\"test\",\"_type\":\"type\",\"_id\":\"").append(i).append("\"}}\n");
+            body.append("{\"field\":\"value").append(i).append("\"}\n");
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A client that answers the bulk requests it is sent with the given function.
+     */
+    private static class BulkClient extends NodeClient {
+
+        private final CheckedFunction<BulkRequest, BulkResponse, Exception> bulk;
+
+        BulkClient(ThreadPool threadPool, CheckedFunction<BulkRequest, BulkResponse, Exception> bulk) {
+            super(Settings.EMPTY, threadPool);
+            this.bulk = bulk;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <    Request extends ActionRequest,
+                    Response extends ActionResponse,
+                    RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>
+                > void doExecute(Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener) {
+            try {
+                listener.onResponse((Response) bulk.apply((BulkRequest) request));
+            } catch (Exception e) {
+                listener.onFailure(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Base class for the tests of aggregations that can be computed from the points index of their field. The search
+ * context returns the query of the last search so that the aggregations can check it.
+ */
+public abstract class PointsAggregatorTestCase extends AggregatorTestCase {
+    protected static final String FIELD = "number";
+
+    protected Query query;
+
+    @Override
+    protected SearchContext createSearchContext(IndexSearcher indexSearcher, IndexSettings indexSettings) {
+        SearchContext context = super.createSearchContext(indexSearcher, indexSettings);
+        when(context.query()).thenReturn(query);
+        when(context.minimumScore()).thenReturn(null);
+        return context;
+    }
+
+    /**
+     * A long field type for {@link #FIELD} that is either indexed with points or only has doc values.
+     */
+    protected static MappedFieldType fieldType(boolean indexed) {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName(FIELD);
+        fieldType.setIndexOptions(indexed ? IndexOptions.DOCS : IndexOptions.NONE);
+        return fieldType;
+    }
+
+    protected static void addDocument(RandomIndexWriter w, long... values) throws IOException {
+        Document doc = new Document();
+        for (long value : values) {
+            doc.add(new LongPoint(FIELD, value));
+            doc.add(new SortedNumericDocValuesField(FIELD, value));
+        }
+        w.addDocument(doc);
+    }
+
+    /**
+     * Indexes documents with values between <code>-maxValue</code> and <code>maxValue</code> into several segments,
+     * some of them without value or with several values, and randomly deletes some of them.
+     */
+    protected void indexRandomDocuments(RandomIndexWriter w, int maxDocs, int maxValue) throws IOException {
+        final int numDocs = randomIntBetween(1, maxDocs);
+        for (int i = 0; i < numDocs; i++) {
+            if (rarely()) {
+                w.commit();
+            }
+            if (rarely()) {
+                addDocument(w);
+            } else if (rarely()) {
+                addDocument(w, randomIntBetween(-maxValue, maxValue), randomIntBetween(-maxValue, maxValue));
+            } else {
+                addDocument(w, randomIntBetween(-maxValue, maxValue));
+            }
+        }
+        if (randomBoolean()) {
+            // segments with deleted documents fall back to the collection of documents
+            final long from = randomIntBetween(-maxValue, maxValue);
+            w.deleteDocuments(LongPoint.newRangeQuery(FIELD, from, from + randomIntBetween(0, maxValue)));
+        }
+    }
+}
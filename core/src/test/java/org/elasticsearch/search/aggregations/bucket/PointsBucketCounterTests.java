@@ -0,0 +1,112 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.PointsAggregatorTestCase;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.FieldContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PointsBucketCounterTests extends PointsAggregatorTestCase {
+
+    public void testSameCountsAsCollection() throws Exception {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            indexRandomDocuments(w, 2000, 1000);
+            final List<AggregationBuilder> builders = new ArrayList<>();
+            builders.add(new HistogramAggregationBuilder("histo").field(FIELD).interval(randomIntBetween(1, 500)));
+            builders.add(new DateHistogramAggregationBuilder("date_histo").field(FIELD).interval(randomIntBetween(1, 500)));
+            builders.add(new RangeAggregationBuilder("range").field(FIELD)
+                .addUnboundedTo(-500)
+                .addRange(-600, 10)
+                .addRange(randomIntBetween(-1000, 0), randomIntBetween(1, 1000))
+                .addUnboundedFrom(999));
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                for (Query query : new Query[] {new MatchAllDocsQuery(),
+                        LongPoint.newRangeQuery(FIELD, randomIntBetween(-1000, 0), randomIntBetween(0, 1000))}) {
+                    this.query = query;
+                    for (AggregationBuilder builder : builders) {
+                        MultiBucketsAggregation fromPoints = search(searcher, query, builder, fieldType(true));
+                        MultiBucketsAggregation collected = search(searcher, query, builder, fieldType(false));
+                        assertEquals(collected.getBuckets().size(), fromPoints.getBuckets().size());
+                        for (int i = 0; i < collected.getBuckets().size(); i++) {
+                            assertEquals(collected.getBuckets().get(i).getKey(), fromPoints.getBuckets().get(i).getKey());
+                            assertEquals(collected.getBuckets().get(i).getDocCount(), fromPoints.getBuckets().get(i).getDocCount());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public void testBuild() {
+        final ValuesSourceConfig<ValuesSource.Numeric> config = new ValuesSourceConfig<>(ValuesSourceType.NUMERIC);
+        config.fieldContext(new FieldContext(FIELD, null, fieldType(true)));
+        final SearchContext context = mock(SearchContext.class);
+        when(context.minimumScore()).thenReturn(null);
+        final AggregatorFactories noSubAggregations = AggregatorFactories.EMPTY;
+
+        when(context.query()).thenReturn(new MatchAllDocsQuery());
+        assertNotNull(PointsBucketCounter.build(context, null, noSubAggregations, config));
+        when(context.query()).thenReturn(LongPoint.newRangeQuery(FIELD, 0, 10));
+        assertNotNull(PointsBucketCounter.build(context, null, noSubAggregations, config));
+        when(context.query()).thenReturn(LongPoint.newRangeQuery("other", 0, 10));
+        assertNull(PointsBucketCounter.build(context, null, noSubAggregations, config));
+        when(context.query()).thenReturn(new TermQuery(new Term(FIELD, "foo")));
+        assertNull(PointsBucketCounter.build(context, null, noSubAggregations, config));
+
+        when(context.query()).thenReturn(new MatchAllDocsQuery());
+        when(context.minimumScore()).thenReturn(1f);
+        assertNull(PointsBucketCounter.build(context, null, noSubAggregations, config));
+        when(context.minimumScore()).thenReturn(null);
+
+        final ValuesSourceConfig<ValuesSource.Numeric> notIndexed = new ValuesSourceConfig<>(ValuesSourceType.NUMERIC);
+        notIndexed.fieldContext(new FieldContext(FIELD, null, fieldType(false)));
+        assertNull(PointsBucketCounter.build(context, null, noSubAggregations, notIndexed));
+
+        final ValuesSourceConfig<ValuesSource.Numeric> withMissing = new ValuesSourceConfig<>(ValuesSourceType.NUMERIC);
+        withMissing.fieldContext(new FieldContext(FIELD, null, fieldType(true)));
+        withMissing.missing(0L);
+        assertNull(PointsBucketCounter.build(context, null, noSubAggregations, withMissing));
+    }
+}
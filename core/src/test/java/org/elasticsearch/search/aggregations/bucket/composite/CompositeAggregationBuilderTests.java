@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.script.Script;
+import org.elasticsearch.search.aggregations.BaseAggregationTestCase;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.sort.SortOrder;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompositeAggregationBuilderTests extends BaseAggregationTestCase<CompositeAggregationBuilder> {
+
+    private DateHistogramValuesSourceBuilder randomDateHistogramSourceBuilder(String name) {
+        DateHistogramValuesSourceBuilder histo = new DateHistogramValuesSourceBuilder(name);
+        if (randomBoolean()) {
+            histo.field(randomAsciiOfLengthBetween(1, 20));
+        } else {
+            histo.script(new Script(randomAsciiOfLengthBetween(10, 20)));
+        }
+        if (randomBoolean()) {
+            histo.dateHistogramInterval(randomFrom(DateHistogramInterval.days(10),
+                DateHistogramInterval.minutes(1), DateHistogramInterval.weeks(1)));
+        } else {
+            histo.interval(randomIntBetween(1, 1000000));
+        }
+        if (randomBoolean()) {
+            histo.timeZone(DateTimeZone.forOffsetHours(randomIntBetween(-12, 12)));
+        }
+        return histo;
+    }
+
+    private TermsValuesSourceBuilder randomTermsSourceBuilder(String name) {
+        TermsValuesSourceBuilder terms = new TermsValuesSourceBuilder(name);
+        if (randomBoolean()) {
+            terms.field(randomAsciiOfLengthBetween(1, 20));
+        } else {
+            terms.script(new Script(randomAsciiOfLengthBetween(10, 20)));
+        }
+        terms.order(randomFrom(SortOrder.values()));
+        return terms;
+    }
+
+    private HistogramValuesSourceBuilder randomHistogramSourceBuilder(String name) {
+        HistogramValuesSourceBuilder histo = new HistogramValuesSourceBuilder(name);
+        if (randomBoolean()) {
+            histo.field(randomAsciiOfLengthBetween(1, 20));
+        } else {
+            histo.script(new Script(randomAsciiOfLengthBetween(10, 20)));
+        }
+        histo.interval(randomDoubleBetween(Math.nextUp(0), Double.MAX_VALUE, false));
+        return histo;
+    }
+
+    @Override
+    protected CompositeAggregationBuilder createTestAggregatorBuilder() {
+        int numSources = randomIntBetween(1, 10);
+        List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>();
+        Map<String, Object> after = new HashMap<>();
+        for (int i = 0; i < numSources; i++) {
+            String name = "source" + i;
+            int type = randomIntBetween(0, 2);
+            switch (type) {
+                case 0:
+                    sources.add(randomTermsSourceBuilder(name));
+                    break;
+                case 1:
+                    sources.add(randomDateHistogramSourceBuilder(name));
+                    break;
+                case 2:
+                    sources.add(randomHistogramSourceBuilder(name));
+                    break;
+                default:
+                    throw new AssertionError("wrong branch");
+            }
+            after.put(name, randomAsciiOfLengthBetween(1, 10));
+        }
+        CompositeAggregationBuilder builder = new CompositeAggregationBuilder(randomAsciiOfLength(10), sources);
+        if (randomBoolean()) {
+            builder.size(randomIntBetween(1, 100));
+        }
+        if (randomBoolean()) {
+            builder.aggregateAfter(after);
+        }
+        return builder;
+    }
+}
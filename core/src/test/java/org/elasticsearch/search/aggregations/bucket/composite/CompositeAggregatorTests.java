@@ -0,0 +1,259 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.mapper.HistogramFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CompositeAggregatorTests extends AggregatorTestCase {
+
+    private static MappedFieldType keywordField(String name) {
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+        fieldType.setName(name);
+        fieldType.setHasDocValues(true);
+        return fieldType;
+    }
+
+    private static MappedFieldType longField(String name) {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName(name);
+        return fieldType;
+    }
+
+    public void testTerms() throws Exception {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (String[] values : new String[][] {{"a", "b"}, {"c", "a"}, {"b", "d"}, {}, {"a"}}) {
+                Document doc = new Document();
+                for (String value : values) {
+                    doc.add(new SortedSetDocValuesField("keyword", new BytesRef(value)));
+                }
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")));
+                InternalComposite result = search(searcher, new MatchAllDocsQuery(), builder, keywordField("keyword"));
+                assertEquals(4, result.getBuckets().size());
+                assertEquals(Collections.singletonMap("keyword", "a"), result.getBuckets().get(0).getKey());
+                assertEquals(3L, result.getBuckets().get(0).getDocCount());
+                assertEquals(Collections.singletonMap("keyword", "b"), result.getBuckets().get(1).getKey());
+                assertEquals(2L, result.getBuckets().get(1).getDocCount());
+                assertEquals(Collections.singletonMap("keyword", "c"), result.getBuckets().get(2).getKey());
+                assertEquals(1L, result.getBuckets().get(2).getDocCount());
+                assertEquals(Collections.singletonMap("keyword", "d"), result.getBuckets().get(3).getKey());
+                assertEquals(1L, result.getBuckets().get(3).getDocCount());
+                assertEquals(Collections.singletonMap("keyword", "d"), result.afterKey());
+
+                builder = new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword").order(SortOrder.DESC)))
+                    .size(2)
+                    .aggregateAfter(Collections.singletonMap("keyword", "c"));
+                result = search(searcher, new MatchAllDocsQuery(), builder, keywordField("keyword"));
+                assertEquals(2, result.getBuckets().size());
+                assertEquals(Collections.singletonMap("keyword", "b"), result.getBuckets().get(0).getKey());
+                assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                assertEquals(Collections.singletonMap("keyword", "a"), result.getBuckets().get(1).getKey());
+                assertEquals(3L, result.getBuckets().get(1).getDocCount());
+            }
+        }
+    }
+
+    public void testAfterTermMissingFromIndex() throws Exception {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (String value : new String[] {"a", "c", "e"}) {
+                Document doc = new Document();
+                doc.add(new SortedSetDocValuesField("keyword", new BytesRef(value)));
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")))
+                    .aggregateAfter(Collections.singletonMap("keyword", "b"));
+                InternalComposite result = search(searcher, new MatchAllDocsQuery(), builder, keywordField("keyword"));
+                assertEquals(2, result.getBuckets().size());
+                assertEquals(Collections.singletonMap("keyword", "c"), result.getBuckets().get(0).getKey());
+                assertEquals(Collections.singletonMap("keyword", "e"), result.getBuckets().get(1).getKey());
+            }
+        }
+    }
+
+    public void testRoundedValuesCountDocumentOnce() throws Exception {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (long[] values : new long[][] {{1, 3, 15}, {12}, {-4, 8}}) {
+                Document doc = new Document();
+                for (long value : values) {
+                    doc.add(new SortedNumericDocValuesField("long", value));
+                }
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new HistogramValuesSourceBuilder("histo").field("long").interval(10)))
+                    .size(2);
+                InternalComposite result = search(searcher, new MatchAllDocsQuery(), builder, longField("long"));
+                assertEquals(2, result.getBuckets().size());
+                assertEquals(Collections.singletonMap("histo", -10d), result.getBuckets().get(0).getKey());
+                assertEquals(1L, result.getBuckets().get(0).getDocCount());
+                assertEquals(Collections.singletonMap("histo", 0d), result.getBuckets().get(1).getKey());
+                assertEquals(2L, result.getBuckets().get(1).getDocCount());
+            }
+        }
+    }
+
+    public void testUnmapped() throws Exception {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("keyword", new BytesRef("a")));
+            w.addDocument(doc);
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name",
+                    Arrays.asList(new TermsValuesSourceBuilder("keyword").field("keyword"),
+                        new TermsValuesSourceBuilder("unknown").field("unknown")));
+                InternalComposite result = search(searcher, new MatchAllDocsQuery(), builder, keywordField("keyword"));
+                assertEquals(0, result.getBuckets().size());
+                assertNull(result.afterKey());
+            }
+        }
+    }
+
+    public void testPaginationWithSubAggregation() throws Exception {
+        final Map<List<Object>, long[]> expected = new TreeMap<>((a, b) -> {
+            int cmp = ((String) a.get(0)).compareTo((String) b.get(0));
+            return cmp != 0 ? cmp : Double.compare((Double) a.get(1), (Double) b.get(1));
+        });
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = randomIntBetween(50, 200);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                String term = Character.toString((char) ('a' + randomIntBetween(0, 9)));
+                long value = randomIntBetween(-100, 100);
+                doc.add(new SortedSetDocValuesField("keyword", new BytesRef(term)));
+                doc.add(new SortedNumericDocValuesField("long", value));
+                w.addDocument(doc);
+                List<Object> key = Arrays.asList(term, Math.floor(value / 10d) * 10);
+                long[] stats = expected.computeIfAbsent(key, k -> new long[] {0, Long.MIN_VALUE});
+                stats[0]++;
+                stats[1] = Math.max(stats[1], value);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                final int size = randomIntBetween(1, 10);
+                Map<String, Object> after = null;
+                List<List<Object>> actualKeys = new ArrayList<>();
+                while (true) {
+                    CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name",
+                        Arrays.asList(new TermsValuesSourceBuilder("keyword").field("keyword"),
+                            new HistogramValuesSourceBuilder("histo").field("long").interval(10)))
+                        .size(size)
+                        .aggregateAfter(after)
+                        .subAggregation(new MaxAggregationBuilder("max").field("long"));
+                    InternalComposite result = search(searcher, new MatchAllDocsQuery(), builder,
+                        keywordField("keyword"), longField("long"));
+                    if (result.getBuckets().isEmpty()) {
+                        break;
+                    }
+                    assertTrue(result.getBuckets().size() <= size);
+                    for (InternalComposite.InternalBucket bucket : result.getBuckets()) {
+                        List<Object> key = Arrays.asList(bucket.getKey().get("keyword"), bucket.getKey().get("histo"));
+                        long[] stats = expected.get(key);
+                        assertNotNull(stats);
+                        assertEquals(stats[0], bucket.getDocCount());
+                        InternalMax max = bucket.getAggregations().get("max");
+                        assertEquals((double) stats[1], max.getValue(), 0d);
+                        actualKeys.add(key);
+                    }
+                    after = new LinkedHashMap<>(result.afterKey());
+                }
+                assertEquals(new ArrayList<>(expected.keySet()), actualKeys);
+            }
+        }
+    }
+
+    public void testInvalidAfterKey() throws Exception {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            w.addDocument(new Document());
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Map<String, Object> after = new HashMap<>();
+                after.put("other", "a");
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")))
+                    .aggregateAfter(after);
+                IllegalArgumentException exc = expectThrows(IllegalArgumentException.class,
+                    () -> search(searcher, new MatchAllDocsQuery(), builder, keywordField("keyword")));
+                assertEquals("missing value for source [keyword] in [after]", exc.getMessage());
+            }
+        }
+    }
+
+    public void testHistogramFieldIsRejected() throws Exception {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            Document doc = new Document();
+            doc.add(new BinaryDocValuesField("histogram", HistogramFieldMapper.encode(new double[] {1}, new int[] {1})));
+            w.addDocument(doc);
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                MappedFieldType fieldType = new HistogramFieldMapper.HistogramFieldType();
+                fieldType.setName("histogram");
+                for (CompositeValuesSourceBuilder<?> source : Arrays.<CompositeValuesSourceBuilder<?>>asList(
+                        new TermsValuesSourceBuilder("terms").field("histogram"),
+                        new HistogramValuesSourceBuilder("histo").field("histogram").interval(10),
+                        new DateHistogramValuesSourceBuilder("date_histo").field("histogram").interval(10))) {
+                    CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name", Collections.singletonList(source));
+                    IllegalArgumentException exc = expectThrows(IllegalArgumentException.class,
+                        () -> search(searcher, new MatchAllDocsQuery(), builder, fieldType));
+                    assertEquals("failed to build source [" + source.name() + "]: field [histogram] of type [histogram] is not supported",
+                        exc.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregationTestCase;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.junit.Before;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.hamcrest.Matchers.containsString;
+
+public class InternalCompositeTests extends InternalAggregationTestCase<InternalComposite> {
+    private List<String> sourceNames;
+    private List<DocValueFormat> formats;
+    private int[] reverseMuls;
+    private int[] types;
+    private int size;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        int numFields = randomIntBetween(1, 10);
+        size = randomNumberOfBuckets();
+        sourceNames = new ArrayList<>();
+        formats = new ArrayList<>();
+        reverseMuls = new int[numFields];
+        types = new int[numFields];
+        for (int i = 0; i < numFields; i++) {
+            sourceNames.add("field_" + i);
+            formats.add(DocValueFormat.RAW);
+            reverseMuls[i] = randomBoolean() ? 1 : -1;
+            types[i] = randomIntBetween(0, 2);
+        }
+    }
+
+    private int randomNumberOfBuckets() {
+        return randomIntBetween(1, 20);
+    }
+
+    private Comparable<?>[] randomKey() {
+        Comparable<?>[] values = new Comparable<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case 0:
+                    values[i] = (long) randomIntBetween(0, 5);
+                    break;
+                case 1:
+                    values[i] = (double) randomIntBetween(0, 5);
+                    break;
+                case 2:
+                    values[i] = new BytesRef(randomAsciiOfLength(1));
+                    break;
+                default:
+                    throw new AssertionError("wrong branch");
+            }
+        }
+        return values;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int compareKeys(Comparable<?>[] values1, Comparable<?>[] values2) {
+        for (int i = 0; i < values1.length; i++) {
+            int cmp = ((Comparable) values1[i]).compareTo(values2[i]);
+            if (cmp != 0) {
+                return cmp * reverseMuls[i];
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    protected InternalComposite createTestInstance(String name, List<PipelineAggregator> pipelineAggregators,
+                                                   Map<String, Object> metaData) {
+        int numBuckets = randomIntBetween(0, size);
+        TreeSet<Comparable<?>[]> keys = new TreeSet<>(this::compareKeys);
+        for (int i = 0; i < numBuckets; i++) {
+            keys.add(randomKey());
+        }
+        List<InternalComposite.InternalBucket> buckets = new ArrayList<>();
+        for (Comparable<?>[] key : keys) {
+            buckets.add(new InternalComposite.InternalBucket(sourceNames, formats, key, randomIntBetween(1, 100),
+                InternalAggregations.EMPTY));
+        }
+        return new InternalComposite(name, size, sourceNames, formats, reverseMuls, buckets, pipelineAggregators, metaData);
+    }
+
+    @Override
+    protected void assertReduced(InternalComposite reduced, List<InternalComposite> inputs) {
+        Comparator<Comparable<?>[]> comparator = this::compareKeys;
+        Map<Comparable<?>[], Long> expectedCounts = new TreeMap<>(comparator);
+        for (InternalComposite input : inputs) {
+            for (InternalComposite.InternalBucket bucket : input.getBuckets()) {
+                expectedCounts.merge(bucket.values(), bucket.getDocCount(), Long::sum);
+            }
+        }
+        List<Comparable<?>[]> expectedKeys = new ArrayList<>(expectedCounts.keySet());
+        expectedKeys = expectedKeys.subList(0, Math.min(size, expectedKeys.size()));
+        assertEquals(expectedKeys.size(), reduced.getBuckets().size());
+        for (int i = 0; i < expectedKeys.size(); i++) {
+            InternalComposite.InternalBucket bucket = reduced.getBuckets().get(i);
+            assertTrue(Arrays.equals(expectedKeys.get(i), bucket.values()));
+            assertEquals((long) expectedCounts.get(expectedKeys.get(i)), bucket.getDocCount());
+        }
+        if (expectedKeys.isEmpty()) {
+            assertNull(reduced.afterKey());
+        } else {
+            assertEquals(reduced.getBuckets().get(expectedKeys.size() - 1).getKey(), reduced.afterKey());
+        }
+    }
+
+    @Override
+    protected Writeable.Reader<InternalComposite> instanceReader() {
+        return InternalComposite::new;
+    }
+
+    public void testReduceFailsOnDifferentKeyTypes() {
+        List<String> names = Arrays.asList("keyword", "field");
+        List<DocValueFormat> rawFormats = Arrays.asList(DocValueFormat.RAW, DocValueFormat.RAW);
+        int[] muls = new int[] {1, 1};
+        // the field is mapped as a long in one index and as a keyword in the other
+        InternalComposite first = new InternalComposite("composite", 10, names, rawFormats, muls,
+            Collections.singletonList(new InternalComposite.InternalBucket(names, rawFormats,
+                new Comparable<?>[] {new BytesRef("a"), 3L}, 1, InternalAggregations.EMPTY)),
+            Collections.emptyList(), Collections.emptyMap());
+        InternalComposite second = new InternalComposite("composite", 10, names, rawFormats, muls,
+            Collections.singletonList(new InternalComposite.InternalBucket(names, rawFormats,
+                new Comparable<?>[] {new BytesRef("a"), new BytesRef("3")}, 1, InternalAggregations.EMPTY)),
+            Collections.emptyList(), Collections.emptyMap());
+        InternalAggregation.ReduceContext context = new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, true);
+        AggregationExecutionException e = expectThrows(AggregationExecutionException.class,
+            () -> first.reduce(Arrays.<InternalAggregation>asList(first, second), context));
+        assertThat(e.getMessage(), containsString("[composite]"));
+        assertThat(e.getMessage(), containsString("[field]"));
+        assertThat(e.getMessage(), containsString("[long] and [string]"));
+    }
+
+    public void testFormatKey() {
+        Map<String, Object> key = InternalComposite.formatKey(Arrays.asList("a", "b"),
+            Arrays.asList(DocValueFormat.RAW, DocValueFormat.RAW), new Comparable<?>[] {new BytesRef("foo"), 3L});
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(key.keySet()));
+        assertEquals("foo", key.get("a"));
+        assertEquals(3L, key.get("b"));
+    }
+}
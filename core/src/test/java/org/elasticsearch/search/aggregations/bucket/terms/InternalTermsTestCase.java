@@ -30,6 +30,10 @@ import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
 public abstract class InternalTermsTestCase extends InternalAggregationTestCase<InternalTerms<?,?>> {
 
     @Override
@@ -73,6 +77,37 @@ public abstract class InternalTermsTestCase extends InternalAggregationTestCase<
         assertEquals(expectedTotalDocCount, reducedTotalDocCount);
     }
 
+    public void testPruneShardBuckets() {
+        final InternalTerms<?, ?> terms = createTestInstance();
+        final int shardSize = randomIntBetween(1, 5);
+        final long shardMinDocCount = randomIntBetween(0, 50);
+        final InternalTerms<?, ?> pruned = terms.pruneShardBuckets(shardSize, shardMinDocCount);
+        assertEquals(shardSize, pruned.getShardSize());
+        assertThat(pruned.getBuckets().size(), lessThanOrEqualTo(shardSize));
+
+        long lastDocCount = Long.MAX_VALUE;
+        for (Terms.Bucket bucket : pruned.getBuckets()) {
+            assertThat(bucket.getDocCount(), greaterThanOrEqualTo(shardMinDocCount));
+            assertThat(bucket.getDocCount(), lessThanOrEqualTo(lastDocCount));
+            lastDocCount = bucket.getDocCount();
+        }
+        Map<Object, Long> evictedTerms = toCounts(terms.getBuckets().stream());
+        evictedTerms.keySet().removeAll(toCounts(pruned.getBuckets().stream()).keySet());
+        for (Long docCount : evictedTerms.values()) {
+            if (pruned.getBuckets().size() < shardSize) {
+                assertThat(docCount, lessThan(shardMinDocCount));
+            } else {
+                assertThat(docCount, lessThanOrEqualTo(lastDocCount));
+            }
+        }
+
+        final long prunedTotalDocCount = pruned.getSumOfOtherDocCounts()
+                + pruned.getBuckets().stream().mapToLong(Terms.Bucket::getDocCount).sum();
+        final long totalDocCount = terms.getSumOfOtherDocCounts()
+                + terms.getBuckets().stream().mapToLong(Terms.Bucket::getDocCount).sum();
+        assertEquals(totalDocCount, prunedTotalDocCount);
+    }
+
     private static Map<Object, Long> toCounts(Stream<? extends Terms.Bucket> buckets) {
         return buckets.collect(Collectors.toMap(
                 Terms.Bucket::getKey,
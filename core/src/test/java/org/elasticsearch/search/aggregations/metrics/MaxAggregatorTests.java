@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
@@ -31,9 +32,10 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.index.mapper.HistogramFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
-import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.PointsAggregatorTestCase;
 import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
 import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.max.MaxAggregator;
@@ -44,7 +46,8 @@ import java.util.function.Consumer;
 
 import static java.util.Collections.singleton;
 
-public class MaxAggregatorTests extends AggregatorTestCase {
+public class MaxAggregatorTests extends PointsAggregatorTestCase {
+
     public void testNoDocs() throws IOException {
         testCase(new MatchAllDocsQuery(), iw -> {
             // Intentionally not writing any docs
@@ -80,7 +83,6 @@ public class MaxAggregatorTests extends AggregatorTestCase {
         });
     }
 
-
     public void testQueryFiltering() throws IOException {
         testCase(IntPoint.newRangeQuery("number", 0, 5), iw -> {
             iw.addDocument(Arrays.asList(new IntPoint("number", 7), new SortedNumericDocValuesField("number", 7)));
@@ -99,8 +101,38 @@ public class MaxAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testReadFromPoints() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            indexRandomDocuments(indexWriter, 1000, 10000);
+            try (IndexReader indexReader = indexWriter.getReader()) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                query = new MatchAllDocsQuery();
+                MaxAggregationBuilder aggregationBuilder = new MaxAggregationBuilder("_name").field(FIELD);
+                InternalMax fromPoints = search(indexSearcher, query, aggregationBuilder, fieldType(true));
+                InternalMax collected = search(indexSearcher, query, aggregationBuilder, fieldType(false));
+                assertEquals(collected.getValue(), fromPoints.getValue(), 0);
+            }
+        }
+    }
+
+    public void testHistogramFieldIsRejected() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            indexWriter.addDocument(singleton(
+                new BinaryDocValuesField("histogram", HistogramFieldMapper.encode(new double[] {1}, new int[] {1}))));
+            try (IndexReader indexReader = indexWriter.getReader()) {
+                MappedFieldType fieldType = new HistogramFieldMapper.HistogramFieldType();
+                fieldType.setName("histogram");
+                MaxAggregationBuilder aggregationBuilder = new MaxAggregationBuilder("_name").field("histogram");
+                IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                    () -> search(new IndexSearcher(indexReader), new MatchAllDocsQuery(), aggregationBuilder, fieldType));
+                assertEquals("field [histogram] of type [histogram] is not supported by aggregation [_name] of type [max]", e.getMessage());
+            }
+        }
+    }
+
     private void testCase(Query query, CheckedConsumer<RandomIndexWriter, IOException> buildIndex, Consumer<InternalMax> verify)
             throws IOException {
+        this.query = query;
         Directory directory = newDirectory();
         RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory);
         buildIndex.accept(indexWriter);
@@ -21,12 +21,22 @@ package org.elasticsearch.search.aggregations.metrics.cardinality;
 
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
 
+import java.io.IOException;
+
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MIN_PRECISION;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
 
 public class HyperLogLogPlusPlusTests extends ESTestCase {
     public void testEncodeDecode() {
@@ -117,6 +127,58 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         assertEquals(1, counts.cardinality(0));
     }
 
+    public void testSparseBuckets() {
+        // many buckets that only see a few values would require gigabytes if each of them allocated its registers
+        final long limit = new ByteSizeValue(64, ByteSizeUnit.MB).getBytes();
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit, ByteSizeUnit.BYTES)
+                .build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        BigArrays bigArrays = new BigArrays(null, breakerService, false).withCircuitBreaking();
+        final int numBuckets = randomIntBetween(10000, 50000);
+        final int[] numValues = new int[numBuckets];
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(MAX_PRECISION, bigArrays, 1)) {
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                numValues[bucket] = randomIntBetween(0, 50);
+                for (int i = 0; i < numValues[bucket]; ++i) {
+                    counts.collect(bucket, BitMixer.mix64(i));
+                    if (randomBoolean()) {
+                        // duplicates are not counted
+                        counts.collect(bucket, BitMixer.mix64(i));
+                    }
+                }
+            }
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                assertEquals(numValues[bucket], counts.cardinality(bucket));
+            }
+            assertThat(breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed(), lessThan(limit));
+
+            // buckets that see many values are upgraded to hyperloglog
+            final long bucket = randomInt(numBuckets - 1);
+            for (int i = 0; i < 100000; ++i) {
+                counts.collect(bucket, BitMixer.mix64(i));
+            }
+            assertThat((double) counts.cardinality(bucket), closeTo(100000, 0.1 * 100000));
+        }
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 0)) {
+            final long bucket = randomInt(20);
+            final int numValues = randomIntBetween(1, randomBoolean() ? 100 : 100000);
+            for (int i = 0; i < numValues; ++i) {
+                counts.collect(bucket, BitMixer.mix64(randomInt()));
+            }
+            BytesStreamOutput out = new BytesStreamOutput();
+            counts.writeTo(bucket, out);
+            try (HyperLogLogPlusPlus copy = HyperLogLogPlusPlus.readFrom(out.bytes().streamInput(), BigArrays.NON_RECYCLING_INSTANCE)) {
+                assertEquals(counts.cardinality(bucket), copy.cardinality(0));
+            }
+        }
+    }
+
     public void testPrecisionFromThreshold() {
         assertEquals(4, HyperLogLogPlusPlus.precisionFromThreshold(0));
         assertEquals(6, HyperLogLogPlusPlus.precisionFromThreshold(10));
@@ -24,14 +24,28 @@ import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
-import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.PointsAggregatorTestCase;
+import org.elasticsearch.search.aggregations.metrics.PointsMinMaxReader;
+import org.elasticsearch.search.aggregations.support.FieldContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+import org.elasticsearch.search.internal.SearchContext;
 
-public class MinAggregatorTests extends AggregatorTestCase {
+import java.io.IOException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MinAggregatorTests extends PointsAggregatorTestCase {
 
     public void testMinAggregator_numericDv() throws Exception {
         Directory directory = newDirectory();
@@ -160,4 +174,34 @@ public class MinAggregatorTests extends AggregatorTestCase {
         directory.close();
     }
 
+    public void testReadFromPoints() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            indexRandomDocuments(indexWriter, 1000, 10000);
+            try (IndexReader indexReader = indexWriter.getReader()) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                query = new MatchAllDocsQuery();
+                MinAggregationBuilder aggregationBuilder = new MinAggregationBuilder("_name").field(FIELD);
+                InternalMin fromPoints = search(indexSearcher, query, aggregationBuilder, fieldType(true));
+                InternalMin collected = search(indexSearcher, query, aggregationBuilder, fieldType(false));
+                assertEquals(collected.getValue(), fromPoints.getValue(), 0);
+            }
+        }
+    }
+
+    public void testBuildPointsReader() {
+        ValuesSourceConfig<ValuesSource.Numeric> config = new ValuesSourceConfig<>(ValuesSourceType.NUMERIC);
+        config.fieldContext(new FieldContext(FIELD, null, fieldType(true)));
+        SearchContext context = mock(SearchContext.class);
+        when(context.minimumScore()).thenReturn(null);
+        when(context.query()).thenReturn(new MatchAllDocsQuery());
+        assertNotNull(PointsMinMaxReader.build(context, null, config));
+        assertNull(PointsMinMaxReader.build(context, mock(Aggregator.class), config));
+
+        when(context.query()).thenReturn(new TermQuery(new Term("other", "value")));
+        assertNull(PointsMinMaxReader.build(context, null, config));
+
+        when(context.query()).thenReturn(new MatchAllDocsQuery());
+        config.fieldContext(new FieldContext(FIELD, null, fieldType(false)));
+        assertNull(PointsMinMaxReader.build(context, null, config));
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.metrics.percentiles.hdr;
 
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.IndexReader;
@@ -28,6 +29,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.mapper.HistogramFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
@@ -91,4 +93,53 @@ public class HDRPercentileRanksAggregatorTests extends AggregatorTestCase {
             }
         }
     }
+
+    public void testHistogramField() throws IOException {
+        try (Directory dir = newDirectory();
+                RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+                Directory rawDir = newDirectory();
+                RandomIndexWriter rawWriter = new RandomIndexWriter(random(), rawDir)) {
+            // index pre-aggregated histograms and the individual values they summarize side by side
+            final int numDocs = randomIntBetween(1, 20);
+            for (int i = 0; i < numDocs; i++) {
+                final double[] values = new double[randomIntBetween(1, 10)];
+                final int[] counts = new int[values.length];
+                double value = randomIntBetween(0, 10);
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = value;
+                    counts[j] = randomIntBetween(0, 100);
+                    for (int k = 0; k < counts[j]; k++) {
+                        Document rawDoc = new Document();
+                        rawDoc.add(new SortedNumericDocValuesField("field", NumericUtils.doubleToSortableLong(value)));
+                        rawWriter.addDocument(rawDoc);
+                    }
+                    value += randomIntBetween(1, 10);
+                }
+                Document doc = new Document();
+                doc.add(new BinaryDocValuesField("field", HistogramFieldMapper.encode(values, counts)));
+                w.addDocument(doc);
+            }
+
+            PercentileRanksAggregationBuilder aggBuilder = new PercentileRanksAggregationBuilder("my_agg")
+                    .field("field")
+                    .method(PercentilesMethod.HDR)
+                    .values(5, 25, 50, 100);
+            MappedFieldType histogramFieldType = new HistogramFieldMapper.HistogramFieldType();
+            histogramFieldType.setName("field");
+            MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+            fieldType.setName("field");
+            try (IndexReader reader = w.getReader(); IndexReader rawReader = rawWriter.getReader()) {
+                PercentileRanks ranks = search(new IndexSearcher(reader), new MatchAllDocsQuery(), aggBuilder, histogramFieldType);
+                PercentileRanks rawRanks = search(new IndexSearcher(rawReader), new MatchAllDocsQuery(), aggBuilder, fieldType);
+                Iterator<Percentile> rankIterator = ranks.iterator();
+                for (Percentile rawRank : rawRanks) {
+                    Percentile rank = rankIterator.next();
+                    assertEquals(rawRank.getValue(), rank.getValue(), 0d);
+                    // recording a value with a count is the same as recording it count times
+                    assertEquals(rawRank.getPercent(), rank.getPercent(), 0d);
+                }
+                assertFalse(rankIterator.hasNext());
+            }
+        }
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.fetch;
+
+import org.elasticsearch.action.admin.indices.segments.IndicesSegmentResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.lucene.search.function.FieldValueFactorFunction;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class FetchPhaseIT extends ESIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Collections.singletonList(InternalSettingsPlugin.class);
+    }
+
+    /**
+     * The fetch phase loads the documents in doc id order, the hits must still be returned in the order of the top docs even
+     * if these jump back and forth between segments.
+     */
+    public void testHitsKeepTopDocsOrderAcrossSegments() throws Exception {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(InternalSettingsPlugin.MERGE_ENABLED.getKey(), false))
+            .addMapping("type", "rank", "type=integer"));
+        // shuffle the ranks so that the top docs are not monotonic in doc id, neither within nor across segments
+        final int numSegments = randomIntBetween(3, 6);
+        final int docsPerSegment = randomIntBetween(5, 20);
+        final List<Integer> ranks = new ArrayList<>();
+        for (int i = 0; i < numSegments * docsPerSegment; i++) {
+            ranks.add(i + 1);
+        }
+        Collections.shuffle(ranks, random());
+        int id = 0;
+        for (int segment = 0; segment < numSegments; segment++) {
+            for (int i = 0; i < docsPerSegment; i++, id++) {
+                client().prepareIndex("test", "type", Integer.toString(id)).setSource("rank", ranks.get(id)).get();
+            }
+            refresh("test");
+        }
+        IndicesSegmentResponse segments = client().admin().indices().prepareSegments("test").get();
+        assertThat(segments.getIndices().get("test").getShards().get(0).getShards()[0].getSegments().size(), greaterThan(1));
+
+        final int size = randomIntBetween(1, ranks.size());
+        final SortOrder order = randomFrom(SortOrder.values());
+        SearchResponse response = client().prepareSearch("test").addSort("rank", order).setSize(size).get();
+        assertSearchResponse(response);
+        assertHitCount(response, ranks.size());
+        SearchHit[] hits = response.getHits().getHits();
+        assertThat(hits.length, equalTo(size));
+        for (int i = 0; i < hits.length; i++) {
+            final int expectedRank = order == SortOrder.ASC ? i + 1 : ranks.size() - i;
+            assertThat(hits[i].getSourceAsMap().get("rank"), equalTo(expectedRank));
+            assertThat(ranks.get(Integer.parseInt(hits[i].getId())), equalTo(expectedRank));
+        }
+
+        response = client().prepareSearch("test")
+            .setQuery(QueryBuilders.functionScoreQuery(ScoreFunctionBuilders.fieldValueFactorFunction("rank")
+                .modifier(FieldValueFactorFunction.Modifier.NONE)))
+            .setSize(size).get();
+        assertSearchResponse(response);
+        hits = response.getHits().getHits();
+        assertThat(hits.length, equalTo(size));
+        for (int i = 0; i < hits.length; i++) {
+            final int expectedRank = ranks.size() - i;
+            assertThat(hits[i].getSourceAsMap().get("rank"), equalTo(expectedRank));
+            assertThat(hits[i].getScore(), equalTo((float) expectedRank));
+            assertThat(ranks.get(Integer.parseInt(hits[i].getId())), equalTo(expectedRank));
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -33,22 +34,55 @@ import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.ShardSearchLocalRequest;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortAndFormats;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
 import org.elasticsearch.test.TestSearchContext;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
 public class QueryPhaseTests extends ESTestCase {
 
     private void countTestCase(Query query, IndexReader reader, boolean shouldCollect) throws Exception {
@@ -169,4 +203,133 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+    public void testIndexSortEarlyTermination() throws Exception {
+        final SortField rankSortField = new SortedNumericSortField("rank", SortField.Type.LONG, true, SortedNumericSelector.Type.MAX);
+        rankSortField.setMissingValue(Long.MAX_VALUE);
+        final Sort indexSort = new Sort(rankSortField);
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setIndexSort(indexSort);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("rank", randomIntBetween(0, 1000)));
+            w.addDocument(doc);
+        }
+        final IndexReader reader = w.getReader();
+        IndexSearcher searcher = new IndexSearcher(reader);
+
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put("index.sort.field", "rank")
+            .put("index.sort.order", "desc")
+            .build();
+        final IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("index", settings);
+        final QueryShardContext queryShardContext =
+            new QueryShardContext(0, indexSettings, null, null, null, null, null, null, null, reader, () -> 0L);
+        final SearchSourceBuilder source = new SearchSourceBuilder().sort(new FieldSortBuilder("rank").order(SortOrder.DESC));
+        final ShardSearchLocalRequest request = new ShardSearchLocalRequest(new ShardId("index", "_na_", 0), 1, SearchType.DEFAULT,
+            source, Strings.EMPTY_ARRAY, false, new AliasFilter(null, Strings.EMPTY_ARRAY), 1f);
+        final int size = randomIntBetween(1, 10);
+        final boolean trackTotalHits = randomBoolean();
+        TestSearchContext context = new TestSearchContext(queryShardContext) {
+            @Override
+            public ShardSearchRequest request() {
+                return request;
+            }
+        };
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setSize(size);
+        context.sort(new SortAndFormats(indexSort, new DocValueFormat[] {DocValueFormat.RAW}));
+        context.trackTotalHits(trackTotalHits);
+        context.setTask(new SearchTask(123L, "", "", "", null));
+
+        QueryPhase.execute(context, searcher);
+        final TopDocs topDocs = context.queryResult().topDocs();
+        final TopDocs expected = searcher.search(new MatchAllDocsQuery(), size, indexSort);
+        assertEquals(expected.scoreDocs.length, topDocs.scoreDocs.length);
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            assertEquals(((FieldDoc) expected.scoreDocs[i]).fields[0], ((FieldDoc) topDocs.scoreDocs[i]).fields[0]);
+        }
+        if (trackTotalHits) {
+            assertEquals(numDocs, topDocs.totalHits);
+        } else {
+            assertThat(topDocs.totalHits, lessThanOrEqualTo(numDocs));
+            assertThat(topDocs.totalHits, greaterThanOrEqualTo(size));
+        }
+        if (numDocs > size * reader.leaves().size()) {
+            assertTrue(context.queryResult().terminatedEarly());
+        }
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testConcurrentSegmentSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numSegments = randomIntBetween(6, 20);
+        for (int i = 0; i < numSegments; ++i) {
+            final int numDocs = randomIntBetween(1, 20);
+            for (int j = 0; j < numDocs; ++j) {
+                Document doc = new Document();
+                doc.add(new SortedNumericDocValuesField("rank", randomIntBetween(0, 50)));
+                if (randomBoolean()) {
+                    doc.add(new StringField("foo", "bar", Store.NO));
+                }
+                w.addDocument(doc);
+            }
+            w.commit();
+        }
+        final IndexReader reader = w.getReader();
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        try {
+            final ContextIndexSearcher contextSearcher = new ContextIndexSearcher(new Engine.Searcher("test", searcher),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), executor);
+            assertThat(contextSearcher.getSliceCount(), greaterThan(1));
+
+            final IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("index", Settings.EMPTY);
+            final QueryShardContext queryShardContext =
+                new QueryShardContext(0, indexSettings, null, null, null, null, null, null, null, reader, () -> 0L);
+            final Sort sort = randomBoolean() ? null : new Sort(new SortedNumericSortField("rank", SortField.Type.LONG, randomBoolean()));
+            final SearchSourceBuilder source = new SearchSourceBuilder();
+            if (sort != null) {
+                source.sort(new FieldSortBuilder("rank"));
+            }
+            final ShardSearchLocalRequest request = new ShardSearchLocalRequest(new ShardId("index", "_na_", 0), 1,
+                SearchType.DEFAULT, source, Strings.EMPTY_ARRAY, false, new AliasFilter(null, Strings.EMPTY_ARRAY), 1f);
+            TestSearchContext context = new TestSearchContext(queryShardContext) {
+                @Override
+                public ShardSearchRequest request() {
+                    return request;
+                }
+            };
+            final Query query = randomBoolean() ? new MatchAllDocsQuery() : new TermQuery(new Term("foo", "bar"));
+            final int size = randomIntBetween(1, 50);
+            context.parsedQuery(new ParsedQuery(query));
+            context.setSize(size);
+            if (sort != null) {
+                context.sort(new SortAndFormats(sort, new DocValueFormat[] {DocValueFormat.RAW}));
+            }
+            context.setTask(new SearchTask(123L, "", "", "", null));
+            assertTrue(ConcurrentQueryPhase.canExecuteConcurrently(context, contextSearcher));
+
+            QueryPhase.execute(context, contextSearcher);
+            final TopDocs topDocs = context.queryResult().topDocs();
+            final TopDocs expected = sort == null ? searcher.search(query, size) : searcher.search(query, size, sort);
+            assertEquals(expected.totalHits, topDocs.totalHits);
+            assertEquals(expected.scoreDocs.length, topDocs.scoreDocs.length);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].doc, topDocs.scoreDocs[i].doc);
+                assertEquals(-1, topDocs.scoreDocs[i].shardIndex);
+            }
+        } finally {
+            ThreadPool.terminate(executor, 10, TimeUnit.SECONDS);
+            reader.close();
+            w.close();
+            dir.close();
+        }
+    }
 }
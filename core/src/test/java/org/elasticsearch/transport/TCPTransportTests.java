@@ -22,6 +22,7 @@ package org.elasticsearch.transport;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -30,6 +31,7 @@ import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -149,11 +151,15 @@ public class TCPTransportTests extends ESTestCase {
 
     public void testCompressRequest() throws IOException {
         final boolean compressed = randomBoolean();
+        final String compressionScheme = randomFrom("deflate", "lz4");
+        final Version nodeVersion = VersionUtils.randomVersionBetween(random(), Version.CURRENT.minimumCompatibilityVersion(),
+            Version.CURRENT);
         final AtomicBoolean called = new AtomicBoolean(false);
         Req request = new Req(randomRealisticUnicodeOfLengthBetween(10, 100));
         ThreadPool threadPool = new TestThreadPool(TCPTransportTests.class.getName());
         try {
-            TcpTransport transport = new TcpTransport("test", Settings.builder().put("transport.tcp.compress", compressed).build(),
+            TcpTransport transport = new TcpTransport("test", Settings.builder().put("transport.tcp.compress", compressed)
+                .put("transport.tcp.compression_scheme", compressionScheme).build(),
                 threadPool, new BigArrays(Settings.EMPTY, null), null, null, null) {
                 @Override
                 protected InetSocketAddress getLocalAddress(Object o) {
@@ -179,13 +185,20 @@ public class TCPTransportTests extends ESTestCase {
                     assertEquals(42, requestId);
                     byte status = streamIn.readByte();
                     Version version = Version.fromId(streamIn.readInt());
-                    assertEquals(Version.CURRENT, version);
+                    assertEquals(nodeVersion, version);
                     assertEquals(compressed, TransportStatus.isCompress(status));
                     called.compareAndSet(false, true);
                     if (compressed) {
                         final int bytesConsumed = TcpHeader.HEADER_SIZE;
-                        streamIn = CompressorFactory.compressor(reference.slice(bytesConsumed, reference.length() - bytesConsumed))
-                            .streamInput(streamIn);
+                        final Compressor compressor =
+                            CompressorFactory.compressor(reference.slice(bytesConsumed, reference.length() - bytesConsumed));
+                        // nodes that don't support lz4 yet get messages compressed with deflate
+                        if (compressionScheme.equals("lz4") && nodeVersion.onOrAfter(TcpTransport.LZ4_COMPRESSION_VERSION)) {
+                            assertSame(CompressorFactory.LZ4, compressor);
+                        } else {
+                            assertSame(CompressorFactory.COMPRESSOR, compressor);
+                        }
+                        streamIn = compressor.streamInput(streamIn);
                     }
                     threadPool.getThreadContext().readHeaders(streamIn);
                     assertEquals("foobar", streamIn.readString());
@@ -215,7 +228,7 @@ public class TCPTransportTests extends ESTestCase {
                         MockTcpTransport.LIGHT_PROFILE);
                 }
             };
-            DiscoveryNode node = new DiscoveryNode("foo", buildNewFakeTransportAddress(), Version.CURRENT);
+            DiscoveryNode node = new DiscoveryNode("foo", buildNewFakeTransportAddress(), nodeVersion);
             Transport.Connection connection = transport.getConnection(node);
             connection.sendRequest(42, "foobar", request, TransportRequestOptions.EMPTY);
             assertTrue(called.get());
@@ -76,7 +76,8 @@ DEFAULT_PLUGINS = ["analysis-icu",
                    "repository-gcs",
                    "repository-hdfs",
                    "repository-s3",
-                   "store-smb"]
+                   "store-smb",
+                   "transport-nio"]
 
 try:
   JAVA_HOME = os.environ['JAVA_HOME']
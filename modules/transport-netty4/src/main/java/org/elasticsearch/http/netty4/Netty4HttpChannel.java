@@ -22,9 +22,13 @@ package org.elasticsearch.http.netty4;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
@@ -33,6 +37,7 @@ import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
@@ -44,6 +49,7 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
 import org.elasticsearch.http.netty4.pipelining.HttpPipelinedRequest;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.transport.netty4.Netty4Utils;
@@ -91,6 +97,10 @@ final class Netty4HttpChannel extends AbstractRestChannel {
 
     @Override
     public void sendResponse(RestResponse response) {
+        if (response instanceof ChunkedRestResponse && isHttp10() == false && HttpMethod.HEAD.equals(nettyRequest.method()) == false) {
+            sendChunkedResponse((ChunkedRestResponse) response);
+            return;
+        }
         // if the response object was created upstream, then use it;
         // otherwise, create a new one
         ByteBuf buffer = Netty4Utils.toByteBuf(response.content());
@@ -102,22 +112,10 @@ final class Netty4HttpChannel extends AbstractRestChannel {
         }
         resp.setStatus(getStatus(response.status()));
 
-        Netty4CorsHandler.setCorsResponseHeaders(nettyRequest, resp, transport.getCorsConfig());
-
-        String opaque = nettyRequest.headers().get("X-Opaque-Id");
-        if (opaque != null) {
-            setHeaderField(resp, "X-Opaque-Id", opaque);
-        }
-
-        // Add all custom headers
-        addCustomHeaders(resp, response.getHeaders());
-        addCustomHeaders(resp, threadContext.getResponseHeaders());
-
         BytesReference content = response.content();
         boolean release = content instanceof Releasable;
         try {
-            // If our response doesn't specify a content-type header, set one
-            setHeaderField(resp, HttpHeaderNames.CONTENT_TYPE.toString(), response.contentType(), false);
+            setResponseHeaders(resp, response);
             // If our response has no content-length, calculate and set one
             setHeaderField(resp, HttpHeaderNames.CONTENT_LENGTH.toString(), String.valueOf(buffer.readableBytes()), false);
 
@@ -151,6 +149,97 @@ final class Netty4HttpChannel extends AbstractRestChannel {
         }
     }
 
+    /*
+     * Sends the head of the response with chunked transfer encoding, then each chunk of the body once the previous write has completed.
+     * Only rendering a chunk when the socket has taken the previous one keeps a single chunk of the body in memory and stops rendering
+     * while a slow client isn't reading.
+     */
+    private void sendChunkedResponse(ChunkedRestResponse response) {
+        boolean success = false;
+        try {
+            final HttpResponse resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, getStatus(response.status()));
+            setResponseHeaders(resp, response);
+            HttpUtil.setTransferEncodingChunked(resp, true);
+            addCookies(resp);
+
+            final ChannelPromise promise = channel.newPromise();
+            promise.addListener(new ChunkWriter(response));
+
+            final Object msg;
+            if (pipelinedRequest != null) {
+                msg = pipelinedRequest.createHttpResponse(resp, promise);
+            } else {
+                msg = resp;
+            }
+            channel.writeAndFlush(msg, promise);
+            success = true;
+        } finally {
+            if (success == false) {
+                response.close();
+            }
+            if (pipelinedRequest != null) {
+                pipelinedRequest.release();
+            }
+        }
+    }
+
+    /**
+     * Writes the next chunk of a chunked response each time the write of the previous part of the response completes.
+     */
+    private class ChunkWriter implements ChannelFutureListener {
+
+        private final ChunkedRestResponse response;
+
+        ChunkWriter(ChunkedRestResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            if (future.isSuccess() == false) {
+                response.close();
+                return;
+            }
+            final ByteBuf chunk;
+            try {
+                chunk = Netty4Utils.toByteBuf(response.nextChunk());
+            } catch (Exception e) {
+                // the status of the response has been sent already, all we can do is to abort it so the client sees it is incomplete;
+                // the exception is logged by the transport which closes the channel
+                response.close();
+                channel.pipeline().fireExceptionCaught(e);
+                return;
+            }
+            final ChannelPromise promise = channel.newPromise();
+            if (response.isDone()) {
+                promise.addListener(f -> response.close());
+                if (isCloseConnection()) {
+                    promise.addListener(ChannelFutureListener.CLOSE);
+                }
+                channel.writeAndFlush(new DefaultLastHttpContent(chunk), promise);
+            } else {
+                promise.addListener(this);
+                channel.writeAndFlush(new DefaultHttpContent(chunk), promise);
+            }
+        }
+    }
+
+    private void setResponseHeaders(HttpResponse resp, RestResponse response) {
+        Netty4CorsHandler.setCorsResponseHeaders(nettyRequest, resp, transport.getCorsConfig());
+
+        String opaque = nettyRequest.headers().get("X-Opaque-Id");
+        if (opaque != null) {
+            setHeaderField(resp, "X-Opaque-Id", opaque);
+        }
+
+        // Add all custom headers
+        addCustomHeaders(resp, response.getHeaders());
+        addCustomHeaders(resp, threadContext.getResponseHeaders());
+
+        // If our response doesn't specify a content-type header, set one
+        setHeaderField(resp, HttpHeaderNames.CONTENT_TYPE.toString(), response.contentType(), false);
+    }
+
     private void setHeaderField(HttpResponse resp, String headerField, String value) {
         setHeaderField(resp, headerField, value, true);
     }
@@ -0,0 +1,182 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.rest.RestRequestBodyConsumer;
+import org.elasticsearch.transport.netty4.Netty4Utils;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Passes the body of requests whose handler supports it to a {@link RestRequestBodyConsumer} chunk by chunk, instead of
+ * aggregating the body first. This handler sits in front of the aggregator and lets all other requests through. The head of a
+ * streamed request still passes through the handlers that follow, only its body is kept from them. While the consumer works on a
+ * chunk, reading from the channel is paused and messages that were already decoded are held back.
+ */
+class Netty4HttpRequestBodyStreamHandler extends ChannelInboundHandlerAdapter {
+
+    private final Netty4HttpServerTransport serverTransport;
+
+    // the state below is only accessed from the event loop of the channel
+    private final Deque<Object> queued = new ArrayDeque<>();
+    private RestRequestBodyConsumer consumer;
+    private boolean waiting;
+
+    Netty4HttpRequestBodyStreamHandler(Netty4HttpServerTransport serverTransport) {
+        this.serverTransport = serverTransport;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        queued.add(msg);
+        handleQueued(ctx);
+    }
+
+    private void handleQueued(ChannelHandlerContext ctx) {
+        while (waiting == false && queued.isEmpty() == false) {
+            handle(ctx, queued.poll());
+        }
+        ctx.channel().config().setAutoRead(waiting == false);
+    }
+
+    private void handle(ChannelHandlerContext ctx, Object msg) {
+        if (consumer == null) {
+            if (msg instanceof HttpRequest && msg instanceof FullHttpRequest == false && startStreaming(ctx, (HttpRequest) msg)) {
+                return;
+            }
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        final HttpContent content = (HttpContent) msg;
+        final RestRequestBodyConsumer current = consumer;
+        final boolean isLast = content instanceof LastHttpContent;
+        try {
+            if (content.decoderResult().isFailure()) {
+                final Throwable cause = content.decoderResult().cause();
+                consumer = isLast ? null : RestRequestBodyConsumer.DISCARD;
+                current.onFailure(cause instanceof Exception ? (Exception) cause : new ElasticsearchException(cause));
+            } else {
+                if (isLast) {
+                    consumer = null;
+                } else {
+                    waiting = true;
+                }
+                current.accept(Netty4Utils.toBytesReference(content.content()), isLast, () -> resume(ctx));
+            }
+        } catch (Exception e) {
+            waiting = false;
+            consumer = isLast ? null : RestRequestBodyConsumer.DISCARD;
+            current.onFailure(e);
+        } finally {
+            content.release();
+        }
+    }
+
+    private void resume(ChannelHandlerContext ctx) {
+        ctx.channel().eventLoop().execute(() -> {
+            waiting = false;
+            handleQueued(ctx);
+        });
+    }
+
+    /**
+     * Dispatches the given request if its body can be streamed. The head of the request is sent down the pipeline without a body,
+     * so that the handlers after the aggregator see it like any other request: the compressor records its accepted encodings, the
+     * CORS handler may reject it and the pipelining handler assigns it a sequence number. The request handler at the end of the
+     * pipeline dispatches it and hands back the consumer of its body.
+     *
+     * @return whether the body of the request is streamed
+     */
+    private boolean startStreaming(ChannelHandlerContext ctx, HttpRequest request) {
+        if (request.decoderResult().isSuccess() == false
+            || (HttpUtil.isTransferEncodingChunked(request) == false && HttpUtil.getContentLength(request, 0L) == 0L)) {
+            return false;
+        }
+        final StreamedHttpRequest head = new StreamedHttpRequest(request);
+        try {
+            if (serverTransport.supportsStreamingRequestBody(new Netty4HttpRequest(serverTransport.xContentRegistry, head, ctx.channel()))
+                == false) {
+                return false;
+            }
+        } catch (Exception e) {
+            // the aggregated request fails the same way and is responded to as usual
+            return false;
+        }
+
+        if (HttpUtil.is100ContinueExpected(request)) {
+            // the aggregator usually takes care of this
+            ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+        }
+        ctx.fireChannelRead(head);
+        // no consumer means that the request was answered before it reached the request handler, like a CORS rejection
+        consumer = head.consumer == null ? RestRequestBodyConsumer.DISCARD : head.consumer;
+        return true;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        final RestRequestBodyConsumer current = consumer;
+        consumer = null;
+        Object msg;
+        while ((msg = queued.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+        if (current != null) {
+            current.onFailure(new ClosedChannelException());
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * The head of a request whose body is streamed, sent down the pipeline without its body. The request handler sets the consumer
+     * that the body is passed to once it has dispatched the request.
+     */
+    static final class StreamedHttpRequest extends DefaultFullHttpRequest {
+
+        private RestRequestBodyConsumer consumer;
+
+        private StreamedHttpRequest(HttpRequest request) {
+            super(request.protocolVersion(), request.method(), request.uri(), Unpooled.EMPTY_BUFFER, request.headers(),
+                EmptyHttpHeaders.INSTANCE);
+        }
+
+        void setConsumer(RestRequestBodyConsumer consumer) {
+            this.consumer = consumer;
+        }
+    }
+}
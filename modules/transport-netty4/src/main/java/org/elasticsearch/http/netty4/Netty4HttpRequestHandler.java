@@ -65,6 +65,16 @@ class Netty4HttpRequestHandler extends SimpleChannelInboundHandler<Object> {
             request = (FullHttpRequest) msg;
         }
 
+        if (request instanceof Netty4HttpRequestBodyStreamHandler.StreamedHttpRequest) {
+            // the body of the request follows and is passed to the consumer by the stream handler
+            final Netty4HttpRequest httpRequest = new Netty4HttpRequest(serverTransport.xContentRegistry, request, ctx.channel());
+            final Netty4HttpChannel channel =
+                new Netty4HttpChannel(serverTransport, httpRequest, pipelinedRequest, detailedErrorsEnabled, threadContext);
+            ((Netty4HttpRequestBodyStreamHandler.StreamedHttpRequest) request)
+                .setConsumer(serverTransport.dispatchStreamingRequest(httpRequest, channel));
+            return;
+        }
+
         String contentString = request.content().toString(StandardCharsets.UTF_8);
         List<String> allMatches = new ArrayList<String>();
         //Find all stings in request.content() matching "u####" pattern
@@ -71,6 +71,7 @@ import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
 import org.elasticsearch.http.netty4.pipelining.HttpPipeliningHandler;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestRequestBodyConsumer;
 import org.elasticsearch.rest.RestUtils;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BindTransportException;
@@ -108,6 +109,7 @@ import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_PORT;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_PUBLISH_HOST;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_PUBLISH_PORT;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_RESET_COOKIES;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_STREAM_REQUEST_BODIES;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_PIPELINING;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_PIPELINING_MAX_EVENTS;
 import static org.elasticsearch.http.netty4.cors.Netty4CorsHandler.ANY_ORIGIN;
@@ -163,6 +165,8 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
 
     protected final int pipeliningMaxEvents;
 
+    protected final boolean streamRequestBodies;
+
     protected final boolean compression;
 
     protected final int compressionLevel;
@@ -249,6 +253,7 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         this.compressionLevel = SETTING_HTTP_COMPRESSION_LEVEL.get(settings);
         this.pipelining = SETTING_PIPELINING.get(settings);
         this.pipeliningMaxEvents = SETTING_PIPELINING_MAX_EVENTS.get(settings);
+        this.streamRequestBodies = SETTING_HTTP_STREAM_REQUEST_BODIES.get(settings);
         this.corsConfig = buildCorsConfig(settings);
 
         // validate max content length
@@ -492,6 +497,17 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         }
     }
 
+    boolean supportsStreamingRequestBody(final RestRequest request) {
+        return dispatcher.supportsStreamingRequestBody(request);
+    }
+
+    RestRequestBodyConsumer dispatchStreamingRequest(final RestRequest request, final RestChannel channel) {
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            return dispatcher.dispatchStreamingRequest(request, channel, threadContext);
+        }
+    }
+
     void dispatchBadRequest(final RestRequest request, final RestChannel channel, final Throwable cause) {
         final ThreadContext threadContext = threadPool.getThreadContext();
         try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
@@ -554,6 +570,10 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
             ch.pipeline().addLast("decoder", decoder);
             ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
             ch.pipeline().addLast("encoder", new HttpResponseEncoder());
+            if (transport.streamRequestBodies) {
+                // must come before the aggregator so that it sees the body of a request in chunks
+                ch.pipeline().addLast("request_body_stream", new Netty4HttpRequestBodyStreamHandler(transport));
+            }
             final HttpObjectAggregator aggregator = new HttpObjectAggregator(Math.toIntExact(transport.maxContentLength.getBytes()));
             if (transport.maxCompositeBufferComponents != -1) {
                 aggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
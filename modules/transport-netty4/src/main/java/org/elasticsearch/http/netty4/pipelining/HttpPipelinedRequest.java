@@ -20,7 +20,7 @@
 package org.elasticsearch.http.netty4.pipelining;
 
 import io.netty.channel.ChannelPromise;
-import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.ReferenceCounted;
 
@@ -42,7 +42,12 @@ public class HttpPipelinedRequest implements ReferenceCounted {
         return last;
     }
 
-    public HttpPipelinedResponse createHttpResponse(final FullHttpResponse response, final ChannelPromise promise) {
+    /**
+     * Creates the response to this request. If the response is not a full response, its content must follow as
+     * {@link io.netty.handler.codec.http.HttpContent} messages written once the returned response has been written, and the responses
+     * to the requests that follow this one are held until the {@link LastHttpContent} of this response has been written.
+     */
+    public HttpPipelinedResponse createHttpResponse(final HttpResponse response, final ChannelPromise promise) {
         return new HttpPipelinedResponse(response, promise, sequence);
     }
 
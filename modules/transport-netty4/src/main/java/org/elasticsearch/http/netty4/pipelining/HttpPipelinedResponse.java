@@ -20,22 +20,27 @@ package org.elasticsearch.http.netty4.pipelining;
  */
 
 import io.netty.channel.ChannelPromise;
-import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 
+/**
+ * A response to a pipelined request. This is either a full response or, for a chunked response, only its head which is then followed
+ * by the content of the response written to the channel as plain {@link io.netty.handler.codec.http.HttpContent} messages.
+ */
 class HttpPipelinedResponse implements Comparable<HttpPipelinedResponse>, ReferenceCounted {
 
-    private final FullHttpResponse response;
+    private final HttpResponse response;
     private final ChannelPromise promise;
     private final int sequence;
 
-    HttpPipelinedResponse(FullHttpResponse response, ChannelPromise promise, int sequence) {
+    HttpPipelinedResponse(HttpResponse response, ChannelPromise promise, int sequence) {
         this.response = response;
         this.promise = promise;
         this.sequence = sequence;
     }
 
-    public FullHttpResponse response() {
+    public HttpResponse response() {
         return response;
     }
 
@@ -54,41 +59,41 @@ class HttpPipelinedResponse implements Comparable<HttpPipelinedResponse>, Refere
 
     @Override
     public int refCnt() {
-        return response.refCnt();
+        return response instanceof ReferenceCounted ? ((ReferenceCounted) response).refCnt() : 1;
     }
 
     @Override
     public ReferenceCounted retain() {
-        response.retain();
+        ReferenceCountUtil.retain(response);
         return this;
     }
 
     @Override
     public ReferenceCounted retain(int increment) {
-        response.retain(increment);
+        ReferenceCountUtil.retain(response, increment);
         return this;
     }
 
     @Override
     public ReferenceCounted touch() {
-        response.touch();
+        ReferenceCountUtil.touch(response);
         return this;
     }
 
     @Override
     public ReferenceCounted touch(Object hint) {
-        response.touch(hint);
+        ReferenceCountUtil.touch(response, hint);
         return this;
     }
 
     @Override
     public boolean release() {
-        return response.release();
+        return ReferenceCountUtil.release(response);
     }
 
     @Override
     public boolean release(int decrement) {
-        return response.release(decrement);
+        return ReferenceCountUtil.release(response, decrement);
     }
 
 }
@@ -46,6 +46,12 @@ public class HttpPipeliningHandler extends ChannelDuplexHandler {
     private int readSequence;
     private int writeSequence;
 
+    /*
+     * Whether the head of a chunked response has been written but not its last content yet. Responses that follow it are held until it
+     * is complete.
+     */
+    private boolean chunkedResponseInProgress;
+
     /**
      * Construct a new pipelining handler; this handler should be used downstream of HTTP decoding/aggregation.
      *
@@ -83,25 +89,7 @@ public class HttpPipeliningHandler extends ChannelDuplexHandler {
             synchronized (holdingQueue) {
                 if (holdingQueue.size() < maxEventsHeld) {
                     holdingQueue.add(current);
-
-                    while (!holdingQueue.isEmpty()) {
-                        /*
-                         * Since the response with the lowest sequence number is the top of the priority queue, we know if its sequence
-                         * number does not match the current write sequence number then we have not processed all preceding responses yet.
-                         */
-                        final HttpPipelinedResponse top = holdingQueue.peek();
-                        if (top.sequence() != writeSequence) {
-                            break;
-                        }
-                        holdingQueue.remove();
-                        /*
-                         * We must use the promise attached to the response; this is necessary since are going to hold a response until all
-                         * responses that precede it in the pipeline are written first. Note that the promise from the method invocation is
-                         * not ignored, it will already be attached to an existing response and consumed when that response is drained.
-                         */
-                        ctx.write(top.response(), top.promise());
-                        writeSequence++;
-                    }
+                    writeHeldResponses(ctx);
                 } else {
                     channelShouldClose = true;
                 }
@@ -115,9 +103,46 @@ public class HttpPipeliningHandler extends ChannelDuplexHandler {
                     promise.setSuccess();
                 }
             }
+        } else if (msg instanceof LastHttpContent) {
+            synchronized (holdingQueue) {
+                ctx.write(msg, promise);
+                if (chunkedResponseInProgress) {
+                    // the chunked response is complete, the responses that follow it can be written now
+                    chunkedResponseInProgress = false;
+                    writeSequence++;
+                    writeHeldResponses(ctx);
+                }
+            }
         } else {
             ctx.write(msg, promise);
         }
     }
 
+    private void writeHeldResponses(final ChannelHandlerContext ctx) {
+        assert Thread.holdsLock(holdingQueue);
+        while (!holdingQueue.isEmpty() && chunkedResponseInProgress == false) {
+            /*
+             * Since the response with the lowest sequence number is the top of the priority queue, we know if its sequence number does not
+             * match the current write sequence number then we have not processed all preceding responses yet.
+             */
+            final HttpPipelinedResponse top = holdingQueue.peek();
+            if (top.sequence() != writeSequence) {
+                break;
+            }
+            holdingQueue.remove();
+            /*
+             * We must use the promise attached to the response; this is necessary since are going to hold a response until all responses
+             * that precede it in the pipeline are written first. Note that the promise from the method invocation is not ignored, it will
+             * already be attached to an existing response and consumed when that response is drained.
+             */
+            ctx.write(top.response(), top.promise());
+            if (top.response() instanceof LastHttpContent) {
+                writeSequence++;
+            } else {
+                // only the head of a chunked response, its content follows and the write sequence moves on with its last content
+                chunkedResponseInProgress = true;
+            }
+        }
+    }
+
 }
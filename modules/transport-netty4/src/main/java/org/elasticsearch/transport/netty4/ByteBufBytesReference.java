@@ -19,6 +19,7 @@
 package org.elasticsearch.transport.netty4;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -65,8 +66,12 @@ final class ByteBufBytesReference extends BytesReference {
         buffer.getBytes(offset, os, length);
     }
 
+    /**
+     * Returns a view of exactly the bytes of this reference. The view can not be released since the underlying buffer is
+     * owned by whoever created this reference, not by the channel that the view is written to.
+     */
     ByteBuf toByteBuf() {
-        return buffer.duplicate();
+        return Unpooled.unreleasableBuffer(buffer.slice(offset, length));
     }
 
     @Override
@@ -29,6 +29,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.logging.ESLoggerFactory;
 
 import java.io.IOException;
@@ -58,6 +59,8 @@ public class Netty4Utils {
     /**
      * Turns the given BytesReference into a ByteBuf. Note: the returned ByteBuf will reference the internal
      * pages of the BytesReference. Don't free the bytes of reference before the ByteBuf goes out of scope.
+     * The parts of a {@link CompositeBytesReference} are added to the returned buffer as they are, so that buffers
+     * that we received from netty are passed on without copying them onto the heap first.
      */
     public static ByteBuf toByteBuf(final BytesReference reference) {
         if (reference.length() == 0) {
@@ -66,17 +69,37 @@ public class Netty4Utils {
         if (reference instanceof ByteBufBytesReference) {
             return ((ByteBufBytesReference) reference).toByteBuf();
         } else {
-            final BytesRefIterator iterator = reference.iterator();
             // usually we have one, two, or three components from the header, the message, and a buffer
             final List<ByteBuf> buffers = new ArrayList<>(3);
+            addComponents(reference, buffers);
+            if (buffers.size() == 1) {
+                return buffers.get(0);
+            }
+            // the composite must be allowed to hold all components, otherwise it consolidates them into a single copy
+            final CompositeByteBuf composite = Unpooled.compositeBuffer(buffers.size());
+            composite.addComponents(true, buffers);
+            return composite;
+        }
+    }
+
+    private static void addComponents(final BytesReference reference, final List<ByteBuf> buffers) {
+        if (reference.length() == 0) {
+            // an empty zero copy buffer is common and would only add an empty component
+            return;
+        }
+        if (reference instanceof ByteBufBytesReference) {
+            buffers.add(((ByteBufBytesReference) reference).toByteBuf());
+        } else if (reference instanceof CompositeBytesReference) {
+            for (BytesReference part : ((CompositeBytesReference) reference).references()) {
+                addComponents(part, buffers);
+            }
+        } else {
+            final BytesRefIterator iterator = reference.iterator();
             try {
                 BytesRef slice;
                 while ((slice = iterator.next()) != null) {
                     buffers.add(Unpooled.wrappedBuffer(slice.bytes, slice.offset, slice.length));
                 }
-                final CompositeByteBuf composite = Unpooled.compositeBuffer(buffers.size());
-                composite.addComponents(true, buffers);
-                return composite;
             } catch (IOException ex) {
                 throw new AssertionError("no IO happens here", ex);
             }
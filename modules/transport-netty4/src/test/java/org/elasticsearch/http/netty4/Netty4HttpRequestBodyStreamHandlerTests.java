@@ -0,0 +1,275 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.action.document.RestBulkAction;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.netty4.Netty4Utils;
+import org.junit.After;
+import org.junit.Before;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_ORIGIN;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ENABLED;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_COMPRESSION;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_STREAM_REQUEST_BODIES;
+
+/**
+ * Runs streamed bulk requests through the pipeline of the {@link Netty4HttpServerTransport}, with compression and CORS enabled.
+ */
+public class Netty4HttpRequestBodyStreamHandlerTests extends ESTestCase {
+
+    private static final String ALLOWED_ORIGIN = "http://allowed.example";
+
+    private NetworkService networkService;
+    private ThreadPool threadPool;
+    private MockBigArrays bigArrays;
+
+    @Before
+    public void setup() throws Exception {
+        networkService = new NetworkService(Settings.EMPTY, Collections.emptyList());
+        threadPool = new TestThreadPool("test");
+        bigArrays = new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService());
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        if (threadPool != null) {
+            threadPool.shutdownNow();
+        }
+        threadPool = null;
+        networkService = null;
+        bigArrays = null;
+    }
+
+    public void testStreamsChunkedBulk() throws Exception {
+        final PendingBulkClient client = new PendingBulkClient(threadPool);
+        try (Netty4HttpServerTransport transport = newTransport(client)) {
+            transport.start();
+            final EmbeddedChannel channel = new EmbeddedChannel(transport.configureServerChannelHandler());
+            try {
+                channel.writeInbound(ascii(head(ALLOWED_ORIGIN)));
+                channel.writeInbound(chunk(items(0, 2)));
+
+                // the first batch is executed while the rest of the body has not been read yet
+                assertEquals(1, client.requests.size());
+                assertEquals(2, client.requests.get(0).numberOfActions());
+                assertFalse(channel.config().isAutoRead());
+
+                // chunks that arrive while the batch executes are held back
+                channel.writeInbound(chunk(items(2, 3)));
+                channel.runPendingTasks();
+                assertEquals(1, client.requests.size());
+                assertFalse(channel.config().isAutoRead());
+
+                client.respond(0);
+                channel.runPendingTasks();
+                assertEquals(2, client.requests.size());
+                assertEquals(3, client.requests.get(1).numberOfActions());
+                assertFalse(channel.config().isAutoRead());
+
+                client.respond(1);
+                channel.runPendingTasks();
+                assertTrue(channel.config().isAutoRead());
+
+                channel.writeInbound(ascii("0\r\n\r\n"));
+                channel.runPendingTasks();
+                assertEquals(2, client.requests.size());
+
+                final FullHttpResponse response = readResponse(channel);
+                try {
+                    assertEquals(HttpResponseStatus.OK, response.status());
+                    assertEquals(ALLOWED_ORIGIN, response.headers().get(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN));
+                    final Map<String, Object> map = XContentHelper.convertToMap(Netty4Utils.toBytesReference(response.content()), false,
+                        XContentType.JSON).v2();
+                    // a single response holds the items of both batches
+                    assertEquals(5, ((List<?>) map.get("items")).size());
+                } finally {
+                    response.release();
+                }
+            } finally {
+                channel.finishAndReleaseAll();
+            }
+        }
+    }
+
+    public void testForbiddenOriginIsNotExecuted() throws Exception {
+        final PendingBulkClient client = new PendingBulkClient(threadPool);
+        try (Netty4HttpServerTransport transport = newTransport(client)) {
+            transport.start();
+            final EmbeddedChannel channel = new EmbeddedChannel(transport.configureServerChannelHandler());
+            try {
+                channel.writeInbound(ascii(head("http://forbidden.example") + chunkString(items(0, 2)) + "0\r\n\r\n"));
+                channel.runPendingTasks();
+
+                assertEquals(0, client.requests.size());
+                final FullHttpResponse response = readResponse(channel);
+                try {
+                    assertEquals(HttpResponseStatus.FORBIDDEN, response.status());
+                } finally {
+                    response.release();
+                }
+                assertFalse(channel.isOpen());
+            } finally {
+                channel.finishAndReleaseAll();
+            }
+        }
+    }
+
+    private Netty4HttpServerTransport newTransport(NodeClient client) {
+        final Settings settings = Settings.builder()
+            .put(SETTING_HTTP_STREAM_REQUEST_BODIES.getKey(), true)
+            .put(SETTING_HTTP_COMPRESSION.getKey(), true)
+            .put(SETTING_CORS_ENABLED.getKey(), true)
+            .put(SETTING_CORS_ALLOW_ORIGIN.getKey(), ALLOWED_ORIGIN)
+            .put(RestBulkAction.STREAMING_BATCH_SIZE.getKey(), "1b")
+            .build();
+        final RestController controller =
+            new RestController(settings, Collections.emptySet(), UnaryOperator.identity(), client, new NoneCircuitBreakerService());
+        new RestBulkAction(settings, controller);
+        return new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool, xContentRegistry(), controller);
+    }
+
+    /**
+     * Decodes the bytes that the server wrote, decompressing the body of the response.
+     */
+    private static FullHttpResponse readResponse(EmbeddedChannel channel) {
+        final EmbeddedChannel client =
+            new EmbeddedChannel(new HttpResponseDecoder(), new HttpContentDecompressor(), new HttpObjectAggregator(1024 * 1024));
+        try {
+            Object msg;
+            boolean compressed = false;
+            while ((msg = channel.readOutbound()) != null) {
+                final ByteBuf bytes = (ByteBuf) msg;
+                compressed |= bytes.toString(StandardCharsets.US_ASCII).contains("content-encoding: gzip");
+                client.writeInbound(bytes);
+            }
+            final FullHttpResponse response = client.readInbound();
+            assertNotNull("no response was written", response);
+            if (response.status().equals(HttpResponseStatus.OK)) {
+                assertTrue("the response was not compressed", compressed);
+            }
+            return response;
+        } finally {
+            client.finishAndReleaseAll();
+        }
+    }
+
+    private static String head(String origin) {
+        return "POST /_bulk HTTP/1.1\r\n"
+            + "host: localhost\r\n"
+            + "content-type: application/x-ndjson\r\n"
+            + "transfer-encoding: chunked\r\n"
+            + "accept-encoding: gzip\r\n"
+            + "origin: " + origin + "\r\n"
+            + "\r\n";
+    }
+
+    private static String items(int from, int count) {
+        final StringBuilder items = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            items.append("{\"index\":{\"_index\":\"test\",\"_type\":\"type\",\"_id\":\"").append(i).append("\"}}\n");
+            items.append("{\"field\":\"value").append(i).append("\"}\n");
+        }
+        return items.toString();
+    }
+
+    private static String chunkString(String data) {
+        return Integer.toHexString(data.getBytes(StandardCharsets.UTF_8).length) + "\r\n" + data + "\r\n";
+    }
+
+    private static ByteBuf chunk(String data) {
+        return ascii(chunkString(data));
+    }
+
+    private static ByteBuf ascii(String data) {
+        return Unpooled.copiedBuffer(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A client that holds on to the bulk requests it is sent until the test responds to them.
+     */
+    private static class PendingBulkClient extends NodeClient {
+
+        private final List<BulkRequest> requests = new CopyOnWriteArrayList<>();
+        private final List<ActionListener<BulkResponse>> listeners = new CopyOnWriteArrayList<>();
+
+        PendingBulkClient(ThreadPool threadPool) {
+            super(Settings.EMPTY, threadPool);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <    Request extends ActionRequest,
+                    Response extends ActionResponse,
+                    RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>
+                > void doExecute(Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener) {
+            requests.add((BulkRequest) request);
+            listeners.add((ActionListener<BulkResponse>) listener);
+        }
+
+        void respond(int index) {
+            final BulkRequest bulkRequest = requests.get(index);
+            final BulkItemResponse[] items = new BulkItemResponse[bulkRequest.numberOfActions()];
+            for (int i = 0; i < items.length; i++) {
+                final DocWriteRequest request = bulkRequest.requests().get(i);
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                    new IndexResponse(new ShardId("test", "_na_", 0), request.type(), request.id(), 1, 1, true));
+            }
+            listeners.get(index).onResponse(new BulkResponse(items, 1));
+        }
+    }
+}
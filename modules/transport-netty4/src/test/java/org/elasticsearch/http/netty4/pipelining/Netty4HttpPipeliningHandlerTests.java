@@ -28,11 +28,16 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
@@ -198,6 +203,40 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
         assertFalse(embeddedChannel.isOpen());
     }
 
+    public void testThatPipeliningHoldsResponsesUntilChunkedResponseIsComplete() {
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new HttpPipeliningHandler(randomIntBetween(2, 128)));
+        final HttpPipeliningHandler handler = embeddedChannel.pipeline().get(HttpPipeliningHandler.class);
+        final HttpPipelinedRequest first = handler.newPipelinedRequest(LastHttpContent.EMPTY_LAST_CONTENT);
+        final HttpPipelinedRequest second = handler.newPipelinedRequest(LastHttpContent.EMPTY_LAST_CONTENT);
+
+        // the response to the second request is ready first
+        final ByteBuf content = Unpooled.copiedBuffer("1", StandardCharsets.UTF_8);
+        final ChannelPromise secondPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(second.createHttpResponse(new DefaultFullHttpResponse(HTTP_1_1, OK, content), secondPromise),
+            secondPromise);
+        assertThat(embeddedChannel.outboundMessages().size(), is(0));
+
+        // the first request gets a chunked response, the response to the second request is held until its last content is written
+        final HttpResponse head = new DefaultHttpResponse(HTTP_1_1, OK);
+        final ChannelPromise firstPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(first.createHttpResponse(head, firstPromise), firstPromise);
+        embeddedChannel.writeAndFlush(new DefaultHttpContent(Unpooled.copiedBuffer("0", StandardCharsets.UTF_8)));
+        assertThat(embeddedChannel.outboundMessages().size(), is(2));
+        assertTrue(secondPromise.isDone() == false);
+
+        embeddedChannel.writeAndFlush(new DefaultLastHttpContent(Unpooled.copiedBuffer("0", StandardCharsets.UTF_8)));
+        assertSame(head, embeddedChannel.outboundMessages().poll());
+        for (int i = 0; i < 2; i++) {
+            final HttpContent chunk = (HttpContent) embeddedChannel.outboundMessages().poll();
+            assertThat(chunk instanceof LastHttpContent, is(i == 1));
+            assertThat(chunk.content().toString(StandardCharsets.UTF_8), is("0"));
+            chunk.release();
+        }
+        assertReadHttpMessageHasContent(embeddedChannel, "1");
+        assertTrue(secondPromise.isSuccess());
+        assertTrue(embeddedChannel.isOpen());
+    }
+
 
     private void assertReadHttpMessageHasContent(EmbeddedChannel embeddedChannel, String expectedContent) {
         FullHttpResponse response = (FullHttpResponse) embeddedChannel.outboundMessages().poll();
@@ -26,6 +26,7 @@ import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.bytes.AbstractBytesReferenceTestCase;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
@@ -75,6 +76,29 @@ public class Netty4UtilsTests extends ESTestCase {
         assertArrayEquals(BytesReference.toBytes(ref), BytesReference.toBytes(bytesReference));
     }
 
+    public void testToChannelBufferDoesNotCopyNettyBuffers() throws IOException {
+        final byte[] header = new byte[randomIntBetween(1, 32)];
+        random().nextBytes(header);
+        final ByteBuf direct = Unpooled.directBuffer(randomIntBetween(1, PAGE_SIZE));
+        direct.writeZero(direct.capacity());
+        final BytesReference ref = new CompositeBytesReference(new BytesArray(header),
+            new CompositeBytesReference(Netty4Utils.toBytesReference(direct), BytesArray.EMPTY));
+        final ByteBuf buffer = Netty4Utils.toByteBuf(ref);
+        assertTrue(buffer instanceof CompositeByteBuf);
+        // the empty zero copy buffer is not added as a component
+        assertEquals(2, ((CompositeByteBuf) buffer).numComponents());
+        assertEquals(ref.length(), buffer.readableBytes());
+
+        // the bytes of the netty buffer are shared rather than copied
+        direct.setByte(0, 42);
+        assertEquals(42, buffer.getByte(header.length));
+
+        // the netty buffer is owned by the reference, releasing the sent buffer must not free it
+        buffer.release();
+        assertEquals(1, direct.refCnt());
+        direct.release();
+    }
+
     private BytesReference getRandomizedBytesReference(int length) throws IOException {
         // we know bytes stream output always creates a paged bytes reference, we use it to create randomized content
         ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(length, bigarrays);
@@ -0,0 +1,210 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.nio;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bytes read from a channel that have not been consumed yet. Bytes are read through the direct buffer of the selector and copied
+ * into pages that are allocated from {@link BigArrays}, so they are recycled and accounted for, and pages are given back as soon as
+ * all their bytes have been consumed.
+ * A connection that has nothing buffered holds no page at all. This class is not thread safe, it is only used by the selector thread of
+ * the channel.
+ */
+final class InboundBuffer implements Releasable {
+
+    static final int PAGE_SIZE = BigArrays.BYTE_PAGE_SIZE;
+
+    /**
+     * The maximum number of pages that are filled by a single {@link #readFrom(ReadableByteChannel, ByteBuffer)} so that a busy
+     * channel can't hold up the other channels of its selector.
+     */
+    static final int MAX_PAGES_PER_READ = 16;
+
+    private final BigArrays bigArrays;
+    private final List<ByteArray> pages = new ArrayList<>();
+    private final List<BytesRef> pageBytes = new ArrayList<>();
+    // the position of the first unconsumed byte in the first page
+    private int offset;
+    private int length;
+
+    InboundBuffer(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+    }
+
+    /**
+     * Reads the bytes that are available from the given channel. The bytes are read into the given direct buffer, at most a page
+     * at a time, and then copied into the pages of this buffer.
+     *
+     * @return the number of bytes read, or -1 if the channel has reached end-of-stream and nothing was read
+     */
+    @SuppressForbidden(reason = "channels are non-blocking, reading stops as soon as the channel has no bytes available")
+    int readFrom(ReadableByteChannel channel, ByteBuffer ioBuffer) throws IOException {
+        int totalRead = 0;
+        for (int i = 0; i < MAX_PAGES_PER_READ; i++) {
+            final int writeIndex = offset + length;
+            if (writeIndex == pages.size() * PAGE_SIZE) {
+                addPage();
+            }
+            final BytesRef page = pageBytes.get(pageBytes.size() - 1);
+            final int pageOffset = writeIndex - (pages.size() - 1) * PAGE_SIZE;
+            final int toRead = Math.min(PAGE_SIZE - pageOffset, ioBuffer.capacity());
+            ioBuffer.clear();
+            ioBuffer.limit(toRead);
+            final int read = channel.read(ioBuffer);
+            if (read == -1) {
+                releaseIfEmpty();
+                return totalRead == 0 ? -1 : totalRead;
+            }
+            ioBuffer.flip();
+            ioBuffer.get(page.bytes, page.offset + pageOffset, read);
+            length += read;
+            totalRead += read;
+            if (read < toRead) {
+                // the channel has no more bytes for now
+                break;
+            }
+        }
+        releaseIfEmpty();
+        return totalRead;
+    }
+
+    private void addPage() {
+        final ByteArray page = bigArrays.newByteArray(PAGE_SIZE, false);
+        boolean success = false;
+        try {
+            final BytesRef bytes = new BytesRef();
+            // a single page is backed by a single array, this gives access to it without copying
+            page.get(0, PAGE_SIZE, bytes);
+            pages.add(page);
+            pageBytes.add(bytes);
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(page);
+            }
+        }
+    }
+
+    /**
+     * The number of bytes that have been read and not consumed yet.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Returns the byte at the given index, relative to the first unconsumed byte.
+     */
+    byte get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index [" + index + "] is out of bounds for length [" + length + "]");
+        }
+        final int position = offset + index;
+        final BytesRef page = pageBytes.get(position / PAGE_SIZE);
+        return page.bytes[page.offset + position % PAGE_SIZE];
+    }
+
+    /**
+     * Returns the big-endian int at the given index, relative to the first unconsumed byte.
+     */
+    int getInt(int index) {
+        return ((get(index) & 0xFF) << 24) | ((get(index + 1) & 0xFF) << 16) | ((get(index + 2) & 0xFF) << 8) | (get(index + 3) & 0xFF);
+    }
+
+    /**
+     * Returns the first {@code length} unconsumed bytes without copying them. The returned reference shares the pages of this buffer
+     * and must not be used anymore once the bytes have been {@link #discard(int) discarded}.
+     */
+    BytesReference bytes(int length) {
+        if (length < 0 || length > this.length) {
+            throw new IllegalArgumentException("can't get [" + length + "] bytes out of [" + this.length + "]");
+        }
+        final List<BytesReference> references = new ArrayList<>();
+        int pageOffset = offset;
+        int remaining = length;
+        for (int i = 0; remaining > 0; i++) {
+            final BytesRef page = pageBytes.get(i);
+            final int pageLength = Math.min(PAGE_SIZE - pageOffset, remaining);
+            references.add(new BytesArray(page.bytes, page.offset + pageOffset, pageLength));
+            remaining -= pageLength;
+            pageOffset = 0;
+        }
+        if (references.size() == 1) {
+            return references.get(0);
+        }
+        return new CompositeBytesReference(references.toArray(new BytesReference[references.size()]));
+    }
+
+    /**
+     * Consumes the first {@code length} unconsumed bytes and releases the pages that have been consumed entirely.
+     */
+    void discard(int length) {
+        if (length < 0 || length > this.length) {
+            throw new IllegalArgumentException("can't discard [" + length + "] bytes out of [" + this.length + "]");
+        }
+        this.length -= length;
+        offset += length;
+        final int consumedPages = offset / PAGE_SIZE;
+        if (consumedPages > 0) {
+            releasePages(consumedPages);
+            offset -= consumedPages * PAGE_SIZE;
+        }
+        releaseIfEmpty();
+    }
+
+    private void releaseIfEmpty() {
+        if (length == 0 && pages.isEmpty() == false) {
+            releasePages(pages.size());
+            offset = 0;
+        }
+    }
+
+    private void releasePages(int count) {
+        final List<ByteArray> released = pages.subList(0, count);
+        try {
+            Releasables.close(released);
+        } finally {
+            released.clear();
+            pageBytes.subList(0, count).clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        releasePages(pages.size());
+        offset = 0;
+        length = 0;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A channel of the {@link NioTransport}, registered with a {@link NioSelector} that handles all of its events on a single thread.
+ * Closing a channel closes its socket right away; the resources of the channel are released and its close listener is notified on
+ * the selector thread.
+ */
+public abstract class NioChannel implements Closeable {
+
+    private final String profile;
+    private final Consumer<NioChannel> closeListener;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile NioSelector selector;
+    // only accessed by the selector thread
+    private SelectionKey selectionKey;
+
+    NioChannel(String profile, Consumer<NioChannel> closeListener) {
+        this.profile = profile;
+        this.closeListener = closeListener;
+    }
+
+    /**
+     * The socket channel that this channel wraps.
+     */
+    abstract SelectableChannel rawChannel();
+
+    /**
+     * Handles the operations that the selector found ready for this channel. Called on the selector thread.
+     */
+    abstract void handleReadyOps(int readyOps) throws IOException;
+
+    /**
+     * Called on the selector thread once the channel has been registered with it.
+     */
+    void onRegistered() throws IOException {
+    }
+
+    /**
+     * Releases the resources of the channel once it has been closed. Called once, on the selector thread unless the channel was closed
+     * before it was registered with a selector.
+     */
+    void onClosed() {
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public abstract InetSocketAddress getLocalAddress();
+
+    public boolean isOpen() {
+        return closed.get() == false;
+    }
+
+    NioSelector selector() {
+        return selector;
+    }
+
+    SelectionKey selectionKey() {
+        return selectionKey;
+    }
+
+    /**
+     * Registers this channel with the given selector for the given operations.
+     */
+    void register(NioSelector selector, int interestOps) {
+        this.selector = selector;
+        selector.schedule(this, () -> {
+            if (isOpen()) {
+                selectionKey = rawChannel().register(selector.rawSelector(), interestOps, this);
+                onRegistered();
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                rawChannel().close();
+            } finally {
+                final NioSelector selector = this.selector;
+                if (selector == null) {
+                    closeFinished();
+                } else {
+                    // the selector thread might be in the middle of handling this channel, let it finish first
+                    selector.schedule(this, this::closeFinished);
+                }
+            }
+        }
+    }
+
+    private void closeFinished() {
+        try {
+            onClosed();
+        } finally {
+            closeListener.accept(this);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.nio;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.CheckedRunnable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a {@link Selector} on a dedicated thread that handles all the events of the {@link NioChannel}s registered with it. Other
+ * threads interact with these channels by handing tasks to the selector thread, which runs them in between two selections.
+ */
+final class NioSelector implements Closeable {
+
+    /**
+     * The size of the direct buffer that the channels of a selector read into and write from. Reading into or writing from a heap
+     * buffer makes the JDK copy it through a temporary direct buffer as large as the heap buffer, which it caches per thread without
+     * any bound. Going through this buffer instead caps the direct memory of the transport at this size per selector.
+     */
+    static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger;
+    private final Selector selector;
+    private final BiConsumer<NioChannel, Exception> exceptionHandler;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+    private volatile Thread thread;
+    // only accessed by the selector thread, allocated on first use since the selector of server sockets never needs it
+    private ByteBuffer ioBuffer;
+
+    NioSelector(Logger logger, BiConsumer<NioChannel, Exception> exceptionHandler) throws IOException {
+        this.logger = logger;
+        this.exceptionHandler = exceptionHandler;
+        this.selector = Selector.open();
+    }
+
+    void start(ThreadFactory threadFactory) {
+        final Thread thread = threadFactory.newThread(this::run);
+        this.thread = thread;
+        thread.start();
+    }
+
+    Selector rawSelector() {
+        return selector;
+    }
+
+    /**
+     * Returns the direct buffer that the channels of this selector read into and write from while they handle their events. It is
+     * shared by all these channels and must only be used by the selector thread.
+     */
+    ByteBuffer ioBuffer() {
+        if (ioBuffer == null) {
+            ioBuffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+        }
+        return ioBuffer;
+    }
+
+    boolean isSelectorThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Runs the given task on the selector thread: right away if called from the selector thread, otherwise once the selector thread
+     * has been woken up. An exception thrown by the task is handled as an exception of the given channel.
+     */
+    void execute(NioChannel channel, CheckedRunnable<IOException> task) {
+        if (isSelectorThread()) {
+            runTask(channel, task);
+        } else {
+            schedule(channel, task);
+        }
+    }
+
+    /**
+     * Runs the given task on the selector thread once it is done with the events of the current selection, even if called from the
+     * selector thread. If the selector is stopped, the task is run by the calling thread.
+     */
+    void schedule(NioChannel channel, CheckedRunnable<IOException> task) {
+        tasks.add(() -> runTask(channel, task));
+        if (stopped.getCount() == 0) {
+            // the selector thread is gone, nobody else is going to pick the task up
+            runTasks();
+        } else {
+            selector.wakeup();
+        }
+    }
+
+    private void runTask(NioChannel channel, CheckedRunnable<IOException> task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            handleException(channel, e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void handleException(NioChannel channel, Exception e) {
+        if (channel.isOpen()) {
+            exceptionHandler.accept(channel, e);
+        } else {
+            // the channel has been closed concurrently, the exception is just a consequence of it
+            logger.trace((Supplier<?>) () -> new ParameterizedMessage("exception caught on closed channel [{}]", channel), e);
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    logger.warn("failed to select", e);
+                }
+                runTasks();
+                processSelectedKeys();
+            }
+        } catch (ClosedSelectorException e) {
+            if (running) {
+                logger.warn("selector was closed unexpectedly", e);
+            }
+        } finally {
+            try {
+                closeChannels();
+                runTasks();
+                IOUtils.closeWhileHandlingException(selector);
+            } finally {
+                stopped.countDown();
+                // tasks that were scheduled while the selector was stopping
+                runTasks();
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            final SelectionKey key = keys.next();
+            keys.remove();
+            final NioChannel channel = (NioChannel) key.attachment();
+            try {
+                if (key.isValid()) {
+                    channel.handleReadyOps(key.readyOps());
+                }
+            } catch (CancelledKeyException e) {
+                // the channel has been closed while its events were handled, its resources are released by a scheduled task
+            } catch (Exception e) {
+                handleException(channel, e);
+            }
+        }
+    }
+
+    private void closeChannels() {
+        final List<NioChannel> channels = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            channels.add((NioChannel) key.attachment());
+        }
+        IOUtils.closeWhileHandlingException(channels);
+    }
+
+    /**
+     * Stops the selector thread, closing the channels that are still registered with the selector.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (thread == null) {
+            // never started
+            stopped.countDown();
+            IOUtils.closeWhileHandlingException(selector);
+            runTasks();
+            return;
+        }
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.nio;
+
+import org.elasticsearch.common.CheckedConsumer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
+
+/**
+ * A bound server socket of a transport profile that hands the connections it accepts to the transport.
+ */
+public final class NioServerSocketChannel extends NioChannel {
+
+    private final ServerSocketChannel socketChannel;
+    private final InetSocketAddress localAddress;
+    private final CheckedConsumer<SocketChannel, IOException> acceptor;
+
+    NioServerSocketChannel(String profile, ServerSocketChannel socketChannel, CheckedConsumer<SocketChannel, IOException> acceptor,
+                           Consumer<NioChannel> closeListener) throws IOException {
+        super(profile, closeListener);
+        this.socketChannel = socketChannel;
+        this.localAddress = (InetSocketAddress) socketChannel.getLocalAddress();
+        this.acceptor = acceptor;
+    }
+
+    @Override
+    SelectableChannel rawChannel() {
+        return socketChannel;
+    }
+
+    @Override
+    void handleReadyOps(int readyOps) throws IOException {
+        if ((readyOps & SelectionKey.OP_ACCEPT) != 0) {
+            SocketChannel accepted;
+            while ((accepted = SocketAccess.doPrivilegedIOException(socketChannel::accept)) != null) {
+                acceptor.accept(accepted);
+            }
+        }
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public String toString() {
+        return "NioServerSocketChannel{" +
+            "profile='" + getProfile() + '\'' +
+            ", localAddress=" + localAddress +
+            '}';
+    }
+}
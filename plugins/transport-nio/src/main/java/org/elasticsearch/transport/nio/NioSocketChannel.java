@@ -0,0 +1,276 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.nio;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.CheckedBiConsumer;
+import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * A connection of the {@link NioTransport}. Inbound bytes are read into an {@link InboundBuffer} and handed to the transport, which
+ * consumes the complete messages. Outbound messages are queued and the pages of their {@link BytesReference} are copied into the
+ * direct buffer of the selector slice by slice, which is then written to the socket.
+ */
+public final class NioSocketChannel extends NioChannel {
+
+    private final SocketChannel socketChannel;
+    private final InetSocketAddress remoteAddress;
+    private final CheckedBiConsumer<NioSocketChannel, InboundBuffer, IOException> inboundConsumer;
+    private final InboundBuffer inboundBuffer;
+    private final PlainActionFuture<Void> connectFuture = PlainActionFuture.newFuture();
+    // only accessed by the selector thread
+    private final ArrayDeque<WriteOperation> pendingWrites = new ArrayDeque<>();
+    private volatile InetSocketAddress localAddress;
+
+    NioSocketChannel(String profile, SocketChannel socketChannel, InetSocketAddress remoteAddress, BigArrays bigArrays,
+                     CheckedBiConsumer<NioSocketChannel, InboundBuffer, IOException> inboundConsumer,
+                     Consumer<NioChannel> closeListener) {
+        super(profile, closeListener);
+        this.socketChannel = socketChannel;
+        this.remoteAddress = remoteAddress;
+        this.inboundConsumer = inboundConsumer;
+        this.inboundBuffer = new InboundBuffer(bigArrays);
+    }
+
+    @Override
+    SelectableChannel rawChannel() {
+        return socketChannel;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Waits for the connection to be established.
+     *
+     * @throws IOException if the connection failed or did not complete in time
+     */
+    void awaitConnect(TimeValue timeout) throws IOException {
+        try {
+            connectFuture.get(timeout.millis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while connecting to [" + remoteAddress + "]", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to connect to [" + remoteAddress + "]", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("failed to connect to [" + remoteAddress + "] within [" + timeout + "]", e);
+        }
+    }
+
+    @Override
+    void onRegistered() throws IOException {
+        if (socketChannel.isConnected()) {
+            onConnected();
+        }
+    }
+
+    @Override
+    void handleReadyOps(int readyOps) throws IOException {
+        if ((readyOps & SelectionKey.OP_CONNECT) != 0) {
+            finishConnect();
+        }
+        if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+            flushWrites();
+        }
+        if ((readyOps & SelectionKey.OP_READ) != 0) {
+            read();
+        }
+    }
+
+    private void finishConnect() throws IOException {
+        final boolean connected;
+        try {
+            connected = socketChannel.finishConnect();
+        } catch (IOException e) {
+            connectFuture.onFailure(e);
+            close();
+            return;
+        }
+        if (connected) {
+            onConnected();
+        }
+    }
+
+    private void onConnected() throws IOException {
+        localAddress = (InetSocketAddress) socketChannel.getLocalAddress();
+        selectionKey().interestOps(pendingWrites.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        connectFuture.onResponse(null);
+    }
+
+    private void read() throws IOException {
+        final int read = inboundBuffer.readFrom(socketChannel, selector().ioBuffer());
+        if (read == -1) {
+            close();
+        } else if (read > 0) {
+            inboundConsumer.accept(this, inboundBuffer);
+        }
+    }
+
+    /**
+     * Sends the given bytes, notifying the listener once they have all been written or the channel was closed before that.
+     */
+    void sendMessage(BytesReference reference, ActionListener<Void> listener) throws IOException {
+        final WriteOperation operation = new WriteOperation(reference, listener);
+        final NioSelector selector = selector();
+        if (isOpen() == false || selector == null) {
+            operation.onFailure(new ClosedChannelException());
+            return;
+        }
+        selector.execute(this, () -> {
+            if (isOpen() == false) {
+                operation.onFailure(new ClosedChannelException());
+                return;
+            }
+            pendingWrites.add(operation);
+            if (pendingWrites.size() == 1 && socketChannel.isConnected()) {
+                flushWrites();
+            }
+        });
+    }
+
+    private void flushWrites() throws IOException {
+        final ByteBuffer ioBuffer = selector().ioBuffer();
+        WriteOperation operation;
+        while ((operation = pendingWrites.peek()) != null) {
+            if (operation.writeTo(socketChannel, ioBuffer) == false) {
+                // the socket buffer is full, carry on once it has room again
+                selectionKey().interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            pendingWrites.poll();
+            operation.listener.onResponse(null);
+        }
+        selectionKey().interestOps(SelectionKey.OP_READ);
+    }
+
+    @Override
+    void onClosed() {
+        try {
+            connectFuture.onFailure(new ClosedChannelException());
+            WriteOperation operation;
+            while ((operation = pendingWrites.poll()) != null) {
+                operation.onFailure(new ClosedChannelException());
+            }
+        } finally {
+            inboundBuffer.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NioSocketChannel{" +
+            "profile='" + getProfile() + '\'' +
+            ", localAddress=" + localAddress +
+            ", remoteAddress=" + remoteAddress +
+            '}';
+    }
+
+    private static final class WriteOperation {
+
+        private final ByteBuffer[] buffers;
+        private final ActionListener<Void> listener;
+        private int index = 0;
+
+        WriteOperation(BytesReference reference, ActionListener<Void> listener) throws IOException {
+            final List<ByteBuffer> buffers = new ArrayList<>();
+            final BytesRefIterator iterator = reference.iterator();
+            BytesRef ref;
+            while ((ref = iterator.next()) != null) {
+                buffers.add(ByteBuffer.wrap(ref.bytes, ref.offset, ref.length));
+            }
+            this.buffers = buffers.toArray(new ByteBuffer[buffers.size()]);
+            this.listener = listener;
+        }
+
+        /**
+         * Writes as many bytes as the channel accepts and returns whether all bytes have been written. The bytes are copied into the
+         * given direct buffer as they fit and written from there, so that the JDK doesn't copy them into a direct buffer of its own.
+         */
+        @SuppressForbidden(reason = "channels are non-blocking, writing stops as soon as the socket buffer is full")
+        boolean writeTo(SocketChannel channel, ByteBuffer ioBuffer) throws IOException {
+            skipWritten(0);
+            while (index < buffers.length) {
+                ioBuffer.clear();
+                for (int i = index; i < buffers.length && ioBuffer.hasRemaining(); i++) {
+                    final ByteBuffer slice = buffers[i].duplicate();
+                    slice.limit(slice.position() + Math.min(slice.remaining(), ioBuffer.remaining()));
+                    ioBuffer.put(slice);
+                }
+                ioBuffer.flip();
+                final int toWrite = ioBuffer.remaining();
+                final int written = channel.write(ioBuffer);
+                skipWritten(written);
+                if (written < toWrite) {
+                    break;
+                }
+            }
+            return index == buffers.length;
+        }
+
+        /**
+         * Moves past the given number of bytes that have been written, and past the buffers that have no bytes left.
+         */
+        private void skipWritten(int written) {
+            int remaining = written;
+            while (index < buffers.length) {
+                final ByteBuffer buffer = buffers[index];
+                final int skipped = Math.min(buffer.remaining(), remaining);
+                buffer.position(buffer.position() + skipped);
+                remaining -= skipped;
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                index++;
+            }
+        }
+
+        void onFailure(Exception e) {
+            listener.onFailure(e);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.nio;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.ConnectionProfile;
+import org.elasticsearch.transport.TcpHeader;
+import org.elasticsearch.transport.TcpTransport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
+
+/**
+ * A {@link TcpTransport} that is built directly on top of java.nio selectors. A fixed number of worker threads each run a
+ * {@link NioSelector} that handles the reads and writes of the connections that are assigned to it, and server sockets accept
+ * connections on a separate selector thread. Each worker reads and writes through a single direct buffer of bounded size. Inbound
+ * bytes are copied from it into pages that are recycled through {@link BigArrays}, and outbound messages are copied into it from the
+ * pages of their {@link BytesReference} one slice at a time.
+ */
+public class NioTransport extends TcpTransport<NioChannel> {
+
+    public static final String TRANSPORT_SERVER_ACCEPTOR_THREAD_NAME_PREFIX = "transport_server_acceptor";
+
+    public static final Setting<Integer> NIO_WORKER_COUNT =
+        new Setting<>("transport.nio.worker_count",
+            (s) -> Integer.toString(EsExecutors.numberOfProcessors(s) * 2),
+            (s) -> Setting.parseInt(s, 1, "transport.nio.worker_count"), Property.NodeScope);
+
+    private static final int SIZE_HEADER_LENGTH = TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE;
+
+    protected final int workerCount;
+    private final BigArrays bigArrays;
+    private final Set<NioSocketChannel> acceptedChannels = ConcurrentCollections.newConcurrentSet();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private volatile NioSelector acceptor;
+    private volatile NioSelector[] workers;
+
+    public NioTransport(Settings settings, ThreadPool threadPool, NetworkService networkService, BigArrays bigArrays,
+                        NamedWriteableRegistry namedWriteableRegistry, CircuitBreakerService circuitBreakerService) {
+        super("nio", settings, threadPool, bigArrays, circuitBreakerService, namedWriteableRegistry, networkService);
+        this.workerCount = NIO_WORKER_COUNT.get(settings);
+        this.bigArrays = bigArrays;
+    }
+
+    @Override
+    protected void doStart() {
+        boolean success = false;
+        try {
+            final NioSelector[] workers = new NioSelector[workerCount];
+            this.workers = workers;
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = openSelector(TRANSPORT_SERVER_WORKER_THREAD_NAME_PREFIX);
+            }
+            if (NetworkService.NETWORK_SERVER.get(settings)) {
+                acceptor = openSelector(TRANSPORT_SERVER_ACCEPTOR_THREAD_NAME_PREFIX);
+                // loop through all profiles and start them up, special handling for default one
+                for (Map.Entry<String, Settings> entry : buildProfileSettings().entrySet()) {
+                    bindServer(entry.getKey(), entry.getValue());
+                }
+            }
+            super.doStart();
+            success = true;
+        } finally {
+            if (success == false) {
+                doStop();
+            }
+        }
+    }
+
+    private NioSelector openSelector(String threadNamePrefix) {
+        final NioSelector selector;
+        try {
+            selector = new NioSelector(logger, this::exceptionCaught);
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to open selector", e);
+        }
+        selector.start(daemonThreadFactory(settings, threadNamePrefix));
+        return selector;
+    }
+
+    private NioSelector nextWorker() {
+        final NioSelector[] workers = this.workers;
+        return workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+    }
+
+    private void exceptionCaught(NioChannel channel, Exception e) {
+        try {
+            onException(channel, e);
+        } catch (IOException inner) {
+            logger.trace("exception while handling exception", inner);
+            IOUtils.closeWhileHandlingException(channel);
+        }
+    }
+
+    @Override
+    protected NioChannel bind(String name, InetSocketAddress address) throws IOException {
+        final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        boolean success = false;
+        try {
+            serverSocketChannel.configureBlocking(false);
+            final ServerSocket socket = serverSocketChannel.socket();
+            socket.setReuseAddress(TCP_REUSE_ADDRESS.get(settings));
+            final ByteSizeValue tcpReceiveBufferSize = TCP_RECEIVE_BUFFER_SIZE.get(settings);
+            if (tcpReceiveBufferSize.getBytes() > 0) {
+                socket.setReceiveBufferSize(tcpReceiveBufferSize.bytesAsInt());
+            }
+            serverSocketChannel.bind(address);
+            final NioServerSocketChannel channel = new NioServerSocketChannel(name, serverSocketChannel,
+                accepted -> acceptChannel(name, accepted), this::onChannelClosed);
+            channel.register(acceptor, SelectionKey.OP_ACCEPT);
+            success = true;
+            return channel;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(serverSocketChannel);
+            }
+        }
+    }
+
+    private void acceptChannel(String profile, SocketChannel socketChannel) throws IOException {
+        final NioSocketChannel channel;
+        try {
+            socketChannel.configureBlocking(false);
+            configureSocket(socketChannel.socket());
+            channel = new NioSocketChannel(profile, socketChannel, (InetSocketAddress) socketChannel.getRemoteAddress(), bigArrays,
+                this::consumeInbound, closed -> {
+                    acceptedChannels.remove(closed);
+                    onChannelClosed(closed);
+                });
+        } catch (IOException e) {
+            IOUtils.closeWhileHandlingException(socketChannel);
+            logger.debug("failed to configure accepted connection", e);
+            return;
+        }
+        acceptedChannels.add(channel);
+        channel.register(nextWorker(), SelectionKey.OP_READ);
+    }
+
+    private void configureSocket(Socket socket) throws SocketException {
+        socket.setTcpNoDelay(TCP_NO_DELAY.get(settings));
+        socket.setKeepAlive(TCP_KEEP_ALIVE.get(settings));
+        socket.setReuseAddress(TCP_REUSE_ADDRESS.get(settings));
+        final ByteSizeValue tcpSendBufferSize = TCP_SEND_BUFFER_SIZE.get(settings);
+        if (tcpSendBufferSize.getBytes() > 0) {
+            socket.setSendBufferSize(tcpSendBufferSize.bytesAsInt());
+        }
+        final ByteSizeValue tcpReceiveBufferSize = TCP_RECEIVE_BUFFER_SIZE.get(settings);
+        if (tcpReceiveBufferSize.getBytes() > 0) {
+            socket.setReceiveBufferSize(tcpReceiveBufferSize.bytesAsInt());
+        }
+    }
+
+    /**
+     * Hands all the complete messages that have been read from the channel to {@link #messageReceived} and consumes them. Partial
+     * messages stay in the buffer until the rest of their bytes has been read.
+     */
+    private void consumeInbound(NioSocketChannel channel, InboundBuffer buffer) throws IOException {
+        while (channel.isOpen() && buffer.length() >= SIZE_HEADER_LENGTH) {
+            final int dataLength = buffer.getInt(TcpHeader.MARKER_BYTES_SIZE);
+            final int frameLength = dataLength > 0 ? SIZE_HEADER_LENGTH + dataLength : SIZE_HEADER_LENGTH;
+            if (buffer.length() < frameLength) {
+                // fail early on corrupted or too large messages rather than buffering their bytes
+                try {
+                    validateMessageHeader(buffer.bytes(SIZE_HEADER_LENGTH));
+                } catch (IllegalStateException e) {
+                    // the header is valid, the rest of the message has not arrived yet
+                }
+                break;
+            }
+            try {
+                if (validateMessageHeader(buffer.bytes(frameLength))) {
+                    messageReceived(buffer.bytes(frameLength).slice(SIZE_HEADER_LENGTH, dataLength), channel, channel.getProfile(),
+                        channel.getRemoteAddress(), dataLength);
+                }
+            } finally {
+                buffer.discard(frameLength);
+            }
+        }
+    }
+
+    @Override
+    public long serverOpen() {
+        return acceptedChannels.size();
+    }
+
+    @Override
+    protected NodeChannels connectToChannels(DiscoveryNode node, ConnectionProfile profile) throws IOException {
+        final NioSocketChannel[] channels = new NioSocketChannel[profile.getNumConnections()];
+        final NodeChannels nodeChannels = new NodeChannels(node, channels, profile);
+        boolean success = false;
+        try {
+            final TimeValue connectTimeout = profile.getConnectTimeout() != null ? profile.getConnectTimeout()
+                : defaultConnectionProfile.getConnectTimeout();
+            final InetSocketAddress address = node.getAddress().address();
+            final Consumer<NioChannel> closeListener = channel -> {
+                onChannelClosed(channel);
+                NodeChannels connected = connectedNodes.get(node);
+                if (connected != null && connected.hasChannel(channel)) {
+                    threadPool.generic().execute(() -> disconnectFromNode(node, channel, "channel closed event"));
+                }
+            };
+            // connect all channels at once and only then wait for them to be established
+            for (int i = 0; i < channels.length; i++) {
+                try {
+                    channels[i] = openChannel(address, closeListener);
+                } catch (IOException e) {
+                    throw new ConnectTransportException(node, "connect_timeout[" + connectTimeout + "]", e);
+                }
+            }
+            for (NioSocketChannel channel : channels) {
+                try {
+                    channel.awaitConnect(connectTimeout);
+                } catch (IOException e) {
+                    throw new ConnectTransportException(node, "connect_timeout[" + connectTimeout + "]", e.getCause());
+                }
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                try {
+                    nodeChannels.close();
+                } catch (IOException e) {
+                    logger.trace("exception while closing channels", e);
+                }
+            }
+        }
+        return nodeChannels;
+    }
+
+    @SuppressForbidden(reason = "We call connect in doPrivileged and provide SocketPermission")
+    private NioSocketChannel openChannel(InetSocketAddress address, Consumer<NioChannel> closeListener) throws IOException {
+        final SocketChannel socketChannel = SocketChannel.open();
+        boolean success = false;
+        try {
+            socketChannel.configureBlocking(false);
+            configureSocket(socketChannel.socket());
+            SocketAccess.doPrivilegedIOException(() -> socketChannel.connect(address));
+            // using a dot as a prefix means this cannot come from any settings parsed
+            final NioSocketChannel channel = new NioSocketChannel(".client", socketChannel, address, bigArrays, this::consumeInbound,
+                closeListener);
+            channel.register(nextWorker(), SelectionKey.OP_CONNECT);
+            success = true;
+            return channel;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(socketChannel);
+            }
+        }
+    }
+
+    @Override
+    protected void sendMessage(NioChannel channel, BytesReference reference, Runnable sendListener) throws IOException {
+        final int length = reference.length();
+        ((NioSocketChannel) channel).sendMessage(reference, new ActionListener<Void>() {
+            @Override
+            public void onResponse(Void aVoid) {
+                transportServiceAdapter.addBytesSent(length);
+                sendListener.run();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                sendListener.run();
+            }
+        });
+    }
+
+    @Override
+    protected void closeChannels(List<NioChannel> channels) throws IOException {
+        IOUtils.close(channels);
+    }
+
+    @Override
+    protected InetSocketAddress getLocalAddress(NioChannel channel) {
+        return channel.getLocalAddress();
+    }
+
+    @Override
+    protected boolean isOpen(NioChannel channel) {
+        return channel.isOpen();
+    }
+
+    @Override
+    protected void stopInternal() {
+        // stop accepting connections before the workers go away, closing a selector closes all the channels registered with it
+        final NioSelector acceptor = this.acceptor;
+        if (acceptor != null) {
+            acceptor.close();
+        }
+        final NioSelector[] workers = this.workers;
+        if (workers != null) {
+            for (NioSelector worker : workers) {
+                if (worker != null) {
+                    worker.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.nio;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class InboundBufferTests extends ESTestCase {
+
+    public void testReadAndDiscard() throws IOException {
+        final byte[] bytes = new byte[randomIntBetween(1, InboundBuffer.PAGE_SIZE * 4)];
+        random().nextBytes(bytes);
+        final ChunkedChannel channel = new ChunkedChannel(bytes, randomIntBetween(1, InboundBuffer.PAGE_SIZE * 2));
+        // an io buffer that is smaller than a page makes reads fill pages in several steps
+        final ByteBuffer ioBuffer = ByteBuffer.allocateDirect(randomIntBetween(1, NioSelector.IO_BUFFER_SIZE));
+        try (InboundBuffer buffer = new InboundBuffer(new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()))) {
+            int consumed = 0;
+            while (consumed < bytes.length) {
+                if (channel.position < bytes.length) {
+                    assertNotEquals(-1, buffer.readFrom(channel, ioBuffer));
+                }
+                assertEquals(channel.position - consumed, buffer.length());
+                if (buffer.length() > 0) {
+                    final int index = randomIntBetween(0, buffer.length() - 1);
+                    assertEquals(bytes[consumed + index], buffer.get(index));
+                    final int length = randomIntBetween(0, buffer.length());
+                    final BytesReference reference = buffer.bytes(length);
+                    assertEquals(new BytesArray(bytes, consumed, length), reference);
+                    if (length >= 4) {
+                        assertEquals(new BytesArray(bytes, consumed, 4).streamInput().readInt(), buffer.getInt(0));
+                    }
+                    buffer.discard(length);
+                    consumed += length;
+                }
+            }
+            assertEquals(0, buffer.length());
+            assertEquals(-1, buffer.readFrom(channel, ioBuffer));
+        }
+    }
+
+    public void testOutOfBounds() throws IOException {
+        final byte[] bytes = new byte[randomIntBetween(1, 100)];
+        try (InboundBuffer buffer = new InboundBuffer(new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()))) {
+            final ByteBuffer ioBuffer = ByteBuffer.allocateDirect(NioSelector.IO_BUFFER_SIZE);
+            assertEquals(bytes.length, buffer.readFrom(new ChunkedChannel(bytes, Integer.MAX_VALUE), ioBuffer));
+            expectThrows(IndexOutOfBoundsException.class, () -> buffer.get(bytes.length));
+            expectThrows(IndexOutOfBoundsException.class, () -> buffer.get(-1));
+            expectThrows(IllegalArgumentException.class, () -> buffer.bytes(bytes.length + 1));
+            expectThrows(IllegalArgumentException.class, () -> buffer.discard(bytes.length + 1));
+        }
+    }
+
+    public void testReadIsBounded() throws IOException {
+        final int maxRead = InboundBuffer.PAGE_SIZE * InboundBuffer.MAX_PAGES_PER_READ;
+        final byte[] bytes = new byte[maxRead + randomIntBetween(1, 100)];
+        final ChunkedChannel channel = new ChunkedChannel(bytes, Integer.MAX_VALUE);
+        final ByteBuffer ioBuffer = ByteBuffer.allocateDirect(NioSelector.IO_BUFFER_SIZE);
+        try (InboundBuffer buffer = new InboundBuffer(new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()))) {
+            assertEquals(maxRead, buffer.readFrom(channel, ioBuffer));
+            assertEquals(bytes.length - maxRead, buffer.readFrom(channel, ioBuffer));
+        }
+    }
+
+    /**
+     * Hands out the given bytes in chunks of random sizes up to the given maximum, or fills the buffer it reads into if the maximum
+     * is {@link Integer#MAX_VALUE}.
+     */
+    private static final class ChunkedChannel implements ReadableByteChannel {
+
+        private final byte[] bytes;
+        private final int maxChunkSize;
+        private int position = 0;
+
+        ChunkedChannel(byte[] bytes, int maxChunkSize) {
+            this.bytes = bytes;
+            this.maxChunkSize = maxChunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (position == bytes.length) {
+                return -1;
+            }
+            final int chunkSize = maxChunkSize == Integer.MAX_VALUE ? dst.remaining() : randomIntBetween(0, maxChunkSize);
+            final int length = Math.min(Math.min(chunkSize, dst.remaining()), bytes.length - position);
+            dst.put(bytes, position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -423,6 +423,7 @@ public abstract class IndexShardTestCase extends ESTestCase {
             () -> 0L,
             e -> () -> {},
             (int) ByteSizeUnit.MB.toBytes(1),
+            between(1, 8),
             Settings.builder().put(Node.NODE_NAME_SETTING.getKey(), pNode.getName()).build());
         recovery.recoverToTarget();
         recoveryTarget.markAsDone();